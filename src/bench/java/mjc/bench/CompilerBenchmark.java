@@ -0,0 +1,54 @@
+package mjc.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mjc.Compiler;
+
+/**
+ * Measures the throughput of compiling programs end to end, from source code to class
+ * files in memory.
+ *
+ * Each invocation compiles all of the programs of the {@link Inputs}, either generating
+ * class files directly or assembling them from Jasmin code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+    @Param({ "CLASS_FILES", "ASSEMBLED_JASMIN" })
+    public Compiler.Backend backend;
+
+    private Compiler compiler;
+
+    @Setup
+    public void setUp() {
+        compiler = new Compiler(Compiler.Frontend.FAST, Compiler.Frontend.FAST, false,
+                backend, null, false);
+    }
+
+    /**
+     * Compiles all sources.
+     */
+    @Benchmark
+    public void compile(Inputs inputs, Blackhole blackhole) {
+        for (char[] source : inputs.sources) {
+            blackhole.consume(compiler.compile(source));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package mjc.bench;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import mjc.Compiler;
+import mjc.source.SourceFile;
+import mjc.synthetic.ProgramGenerator;
+
+/**
+ * The programs that the benchmarks compile.
+ *
+ * The input is either {@code corpus}, the *.java files in src/test/resources/execute
+ * that compile without errors, or {@code synthetic-N}, a single program from the
+ * {@link ProgramGenerator} with N classes of 10 methods of 20 statements each.
+ */
+@State(Scope.Benchmark)
+public class Inputs {
+    private static final String dataDir = "src/test/resources/execute";
+
+    @Param({ "corpus", "synthetic-10", "synthetic-100" })
+    public String input;
+
+    /** Source code of the programs. */
+    public List<char[]> sources;
+
+    @Setup
+    public void setUp() throws IOException {
+        sources = new ArrayList<>();
+        if (input.equals("corpus")) {
+            try (DirectoryStream<Path> paths = Files.newDirectoryStream(Paths.get(dataDir), "*.java")) {
+                for (Path path : paths) {
+                    final char[] source = SourceFile.read(path);
+                    if (new Compiler().compile(source).isSuccessful()) {
+                        sources.add(source);
+                    }
+                }
+            }
+        } else if (input.startsWith("synthetic-")) {
+            final int classes = Integer.parseInt(input.substring("synthetic-".length()));
+            sources.add(new ProgramGenerator()
+                    .classes(classes).methods(10).statements(20).generate().toCharArray());
+        } else {
+            throw new IllegalArgumentException("Unknown input: " + input);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package mjc.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mjc.lexer.FastLexer;
+import mjc.lexer.Lexer;
+import mjc.lexer.LexerException;
+import mjc.node.EOF;
+import mjc.source.SourceReader;
+
+/**
+ * Compares the throughput of the generated Lexer and the FastLexer.
+ *
+ * Each invocation tokenizes all of the programs of the {@link Inputs}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({ "fast", "sablecc" })
+    public String implementation;
+
+    /**
+     * Tokenizes all sources, returning the number of tokens.
+     */
+    @Benchmark
+    public int tokenize(Inputs inputs) throws IOException, LexerException {
+        int tokens = 0;
+        for (char[] source : inputs.sources) {
+            final Lexer lexer = implementation.equals("fast")
+                    ? new FastLexer(source)
+                    : new Lexer(new SourceReader(source));
+            while (!(lexer.next() instanceof EOF)) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+}
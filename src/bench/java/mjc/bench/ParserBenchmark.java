@@ -0,0 +1,55 @@
+package mjc.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mjc.lexer.FastLexer;
+import mjc.lexer.LexerException;
+import mjc.parser.FastParser;
+import mjc.parser.Parser;
+import mjc.parser.ParserException;
+
+/**
+ * Compares the throughput of the generated Parser and the FastParser.
+ *
+ * Each invocation parses all of the programs of the {@link Inputs}, using the FastLexer
+ * for both parsers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({ "fast", "sablecc" })
+    public String implementation;
+
+    /**
+     * Parses all sources.
+     */
+    @Benchmark
+    public void parse(Inputs inputs, Blackhole blackhole)
+            throws IOException, LexerException, ParserException {
+        for (char[] source : inputs.sources) {
+            final FastLexer lexer = new FastLexer(source);
+            if (implementation.equals("fast")) {
+                blackhole.consume(new FastParser(lexer).parse());
+            } else {
+                blackhole.consume(new Parser(lexer).parse());
+            }
+        }
+    }
+}
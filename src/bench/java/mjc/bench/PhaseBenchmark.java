@@ -0,0 +1,132 @@
+package mjc.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import mjc.analysis.SymbolTableBuilder;
+import mjc.analysis.TypeChecker;
+import mjc.bytecode.ClassFileGenerator;
+import mjc.bytecode.ClassFileHandler;
+import mjc.jasmin.Assembler;
+import mjc.jasmin.JasminGenerator;
+import mjc.jasmin.JasminHandler;
+import mjc.lexer.FastLexer;
+import mjc.lexer.LexerException;
+import mjc.node.Node;
+import mjc.parser.FastParser;
+import mjc.parser.ParserException;
+import mjc.symbol.SymbolTable;
+
+/**
+ * Measures the throughput of each phase after parsing on its own.
+ *
+ * Each invocation runs one phase on all of the programs of the {@link Inputs}. The input
+ * of the phase is prepared once, by running the phases before it, so that only the phase
+ * itself is measured. Run with {@code -prof gc} for the allocation rate of each phase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+    private final List<Node> asts = new ArrayList<>();
+    private final List<SymbolTable> symbolTables = new ArrayList<>();
+    private final List<String> classNames = new ArrayList<>();
+    private final List<StringBuilder> jasminCode = new ArrayList<>();
+
+    @Setup
+    public void setUp(Inputs inputs) throws IOException, LexerException, ParserException {
+        for (char[] source : inputs.sources) {
+            final Node ast = new FastParser(new FastLexer(source)).parse();
+            final SymbolTable symbolTable = new SymbolTableBuilder().build(ast);
+            if (!new TypeChecker().check(ast, symbolTable)) {
+                throw new Error("PhaseBenchmark.setUp: Type errors in input");
+            }
+            asts.add(ast);
+            symbolTables.add(symbolTable);
+            new JasminGenerator(new JasminHandler() {
+                public void handle(String className, StringBuilder code) {
+                    classNames.add(className);
+                    jasminCode.add(code);
+                }
+            }).generate(ast, symbolTable);
+        }
+    }
+
+    /**
+     * Builds the symbol tables.
+     */
+    @Benchmark
+    public void buildSymbolTable(Blackhole blackhole) {
+        for (Node ast : asts) {
+            blackhole.consume(new SymbolTableBuilder().build(ast));
+        }
+    }
+
+    /**
+     * Type-checks the programs, which includes resolving names.
+     */
+    @Benchmark
+    public void typeCheck(Blackhole blackhole) {
+        for (int i = 0; i < asts.size(); i++) {
+            blackhole.consume(new TypeChecker().check(asts.get(i), symbolTables.get(i)));
+        }
+    }
+
+    /**
+     * Generates Jasmin code.
+     */
+    @Benchmark
+    public void generateJasmin(final Blackhole blackhole) throws IOException {
+        final JasminGenerator generator = new JasminGenerator(new JasminHandler() {
+            public void handle(String className, StringBuilder code) {
+                blackhole.consume(code);
+            }
+        });
+        for (int i = 0; i < asts.size(); i++) {
+            generator.generate(asts.get(i), symbolTables.get(i));
+        }
+    }
+
+    /**
+     * Assembles the Jasmin code of the programs into class files.
+     */
+    @Benchmark
+    public void assemble(Blackhole blackhole) {
+        final Assembler assembler = new Assembler();
+        for (int i = 0; i < jasminCode.size(); i++) {
+            blackhole.consume(assembler.assemble(classNames.get(i), jasminCode.get(i)));
+        }
+    }
+
+    /**
+     * Generates class files directly.
+     */
+    @Benchmark
+    public void generateClassFiles(final Blackhole blackhole) {
+        final ClassFileGenerator generator = new ClassFileGenerator(new ClassFileHandler() {
+            public void handle(String className, byte[] classFile) {
+                blackhole.consume(classFile);
+            }
+        });
+        for (int i = 0; i < asts.size(); i++) {
+            generator.generate(asts.get(i), symbolTables.get(i));
+        }
+    }
+}
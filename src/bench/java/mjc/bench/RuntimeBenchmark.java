@@ -0,0 +1,160 @@
+package mjc.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mjc.CompilationResult;
+import mjc.Compiler;
+import mjc.output.MemoryClassLoader;
+import mjc.report.Javac;
+
+/**
+ * Measures the run time of programs compiled by mjc and by javac.
+ *
+ * MiniJava programs are valid Java, so each program in src/test/resources/execute is
+ * compiled by the compiler given by the {@code compiler} parameter, and its classes are
+ * loaded by a class loader of their own. The output of the program is checked against
+ * the expected output of the tests once, and is otherwise discarded.
+ *
+ * {@link #steadyState()} measures runs of the program once its classes have been loaded
+ * and compiled by the JIT, and {@link #firstRun()} measures loading the classes and
+ * running the program once, in the interpreter. {@link RuntimeComparison} runs this
+ * benchmark and compares the two compilers.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class RuntimeBenchmark {
+    static final String dataDir = "src/test/resources/execute";
+
+    // The programs of src/test/resources/execute except SideEffects, which uses the ||
+    // operator of an extension that mjc does not implement.
+    @Param({ "Accumulator", "Big", "BinarySearch", "BinaryTree", "BubbleSort",
+             "DisjointSets", "Duplicates", "Factorial", "Fibonacci", "Fields", "IfAnd",
+             "LinearSearch", "LinkedList", "Negative", "NestedBlocks", "Queens",
+             "QuickSort" })
+    public String program;
+
+    @Param({ "mjc", "javac" })
+    public String compiler;
+
+    private Map<String, byte[]> classFiles;
+    private Method main;
+    private PrintStream systemOut;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        final String source = new String(Files.readAllBytes(Paths.get(dataDir, program + ".java")),
+                StandardCharsets.UTF_8);
+        classFiles = compiler.equals("mjc") ? compileWithMjc(source) : compileWithJavac(source);
+
+        systemOut = System.out;
+        System.setOut(new PrintStream(output, false, "UTF-8"));
+        main = load(classFiles);
+        main.invoke(null, (Object) new String[0]);
+        System.out.flush();
+        final String expected = new String(Files.readAllBytes(Paths.get(dataDir, program + ".out")),
+                StandardCharsets.UTF_8);
+        final String actual = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        if (!actual.equals(expected)) {
+            throw new Error("RuntimeBenchmark.setUp: Wrong output of " + program +
+                    " compiled by " + compiler + ":\n" + actual);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(systemOut);
+    }
+
+    /**
+     * Runs the program.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public void steadyState() throws ReflectiveOperationException {
+        output.reset();
+        main.invoke(null, (Object) new String[0]);
+    }
+
+    /**
+     * Loads the classes of the program with a new class loader and runs the program.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public void firstRun() throws ReflectiveOperationException {
+        output.reset();
+        load(classFiles).invoke(null, (Object) new String[0]);
+    }
+
+    /**
+     * Loads the classes of a program.
+     *
+     * @param classFiles Map from class names to class files, with the main class first.
+     * @return The main method.
+     * @throws ReflectiveOperationException if the main method could not be found.
+     */
+    private static Method load(Map<String, byte[]> classFiles) throws ReflectiveOperationException {
+        final String mainClass = classFiles.keySet().iterator().next();
+        final ClassLoader loader = new MemoryClassLoader(classFiles, null);
+        final Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+        main.setAccessible(true); // javac leaves the class package-private.
+        return main;
+    }
+
+    /**
+     * Compiles a program with mjc.
+     *
+     * @param source Source code of the program.
+     * @return Map from class names to class files, with the main class first.
+     */
+    static Map<String, byte[]> compileWithMjc(String source) {
+        final CompilationResult result = new Compiler().compile(source.toCharArray());
+        if (!result.isSuccessful()) {
+            throw new Error("RuntimeBenchmark.compileWithMjc: " + result.getErrors());
+        }
+        return result.getClassFiles();
+    }
+
+    /**
+     * Compiles a program with javac, without debugging information.
+     *
+     * @param source Source code of the program.
+     * @return Map from class names to class files, with the main class first.
+     */
+    static Map<String, byte[]> compileWithJavac(String source) {
+        // Put the classes in the order of mjc, which puts the main class first.
+        final Map<String, byte[]> javacClassFiles = Javac.compile(source, "Main.java");
+        final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        for (String className : compileWithMjc(source).keySet()) {
+            classFiles.put(className, javacClassFiles.get(className));
+        }
+        return classFiles;
+    }
+}
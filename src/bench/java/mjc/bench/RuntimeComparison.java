@@ -0,0 +1,103 @@
+package mjc.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import mjc.bytecode.ClassFileSummary;
+import mjc.bytecode.ClassFileSummary.MethodSummary;
+
+/**
+ * Compares programs compiled by mjc with the same programs compiled by javac.
+ *
+ * Runs the {@link RuntimeBenchmark} and reports, for each program, how many times slower
+ * the mjc version is on its first run and in steady state, and how many times larger its
+ * bytecode is. Arguments are passed to JMH, e.g. {@code -p program=Queens} to compare
+ * a single program.
+ */
+public class RuntimeComparison {
+
+    public static void main(String[] args)
+            throws CommandLineOptionException, RunnerException, IOException {
+        final OptionsBuilder options = new OptionsBuilder();
+        options.parent(new CommandLineOptions(args));
+        options.include(RuntimeBenchmark.class.getName());
+        options.shouldFailOnError(true);
+
+        // Scores by program, benchmark and compiler.
+        final Map<String, Map<String, Double>> scores = new TreeMap<>();
+        for (RunResult result : new Runner(options.build()).run()) {
+            final String program = result.getParams().getParam("program");
+            final String benchmark = result.getParams().getBenchmark();
+            final String key = benchmark.substring(benchmark.lastIndexOf('.') + 1) + " " +
+                    result.getParams().getParam("compiler");
+            if (!scores.containsKey(program)) {
+                scores.put(program, new TreeMap<String, Double>());
+            }
+            scores.get(program).put(key, result.getPrimaryResult().getScore());
+        }
+
+        System.out.println();
+        System.out.printf("%-14s %12s %12s %12s%n",
+                "Program", "First run", "Steady state", "Bytecode");
+        double firstRunProduct = 1;
+        double steadyStateProduct = 1;
+        double sizeProduct = 1;
+        for (Map.Entry<String, Map<String, Double>> entry : scores.entrySet()) {
+            final Map<String, Double> score = entry.getValue();
+            final double firstRun = ratio(score, "firstRun");
+            final double steadyState = ratio(score, "steadyState");
+            final double size = sizeRatio(entry.getKey());
+            System.out.printf("%-14s %11.2fx %11.2fx %11.2fx%n",
+                    entry.getKey(), firstRun, steadyState, size);
+            firstRunProduct *= firstRun;
+            steadyStateProduct *= steadyState;
+            sizeProduct *= size;
+        }
+        final double n = scores.size();
+        System.out.printf("%-14s %11.2fx %11.2fx %11.2fx%n", "Geometric mean",
+                Math.pow(firstRunProduct, 1 / n), Math.pow(steadyStateProduct, 1 / n),
+                Math.pow(sizeProduct, 1 / n));
+    }
+
+    /**
+     * Returns the time of the mjc version of a program divided by that of the javac
+     * version, or NaN if either was not measured.
+     */
+    private static double ratio(Map<String, Double> score, String benchmark) {
+        final Double mjc = score.get(benchmark + " mjc");
+        final Double javac = score.get(benchmark + " javac");
+        return mjc != null && javac != null ? mjc / javac : Double.NaN;
+    }
+
+    /**
+     * Returns the total length of the code of the methods of a program compiled by mjc
+     * divided by that of the program compiled by javac.
+     */
+    private static double sizeRatio(String program) throws IOException {
+        final String source = new String(Files.readAllBytes(
+                Paths.get(RuntimeBenchmark.dataDir, program + ".java")), StandardCharsets.UTF_8);
+        return (double) size(RuntimeBenchmark.compileWithMjc(source)) /
+                size(RuntimeBenchmark.compileWithJavac(source));
+    }
+
+    private static long size(Map<String, byte[]> classFiles) {
+        long size = 0;
+        for (byte[] classFile : classFiles.values()) {
+            for (MethodSummary method : ClassFileSummary.read(classFile).getMethods()) {
+                size += method.getCodeLength();
+            }
+        }
+        return size;
+    }
+}
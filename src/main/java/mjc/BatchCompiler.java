@@ -0,0 +1,381 @@
+package mjc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import mjc.Compiler.Compilation;
+import mjc.Compiler.Phase;
+import mjc.error.MiniJavaError;
+import mjc.output.ClassOutput;
+import mjc.output.WriteBehindQueue;
+import mjc.source.SourceFile;
+import static mjc.error.MiniJavaErrorType.INTERNAL_ERROR;
+import static mjc.error.MiniJavaErrorType.IO_ERROR;
+
+/**
+ * The BatchCompiler class compiles many MiniJava programs, one per file, in a pipeline.
+ *
+ * The pipeline has a stage for each step of a compilation: reading the source file,
+ * parsing, semantic analysis, code generation and writing the output. Each stage runs on
+ * threads of its own and hands the programs on to the next stage through a bounded
+ * queue, so that the stages work on different programs at once while only a few
+ * programs are held in memory between them. All output is written by one background
+ * thread.
+ *
+ * Each program is compiled on its own: errors in a program, I/O errors while reading or
+ * writing it, and failures of the compiler itself are reported in the result for that
+ * program, and the other programs are compiled as usual.
+ *
+ * Compilation is cancelled by interrupting the calling thread. Programs that have
+ * entered the pipeline by then are reported as cancelled, and the remaining programs are
+ * left out of the result.
+ */
+public final class BatchCompiler {
+
+    /**
+     * The Outputs interface specifies where the generated code of each program goes.
+     */
+    public interface Outputs {
+        /**
+         * Opens the output of a program. It is closed once the code has been written.
+         *
+         * @param file Source file of the program.
+         * @return Output for the generated code.
+         * @throws IOException if an I/O error occurred.
+         */
+        ClassOutput open(Path file) throws IOException;
+    }
+
+    // Maximum number of programs waiting between two stages.
+    private static final int STAGE_QUEUE_CAPACITY = 16;
+
+    // Maximum number of classes waiting to be written to the outputs.
+    private static final int OUTPUT_QUEUE_CAPACITY = 64;
+
+    // Marks the end of the input of a stage.
+    private static final Job END = new Job(null);
+
+    private final Compiler compiler;
+    private final int threads;
+
+    /**
+     * Constructs a BatchCompiler.
+     *
+     * @param compiler Compiler to use for each program.
+     * @param threads Number of threads in each stage of the pipeline.
+     */
+    public BatchCompiler(Compiler compiler, int threads) {
+        this.compiler = compiler;
+        this.threads = threads;
+    }
+
+    /**
+     * Compiles programs.
+     *
+     * All code has been written and all outputs have been closed when this method
+     * returns.
+     *
+     * @param files Source files of the programs.
+     * @param outputs Outputs for the generated code.
+     * @return The results of the compilations, in the same order as the files, without
+     *         the generated code.
+     */
+    public List<CompilationResult> compile(List<Path> files, Outputs outputs) {
+        final WriteBehindQueue writes = new WriteBehindQueue(OUTPUT_QUEUE_CAPACITY);
+        final Stage[] stages = {
+            new ReadStage("read"),
+            new ParseStage("parse"),
+            new AnalyzeStage("analyze"),
+            new GenerateStage("generate", outputs, writes)
+        };
+        for (int i = 0; i < stages.length; i++) {
+            stages[i].start(i + 1 < stages.length ? stages[i + 1] : null);
+        }
+
+        // Feed the files to the first stage.
+        final List<Job> jobs = new ArrayList<>();
+        for (Path file : files) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            final Job job = new Job(file);
+            jobs.add(job);
+            Uninterruptibles.putUninterruptibly(stages[0].input, job);
+        }
+
+        // Wait for each stage to finish before ending the input of the next.
+        boolean interrupted = Thread.currentThread().isInterrupted();
+        for (Stage stage : stages) {
+            interrupted |= stage.finish(interrupted);
+        }
+        try {
+            writes.close();
+        } catch (IOException e) {
+            // Write errors are recorded for each program by its JobOutput.
+            throw new Error("BatchCompiler.compile: Unexpected I/O error", e);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        final List<CompilationResult> results = new ArrayList<>();
+        for (Job job : jobs) {
+            if (job.writeError != null) {
+                job.compilation.errors.add(IO_ERROR.on(0, 0, job.writeError.getMessage()));
+            }
+            results.add(job.compilation.result());
+        }
+        return results;
+    }
+
+    /**
+     * The compilation of one program as it moves through the pipeline.
+     *
+     * A job is only used by one stage at a time, and is handed over through the queues.
+     */
+    private static final class Job {
+        private final Path file;
+        private Compilation compilation;
+        private boolean active = true;
+        private IOException writeError; // Set by the output thread.
+
+        Job(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Records an error that ends the compilation.
+         *
+         * @param error The error.
+         */
+        void fail(MiniJavaError error) {
+            if (compilation == null) {
+                compilation = new Compilation(null);
+            }
+            compilation.errors.add(error);
+            active = false;
+        }
+
+        /**
+         * Ends the compilation as cancelled.
+         */
+        void cancel() {
+            if (compilation == null) {
+                compilation = new Compilation(null);
+            }
+            compilation.proceed(); // Notes the interruption.
+            active = false;
+        }
+    }
+
+    /**
+     * A stage of the pipeline.
+     */
+    private abstract class Stage {
+        private final String name;
+        private final BlockingQueue<Job> input = new ArrayBlockingQueue<>(STAGE_QUEUE_CAPACITY);
+        private final List<Thread> workers = new ArrayList<>();
+
+        /**
+         * @param name Name of the stage, used in the names of its threads.
+         */
+        Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Processes a job that is still active.
+         *
+         * @param job The job.
+         * @throws IOException if an I/O error occurred.
+         */
+        abstract void process(Job job) throws IOException;
+
+        /**
+         * Starts the threads of the stage.
+         *
+         * @param next The next stage, or null if this is the last one.
+         */
+        void start(final Stage next) {
+            for (int i = 0; i < threads; i++) {
+                final Thread worker = new Thread(new Runnable() {
+                    public void run() {
+                        Job job;
+                        while ((job = Uninterruptibles.takeUninterruptibly(input)) != END) {
+                            if (job.active && Thread.currentThread().isInterrupted()) {
+                                job.cancel();
+                            } else if (job.active) {
+                                try {
+                                    process(job);
+                                } catch (IOException e) {
+                                    job.fail(IO_ERROR.on(0, 0, e.getMessage()));
+                                } catch (RuntimeException | Error e) {
+                                    job.fail(INTERNAL_ERROR.on(0, 0, e.toString()));
+                                }
+                            }
+                            if (next != null) {
+                                Uninterruptibles.putUninterruptibly(next.input, job);
+                            }
+                        }
+                    }
+                }, "mjc-" + name + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        /**
+         * Ends the input of the stage and waits for its threads to finish.
+         *
+         * @param cancel Whether to cancel the jobs that remain in the stage.
+         * @return true if the calling thread was interrupted while waiting.
+         */
+        boolean finish(boolean cancel) {
+            for (int i = 0; i < threads; i++) {
+                Uninterruptibles.putUninterruptibly(input, END);
+            }
+            boolean interrupted = false;
+            for (Thread worker : workers) {
+                while (true) {
+                    if (cancel || interrupted) {
+                        worker.interrupt();
+                    }
+                    try {
+                        worker.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            return interrupted;
+        }
+    }
+
+    /**
+     * Stage that reads the source file.
+     */
+    private final class ReadStage extends Stage {
+        ReadStage(String name) {
+            super(name);
+        }
+
+        void process(Job job) throws IOException {
+            job.compilation = compiler.newCompilation(SourceFile.read(job.file));
+        }
+    }
+
+    /**
+     * Stage that parses the program.
+     */
+    private final class ParseStage extends Stage {
+        ParseStage(String name) {
+            super(name);
+        }
+
+        void process(Job job) {
+            job.active = compiler.parse(job.compilation);
+        }
+    }
+
+    /**
+     * Stage that builds the symbol table and type-checks the program.
+     */
+    private final class AnalyzeStage extends Stage {
+        AnalyzeStage(String name) {
+            super(name);
+        }
+
+        void process(Job job) {
+            job.active = compiler.analyze(job.compilation);
+        }
+    }
+
+    /**
+     * Stage that generates code and submits it to be written.
+     */
+    private final class GenerateStage extends Stage {
+        private final Outputs outputs;
+        private final WriteBehindQueue writes;
+
+        GenerateStage(String name, Outputs outputs, WriteBehindQueue writes) {
+            super(name);
+            this.outputs = outputs;
+            this.writes = writes;
+        }
+
+        void process(final Job job) throws IOException {
+            final long start = System.nanoTime();
+            final JobOutput output = new JobOutput(job, outputs.open(job.file));
+            try {
+                compiler.generate(job.compilation, output, writes);
+            } finally {
+                writes.submit(new WriteBehindQueue.Write() {
+                    public void write() {
+                        output.close();
+                    }
+                });
+                job.compilation.times.put(Phase.GENERATION, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Output of one program, which records its first error in the job instead of
+     * failing the shared write queue. Writes after an error are skipped.
+     */
+    private static final class JobOutput implements ClassOutput {
+        private final Job job;
+        private final ClassOutput output;
+
+        JobOutput(Job job, ClassOutput output) {
+            this.job = job;
+            this.output = output;
+        }
+
+        public void writeClass(String className, byte[] classFile) {
+            if (job.writeError == null) {
+                try {
+                    output.writeClass(className, classFile);
+                } catch (IOException e) {
+                    job.writeError = e;
+                } catch (RuntimeException e) {
+                    job.writeError = new IOException(e);
+                }
+            }
+        }
+
+        public void writeAssembly(String className, CharSequence code) {
+            if (job.writeError == null) {
+                try {
+                    output.writeAssembly(className, code);
+                } catch (IOException e) {
+                    job.writeError = e;
+                } catch (RuntimeException e) {
+                    job.writeError = new IOException(e);
+                }
+            }
+        }
+
+        public void close() {
+            try {
+                output.close();
+            } catch (IOException e) {
+                if (job.writeError == null) {
+                    job.writeError = e;
+                }
+            } catch (RuntimeException e) {
+                if (job.writeError == null) {
+                    job.writeError = new IOException(e);
+                }
+            }
+        }
+    }
+}
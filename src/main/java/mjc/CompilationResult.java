@@ -0,0 +1,97 @@
+package mjc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import mjc.Compiler.Phase;
+import mjc.error.MiniJavaError;
+
+/**
+ * The CompilationResult class holds the result of a compilation by a {@link Compiler}.
+ *
+ * If the generated code was written to a {@link mjc.output.ClassOutput}, the class
+ * files and assembly code are left empty.
+ */
+public final class CompilationResult {
+    private final List<MiniJavaError> errors;
+    private final boolean cancelled;
+    private final Map<String, byte[]> classFiles;
+    private final Map<String, String> assembly;
+    private final Map<Phase, Long> times;
+    private final CompilationStats stats;
+
+    /**
+     * Constructs a new CompilationResult.
+     *
+     * @param errors Errors found in the program.
+     * @param cancelled Whether compilation was cancelled.
+     * @param classFiles Map from class names to generated class files.
+     * @param assembly Map from class names to generated Jasmin code.
+     * @param times Map from phases to the time spent in them, in nanoseconds.
+     * @param stats Statistics of the compilation, or null if they were not collected.
+     */
+    CompilationResult(List<MiniJavaError> errors, boolean cancelled,
+            Map<String, byte[]> classFiles, Map<String, String> assembly,
+            Map<Phase, Long> times, CompilationStats stats) {
+        this.errors = Collections.unmodifiableList(errors);
+        this.cancelled = cancelled;
+        this.classFiles = Collections.unmodifiableMap(classFiles);
+        this.assembly = Collections.unmodifiableMap(assembly);
+        this.times = Collections.unmodifiableMap(times);
+        this.stats = stats;
+    }
+
+    /**
+     * @return true if the program was compiled without errors and was not cancelled.
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty() && !cancelled;
+    }
+
+    /**
+     * @return true if compilation was cancelled by interrupting the compiling thread.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return The errors found in the program, in the order they were found.
+     */
+    public List<MiniJavaError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return A read-only map from class names to class files, with the main class
+     *         first.
+     */
+    public Map<String, byte[]> getClassFiles() {
+        return classFiles;
+    }
+
+    /**
+     * @return A read-only map from class names to Jasmin code, with the main class
+     *         first.
+     */
+    public Map<String, String> getAssembly() {
+        return assembly;
+    }
+
+    /**
+     * @return A read-only map from the phases that were run to the time spent in them,
+     *         in nanoseconds.
+     */
+    public Map<Phase, Long> getTimes() {
+        return times;
+    }
+
+    /**
+     * @return Statistics of the compilation, or null if the compiler was not asked to
+     *         collect them.
+     */
+    public CompilationStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,484 @@
+package mjc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.bytecode.ClassFileSummary;
+import mjc.node.AClassDeclaration;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.AMethodDeclaration;
+import mjc.node.AVariableDeclaration;
+import mjc.node.Node;
+
+/**
+ * The CompilationStats class holds statistics of a compilation by a {@link Compiler}:
+ * the time spent and the memory allocated in each step, the size of the program, and
+ * the size of each generated method.
+ *
+ * Times are wall-clock times. Allocated memory is measured with the {@link ThreadMXBean}
+ * of the JVM, on the thread that runs the step, so memory allocated by other threads,
+ * as in code generation with a pool, is not included. It is -1 if the JVM does not
+ * support measuring it.
+ *
+ * Statistics are formatted for people by {@link #toString()}, and as JSON by
+ * {@link #toJson()}.
+ */
+public final class CompilationStats {
+
+    /**
+     * Steps of compilation that are measured.
+     */
+    public enum Step {
+        LEXING,
+        PARSING,
+        SYMBOL_TABLE,
+        TYPE_CHECKING,
+        GENERATION,
+        ASSEMBLY
+    }
+
+    /**
+     * Size of the largest method that HotSpot JIT-compiles by default
+     * ({@code -XX:-DontCompileHugeMethods}).
+     */
+    public static final int HUGE_METHOD_SIZE = 8000;
+
+    /**
+     * The MethodStats class holds the size of a generated method.
+     */
+    public static final class MethodStats {
+        private final String className;
+        private final String name;
+        private final String descriptor;
+        private final int codeSize;
+        private final int maxStack;
+        private final int maxLocals;
+
+        MethodStats(String className, String name, String descriptor, int codeSize,
+                int maxStack, int maxLocals) {
+            this.className = className;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.codeSize = codeSize;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        /**
+         * @return Name of the class of the method.
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return Name of the method.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Descriptor of the method.
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * @return Size of the bytecode of the method, or -1 if only Jasmin code was
+         *         generated.
+         */
+        public int getCodeSize() {
+            return codeSize;
+        }
+
+        /**
+         * @return Maximum depth of the operand stack ({@code .limit stack}), or -1 if it
+         *         is not given in the Jasmin code.
+         */
+        public int getMaxStack() {
+            return maxStack;
+        }
+
+        /**
+         * @return Number of local variable slots ({@code .limit locals}), or -1 if it is
+         *         not given in the Jasmin code.
+         */
+        public int getMaxLocals() {
+            return maxLocals;
+        }
+
+        /**
+         * @return true if the method is too large to be JIT-compiled by HotSpot.
+         */
+        public boolean isHuge() {
+            return codeSize > HUGE_METHOD_SIZE;
+        }
+    }
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private static final Pattern JASMIN_METHOD = Pattern.compile("\\.method .*?(\\S+?)(\\(\\S*)");
+    private static final Pattern JASMIN_LIMIT = Pattern.compile("\\.limit (stack|locals) (\\d+)");
+
+    private final Map<Step, Long> times = new EnumMap<>(Step.class);
+    private final Map<Step, Long> allocated = new EnumMap<>(Step.class);
+    private final List<MethodStats> methods = new ArrayList<>();
+    private int tokenCount;
+    private int nodeCount;
+    private int classCount;
+    private int methodCount;
+    private int localCount;
+
+    /**
+     * Constructs an empty CompilationStats.
+     */
+    CompilationStats() {
+    }
+
+    /**
+     * @return A read-only map from the steps that were run to the time spent in them,
+     *         in nanoseconds.
+     */
+    public Map<Step, Long> getTimes() {
+        return Collections.unmodifiableMap(times);
+    }
+
+    /**
+     * @return A read-only map from the steps that were run to the number of bytes
+     *         allocated in them, or -1 for each step if this is not supported.
+     */
+    public Map<Step, Long> getAllocatedBytes() {
+        return Collections.unmodifiableMap(allocated);
+    }
+
+    /**
+     * @return The number of tokens of the program, including the end of file.
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * @return The number of nodes, including tokens, of the AST of the program.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return The number of classes of the program, including the main class.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @return The number of methods of the program, including the main method.
+     */
+    public int getMethodCount() {
+        return methodCount;
+    }
+
+    /**
+     * @return The number of local variables of the program, not counting parameters.
+     */
+    public int getLocalCount() {
+        return localCount;
+    }
+
+    /**
+     * @return A read-only list of the generated methods, in the order they were
+     *         generated.
+     */
+    public List<MethodStats> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * A measurement of consecutive steps on the current thread.
+     */
+    final class Measurement {
+        private long start = System.nanoTime();
+        private long startBytes = allocatedBytes();
+
+        /**
+         * Ends a step, adding the time and memory since the measurement started or the
+         * previous step ended to it, and starts measuring the next step.
+         *
+         * @param step The step that ended.
+         */
+        void lap(Step step) {
+            final long end = System.nanoTime();
+            final long endBytes = allocatedBytes();
+            add(step, end - start, startBytes < 0 ? -1 : endBytes - startBytes);
+            start = end;
+            startBytes = endBytes;
+        }
+    }
+
+    /**
+     * @return A new measurement, starting now.
+     */
+    Measurement measure() {
+        return new Measurement();
+    }
+
+    /**
+     * Takes the time and memory of a step out of another step that includes it.
+     *
+     * @param outer The including step.
+     * @param inner The included step.
+     */
+    void exclude(Step outer, Step inner) {
+        if (times.containsKey(outer) && times.containsKey(inner)) {
+            times.put(outer, times.get(outer) - times.get(inner));
+            if (allocated.get(outer) >= 0 && allocated.get(inner) >= 0) {
+                allocated.put(outer, allocated.get(outer) - allocated.get(inner));
+            }
+        }
+    }
+
+    /**
+     * Adds time and memory to a step.
+     */
+    private void add(Step step, long nanos, long bytes) {
+        final Long time = times.get(step);
+        times.put(step, time == null ? nanos : time + nanos);
+        final Long total = allocated.get(step);
+        allocated.put(step, total == null || total < 0 || bytes < 0 ? bytes : total + bytes);
+    }
+
+    /**
+     * @return The number of bytes allocated by the current thread so far, or -1 if this
+     *         is not supported.
+     */
+    private static long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean bean =
+                    (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records the number of tokens of the program.
+     *
+     * @param count Number of tokens.
+     */
+    void countTokens(int count) {
+        tokenCount = count;
+    }
+
+    /**
+     * Counts the nodes, classes, methods and locals of a program.
+     *
+     * @param ast AST of the program.
+     */
+    void count(Node ast) {
+        ast.apply(new DepthFirstAdapter() {
+            @Override
+            public void defaultIn(Node node) {
+                nodeCount++;
+            }
+
+            @Override
+            public void defaultCase(Node node) {
+                nodeCount++; // A token.
+            }
+
+            @Override
+            public void inAMainClassDeclaration(AMainClassDeclaration declaration) {
+                nodeCount++;
+                classCount++;
+                methodCount++;
+            }
+
+            @Override
+            public void inAClassDeclaration(AClassDeclaration declaration) {
+                nodeCount++;
+                classCount++;
+            }
+
+            @Override
+            public void inAMethodDeclaration(AMethodDeclaration declaration) {
+                nodeCount++;
+                methodCount++;
+            }
+
+            @Override
+            public void inAVariableDeclaration(AVariableDeclaration declaration) {
+                nodeCount++;
+                localCount++;
+            }
+        });
+    }
+
+    /**
+     * Records the methods of a generated class file.
+     *
+     * @param classFile The class file.
+     */
+    void addClassFile(byte[] classFile) {
+        final ClassFileSummary summary = ClassFileSummary.read(classFile);
+        for (ClassFileSummary.MethodSummary method : summary.getMethods()) {
+            methods.add(new MethodStats(summary.getClassName(), method.getName(),
+                    method.getDescriptor(), method.getCodeLength(), method.getMaxStack(),
+                    method.getMaxLocals()));
+        }
+    }
+
+    /**
+     * Records the methods of generated Jasmin code, whose bytecode size is not known.
+     *
+     * @param className Name of the class.
+     * @param code The Jasmin code of the class.
+     */
+    void addJasmin(String className, CharSequence code) {
+        String name = null;
+        String descriptor = null;
+        int maxStack = -1;
+        int maxLocals = -1;
+        for (String line : code.toString().split("\n")) {
+            line = line.trim();
+            final Matcher method = JASMIN_METHOD.matcher(line);
+            final Matcher limit = JASMIN_LIMIT.matcher(line);
+            if (method.matches()) {
+                name = method.group(1);
+                descriptor = method.group(2);
+                maxStack = -1;
+                maxLocals = -1;
+            } else if (limit.matches()) {
+                if (limit.group(1).equals("stack")) {
+                    maxStack = Integer.parseInt(limit.group(2));
+                } else {
+                    maxLocals = Integer.parseInt(limit.group(2));
+                }
+            } else if (line.equals(".end method") && name != null) {
+                methods.add(new MethodStats(className, name, descriptor, -1, maxStack,
+                        maxLocals));
+                name = null;
+            }
+        }
+    }
+
+    /**
+     * @return The statistics as a table.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-16s %12s %16s%n", "step", "time (ms)", "allocated (KB)"));
+        long totalTime = 0;
+        long totalBytes = 0;
+        for (Map.Entry<Step, Long> entry : times.entrySet()) {
+            final long bytes = allocated.get(entry.getKey());
+            builder.append(String.format("%-16s %12.3f %16s%n", name(entry.getKey()),
+                    entry.getValue() / 1e6, bytes < 0 ? "-" : Long.toString(bytes / 1024)));
+            totalTime += entry.getValue();
+            totalBytes = totalBytes < 0 || bytes < 0 ? -1 : totalBytes + bytes;
+        }
+        builder.append(String.format("%-16s %12.3f %16s%n", "total", totalTime / 1e6,
+                totalBytes < 0 ? "-" : Long.toString(totalBytes / 1024)));
+
+        builder.append(String.format("%n%d tokens, %d AST nodes, %d classes, %d methods, " +
+                "%d locals%n", tokenCount, nodeCount, classCount, methodCount, localCount));
+
+        if (!methods.isEmpty()) {
+            builder.append(String.format("%n%-40s %8s %6s %7s%n", "method", "size", "stack",
+                    "locals"));
+            for (MethodStats method : methods) {
+                builder.append(String.format("%-40s %8s %6s %7s%s%n",
+                        method.className + "." + method.name + method.descriptor,
+                        orDash(method.codeSize), orDash(method.maxStack),
+                        orDash(method.maxLocals),
+                        method.isHuge() ? "  too large to be JIT-compiled" : ""));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return The statistics as a JSON object.
+     */
+    public String toJson() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\n  \"steps\": {");
+        String separator = "\n";
+        for (Map.Entry<Step, Long> entry : times.entrySet()) {
+            builder.append(separator).append("    ").append(quote(name(entry.getKey())))
+                    .append(": {\"nanos\": ").append(entry.getValue())
+                    .append(", \"allocatedBytes\": ").append(allocated.get(entry.getKey()))
+                    .append("}");
+            separator = ",\n";
+        }
+        builder.append("\n  },\n");
+        builder.append("  \"counts\": {\"tokens\": ").append(tokenCount)
+                .append(", \"nodes\": ").append(nodeCount)
+                .append(", \"classes\": ").append(classCount)
+                .append(", \"methods\": ").append(methodCount)
+                .append(", \"locals\": ").append(localCount).append("},\n");
+        builder.append("  \"methods\": [");
+        separator = "\n";
+        for (MethodStats method : methods) {
+            builder.append(separator).append("    {\"class\": ").append(quote(method.className))
+                    .append(", \"name\": ").append(quote(method.name))
+                    .append(", \"descriptor\": ").append(quote(method.descriptor))
+                    .append(", \"codeSize\": ").append(method.codeSize)
+                    .append(", \"maxStack\": ").append(method.maxStack)
+                    .append(", \"maxLocals\": ").append(method.maxLocals).append("}");
+            separator = ",\n";
+        }
+        builder.append(methods.isEmpty() ? "]\n}" : "\n  ]\n}");
+        return builder.toString();
+    }
+
+    /**
+     * @param value A size.
+     * @return The size as a string, or "-" if it is not known.
+     */
+    private static String orDash(int value) {
+        return value < 0 ? "-" : Integer.toString(value);
+    }
+
+    /**
+     * @param step A step.
+     * @return The name of the step in output.
+     */
+    private static String name(Step step) {
+        return step.name().toLowerCase();
+    }
+
+    /**
+     * Quotes a string for JSON.
+     *
+     * @param string The string.
+     * @return The string in quotes, with special characters escaped.
+     */
+    static String quote(String string) {
+        final StringBuilder builder = new StringBuilder("\"");
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,565 @@
+package mjc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import mjc.CompilationStats.Measurement;
+import mjc.CompilationStats.Step;
+import mjc.analysis.SymbolTableBuilder;
+import mjc.analysis.TypeChecker;
+import mjc.ast.compact.CompactTree;
+import mjc.bytecode.ClassFileGenerator;
+import mjc.bytecode.ClassFileHandler;
+import mjc.bytecode.ParallelClassFileGenerator;
+import mjc.error.MiniJavaError;
+import mjc.jasmin.Assembler;
+import mjc.jasmin.JasminGenerator;
+import mjc.jasmin.JasminHandler;
+import mjc.jasmin.ParallelJasminGenerator;
+import mjc.jfr.Events;
+import mjc.lexer.BufferedLexer;
+import mjc.lexer.FastLexer;
+import mjc.lexer.Lexer;
+import mjc.lexer.LexerException;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.AProgram;
+import mjc.node.InvalidToken;
+import mjc.node.Node;
+import mjc.node.Start;
+import mjc.output.ClassOutput;
+import mjc.output.MemoryOutput;
+import mjc.output.WriteBehindQueue;
+import mjc.parser.FastParser;
+import mjc.parser.Parser;
+import mjc.parser.ParserException;
+import mjc.source.SourceReader;
+import mjc.symbol.SymbolTable;
+import static mjc.error.MiniJavaErrorType.LEXER_ERROR;
+import static mjc.error.MiniJavaErrorType.PARSER_ERROR;
+
+/**
+ * The Compiler class compiles MiniJava programs.
+ *
+ * A program is compiled in three phases: parsing, semantic analysis (building the
+ * symbol table and type-checking) and code generation. Errors in the program are
+ * returned as {@link MiniJavaError}s in the {@link CompilationResult}, together with the
+ * time spent in each phase that was run. Code is only generated for programs without
+ * errors.
+ *
+ * A Compiler only holds its settings, which are fixed at construction. Each compilation
+ * uses lexers, parsers, checkers and generators of its own, so a Compiler may be used
+ * for any number of compilations, from several threads at once.
+ *
+ * With statistics enabled, each result also holds {@link CompilationStats}. The source
+ * is then lexed in full before it is parsed, so that the two can be measured apart.
+ *
+ * Compilation is cancelled by interrupting the compiling thread. The compiler checks
+ * for interruption between phases, and between classes while generating code.
+ */
+public final class Compiler {
+
+    /**
+     * Implementations of the lexer and the parser.
+     */
+    public enum Frontend {
+        /** The hand-written {@link FastLexer} or {@link FastParser}. */
+        FAST,
+        /** The {@link Lexer} or {@link Parser} generated by SableCC. */
+        SABLECC
+    }
+
+    /**
+     * Kinds of generated code.
+     */
+    public enum Backend {
+        /** Class files generated by the {@link ClassFileGenerator}. */
+        CLASS_FILES,
+        /** Jasmin code generated by the {@link JasminGenerator}. */
+        JASMIN,
+        /** Class files assembled by the {@link Assembler} from Jasmin code. */
+        ASSEMBLED_JASMIN
+    }
+
+    /**
+     * Phases of compilation.
+     */
+    public enum Phase {
+        PARSING,
+        ANALYSIS,
+        GENERATION
+    }
+
+    /**
+     * The Listener interface specifies a listener of a compilation.
+     */
+    public interface Listener {
+        /**
+         * Called with the AST of the program once it has been parsed.
+         *
+         * @param ast The AST. It must not be changed.
+         */
+        void parsed(Node ast);
+    }
+
+    // Maximum number of classes waiting to be written to the output.
+    private static final int OUTPUT_QUEUE_CAPACITY = 16;
+
+    private final Frontend lexerFrontend;
+    private final Frontend parserFrontend;
+    private final boolean compact;
+    private final Backend backend;
+    private final ForkJoinPool pool;
+    private final boolean stats;
+
+    /**
+     * Constructs a Compiler that uses the SableCC generated lexer and parser, and generates
+     * class files on the calling thread.
+     */
+    public Compiler() {
+        this(Frontend.SABLECC, Frontend.SABLECC, false, Backend.CLASS_FILES, null, false);
+    }
+
+    /**
+     * Constructs a Compiler.
+     *
+     * @param lexer Lexer to use.
+     * @param parser Parser to use.
+     * @param compact Whether to keep the AST in compact form after building the symbol
+     *                table, and check and generate one class at a time.
+     * @param backend Kind of code to generate.
+     * @param pool Pool in which to generate code, or null to generate it on the calling
+     *             thread.
+     * @param stats Whether to collect {@link CompilationStats}.
+     */
+    public Compiler(Frontend lexer, Frontend parser, boolean compact, Backend backend,
+            ForkJoinPool pool, boolean stats) {
+        this.lexerFrontend = lexer;
+        this.parserFrontend = parser;
+        this.compact = compact;
+        this.backend = backend;
+        this.pool = pool;
+        this.stats = stats;
+    }
+
+    /**
+     * Compiles a program, keeping the generated code in memory.
+     *
+     * @param source Source code of the program.
+     * @return The result of the compilation, including the generated code.
+     */
+    public CompilationResult compile(char[] source) {
+        final MemoryOutput output = new MemoryOutput();
+        final CompilationResult result;
+        try {
+            result = compile(source, output, null);
+        } catch (IOException e) {
+            // The output is in memory.
+            throw new Error("Compiler.compile: Unexpected I/O error", e);
+        }
+        return new CompilationResult(result.getErrors(), result.isCancelled(),
+                output.getClassFiles(), output.getAssembly(), result.getTimes(),
+                result.getStats());
+    }
+
+    /**
+     * Compiles a program, writing the generated code to an output.
+     *
+     * The generated code is written to the output on a thread of its own, while code
+     * generation goes on. All code has been written when this method returns. The output
+     * is not closed.
+     *
+     * @param source Source code of the program.
+     * @param output Output for the generated code.
+     * @param listener Listener of the compilation, or null.
+     * @return The result of the compilation, without the generated code.
+     * @throws IOException if writing to the output failed.
+     */
+    public CompilationResult compile(char[] source, ClassOutput output, Listener listener)
+            throws IOException {
+        final Compilation compilation = newCompilation(source);
+        if (!parse(compilation)) {
+            return compilation.result();
+        }
+        if (listener != null) {
+            listener.parsed(compilation.ast);
+        }
+        if (!analyze(compilation)) {
+            return compilation.result();
+        }
+
+        final long start = System.nanoTime();
+        final WriteBehindQueue queue = new WriteBehindQueue(OUTPUT_QUEUE_CAPACITY);
+        try {
+            generate(compilation, output, queue);
+        } finally {
+            // Wait for all output to be written.
+            queue.close();
+            compilation.times.put(Phase.GENERATION, System.nanoTime() - start);
+        }
+        return compilation.result();
+    }
+
+    /**
+     * Starts a compilation.
+     *
+     * @param source Source code of the program.
+     * @return The compilation, with statistics if they are collected.
+     */
+    Compilation newCompilation(char[] source) {
+        final Compilation compilation = new Compilation(source);
+        if (stats) {
+            compilation.stats = new CompilationStats();
+        }
+        return compilation;
+    }
+
+    /**
+     * Runs phase 1 of a compilation: lexical analysis and parsing.
+     *
+     * @param compilation The compilation.
+     * @return true if the compilation may go on to {@link #analyze(Compilation)}.
+     */
+    boolean parse(Compilation compilation) {
+        final Events.Phase event = Events.phase();
+        event.begin();
+        final long start = System.nanoTime();
+        final Measurement measurement =
+                compilation.stats != null ? compilation.stats.measure() : null;
+        try {
+            Lexer lexer = lexerFrontend == Frontend.FAST ?
+                    new FastLexer(compilation.source) :
+                    new Lexer(new SourceReader(compilation.source));
+            if (measurement != null) {
+                final BufferedLexer bufferedLexer = new BufferedLexer(lexer);
+                measurement.lap(Step.LEXING);
+                compilation.stats.countTokens(bufferedLexer.getTokenCount());
+                lexer = bufferedLexer;
+            }
+            compilation.ast = parserFrontend == Frontend.FAST ?
+                    new FastParser(lexer).parse() : new Parser(lexer).parse();
+        } catch (LexerException e) {
+            final InvalidToken token = e.getToken();
+            compilation.errors.add(LEXER_ERROR.on(token.getLine(), token.getPos(), token.getText()));
+        } catch (ParserException e) {
+            compilation.errors.add(PARSER_ERROR.on(e.getLine(), e.getPos(), e.getError()));
+        } catch (IOException e) {
+            // The source is in memory.
+            throw new Error("Compiler.parse: Unexpected I/O error", e);
+        } finally {
+            compilation.source = null;
+            compilation.times.put(Phase.PARSING, System.nanoTime() - start);
+            if (measurement != null) {
+                measurement.lap(Step.PARSING);
+            }
+        }
+        if (compilation.ast != null) {
+            final AProgram program = (AProgram) ((Start) compilation.ast).getPProgram();
+            compilation.program =
+                    ((AMainClassDeclaration) program.getMainClassDeclaration()).getName().getText();
+        }
+        event.finish("parsing", compilation.program, compilation.errors.size());
+        if (compilation.stats != null && compilation.ast != null) {
+            compilation.stats.count(compilation.ast);
+        }
+        return compilation.proceed();
+    }
+
+    /**
+     * Runs phase 2 of a compilation: building the symbol table and type-checking.
+     *
+     * @param compilation The compilation, which has been parsed.
+     * @return true if the compilation may go on to code generation.
+     */
+    boolean analyze(Compilation compilation) {
+        final Events.Phase event = Events.phase();
+        event.begin();
+        final long start = System.nanoTime();
+        final Measurement measurement =
+                compilation.stats != null ? compilation.stats.measure() : null;
+
+        // Build symbol table. The remaining phases run on units of the program: either
+        // the whole AST, or with compact, each class declaration inflated from the
+        // compact tree in turn. Each class is compacted and detached from the AST as
+        // soon as its symbols are in the table, so the AST shrinks as the table grows.
+        final SymbolTableBuilder builder = new SymbolTableBuilder();
+        if (compact) {
+            final CompactTree.ProgramBuilder compactBuilder = new CompactTree.ProgramBuilder();
+            compilation.symbolTable = builder.build(compilation.ast,
+                    new SymbolTableBuilder.DeclarationHandler() {
+                        @Override
+                        public void handle(Node declaration) {
+                            compactBuilder.add(declaration);
+                            declaration.replaceBy(null);
+                        }
+                    });
+            compilation.units = compactBuilder.build().classes();
+        } else {
+            compilation.symbolTable = builder.build(compilation.ast);
+            compilation.units = Collections.singletonList(compilation.ast);
+        }
+        compilation.errors.addAll(builder.getErrors());
+        compilation.ast = null; // Only the units are kept from here on.
+        if (measurement != null) {
+            measurement.lap(Step.SYMBOL_TABLE);
+        }
+
+        // Run type-check. With compact, each class is checked just before it is
+        // generated, so that it is only inflated once, unless there are errors already
+        // and no code will be generated.
+        compilation.typeChecker = new TypeChecker();
+        if (!compact || !compilation.errors.isEmpty()) {
+            for (Node unit : compilation.units) {
+                if (!compilation.typeChecker.check(unit, compilation.symbolTable)) {
+                    compilation.errors.addAll(compilation.typeChecker.getErrors());
+                }
+            }
+        }
+
+        compilation.times.put(Phase.ANALYSIS, System.nanoTime() - start);
+        if (measurement != null) {
+            measurement.lap(Step.TYPE_CHECKING);
+        }
+        event.finish("analysis", compilation.program, compilation.errors.size());
+        return compilation.proceed();
+    }
+
+    /**
+     * Runs phase 3 of a compilation: code generation.
+     *
+     * The generated code is submitted to a queue as writes to the output. The writes may
+     * not all have been done when this method returns.
+     *
+     * With compact, each class is type-checked just before it is generated, and the
+     * errors are added to the compilation. The writes are then held until all classes
+     * have been checked, and are only submitted if there were no errors.
+     *
+     * @param compilation The compilation, which has been analyzed without errors.
+     * @param output Output for the generated code.
+     * @param queue Queue to submit writes to.
+     */
+    void generate(Compilation compilation, final ClassOutput output,
+            final WriteBehindQueue queue) {
+        final Iterable<Node> units = compilation.units;
+        final SymbolTable symbolTable = compilation.symbolTable;
+        final CompilationStats stats = compilation.stats;
+        final List<WriteBehindQueue.Write> heldWrites =
+                compact ? new ArrayList<WriteBehindQueue.Write>() : null;
+        final Measurement measurement = stats != null ? stats.measure() : null;
+        final Events.Phase event = Events.phase();
+        event.begin();
+        final Assembler assembler = new Assembler();
+        if (backend == Backend.CLASS_FILES) {
+            final ClassFileHandler handler = new ClassFileHandler() {
+                public void handle(String className, byte[] classFile) {
+                    if (stats != null) {
+                        stats.addClassFile(classFile);
+                    }
+                    submit(queue, heldWrites, writeClass(output, className, classFile));
+                }
+            };
+            final ClassFileGenerator generator = new ClassFileGenerator(handler);
+            final ParallelClassFileGenerator parallelGenerator =
+                    pool != null ? new ParallelClassFileGenerator(handler, pool) : null;
+            for (Node unit : units) {
+                if (!check(compilation, unit, measurement)) {
+                    continue; // Only check the remaining classes.
+                }
+                if (parallelGenerator != null) {
+                    parallelGenerator.generate(unit, symbolTable);
+                } else {
+                    generator.generate(unit, symbolTable);
+                }
+                if (queue.hasFailed() || cancelled()) {
+                    break; // Errors are reported when the queue is closed.
+                }
+            }
+        } else {
+            final boolean assemble = backend == Backend.ASSEMBLED_JASMIN;
+            final JasminHandler handler = new JasminHandler() {
+                public void handle(final String className, final StringBuilder code) {
+                    if (assemble) {
+                        final Measurement assembly = stats != null ? stats.measure() : null;
+                        final byte[] classFile = assembler.assemble(className, code);
+                        if (assembly != null) {
+                            assembly.lap(Step.ASSEMBLY);
+                        }
+                        if (classFile != null) {
+                            if (stats != null) {
+                                stats.addClassFile(classFile);
+                            }
+                            submit(queue, heldWrites, writeClass(output, className, classFile));
+                        }
+                        return;
+                    }
+                    if (stats != null) {
+                        stats.addJasmin(className, code);
+                    }
+                    submit(queue, heldWrites, new WriteBehindQueue.Write() {
+                        public void write() throws IOException {
+                            final Events.Output event = Events.output();
+                            event.begin();
+                            output.writeAssembly(className, code);
+                            event.finish(className, output, code.length());
+                        }
+                    });
+                }
+            };
+            final JasminGenerator generator = new JasminGenerator(handler);
+            final ParallelJasminGenerator parallelGenerator =
+                    pool != null ? new ParallelJasminGenerator(handler, pool) : null;
+            try {
+                for (Node unit : units) {
+                    if (!check(compilation, unit, measurement)) {
+                        continue; // Only check the remaining classes.
+                    }
+                    if (parallelGenerator != null) {
+                        parallelGenerator.generate(unit, symbolTable);
+                    } else {
+                        generator.generate(unit, symbolTable);
+                    }
+                    if (queue.hasFailed() || assembler.hasErrors() || cancelled()) {
+                        break; // Errors are reported when the queue is closed.
+                    }
+                }
+            } catch (IOException e) {
+                // The handler only writes to memory.
+                throw new Error("Compiler.generate: Unexpected I/O error", e);
+            }
+        }
+
+        if (measurement != null) {
+            measurement.lap(Step.GENERATION);
+            // Assembly runs within code generation, so it is only counted once.
+            stats.exclude(Step.GENERATION, Step.ASSEMBLY);
+        }
+        if (heldWrites != null && compilation.errors.isEmpty()) {
+            for (WriteBehindQueue.Write write : heldWrites) {
+                queue.submit(write);
+            }
+        }
+
+        compilation.units = null;
+        compilation.symbolTable = null;
+        compilation.typeChecker = null;
+        compilation.errors.addAll(assembler.getErrors());
+        event.finish("generation", compilation.program, compilation.errors.size());
+        compilation.proceed();
+    }
+
+    /**
+     * With compact, type-checks a class just before it is generated, adding any errors
+     * to the compilation.
+     *
+     * @param compilation The compilation.
+     * @param unit The unit to generate next.
+     * @param measurement Measurement of code generation, or null.
+     * @return true if code may be generated for the unit, i.e. no errors have been found.
+     */
+    private boolean check(Compilation compilation, Node unit, Measurement measurement) {
+        if (compact) {
+            if (measurement != null) {
+                measurement.lap(Step.GENERATION);
+            }
+            final TypeChecker typeChecker = compilation.typeChecker;
+            if (!typeChecker.check(unit, compilation.symbolTable)) {
+                compilation.errors.addAll(typeChecker.getErrors());
+            }
+            if (measurement != null) {
+                measurement.lap(Step.TYPE_CHECKING);
+            }
+        }
+        return compilation.errors.isEmpty();
+    }
+
+    /**
+     * @return true if compilation has been cancelled by interrupting the compiling thread.
+     */
+    private static boolean cancelled() {
+        return Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Submits a write to the queue, or adds it to {@code heldWrites} if not null.
+     */
+    private static void submit(WriteBehindQueue queue, List<WriteBehindQueue.Write> heldWrites,
+            WriteBehindQueue.Write write) {
+        if (heldWrites != null) {
+            heldWrites.add(write);
+        } else {
+            queue.submit(write);
+        }
+    }
+
+    /**
+     * Returns a write of a class file to the output.
+     *
+     * @param output Output to write to.
+     * @param className Name of the class.
+     * @param classFile Contents of the class file.
+     * @return The write.
+     */
+    private static WriteBehindQueue.Write writeClass(final ClassOutput output,
+            final String className, final byte[] classFile) {
+        return new WriteBehindQueue.Write() {
+            public void write() throws IOException {
+                final Events.Output event = Events.output();
+                event.begin();
+                output.writeClass(className, classFile);
+                event.finish(className, output, classFile.length);
+            }
+        };
+    }
+
+    /**
+     * The Compilation class holds the state of one compilation between its phases.
+     *
+     * Each phase drops what later phases do not need. A compilation may move from one
+     * thread to another between phases, as long as the threads hand it over safely.
+     */
+    static final class Compilation {
+        final List<MiniJavaError> errors = new ArrayList<>();
+        final Map<Phase, Long> times = new EnumMap<>(Phase.class);
+        private boolean cancelled;
+        private CompilationStats stats;
+        private String program; // Name of the main class, once parsed.
+        private char[] source;
+        private Node ast;
+        Iterable<Node> units; // Program units, once analyzed.
+        private SymbolTable symbolTable;
+        private TypeChecker typeChecker;
+
+        /**
+         * Constructs a Compilation.
+         *
+         * @param source Source code of the program.
+         */
+        Compilation(char[] source) {
+            this.source = source;
+        }
+
+        /**
+         * Notes whether the current thread has been interrupted.
+         *
+         * @return true if there are no errors and the compilation has not been cancelled.
+         */
+        boolean proceed() {
+            cancelled |= cancelled();
+            return errors.isEmpty() && !cancelled;
+        }
+
+        /**
+         * @return The result of the compilation, without the generated code.
+         */
+        CompilationResult result() {
+            final Map<String, byte[]> noClassFiles = Collections.emptyMap();
+            final Map<String, String> noAssembly = Collections.emptyMap();
+            return new CompilationResult(errors, cancelled, noClassFiles, noAssembly, times,
+                    stats);
+        }
+    }
+}
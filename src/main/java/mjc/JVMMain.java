@@ -1,69 +1,166 @@
 package mjc;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PushbackReader;
-import java.io.FileReader;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.cli.CommandLine;
-import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.GnuParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
-import mjc.jasmin.JasminGenerator;
-import mjc.jasmin.JasminHandler;
-import mjc.lexer.Lexer;
-import mjc.lexer.LexerException;
-import mjc.parser.Parser;
-import mjc.parser.ParserException;
-import mjc.symbol.SymbolTable;
-import mjc.node.InvalidToken;
+import mjc.output.ClassOutput;
+import mjc.output.DirectoryOutput;
+import mjc.output.JarOutput;
+import mjc.output.MemoryClassLoader;
+import mjc.output.MemoryOutput;
+import mjc.output.NullOutput;
+import mjc.report.BytecodeReport;
+import mjc.report.Javac;
+import mjc.server.CompilerServer;
+import mjc.source.SourceFile;
 import mjc.node.Node;
 import mjc.analysis.ASTGraphPrinter;
 import mjc.analysis.ASTPrinter;
-import mjc.analysis.SymbolTableBuilder;
-import mjc.analysis.TypeChecker;
 import mjc.error.MiniJavaError;
-import static mjc.error.MiniJavaErrorType.LEXER_ERROR;
-import static mjc.error.MiniJavaErrorType.PARSER_ERROR;
 
 public class JVMMain {
-    private final static CommandLineParser commandLineParser = new GnuParser();
     private final static HelpFormatter helpFormatter = new HelpFormatter();
     private final static Options options = new Options();
 
-    private final ASTPrinter astPrinter = new ASTPrinter();
-    private final ASTGraphPrinter graphPrinter = new ASTGraphPrinter();
+    // Settings of the compiler server.
+    private final static int SERVER_TIMEOUT_MILLIS = 60000;
+    private final static int SERVER_QUEUE_CAPACITY = 64;
 
-    public JVMMain() {
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Path directory;
+    private final ASTPrinter astPrinter;
+    private final ASTGraphPrinter graphPrinter;
+
+    static {
         options.addOption("S", false, "only output Jasmin assembly code");
+        options.addOption("jasmin", false, "generate class files by assembling Jasmin code");
+        options.addOption(OptionBuilder
+                .withArgName("fast|sablecc")
+                .hasArg()
+                .withDescription("lexer to use (default: sablecc)")
+                .create("lexer"));
+        options.addOption(OptionBuilder
+                .withArgName("fast|sablecc")
+                .hasArg()
+                .withDescription("parser to use (default: sablecc)")
+                .create("parser"));
+        options.addOption("compact", false, "keep the AST in compact form after building the symbol table");
+        options.addOption(OptionBuilder
+                .withArgName("N")
+                .hasArg()
+                .withDescription("generate code using N threads (default: 1)")
+                .create("j"));
+        options.addOption(OptionBuilder
+                .withArgName("dir|file.jar")
+                .hasArg()
+                .withDescription("output directory or jar file (default: .)")
+                .create("d"));
+        options.addOption("discard", false, "discard output (for benchmarking)");
+        options.addOption("run", false, "run the program in memory after compiling it");
         options.addOption("p", false, "print abstract syntax tree");
         options.addOption("g", false, "print abstract syntax tree in GraphViz format");
+        options.addOption(OptionBuilder
+                .withArgName("text|json")
+                .hasArg()
+                .withDescription("print compilation statistics")
+                .create("stats"));
+        options.addOption("report", false, "print a report on the generated bytecode, " +
+                "compared to javac if available");
+        options.addOption(OptionBuilder
+                .withArgName("port")
+                .hasArg()
+                .withDescription("run as a compiler server on a local port")
+                .create("server"));
         options.addOption("h", false, "show help message");
 
         helpFormatter.setOptionComparator(new OptionComparator<Option>());
     }
 
+    /**
+     * Constructs a compiler that uses the standard streams and the current working
+     * directory.
+     */
+    public JVMMain() {
+        this(System.out, System.err, Paths.get(""));
+    }
+
+    /**
+     * Constructs a compiler.
+     *
+     * @param out Stream for normal output, and the output of programs run with -run.
+     * @param err Stream for error messages.
+     * @param directory Directory that relative paths are resolved against.
+     */
+    public JVMMain(PrintStream out, PrintStream err, Path directory) {
+        this.out = out;
+        this.err = err;
+        this.directory = directory;
+        this.astPrinter = new ASTPrinter(out);
+        this.graphPrinter = new ASTGraphPrinter(out);
+    }
+
     public static void main(String[] args) {
-        JVMMain main = new JVMMain();
+        // Run the compiler.
+        if (new JVMMain().compile(args) != 0) {
+            System.exit(1);
+        }
+    }
 
+    /**
+     * Run compiler with the given command line arguments.
+     *
+     * @param args Command line arguments.
+     * @return The exit status: 0 if compilation succeeded, otherwise 1.
+     */
+    public int compile(String[] args) {
         try {
-            // Run the compiler.
-            if (!main.run(args)) {
-                System.exit(1);
-            }
+            return run(args) ? 0 : 1;
         } catch (ParseException e) {
             printHelp();
-            System.exit(1);
+            return 1;
+        }
+    }
+
+    /**
+     * Returns true if the command line arguments must not be run by a compiler server:
+     * -server would start a nested server, and -run runs a program for an unlimited
+     * time.
+     *
+     * @param args Command line arguments.
+     * @return true if the arguments contain -server or -run.
+     */
+    public static boolean isLocalOnly(String[] args) {
+        try {
+            final CommandLine commandLine = new GnuParser().parse(options, args);
+            return commandLine.hasOption("server") || commandLine.hasOption("run");
+        } catch (ParseException e) {
+            return false; // Only prints the help message.
         }
     }
 
@@ -76,113 +173,488 @@ public class JVMMain {
      */
     private boolean run(String[] args) throws ParseException {
 
-        final CommandLine commandLine = commandLineParser.parse(options, args);
+        final CommandLine commandLine = new GnuParser().parse(options, args);
 
         if (commandLine.hasOption("h")) {
             printHelp();
             return true;
         }
 
-        if (commandLine.getArgs().length != 1) {
+        if (commandLine.hasOption("server")) {
+            return serve(commandLine.getOptionValue("server"));
+        }
+
+        if (commandLine.getArgs().length == 0) {
+            printHelp();
+            return false;
+        }
+
+        final String lexerName = commandLine.getOptionValue("lexer", "sablecc");
+        final String parserName = commandLine.getOptionValue("parser", "sablecc");
+        if (!lexerName.equals("fast") && !lexerName.equals("sablecc") ||
+                !parserName.equals("fast") && !parserName.equals("sablecc")) {
             printHelp();
             return false;
         }
 
-        /****************************************
-         * Stage 1: Lexical Analysis / Parsing. *
-         ****************************************/
+        final String statsFormat = commandLine.getOptionValue("stats");
+        if (statsFormat != null && !statsFormat.equals("text") && !statsFormat.equals("json")) {
+            printHelp();
+            return false;
+        }
 
-        final Node ast;
+        final int threads;
         try {
-            final String fileName = commandLine.getArgs()[0];
-            final PushbackReader reader = new PushbackReader(new FileReader(fileName));
-            final Parser parser = new Parser(new Lexer(reader));
-            ast = parser.parse();
-        } catch (LexerException e) {
-            final InvalidToken token = e.getToken();
-            final int line = token.getLine();
-            final int column = token.getPos();
-            System.err.println(LEXER_ERROR.on(line, column, token.getText()));
+            threads = Integer.parseInt(commandLine.getOptionValue("j", "1"));
+        } catch (NumberFormatException e) {
+            printHelp();
             return false;
-        } catch (ParserException e) {
-            System.err.println(PARSER_ERROR.on(e.getLine(), e.getPos(), e.getError()));
+        }
+        if (threads < 1) {
+            printHelp();
             return false;
-        } catch (IOException e) {
-            System.err.println(e.getMessage());
+        }
+
+        // With -run, the class files are kept in memory, so there is no other output.
+        final boolean run = commandLine.hasOption("run");
+        if (run && (commandLine.hasOption("S") || commandLine.hasOption("d") ||
+                commandLine.hasOption("discard"))) {
+            printHelp();
             return false;
         }
 
-        if (commandLine.hasOption("p"))
-            astPrinter.print(ast);
+        final String destination = commandLine.getOptionValue("d", ".");
+        final Compiler.Backend backend;
+        if (commandLine.hasOption("S")) {
+            backend = Compiler.Backend.JASMIN;
+        } else if (commandLine.hasOption("jasmin")) {
+            backend = Compiler.Backend.ASSEMBLED_JASMIN;
+        } else {
+            backend = Compiler.Backend.CLASS_FILES;
+        }
+
+        // The bytecode report needs class files.
+        final boolean report = commandLine.hasOption("report");
+        if (report && backend == Compiler.Backend.JASMIN) {
+            printHelp();
+            return false;
+        }
 
-        if (commandLine.hasOption("g"))
-            graphPrinter.print(ast);
+        // Several files, or a directory, are compiled in batch mode.
+        final String[] inputs = commandLine.getArgs();
+        if (inputs.length > 1 || Files.isDirectory(directory.resolve(inputs[0]))) {
+            if (run || report || commandLine.hasOption("p") || commandLine.hasOption("g") ||
+                    destination.endsWith(".jar")) {
+                printHelp();
+                return false;
+            }
+            final Compiler compiler = new Compiler(frontend(lexerName), frontend(parserName),
+                    commandLine.hasOption("compact"), backend, null, statsFormat != null);
+            return compileBatch(new BatchCompiler(compiler, threads), inputs,
+                    commandLine.hasOption("discard") ? null : directory.resolve(destination),
+                    statsFormat);
+        }
 
-        /*******************************
-         * Stage 2: Semantic Analysis. *
-         *******************************/
+        final char[] source;
+        try {
+            source = SourceFile.read(directory.resolve(inputs[0]));
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return false;
+        }
 
-        // Build symbol table.
-        final SymbolTableBuilder builder = new SymbolTableBuilder();
-        final SymbolTable symbolTable = builder.build(ast);
-        if (builder.hasErrors()) {
-            for (MiniJavaError error : builder.getErrors()) {
-                System.err.println(error);
+        final ClassOutput output;
+        if (run) {
+            output = new MemoryOutput();
+        } else if (commandLine.hasOption("discard")) {
+            output = new NullOutput();
+        } else if (destination.endsWith(".jar")) {
+            output = new JarOutput(directory.resolve(destination));
+        } else {
+            try {
+                output = new DirectoryOutput(directory.resolve(destination));
+            } catch (IOException e) {
+                err.println(e.getMessage());
+                return false;
             }
         }
 
-        // Run type-check.
-        final TypeChecker typeChecker = new TypeChecker();
-        if (!typeChecker.check(ast, symbolTable)) {
-            for (MiniJavaError error : typeChecker.getErrors()) {
-                System.err.println(error);
+        // With -report, the class files are also kept in memory.
+        final MemoryOutput reported = report ? new MemoryOutput() : null;
+        final ClassOutput compilerOutput = !report ? output : new ClassOutput() {
+            public void writeClass(String className, byte[] classFile) throws IOException {
+                reported.writeClass(className, classFile);
+                output.writeClass(className, classFile);
+            }
+
+            public void writeAssembly(String className, CharSequence code) throws IOException {
+                output.writeAssembly(className, code);
+            }
+
+            public void close() throws IOException {
+                output.close();
+            }
+        };
+
+        final Compiler.Listener listener = new Compiler.Listener() {
+            public void parsed(Node ast) {
+                if (commandLine.hasOption("p"))
+                    astPrinter.print(ast);
+
+                if (commandLine.hasOption("g"))
+                    graphPrinter.print(ast);
+            }
+        };
+
+        // With -j, classes are generated in parallel but output in the same order.
+        final ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        final Compiler compiler = new Compiler(frontend(lexerName), frontend(parserName),
+                commandLine.hasOption("compact"), backend, pool, statsFormat != null);
+
+        final CompilationResult result;
+        try {
+            try {
+                result = compiler.compile(source, compilerOutput, listener);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return false;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
         }
 
-        if (builder.hasErrors() || typeChecker.hasErrors()) {
-            return false; // Abort compilation.
+        for (MiniJavaError error : result.getErrors()) {
+            err.println(error);
+        }
+        if (result.isCancelled()) {
+            err.println("compilation cancelled");
+        }
+        if (statsFormat != null) {
+            out.println(statsFormat.equals("json") ?
+                    result.getStats().toJson() : result.getStats().toString());
+        }
+        if (!result.isSuccessful()) {
+            return false;
+        }
+
+        if (report) {
+            printReport(reported.getClassFiles(), source,
+                    directory.resolve(inputs[0]).getFileName().toString());
         }
 
-        /****************************
-         * Stage 3: Code Generation *
-         ****************************/
+        if (run) {
+            return execute(((MemoryOutput) output).getClassFiles());
+        }
 
-        final JasminGenerator generator = new JasminGenerator(new JasminHandler() {
-            public void handle(String className, StringBuilder code) {
-                // Write to .j file.
-                final Path path = Paths.get(className + ".j");
-                final Charset charset = StandardCharsets.UTF_8;
-                try (BufferedWriter writer = Files.newBufferedWriter(path, charset)) {
-                    writer.append(code);
-                } catch (IOException e) {
-                    e.printStackTrace();
+        return true;
+    }
+
+    /**
+     * Prints a report on generated class files, compared to javac if it is available.
+     *
+     * @param classFiles Map from class names to generated class files.
+     * @param source Source code of the program.
+     * @param fileName Name of the source file.
+     */
+    private void printReport(Map<String, byte[]> classFiles, char[] source, String fileName) {
+        Map<String, byte[]> javacClassFiles = null;
+        if (Javac.isAvailable()) {
+            try {
+                javacClassFiles = Javac.compile(new String(source), fileName);
+            } catch (IllegalArgumentException e) {
+                err.println("javac: " + e.getMessage());
+            }
+        }
+        out.print(new BytecodeReport(classFiles, javacClassFiles));
+    }
+
+    /**
+     * Compiles many programs in batch mode, and prints a summary.
+     *
+     * The code of each program is written to a directory of its own under the
+     * destination, named after the source file, since programs often have classes of
+     * the same name. A source file in a given directory keeps its path relative to that
+     * directory.
+     *
+     * @param compiler Batch compiler to use.
+     * @param inputs Source files and directories of source files, as given on the
+     *               command line.
+     * @param destination Destination directory, or null to discard the output.
+     * @param statsFormat Format of statistics to print for each program ("text" or
+     *                    "json"), or null to not print statistics.
+     * @return true if all programs were compiled successfully.
+     */
+    private boolean compileBatch(BatchCompiler compiler, String[] inputs,
+            final Path destination, String statsFormat) {
+        // Source files, as resolved, with the paths shown in messages and the names of
+        // their output directories.
+        final List<Path> paths = new ArrayList<>();
+        final Map<Path, Path> shown = new HashMap<>();
+        final Map<Path, Path> outputNames = new HashMap<>();
+        final Map<Path, Path> written = new HashMap<>();
+        for (String input : inputs) {
+            final Path path = Paths.get(input);
+            final Path resolved = directory.resolve(path);
+            final List<Path> found = new ArrayList<>();
+            try {
+                findSources(resolved, found);
+            } catch (IOException e) {
+                err.println(e.getMessage());
+                return false;
+            }
+            for (Path file : found) {
+                final Path name = file.equals(resolved) ?
+                        path.getFileName() : resolved.relativize(file);
+                final Path source = file.equals(resolved) ? path : path.resolve(name);
+                final Path outputName = withoutExtension(name);
+                final Path other = written.put(outputName, source);
+                if (other != null) {
+                    err.println("mjc: both " + other + " and " + source +
+                            " would be written to " + outputName);
+                    return false;
+                }
+                paths.add(file);
+                shown.put(file, source);
+                outputNames.put(file, outputName);
+            }
+        }
+
+        final long start = System.nanoTime();
+        final List<CompilationResult> results = compiler.compile(paths,
+                new BatchCompiler.Outputs() {
+            public ClassOutput open(Path file) throws IOException {
+                if (destination == null) {
+                    return new NullOutput();
                 }
+                return new DirectoryOutput(destination.resolve(outputNames.get(file)));
+            }
+        });
+        final long millis = (System.nanoTime() - start) / 1000000;
+
+        int failed = 0;
+        boolean cancelled = results.size() < paths.size();
+        for (int i = 0; i < results.size(); i++) {
+            final CompilationResult result = results.get(i);
+            for (MiniJavaError error : result.getErrors()) {
+                err.println(shown.get(paths.get(i)) + ":" + error);
+            }
+            if (!result.isSuccessful()) {
+                failed++;
+            }
+            cancelled |= result.isCancelled();
+        }
+        if (cancelled) {
+            err.println("compilation cancelled");
+        }
+        if (statsFormat != null) {
+            printStats(statsFormat.equals("json"), paths, shown, results);
+        }
+        err.println("compiled " + results.size() + " of " + paths.size() + " files in " +
+                millis + " ms: " + (results.size() - failed) + " succeeded, " + failed +
+                " failed");
+        return failed == 0 && !cancelled;
+    }
+
+    /**
+     * Prints the statistics of programs compiled in batch mode: as a table for each
+     * program, or as a JSON array of objects with the file and the statistics, which are
+     * null for files that could not be read.
+     *
+     * @param json Whether to print JSON.
+     * @param paths Source files of the programs, as resolved.
+     * @param shown Map from source files, as resolved, to the paths shown in messages.
+     * @param results Results of the compilations.
+     */
+    private void printStats(boolean json, List<Path> paths, Map<Path, Path> shown,
+            List<CompilationResult> results) {
+        if (json) {
+            out.print("[");
+        }
+        for (int i = 0; i < results.size(); i++) {
+            final String file = shown.get(paths.get(i)).toString();
+            final CompilationStats stats = results.get(i).getStats();
+            if (json) {
+                out.print((i == 0 ? "\n" : ",\n") + "{\"file\": " +
+                        CompilationStats.quote(file) + ", \"stats\": " +
+                        (stats != null ? stats.toJson() : "null") + "}");
+            } else if (stats != null) { // Null if the file could not be read.
+                out.println(file + ":");
+                out.println(stats);
+            }
+        }
+        if (json) {
+            out.println("\n]");
+        }
+    }
 
-                if (!commandLine.hasOption("S")) {
-                    // Invoke Jasmin to assemble the file.
-                    jasmin.Main.main(new String[] { className + ".j" });
+    /**
+     * Finds source files.
+     *
+     * @param path A source file, or a directory whose *.java files are found, in
+     *             subdirectories too.
+     * @param found List to add the source files to, in order of their paths.
+     * @throws IOException if an I/O error occurred.
+     */
+    private static void findSources(Path path, final List<Path> found) throws IOException {
+        if (!Files.isDirectory(path)) {
+            found.add(path); // Not read until it is compiled.
+            return;
+        }
+        final List<Path> sources = new ArrayList<>();
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && file.toString().endsWith(".java")) {
+                    sources.add(file);
                 }
+                return FileVisitResult.CONTINUE;
             }
         });
-        generator.generate(ast, symbolTable, typeChecker.getTypes());
+        Collections.sort(sources);
+        found.addAll(sources);
+    }
 
+    /**
+     * @param path A path.
+     * @return The path without the extension of its file name.
+     */
+    private static Path withoutExtension(Path path) {
+        final String name = path.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        return dot > 0 ? path.resolveSibling(name.substring(0, dot)) : path;
+    }
+
+    /**
+     * @param name Name of a lexer or parser, as given on the command line.
+     * @return The implementation with that name.
+     */
+    private static Compiler.Frontend frontend(String name) {
+        return name.equals("fast") ? Compiler.Frontend.FAST : Compiler.Frontend.SABLECC;
+    }
+
+    /**
+     * Runs a compiled program in this JVM.
+     *
+     * The classes are defined by a class loader of their own, and the main method of
+     * the main class is invoked with no arguments.
+     *
+     * The program writes to {@code System.out}. If that is not the output stream of this
+     * compiler, as in the compiler server, the standard streams are redirected while the
+     * program runs, so only one such program may run at a time.
+     *
+     * @param classFiles Map from class names to class files, with the main class first.
+     * @return true if the program completed normally, false if it threw an exception.
+     */
+    private boolean execute(Map<String, byte[]> classFiles) {
+        if (out == System.out && err == System.err) {
+            return executeProgram(classFiles);
+        }
+        synchronized (JVMMain.class) {
+            final PrintStream systemOut = System.out;
+            final PrintStream systemErr = System.err;
+            System.setOut(out);
+            System.setErr(err);
+            try {
+                return executeProgram(classFiles);
+            } finally {
+                System.setOut(systemOut);
+                System.setErr(systemErr);
+            }
+        }
+    }
+
+    /**
+     * Runs a compiled program using the current standard streams.
+     *
+     * @param classFiles Map from class names to class files, with the main class first.
+     * @return true if the program completed normally, false if it threw an exception.
+     */
+    private static boolean executeProgram(Map<String, byte[]> classFiles) {
+        final String mainClass = classFiles.keySet().iterator().next();
+        final ClassLoader loader = new MemoryClassLoader(classFiles, null);
+        try {
+            final Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            // Report the exception the way the java launcher does, without the frames
+            // of the compiler below the main method.
+            final Throwable cause = e.getCause();
+            final StackTraceElement[] trace = cause.getStackTrace();
+            int end = trace.length;
+            while (end > 0 && !classFiles.containsKey(trace[end - 1].getClassName())) {
+                end--;
+            }
+            cause.setStackTrace(Arrays.copyOf(trace, end));
+            System.out.flush();
+            System.err.print("Exception in thread \"main\" ");
+            cause.printStackTrace();
+            return false;
+        } catch (ReflectiveOperationException e) {
+            throw new Error("JVMMain.executeProgram: Failed to invoke main method", e);
+        } finally {
+            System.out.flush();
+        }
         return true;
     }
 
     /**
      * Prints a help message to standard output.
      */
-    private static void printHelp() {
-        helpFormatter.printHelp("mjc <infile> [options]", options);
+    private void printHelp() {
+        final PrintWriter writer = new PrintWriter(out);
+        helpFormatter.printHelp(writer, helpFormatter.getWidth(),
+                "mjc <infile|dir>... [options]",
+                null, options, helpFormatter.getLeftPadding(), helpFormatter.getDescPadding(),
+                null);
+        writer.flush();
+    }
+
+    /**
+     * Runs a compiler server until the process is killed.
+     *
+     * @param port Port to listen on, or 0 for any free port.
+     * @return false if the server could not be started.
+     */
+    private boolean serve(String port) {
+        final CompilerServer server;
+        try {
+            final int threads = Runtime.getRuntime().availableProcessors();
+            server = new CompilerServer(Integer.parseInt(port), threads, SERVER_QUEUE_CAPACITY,
+                    SERVER_TIMEOUT_MILLIS, Paths.get(System.getProperty("user.home"), ".mjc"));
+        } catch (NumberFormatException e) {
+            printHelp();
+            return false;
+        } catch (IOException e) {
+            err.println(e.getMessage());
+            return false;
+        }
+        err.println("mjc: listening on port " + server.getPort() +
+                ", token in " + server.getTokenFile());
+        // Remove the token file when the process is killed.
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                try {
+                    server.close();
+                } catch (IOException ignored) {
+                    // Nothing more to do on exit.
+                }
+            }
+        });
+        server.serve();
+        return true;
     }
 
     // Comparator for Options, to get them in the order we want in help output.
-    class OptionComparator<T extends Option> implements Comparator<T> {
-        private static final String ORDER = "Spgh";
+    static class OptionComparator<T extends Option> implements Comparator<T> {
+        private final List<String> order = Arrays.asList("S", "jasmin", "lexer", "parser", "compact", "j", "d", "discard", "run", "p", "g", "stats", "report", "server", "h");
 
         @Override
         public int compare(T option1, T option2) {
-            return ORDER.indexOf(option1.getOpt()) - ORDER.indexOf(option2.getOpt());
+            return order.indexOf(option1.getOpt()) - order.indexOf(option2.getOpt());
         }
     }
 }
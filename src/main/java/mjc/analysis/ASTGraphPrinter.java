@@ -1,15 +1,35 @@
 package mjc.analysis;
 
+import java.io.PrintStream;
+
 import mjc.node.EOF;
 import mjc.node.Node;
 import mjc.node.Start;
 import mjc.node.Token;
 
 /**
- * Simple visitor to print AST in GraphViz format on standard output.
+ * Simple visitor to print AST in GraphViz format on standard output,
+ * or another stream.
  */
 public class ASTGraphPrinter extends DepthFirstAdapter {
     private StringBuilder builder;
+    private final PrintStream out;
+
+    /**
+     * Constructs a new ASTGraphPrinter that prints to standard output.
+     */
+    public ASTGraphPrinter() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a new ASTGraphPrinter.
+     *
+     * @param out Stream to print to.
+     */
+    public ASTGraphPrinter(PrintStream out) {
+        this.out = out;
+    }
 
     public void print(Node ast) {
         ast.apply(this);
@@ -25,7 +45,7 @@ public class ASTGraphPrinter extends DepthFirstAdapter {
     @Override
     public void outStart(final Start node) {
         builder.append("}\n");
-        System.out.print(builder.toString());
+        out.print(builder.toString());
     }
 
     @Override
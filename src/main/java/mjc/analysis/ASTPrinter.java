@@ -1,16 +1,36 @@
 package mjc.analysis;
 
+import java.io.PrintStream;
+
 import mjc.node.EOF;
 import mjc.node.Node;
 import mjc.node.Start;
 import mjc.node.Token;
 
 /**
- * Simple visitor to print AST to standard output.
+ * Simple visitor to print AST to standard output,
+ * or another stream.
  */
 public class ASTPrinter extends DepthFirstAdapter {
     private int indent;            // Indentation level.
     private StringBuilder builder; // Builder for the output.
+    private final PrintStream out;
+
+    /**
+     * Constructs a new ASTPrinter that prints to standard output.
+     */
+    public ASTPrinter() {
+        this(System.out);
+    }
+
+    /**
+     * Constructs a new ASTPrinter.
+     *
+     * @param out Stream to print to.
+     */
+    public ASTPrinter(PrintStream out) {
+        this.out = out;
+    }
 
     public void print(Node ast) {
         ast.apply(this);
@@ -25,7 +45,7 @@ public class ASTPrinter extends DepthFirstAdapter {
 
     @Override
     public void outStart(Start node) {
-        System.out.print(builder.toString());
+        out.print(builder.toString());
     }
 
     @Override
@@ -0,0 +1,152 @@
+package mjc.analysis;
+
+import mjc.node.AArrayAssignStatement;
+import mjc.node.AAssignStatement;
+import mjc.node.ABlockStatement;
+import mjc.node.AClassDeclaration;
+import mjc.node.AIdentifierExpression;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.AMethodDeclaration;
+import mjc.node.Node;
+import mjc.node.TIdentifier;
+import mjc.symbol.ClassInfo;
+import mjc.symbol.MethodInfo;
+import mjc.symbol.Scope;
+import mjc.symbol.Symbol;
+import mjc.symbol.SymbolTable;
+import mjc.symbol.VariableInfo;
+
+/**
+ * Name resolver.
+ *
+ * The NameResolver class takes as input an abstract syntax tree and a symbol table and
+ * binds each use of a variable, in identifier expressions and as the target of
+ * assignments, to the local variable, parameter or field it refers to. The binding is
+ * recorded on the identifier token and may be read back with
+ * {@code TIdentifier.getVariable()}.
+ *
+ * This is the only pass after symbol table construction that has to look variables up
+ * through the method and class scopes. It follows the blocks of each method through its
+ * {@link Scope} tree, which it only reads, so several resolvers may run on the same
+ * symbol table at once. The TypeChecker runs it before checking, and later stages use
+ * the bindings.
+ *
+ * Identifiers that do not refer to a variable in scope are left unbound. Resolving
+ * never fails; the TypeChecker reports the unbound identifiers.
+ */
+public class NameResolver extends DepthFirstAdapter {
+    private SymbolTable symbolTable;
+
+    private ClassInfo currentClass;
+    private MethodInfo currentMethod;
+    private Scope currentScope;
+    private int nextBlock;
+
+    /**
+     * Binds the variable uses in the given tree using the given symbol table.
+     *
+     * @param ast Input abstract syntax tree.
+     * @param symbolTable Symbol table for the tree.
+     */
+    public void resolve(final Node ast, final SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+
+        ast.apply(this);
+    }
+
+    /**
+     * Binds {@code id} to the variable that is in scope under its name, if any.
+     *
+     * Local variables shadow parameters, which shadow fields.
+     */
+    private void bind(final TIdentifier id) {
+        final Symbol name = id.getSymbol();
+
+        VariableInfo variable = currentScope.getLocal(name);
+        if (variable == null) {
+            variable = currentMethod.getParameter(name);
+        }
+        if (variable == null) {
+            variable = currentClass.getField(name);
+        }
+
+        id.setVariable(variable);
+    }
+
+    /**
+     * Enters the Scope of the next block of the current method.
+     */
+    private void enterScope() {
+        currentScope = currentMethod.getScope(nextBlock++);
+    }
+
+    /**
+     * Leaves the Scope of the current block.
+     */
+    private void leaveScope() {
+        currentScope = currentScope.getParent();
+    }
+
+    @Override
+    public void inAMainClassDeclaration(final AMainClassDeclaration declaration) {
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
+        currentMethod = currentClass.getMethod(declaration.getMethodName().getSymbol());
+        nextBlock = 0;
+        enterScope();
+    }
+
+    @Override
+    public void outAMainClassDeclaration(final AMainClassDeclaration declaration) {
+        leaveScope();
+        currentMethod = null;
+        currentClass = null;
+    }
+
+    @Override
+    public void inAClassDeclaration(final AClassDeclaration declaration) {
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
+    }
+
+    @Override
+    public void outAClassDeclaration(final AClassDeclaration declaration) {
+        currentClass = null;
+    }
+
+    @Override
+    public void inAMethodDeclaration(final AMethodDeclaration declaration) {
+        currentMethod = currentClass.getMethod(declaration.getName().getSymbol());
+        nextBlock = 0;
+        enterScope();
+    }
+
+    @Override
+    public void outAMethodDeclaration(final AMethodDeclaration declaration) {
+        leaveScope();
+        currentMethod = null;
+    }
+
+    @Override
+    public void inABlockStatement(final ABlockStatement block) {
+        enterScope();
+    }
+
+    @Override
+    public void outABlockStatement(final ABlockStatement block) {
+        leaveScope();
+    }
+
+    @Override
+    public void outAAssignStatement(final AAssignStatement statement) {
+        bind(statement.getName());
+    }
+
+    @Override
+    public void outAArrayAssignStatement(final AArrayAssignStatement statement) {
+        bind(statement.getName());
+    }
+
+    @Override
+    public void outAIdentifierExpression(final AIdentifierExpression expression) {
+        bind(expression.getIdentifier());
+    }
+}
@@ -15,9 +15,11 @@ import mjc.node.AIntArrayType;
 import mjc.node.AIntType;
 import mjc.node.AMainClassDeclaration;
 import mjc.node.AMethodDeclaration;
+import mjc.node.AProgram;
 import mjc.node.AVariableDeclaration;
 import mjc.node.Node;
 import mjc.node.PType;
+import mjc.node.Start;
 import mjc.node.TIdentifier;
 import mjc.symbol.ClassInfo;
 import mjc.symbol.MethodInfo;
@@ -67,17 +69,61 @@ public class SymbolTableBuilder {
      * @return A symbol table constructed from the AST.
      */
     public SymbolTable build(final Node ast) {
+        return build(ast, null);
+    }
+
+    /**
+     * Builds and returns a symbol table from the given AST, passing each class
+     * declaration to {@code handler} as soon as the second pass is done with it.
+     *
+     * The handler may detach the declaration from the AST, so that a caller which
+     * keeps the class in another form does not hold the whole AST until the table
+     * is complete.
+     *
+     * @param ast The input AST (a Start or AProgram node).
+     * @param handler Handler of finished class declarations, or null.
+     * @return A symbol table constructed from the AST.
+     */
+    public SymbolTable build(final Node ast, final DeclarationHandler handler) {
         errors.clear();
 
         SymbolTable symbolTable = new SymbolTable();
 
         // Run the two passes to construct table.
         ast.apply(new FirstPass(symbolTable));
-        ast.apply(new SecondPass(symbolTable));
+        final SecondPass secondPass = new SecondPass(symbolTable);
+        if (handler == null) {
+            ast.apply(secondPass);
+        } else {
+            // The second pass only visits declarations, so it may run one class at a time.
+            final AProgram program = ast instanceof Start
+                    ? (AProgram) ((Start) ast).getPProgram()
+                    : (AProgram) ast;
+            final List<Node> declarations = new ArrayList<>();
+            declarations.add(program.getMainClassDeclaration());
+            declarations.addAll(program.getClasses());
+            for (Node declaration : declarations) {
+                declaration.apply(secondPass);
+                handler.handle(declaration);
+            }
+        }
 
         return symbolTable;
     }
 
+    /**
+     * Handler of class declarations whose symbols have been added to the symbol table.
+     */
+    public interface DeclarationHandler {
+
+        /**
+         * Handles a class declaration after its symbols have been added.
+         *
+         * @param declaration An AMainClassDeclaration or AClassDeclaration.
+         */
+        void handle(Node declaration);
+    }
+
     /**
      * @return true if errors occurred during symbol table construction.
      */
@@ -174,7 +220,7 @@ public class SymbolTableBuilder {
 
         @Override
         public void inAMainClassDeclaration(final AMainClassDeclaration declaration) {
-            currentClass = symbolTable.getClassInfo(declaration.getName().getText());
+            currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
 
             final String methodId = declaration.getMethodName().getText();
             final int line = declaration.getMethodName().getLine();
@@ -213,7 +259,7 @@ public class SymbolTableBuilder {
 
         @Override
         public void inAClassDeclaration(final AClassDeclaration declaration) {
-            currentClass = symbolTable.getClassInfo(declaration.getName().getText());
+            currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
         }
 
         @Override
@@ -223,7 +269,7 @@ public class SymbolTableBuilder {
 
         @Override
         public void inAMethodDeclaration(final AMethodDeclaration declaration) {
-            currentMethod = currentClass.getMethod(declaration.getName().getText());
+            currentMethod = currentClass.getMethod(declaration.getName().getSymbol());
 
             final TIdentifier methodId = declaration.getName();
             final int line = methodId.getLine();
@@ -258,7 +304,7 @@ public class SymbolTableBuilder {
             final int line = fieldId.getLine();
             final int column = fieldId.getPos();
 
-            if (currentClass.getField(fieldId.getText()) == null) {
+            if (currentClass.getField(fieldId.getSymbol()) == null) {
                 currentClass.addField(
                         fieldId.getText(),
                         fromAbstract(declaration.getType()),
@@ -284,7 +330,7 @@ public class SymbolTableBuilder {
             final int line = paramId.getLine();
             final int column = paramId.getPos();
 
-            if (currentMethod.getParameter(paramId.getText()) == null) {
+            if (currentMethod.getParameter(paramId.getSymbol()) == null) {
                 currentMethod.addParameter(
                         paramId.getText(),
                         fromAbstract(declaration.getType()),
@@ -300,8 +346,8 @@ public class SymbolTableBuilder {
             final int line = variableId.getLine();
             final int column = variableId.getPos();
 
-            final VariableInfo otherParam = currentMethod.getParameter(variableId.getText());
-            final VariableInfo otherVariable = currentMethod.getLocal(variableId.getText());
+            final VariableInfo otherParam = currentMethod.getParameter(variableId.getSymbol());
+            final VariableInfo otherVariable = currentMethod.getLocal(variableId.getSymbol());
 
             if (otherVariable == null && otherParam == null) {
                 currentMethod.addLocal(
@@ -328,7 +374,7 @@ public class SymbolTableBuilder {
                 // AST type is a class type.
                 final AClassType classType = (AClassType)abstractType;
                 final TIdentifier classId = classType.getName();
-                final ClassInfo classInfo = symbolTable.getClassInfo(classId.getText());
+                final ClassInfo classInfo = symbolTable.getClassInfo(classId.getSymbol());
                 if (classInfo != null) {
                     return classInfo.getType();
                 } else {
@@ -1,17 +1,18 @@
 package mjc.analysis;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import mjc.node.AAndExpression;
 import mjc.node.AArrayAccessExpression;
 import mjc.node.AArrayAssignStatement;
 import mjc.node.AArrayLengthExpression;
 import mjc.node.AAssignStatement;
-import mjc.node.ABlockStatement;
 import mjc.node.AClassDeclaration;
 import mjc.node.AEqualExpression;
 import mjc.node.AFalseExpression;
@@ -43,6 +44,7 @@ import mjc.node.PExpression;
 import mjc.node.TIdentifier;
 import mjc.symbol.ClassInfo;
 import mjc.symbol.MethodInfo;
+import mjc.symbol.Symbol;
 import mjc.symbol.SymbolTable;
 import mjc.symbol.VariableInfo;
 import mjc.types.BuiltInType;
@@ -60,6 +62,12 @@ import static mjc.error.MiniJavaErrorType.*;
  *
  * If any errors exist after construction of the symbol table and type-checking has
  * completed, the compiler should abort and not proceed with later stages of compilation.
+ *
+ * The type of each checked expression is recorded on the expression node itself, and
+ * may be read back with {@link PExpression#getTypeAnnotation()}. Before checking, the
+ * variable uses are bound to their declarations with a {@link NameResolver}, and during
+ * checking each method invocation is bound to the invoked method, which may be read back
+ * with {@code TIdentifier.getMethod()}.
  */
 public class TypeChecker extends DepthFirstAdapter {
     private SymbolTable symbolTable;
@@ -67,7 +75,7 @@ public class TypeChecker extends DepthFirstAdapter {
     private ClassInfo currentClass;
     private MethodInfo currentMethod;
 
-    private HashMap<Node, Type> types;
+    private Node ast;
     private List<MiniJavaError> errors;
 
     /**
@@ -79,10 +87,13 @@ public class TypeChecker extends DepthFirstAdapter {
      */
     public boolean check(final Node ast, final SymbolTable symbolTable) {
         this.symbolTable = symbolTable;
+        this.ast = ast;
 
-        types = new HashMap<>();
         errors = new ArrayList<>();
 
+        // Bind variable uses to their declarations.
+        new NameResolver().resolve(ast, symbolTable);
+
         // Apply the type-checker.
         ast.apply(this);
 
@@ -90,10 +101,16 @@ public class TypeChecker extends DepthFirstAdapter {
     }
 
     /**
+     * Returns the node to type mappings of the last checked tree.
+     *
+     * The map is a read-only view of the type annotations of the expression nodes,
+     * kept for callers that want the types as a map. Lookups are constant time, but
+     * iterating over the map walks the whole tree.
+     *
      * @return the node to type mappings constructed during type checking.
      */
     public Map<Node, Type> getTypes() {
-        return types;
+        return new TypeAnnotations(ast);
     }
 
     /**
@@ -119,21 +136,19 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void inAMainClassDeclaration(final AMainClassDeclaration declaration) {
-        currentClass = symbolTable.getClassInfo(declaration.getName().getText());
-        currentMethod = currentClass.getMethod(declaration.getMethodName().getText());
-        currentMethod.enterBlock();
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
+        currentMethod = currentClass.getMethod(declaration.getMethodName().getSymbol());
     }
 
     @Override
     public void outAMainClassDeclaration(final AMainClassDeclaration declaration) {
-        currentMethod.leaveBlock();
         currentMethod = null;
         currentClass = null;
     }
 
     @Override
     public void inAClassDeclaration(final AClassDeclaration declaration) {
-        currentClass = symbolTable.getClassInfo(declaration.getName().getText());
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
     }
 
     @Override
@@ -143,14 +158,13 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void inAMethodDeclaration(final AMethodDeclaration declaration) {
-        currentMethod = currentClass.getMethod(declaration.getName().getText());
-        currentMethod.enterBlock();
+        currentMethod = currentClass.getMethod(declaration.getName().getSymbol());
     }
 
     @Override
     public void outAMethodDeclaration(final AMethodDeclaration declaration) {
         final String id = declaration.getName().getText();
-        final Type actualType = types.get(declaration.getReturnExpression());
+        final Type actualType = declaration.getReturnExpression().getTypeAnnotation();
         final Type returnType = currentMethod.getReturnType();
         final int line = declaration.getName().getLine();
         final int column = declaration.getName().getPos();
@@ -159,23 +173,12 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_RETURN_TYPE.on(line, column, id, returnType));
         }
 
-        currentMethod.leaveBlock();
         currentMethod = null;
     }
 
-    @Override
-    public void inABlockStatement(final ABlockStatement block) {
-        currentMethod.enterBlock();
-    }
-
-    @Override
-    public void outABlockStatement(final ABlockStatement block) {
-        currentMethod.leaveBlock();
-    }
-
     @Override
     public void outAIfStatement(final AIfStatement statement) {
-        final Type conditionType = types.get(statement.getCondition());
+        final Type conditionType = statement.getCondition().getTypeAnnotation();
         final int line = statement.getIfKeyword().getLine();
         final int column = statement.getIfKeyword().getPos();
 
@@ -186,7 +189,7 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void outAIfElseStatement(final AIfElseStatement statement) {
-        final Type conditionType = types.get(statement.getCondition());
+        final Type conditionType = statement.getCondition().getTypeAnnotation();
         final int line = statement.getIfKeyword().getLine();
         final int column = statement.getIfKeyword().getPos();
 
@@ -197,7 +200,7 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void outAWhileStatement(final AWhileStatement statement) {
-        final Type conditionType = types.get(statement.getCondition());
+        final Type conditionType = statement.getCondition().getTypeAnnotation();
         final int line = statement.getWhileKeyword().getLine();
         final int column = statement.getWhileKeyword().getPos();
 
@@ -208,7 +211,7 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void outAPrintlnStatement(final APrintlnStatement statement) {
-        final Type valueType = types.get(statement.getValue());
+        final Type valueType = statement.getValue().getTypeAnnotation();
         final int line = statement.getPrintlnKeyword().getLine();
         final int column = statement.getPrintlnKeyword().getPos();
 
@@ -219,28 +222,20 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void outAAssignStatement(final AAssignStatement statement) {
-        final String id = statement.getName().getText();
+        final Symbol id = statement.getName().getSymbol();
         final int line = statement.getAssign().getLine();
         final int column = statement.getAssign().getPos();
 
-        Type left = null;
-        final VariableInfo localInfo, paramInfo, fieldInfo;
-        if ((localInfo = currentMethod.getLocal(id)) != null) {
-            left = localInfo.getType();
-        } else if ((paramInfo = currentMethod.getParameter(id)) != null) {
-            left = paramInfo.getType();
-        } else if ((fieldInfo = currentClass.getField(id)) != null) {
-            left = fieldInfo.getType();
-        }
-
-        if (left == null) {
+        final VariableInfo variable = statement.getName().getVariable();
+        if (variable == null) {
             if (symbolTable.getClassInfo(id) != null) {
                 error(EXPECTED_VARIABLE_GOT_CLASS.on(line, column, id));
             } else {
                 error(UNDECLARED_IDENTIFIER.on(line, column, id));
             }
         } else {
-            final Type right = types.get(statement.getValue());
+            final Type left = variable.getType();
+            final Type right = statement.getValue().getTypeAnnotation();
             if (!right.isAssignableTo(left)) {
                 error(INVALID_ASSIGNMENT.on(line, column, right, left));
             }
@@ -249,31 +244,25 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void outAArrayAssignStatement(final AArrayAssignStatement statement) {
-        final String id = statement.getName().getText();
+        final Symbol id = statement.getName().getSymbol();
         final int line = statement.getAssign().getLine();
         final int column = statement.getAssign().getPos();
 
-        final Type indexType = types.get(statement.getIndex());
+        final Type indexType = statement.getIndex().getTypeAnnotation();
         if (!indexType.isInt() && !indexType.isUndefined()) {
             error(INVALID_INDEX_TYPE.on(line, column, indexType));
         }
 
-        Type left = null;
-        final VariableInfo localInfo, paramInfo, fieldInfo;
-        if ((localInfo = currentMethod.getLocal(id)) != null) {
-            left = localInfo.getType();
-        } else if ((paramInfo = currentMethod.getParameter(id)) != null) {
-            left = paramInfo.getType();
-        } else if ((fieldInfo = currentClass.getField(id)) != null) {
-            left = fieldInfo.getType();
-        } else if (symbolTable.getClassInfo(id) != null) {
-            error(EXPECTED_VARIABLE_GOT_CLASS.on(line, column, id));
+        final VariableInfo variable = statement.getName().getVariable();
+        if (variable == null) {
+            if (symbolTable.getClassInfo(id) != null) {
+                error(EXPECTED_VARIABLE_GOT_CLASS.on(line, column, id));
+            } else {
+                error(UNDECLARED_IDENTIFIER.on(line, column, id));
+            }
         } else {
-            error(UNDECLARED_IDENTIFIER.on(line, column, id));
-        }
-
-        if (left != null) {
-            final Type right = types.get(statement.getValue());
+            final Type left = variable.getType();
+            final Type right = statement.getValue().getTypeAnnotation();
             if (left.isIntArray()) {
                 if (!right.isAssignableTo(BuiltInType.Int)) {
                     error(INVALID_ASSIGNMENT.on(line, column, right, BuiltInType.Int));
@@ -286,8 +275,8 @@ public class TypeChecker extends DepthFirstAdapter {
 
     @Override
     public void outAAndExpression(final AAndExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getAnd().getLine();
         final int column = expression.getAnd().getPos();
 
@@ -295,13 +284,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "&&", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAOrExpression(final AOrExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getOr().getLine();
         final int column = expression.getOr().getPos();
 
@@ -309,13 +298,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "||", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outALessThanExpression(final ALessThanExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getLessThan().getLine();
         final int column = expression.getLessThan().getPos();
 
@@ -323,13 +312,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "<", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAGreaterThanExpression(final AGreaterThanExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getGreaterThan().getLine();
         final int column = expression.getGreaterThan().getPos();
 
@@ -337,13 +326,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, ">", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAGreaterEqualThanExpression(final AGreaterEqualThanExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getGreaterEqualThan().getLine();
         final int column = expression.getGreaterEqualThan().getPos();
 
@@ -351,13 +340,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, ">=", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outALessEqualThanExpression(final ALessEqualThanExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getLessEqualThan().getLine();
         final int column = expression.getLessEqualThan().getPos();
 
@@ -365,13 +354,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "<=", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAEqualExpression(final AEqualExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getEqual().getLine();
         final int column = expression.getEqual().getPos();
 
@@ -379,13 +368,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "==", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outANotEqualExpression(final ANotEqualExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getNotEqual().getLine();
         final int column = expression.getNotEqual().getPos();
 
@@ -393,13 +382,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "!=", left, right));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAPlusExpression(final APlusExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getPlus().getLine();
         final int column = expression.getPlus().getPos();
 
@@ -407,13 +396,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "+", left, right));
         }
 
-        types.put(expression, BuiltInType.Int);
+        expression.setTypeAnnotation(BuiltInType.Int);
     }
 
     @Override
     public void outAMinusExpression(final AMinusExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getMinus().getLine();
         final int column = expression.getMinus().getPos();
 
@@ -421,13 +410,13 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "-", left, right));
         }
 
-        types.put(expression, BuiltInType.Int);
+        expression.setTypeAnnotation(BuiltInType.Int);
     }
 
     @Override
     public void outATimesExpression(final ATimesExpression expression) {
-        final Type left = types.get(expression.getLeft());
-        final Type right = types.get(expression.getRight());
+        final Type left = expression.getLeft().getTypeAnnotation();
+        final Type right = expression.getRight().getTypeAnnotation();
         final int line = expression.getStar().getLine();
         final int column = expression.getStar().getPos();
 
@@ -435,12 +424,12 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_BINARY_OP.on(line, column, "*", left, right));
         }
 
-        types.put(expression, BuiltInType.Int);
+        expression.setTypeAnnotation(BuiltInType.Int);
     }
 
     @Override
     public void outANotExpression(final ANotExpression expression) {
-        final Type type = types.get(expression.getExpression());
+        final Type type = expression.getExpression().getTypeAnnotation();
 
         if (!type.isBoolean() && !type.isUndefined()) {
             final int line = expression.getNot().getLine();
@@ -448,17 +437,19 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_UNARY_OP.on(line, column, "!", type));
         }
 
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAMethodInvocationExpression(final AMethodInvocationExpression expression) {
-        final Type classType = types.get(expression.getInstance());
+        final Type classType = expression.getInstance().getTypeAnnotation();
         final String classId = classType.getName();
 
-        final String methodId = expression.getName().getText();
+        final Symbol methodId = expression.getName().getSymbol();
         final MethodInfo methodInfo;
 
+        expression.getName().setMethod(null);
+
         final int line = expression.getName().getLine();
         final int column = expression.getName().getPos();
 
@@ -466,10 +457,10 @@ public class TypeChecker extends DepthFirstAdapter {
             if (!classType.isUndefined()) {
                 error(CALL_ON_NON_CLASS.on(line, column, classType));
             }
-            types.put(expression, UndefinedType.Instance);
+            expression.setTypeAnnotation(UndefinedType.Instance);
         } else if ((methodInfo = symbolTable.getClassInfo(classId).getMethod(methodId)) == null) {
             error(UNDECLARED_METHOD.on(line, column, methodId));
-            types.put(expression, UndefinedType.Instance);
+            expression.setTypeAnnotation(UndefinedType.Instance);
         } else {
             final List<PExpression> actuals = expression.getActuals();
             final List<VariableInfo> formals = methodInfo.getParameters();
@@ -480,7 +471,7 @@ public class TypeChecker extends DepthFirstAdapter {
                 final Iterator<VariableInfo> formalsIt = formals.iterator();
                 int paramNr = 0;
                 while (actualsIt.hasNext()) {
-                    final Type actual = types.get(actualsIt.next());
+                    final Type actual = actualsIt.next().getTypeAnnotation();
                     final Type formal = formalsIt.next().getType();
                     if (!actual.isAssignableTo(formal)) {
                         error(INVALID_PARAM_TYPE.on(line, column, methodId, paramNr, actual, formal));
@@ -488,14 +479,15 @@ public class TypeChecker extends DepthFirstAdapter {
                     ++paramNr;
                 }
             }
-            types.put(expression, methodInfo.getReturnType());
+            expression.getName().setMethod(methodInfo);
+            expression.setTypeAnnotation(methodInfo.getReturnType());
         }
     }
 
     @Override
     public void outAArrayAccessExpression(final AArrayAccessExpression expression) {
-        final Type type = types.get(expression.getArray());
-        final Type indexType = types.get(expression.getIndex());
+        final Type type = expression.getArray().getTypeAnnotation();
+        final Type indexType = expression.getIndex().getTypeAnnotation();
         final int line = expression.getStartBracket().getLine();
         final int column = expression.getStartBracket().getPos();
 
@@ -507,12 +499,12 @@ public class TypeChecker extends DepthFirstAdapter {
             error(NOT_ARRAY_TYPE.on(line, column, type));
         }
 
-        types.put(expression, BuiltInType.Int);
+        expression.setTypeAnnotation(BuiltInType.Int);
     }
 
     @Override
     public void outAArrayLengthExpression(final AArrayLengthExpression expression) {
-        final Type type = types.get(expression.getArray());
+        final Type type = expression.getArray().getTypeAnnotation();
 
         if (!type.isIntArray() && !type.isUndefined()) {
             final int line = expression.getLengthKeyword().getLine();
@@ -520,27 +512,27 @@ public class TypeChecker extends DepthFirstAdapter {
             error(LENGTH_ON_NON_ARRAY.on(line, column, type));
         }
 
-        types.put(expression, BuiltInType.Int);
+        expression.setTypeAnnotation(BuiltInType.Int);
     }
 
     @Override
     public void outANewInstanceExpression(final ANewInstanceExpression expression) {
         final TIdentifier id = expression.getClassName();
-        final ClassInfo classInfo = symbolTable.getClassInfo(id.getText());
+        final ClassInfo classInfo = symbolTable.getClassInfo(id.getSymbol());
 
         if (classInfo != null) {
-            types.put(expression, classInfo.getType());
+            expression.setTypeAnnotation(classInfo.getType());
         } else {
             final int line = id.getLine();
             final int column = id.getPos();
             error(UNDECLARED_CLASS.on(line, column, id.getText()));
-            types.put(expression, UndefinedType.Instance);
+            expression.setTypeAnnotation(UndefinedType.Instance);
         }
     }
 
     @Override
     public void outANewIntArrayExpression(final ANewIntArrayExpression expression) {
-        final Type type = types.get(expression.getSize());
+        final Type type = expression.getSize().getTypeAnnotation();
 
         if (!type.isInt() && !type.isUndefined()) {
             final int line = expression.getNewKeyword().getLine();
@@ -548,7 +540,7 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_SIZE_TYPE.on(line, column, type));
         }
 
-        types.put(expression, BuiltInType.IntArray);
+        expression.setTypeAnnotation(BuiltInType.IntArray);
     }
 
     @Override
@@ -563,44 +555,83 @@ public class TypeChecker extends DepthFirstAdapter {
             error(INVALID_INT_LITERAL.on(line, column, literal));
         }
 
-        types.put(expression, BuiltInType.Int);
+        expression.setTypeAnnotation(BuiltInType.Int);
     }
 
     @Override
     public void outATrueExpression(final ATrueExpression expression) {
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAFalseExpression(final AFalseExpression expression) {
-        types.put(expression, BuiltInType.Boolean);
+        expression.setTypeAnnotation(BuiltInType.Boolean);
     }
 
     @Override
     public void outAIdentifierExpression(final AIdentifierExpression expression) {
-        final String id = expression.getIdentifier().getText();
+        final Symbol id = expression.getIdentifier().getSymbol();
         final int line = expression.getIdentifier().getLine();
         final int column = expression.getIdentifier().getPos();
 
-        final VariableInfo localInfo, paramInfo, fieldInfo;
+        final VariableInfo variable = expression.getIdentifier().getVariable();
 
-        if ((localInfo = currentMethod.getLocal(id)) != null) {
-            types.put(expression, localInfo.getType());
-        } else if ((paramInfo = currentMethod.getParameter(id)) != null) {
-            types.put(expression, paramInfo.getType());
-        } else if ((fieldInfo = currentClass.getField(id)) != null) {
-            types.put(expression, fieldInfo.getType());
+        if (variable != null) {
+            expression.setTypeAnnotation(variable.getType());
         } else if (symbolTable.getClassInfo(id) != null) {
             error(EXPECTED_VARIABLE_GOT_CLASS.on(line, column, id));
-            types.put(expression, UndefinedType.Instance);
+            expression.setTypeAnnotation(UndefinedType.Instance);
         } else {
             error(UNDECLARED_IDENTIFIER.on(line, column, id));
-            types.put(expression, UndefinedType.Instance);
+            expression.setTypeAnnotation(UndefinedType.Instance);
         }
     }
 
     @Override
     public void outAThisExpression(final AThisExpression expression) {
-        types.put(expression, currentClass.getType());
+        expression.setTypeAnnotation(currentClass.getType());
+    }
+
+    /**
+     * Read-only map view of the type annotations of the expressions in a tree.
+     */
+    private static class TypeAnnotations extends AbstractMap<Node, Type> {
+        private final Node ast;
+
+        public TypeAnnotations(Node ast) {
+            this.ast = ast;
+        }
+
+        @Override
+        public Type get(Object key) {
+            if (key instanceof PExpression) {
+                return ((PExpression) key).getTypeAnnotation();
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<Node, Type>> entrySet() {
+            final Map<Node, Type> types = new LinkedHashMap<>();
+            if (ast != null) {
+                ast.apply(new DepthFirstAdapter() {
+                    @Override
+                    public void defaultOut(Node node) {
+                        if (node instanceof PExpression) {
+                            final Type type = ((PExpression) node).getTypeAnnotation();
+                            if (type != null) {
+                                types.put(node, type);
+                            }
+                        }
+                    }
+                });
+            }
+            return types.entrySet();
+        }
     }
 }
@@ -0,0 +1,549 @@
+package mjc.ast.compact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.node.*;
+
+/**
+ * Compact representation of an abstract syntax tree.
+ *
+ * The nodes of a CompactTree are stored in parallel primitive arrays, and a node is
+ * identified by its index in these arrays. For each node, the arrays hold its kind,
+ * its next sibling, and either its first child or, for tokens (which have no
+ * children), an index into the token arrays holding the line, position and text of
+ * the token. The text is only stored for identifiers and integer literals, as an
+ * index into a table of distinct strings; all other tokens have a fixed text given
+ * by their kind.
+ *
+ * Lists of child nodes are not represented explicitly. A list consists of the
+ * siblings of a kind that may appear in the list, which is unambiguous for the
+ * MiniJava grammar.
+ *
+ * The existing visitors work on the SableCC generated {@link Node} classes. To run
+ * them on a CompactTree, a subtree is inflated back into Node objects with
+ * {@link #inflate(int)}, typically one class declaration at a time using
+ * {@link #classes()}, so that only a single class is held as Node objects at once.
+ */
+public final class CompactTree {
+    private static final int NONE = -1;
+
+    private final byte[] kinds;
+    private final int[] nextSiblings;
+    private final int[] children; // First child, or token index for tokens.
+
+    private final int[] tokenLines;
+    private final int[] tokenPositions;
+    private final int[] tokenTexts;
+
+    private final String[] texts;
+
+    /**
+     * Constructs a CompactTree from the contents of {@code builder}.
+     */
+    private CompactTree(Builder builder) {
+        final int size = builder.size;
+        final int tokenCount = builder.tokenCount;
+        kinds = Arrays.copyOf(builder.kinds, size);
+        nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        children = Arrays.copyOf(builder.children, size);
+        tokenLines = Arrays.copyOf(builder.tokenLines, tokenCount);
+        tokenPositions = Arrays.copyOf(builder.tokenPositions, tokenCount);
+        tokenTexts = Arrays.copyOf(builder.tokenTexts, tokenCount);
+        texts = builder.texts.toArray(new String[builder.texts.size()]);
+    }
+
+    /**
+     * Constructs a CompactTree holding the same tree as {@code ast}.
+     *
+     * After construction, the CompactTree does not refer to {@code ast}, so the
+     * Node objects may be garbage collected.
+     *
+     * @param ast Input abstract syntax tree.
+     * @return A CompactTree for {@code ast}.
+     */
+    public static CompactTree of(Node ast) {
+        final Builder builder = new Builder();
+        ast.apply(builder);
+        return new CompactTree(builder);
+    }
+
+    /**
+     * Builder of a CompactTree for a program, to which the class declarations are
+     * added one at a time.
+     *
+     * Unlike {@link #of(Node)}, this does not need the whole AST at once: a class
+     * declaration may be garbage collected as soon as it has been added.
+     */
+    public static final class ProgramBuilder {
+        private final Builder builder = new Builder();
+
+        /**
+         * Constructs a ProgramBuilder for a tree rooted at a program node.
+         */
+        public ProgramBuilder() {
+            builder.begin(Kind.PROGRAM);
+        }
+
+        /**
+         * Adds a class declaration (main class first) as the next child of the program.
+         *
+         * @param declaration An AMainClassDeclaration or AClassDeclaration.
+         */
+        public void add(Node declaration) {
+            declaration.apply(builder);
+        }
+
+        /**
+         * @return A CompactTree holding the program with the classes added so far.
+         */
+        public CompactTree build() {
+            return new CompactTree(builder);
+        }
+    }
+
+    /**
+     * @return The root node (the node for the Node passed to {@link #of(Node)}, or the
+     *         program node of a {@link ProgramBuilder}).
+     */
+    public int root() {
+        return 0;
+    }
+
+    /**
+     * @return The number of nodes in the tree.
+     */
+    public int size() {
+        return kinds.length;
+    }
+
+    /**
+     * @return The kind of {@code node}.
+     */
+    public Kind kind(int node) {
+        return Kind.valueOf(kinds[node]);
+    }
+
+    /**
+     * @return The first child of {@code node}, or -1 if it has no children.
+     */
+    public int firstChild(int node) {
+        return kind(node).isToken() ? NONE : children[node];
+    }
+
+    /**
+     * @return The next sibling of {@code node}, or -1 if it is the last child.
+     */
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @return The line of the token {@code node}.
+     */
+    public int line(int node) {
+        return tokenLines[token(node)];
+    }
+
+    /**
+     * @return The position of the token {@code node}.
+     */
+    public int pos(int node) {
+        return tokenPositions[token(node)];
+    }
+
+    /**
+     * Returns the text of an identifier or integer literal.
+     *
+     * @param node An identifier or integer token.
+     * @return The text of {@code node}, or null if its text is given by its kind.
+     */
+    public String text(int node) {
+        final int text = tokenTexts[token(node)];
+        return text == NONE ? null : texts[text];
+    }
+
+    /**
+     * Returns the main class declaration and class declarations of the program.
+     *
+     * @return The class declaration nodes, in declaration order.
+     */
+    public int[] classDeclarations() {
+        int program = root();
+        if (kind(program) == Kind.START) {
+            program = firstChild(program);
+        }
+        if (kind(program) != Kind.PROGRAM) {
+            throw new Error("CompactTree.classDeclarations: Root is not a program");
+        }
+        int count = 0;
+        for (int child = firstChild(program); child != NONE; child = nextSibling(child)) {
+            count++;
+        }
+        final int[] declarations = new int[count];
+        int i = 0;
+        for (int child = firstChild(program); child != NONE; child = nextSibling(child)) {
+            declarations[i++] = child;
+        }
+        return declarations;
+    }
+
+    /**
+     * Returns the class declarations of the program as Node objects.
+     *
+     * Each class declaration is inflated when it is reached by the iterator, so a
+     * visitor may be applied to the whole program one class at a time, without
+     * holding the Node objects of more than one class.
+     *
+     * @return An iterable over the inflated class declarations, in declaration order.
+     */
+    public Iterable<Node> classes() {
+        final int[] declarations = classDeclarations();
+        return new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                return new Iterator<Node>() {
+                    private int next;
+
+                    public boolean hasNext() {
+                        return next < declarations.length;
+                    }
+
+                    public Node next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return inflate(declarations[next++]);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Creates Node objects for the subtree at {@code node}.
+     *
+     * A new subtree is created on each call. Its root has no parent.
+     *
+     * @param node Root of the subtree.
+     * @return The inflated subtree.
+     */
+    public Node inflate(int node) {
+        final Kind kind = kind(node);
+        if (kind.isToken()) {
+            return inflateToken(node, kind);
+        }
+
+        final Children c = new Children(node);
+        switch (kind) {
+            case START:
+                return new Start(c.next(PProgram.class), c.next(EOF.class));
+            case PROGRAM:
+                return new AProgram(c.next(PMainClassDeclaration.class),
+                        c.list(PClassDeclaration.class));
+
+            // Declarations.
+            case MAIN_CLASS_DECLARATION:
+                return new AMainClassDeclaration(c.next(TIdentifier.class),
+                        c.next(TIdentifier.class), c.next(TIdentifier.class),
+                        c.list(PVariableDeclaration.class), c.list(PStatement.class));
+            case CLASS_DECLARATION:
+                return new AClassDeclaration(c.next(TIdentifier.class),
+                        c.list(PFieldDeclaration.class), c.list(PMethodDeclaration.class));
+            case METHOD_DECLARATION:
+                return new AMethodDeclaration(c.next(PType.class), c.next(TIdentifier.class),
+                        c.list(PFormalParameter.class), c.list(PVariableDeclaration.class),
+                        c.list(PStatement.class), c.next(PExpression.class));
+            case FIELD_DECLARATION:
+                return new AFieldDeclaration(c.next(PType.class), c.next(TIdentifier.class));
+            case VARIABLE_DECLARATION:
+                return new AVariableDeclaration(c.next(PType.class), c.next(TIdentifier.class));
+            case FORMAL_PARAMETER:
+                return new AFormalParameter(c.next(PType.class), c.next(TIdentifier.class));
+
+            // Types.
+            case INT_TYPE:
+                return new AIntType(c.next(TIntKeyword.class));
+            case INT_ARRAY_TYPE:
+                return new AIntArrayType(c.next(TIntKeyword.class));
+            case BOOLEAN_TYPE:
+                return new ABooleanType(c.next(TBooleanKeyword.class));
+            case CLASS_TYPE:
+                return new AClassType(c.next(TIdentifier.class));
+
+            // Statements.
+            case BLOCK_STATEMENT:
+                return new ABlockStatement(c.list(PVariableDeclaration.class),
+                        c.list(PStatement.class));
+            case IF_STATEMENT:
+                return new AIfStatement(c.next(TIfKeyword.class), c.next(PExpression.class),
+                        c.next(PStatement.class));
+            case IF_ELSE_STATEMENT:
+                return new AIfElseStatement(c.next(TIfKeyword.class), c.next(PExpression.class),
+                        c.next(PStatement.class), c.next(TElseKeyword.class),
+                        c.next(PStatement.class));
+            case WHILE_STATEMENT:
+                return new AWhileStatement(c.next(TWhileKeyword.class),
+                        c.next(PExpression.class), c.next(PStatement.class));
+            case PRINTLN_STATEMENT:
+                return new APrintlnStatement(c.next(TPrintlnKeyword.class),
+                        c.next(PExpression.class));
+            case ASSIGN_STATEMENT:
+                return new AAssignStatement(c.next(TIdentifier.class), c.next(TAssign.class),
+                        c.next(PExpression.class));
+            case ARRAY_ASSIGN_STATEMENT:
+                return new AArrayAssignStatement(c.next(TIdentifier.class),
+                        c.next(PExpression.class), c.next(TAssign.class),
+                        c.next(PExpression.class));
+
+            // Expressions.
+            case AND_EXPRESSION:
+                return new AAndExpression(c.next(PExpression.class), c.next(TAnd.class),
+                        c.next(PExpression.class));
+            case OR_EXPRESSION:
+                return new AOrExpression(c.next(PExpression.class), c.next(TOr.class),
+                        c.next(PExpression.class));
+            case LESS_THAN_EXPRESSION:
+                return new ALessThanExpression(c.next(PExpression.class),
+                        c.next(TLessThan.class), c.next(PExpression.class));
+            case GREATER_THAN_EXPRESSION:
+                return new AGreaterThanExpression(c.next(PExpression.class),
+                        c.next(TGreaterThan.class), c.next(PExpression.class));
+            case GREATER_EQUAL_THAN_EXPRESSION:
+                return new AGreaterEqualThanExpression(c.next(PExpression.class),
+                        c.next(TGreaterEqualThan.class), c.next(PExpression.class));
+            case LESS_EQUAL_THAN_EXPRESSION:
+                return new ALessEqualThanExpression(c.next(PExpression.class),
+                        c.next(TLessEqualThan.class), c.next(PExpression.class));
+            case EQUAL_EXPRESSION:
+                return new AEqualExpression(c.next(PExpression.class), c.next(TEqual.class),
+                        c.next(PExpression.class));
+            case NOT_EQUAL_EXPRESSION:
+                return new ANotEqualExpression(c.next(PExpression.class),
+                        c.next(TNotEqual.class), c.next(PExpression.class));
+            case PLUS_EXPRESSION:
+                return new APlusExpression(c.next(PExpression.class), c.next(TPlus.class),
+                        c.next(PExpression.class));
+            case MINUS_EXPRESSION:
+                return new AMinusExpression(c.next(PExpression.class), c.next(TMinus.class),
+                        c.next(PExpression.class));
+            case TIMES_EXPRESSION:
+                return new ATimesExpression(c.next(PExpression.class), c.next(TStar.class),
+                        c.next(PExpression.class));
+            case NOT_EXPRESSION:
+                return new ANotExpression(c.next(TNot.class), c.next(PExpression.class));
+            case METHOD_INVOCATION_EXPRESSION:
+                return new AMethodInvocationExpression(c.next(PExpression.class),
+                        c.next(TIdentifier.class), c.list(PExpression.class));
+            case ARRAY_ACCESS_EXPRESSION:
+                return new AArrayAccessExpression(c.next(PExpression.class),
+                        c.next(TLbrack.class), c.next(PExpression.class));
+            case ARRAY_LENGTH_EXPRESSION:
+                return new AArrayLengthExpression(c.next(PExpression.class),
+                        c.next(TLengthKeyword.class));
+            case NEW_INSTANCE_EXPRESSION:
+                return new ANewInstanceExpression(c.next(TIdentifier.class));
+            case NEW_INT_ARRAY_EXPRESSION:
+                return new ANewIntArrayExpression(c.next(TNewKeyword.class),
+                        c.next(PExpression.class));
+            case INTEGER_EXPRESSION:
+                return new AIntegerExpression(c.next(TInteger.class));
+            case TRUE_EXPRESSION:
+                return new ATrueExpression(c.next(TTrueKeyword.class));
+            case FALSE_EXPRESSION:
+                return new AFalseExpression(c.next(TFalseKeyword.class));
+            case IDENTIFIER_EXPRESSION:
+                return new AIdentifierExpression(c.next(TIdentifier.class));
+            case THIS_EXPRESSION:
+                return new AThisExpression(c.next(TThisKeyword.class));
+
+            default:
+                throw new Error("CompactTree.inflate: Unknown kind " + kind);
+        }
+    }
+
+    /** Creates the Token object for the token {@code node} of the given kind. */
+    private Token inflateToken(int node, Kind kind) {
+        final int line = line(node);
+        final int pos = pos(node);
+        switch (kind) {
+            case IDENTIFIER: return new TIdentifier(text(node), line, pos);
+            case INTEGER: return new TInteger(text(node), line, pos);
+            case INT_KEYWORD: return new TIntKeyword(line, pos);
+            case BOOLEAN_KEYWORD: return new TBooleanKeyword(line, pos);
+            case IF_KEYWORD: return new TIfKeyword(line, pos);
+            case ELSE_KEYWORD: return new TElseKeyword(line, pos);
+            case WHILE_KEYWORD: return new TWhileKeyword(line, pos);
+            case PRINTLN_KEYWORD: return new TPrintlnKeyword(line, pos);
+            case LENGTH_KEYWORD: return new TLengthKeyword(line, pos);
+            case TRUE_KEYWORD: return new TTrueKeyword(line, pos);
+            case FALSE_KEYWORD: return new TFalseKeyword(line, pos);
+            case THIS_KEYWORD: return new TThisKeyword(line, pos);
+            case NEW_KEYWORD: return new TNewKeyword(line, pos);
+            case ASSIGN: return new TAssign(line, pos);
+            case OR: return new TOr(line, pos);
+            case AND: return new TAnd(line, pos);
+            case EQUAL: return new TEqual(line, pos);
+            case NOT_EQUAL: return new TNotEqual(line, pos);
+            case LESS_THAN: return new TLessThan(line, pos);
+            case GREATER_THAN: return new TGreaterThan(line, pos);
+            case LESS_EQUAL_THAN: return new TLessEqualThan(line, pos);
+            case GREATER_EQUAL_THAN: return new TGreaterEqualThan(line, pos);
+            case PLUS: return new TPlus(line, pos);
+            case MINUS: return new TMinus(line, pos);
+            case STAR: return new TStar(line, pos);
+            case NOT: return new TNot(line, pos);
+            case LBRACK: return new TLbrack(line, pos);
+            case EOF: return new EOF(line, pos);
+            default: throw new Error("CompactTree.inflateToken: Unknown kind " + kind);
+        }
+    }
+
+    /** Returns the index of {@code node} in the token arrays. */
+    private int token(int node) {
+        if (!kind(node).isToken()) {
+            throw new Error("CompactTree.token: Node " + node + " is not a token");
+        }
+        return children[node];
+    }
+
+    /**
+     * The inflated children of a node, consumed in order while constructing the
+     * Node object for the node.
+     */
+    private final class Children {
+        private int next;
+
+        Children(int node) {
+            next = firstChild(node);
+        }
+
+        /** Returns the next child, which must be of {@code type}. */
+        <T extends Node> T next(Class<T> type) {
+            if (next == NONE) {
+                throw new Error("CompactTree.Children.next: Missing " + type.getSimpleName());
+            }
+            final Node child = inflate(next);
+            next = nextSibling(next);
+            return type.cast(child);
+        }
+
+        /** Returns the following children of {@code type}, up to the first of another type. */
+        List<Node> list(Class<? extends Node> type) {
+            final List<Node> list = new ArrayList<>();
+            while (next != NONE && type.isAssignableFrom(kind(next).getType())) {
+                list.add(inflate(next));
+                next = nextSibling(next);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Visitor that adds each node of an AST to growable arrays, in depth-first order.
+     */
+    private static class Builder extends DepthFirstAdapter {
+        private byte[] kinds = new byte[256];
+        private int[] nextSiblings = new int[256];
+        private int[] children = new int[256];
+        private int size;
+
+        private int[] tokenLines = new int[64];
+        private int[] tokenPositions = new int[64];
+        private int[] tokenTexts = new int[64];
+        private int tokenCount;
+
+        private final List<String> texts = new ArrayList<>();
+        private final Map<String, Integer> textIndices = new HashMap<>();
+
+        // The current path from the root: each node and its last child so far.
+        private int[] parents = new int[32];
+        private int[] lastChildren = new int[32];
+        private int depth;
+
+        @Override
+        public void defaultIn(Node node) {
+            begin(Kind.of(node));
+        }
+
+        @Override
+        public void defaultOut(Node node) {
+            depth--;
+        }
+
+        /** Adds a node of {@code kind} and makes it the current node. */
+        private void begin(Kind kind) {
+            final int index = add(kind, NONE);
+            if (depth == parents.length) {
+                parents = Arrays.copyOf(parents, depth * 2);
+                lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+            }
+            parents[depth] = index;
+            lastChildren[depth] = NONE;
+            depth++;
+        }
+
+        @Override
+        public void defaultCase(Node node) {
+            final Token token = (Token) node;
+            if (tokenCount == tokenLines.length) {
+                tokenLines = Arrays.copyOf(tokenLines, tokenCount * 2);
+                tokenPositions = Arrays.copyOf(tokenPositions, tokenCount * 2);
+                tokenTexts = Arrays.copyOf(tokenTexts, tokenCount * 2);
+            }
+            tokenLines[tokenCount] = token.getLine();
+            tokenPositions[tokenCount] = token.getPos();
+            tokenTexts[tokenCount] = token instanceof TIdentifier || token instanceof TInteger
+                    ? textIndex(token.getText())
+                    : NONE;
+            add(Kind.of(token), tokenCount++);
+        }
+
+        /**
+         * Adds a node of {@code kind} as the last child of the current node, returning
+         * its index. {@code token} is the token index of a token, or -1 for other nodes.
+         */
+        private int add(Kind kind, int token) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                nextSiblings = Arrays.copyOf(nextSiblings, size * 2);
+                children = Arrays.copyOf(children, size * 2);
+            }
+            final int index = size++;
+            kinds[index] = (byte) kind.ordinal();
+            nextSiblings[index] = NONE;
+            children[index] = token;
+
+            if (depth > 0) {
+                final int lastChild = lastChildren[depth - 1];
+                if (lastChild == NONE) {
+                    children[parents[depth - 1]] = index;
+                } else {
+                    nextSiblings[lastChild] = index;
+                }
+                lastChildren[depth - 1] = index;
+            }
+            return index;
+        }
+
+        /** Returns the index of {@code text} in the text table, adding it if needed. */
+        private int textIndex(String text) {
+            Integer index = textIndices.get(text);
+            if (index == null) {
+                index = texts.size();
+                texts.add(text);
+                textIndices.put(text, index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package mjc.ast.compact;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import mjc.node.*;
+
+/**
+ * Kinds of nodes in a {@link CompactTree}.
+ *
+ * There is one kind for each concrete node class of the SableCC generated AST,
+ * including the tokens that are kept in the AST. A kind is stored in the tree as
+ * its ordinal.
+ */
+public enum Kind {
+    START(Start.class),
+    PROGRAM(AProgram.class),
+
+    // Declarations.
+    MAIN_CLASS_DECLARATION(AMainClassDeclaration.class),
+    CLASS_DECLARATION(AClassDeclaration.class),
+    METHOD_DECLARATION(AMethodDeclaration.class),
+    FIELD_DECLARATION(AFieldDeclaration.class),
+    VARIABLE_DECLARATION(AVariableDeclaration.class),
+    FORMAL_PARAMETER(AFormalParameter.class),
+
+    // Types.
+    INT_TYPE(AIntType.class),
+    INT_ARRAY_TYPE(AIntArrayType.class),
+    BOOLEAN_TYPE(ABooleanType.class),
+    CLASS_TYPE(AClassType.class),
+
+    // Statements.
+    BLOCK_STATEMENT(ABlockStatement.class),
+    IF_STATEMENT(AIfStatement.class),
+    IF_ELSE_STATEMENT(AIfElseStatement.class),
+    WHILE_STATEMENT(AWhileStatement.class),
+    PRINTLN_STATEMENT(APrintlnStatement.class),
+    ASSIGN_STATEMENT(AAssignStatement.class),
+    ARRAY_ASSIGN_STATEMENT(AArrayAssignStatement.class),
+
+    // Expressions.
+    AND_EXPRESSION(AAndExpression.class),
+    OR_EXPRESSION(AOrExpression.class),
+    LESS_THAN_EXPRESSION(ALessThanExpression.class),
+    GREATER_THAN_EXPRESSION(AGreaterThanExpression.class),
+    GREATER_EQUAL_THAN_EXPRESSION(AGreaterEqualThanExpression.class),
+    LESS_EQUAL_THAN_EXPRESSION(ALessEqualThanExpression.class),
+    EQUAL_EXPRESSION(AEqualExpression.class),
+    NOT_EQUAL_EXPRESSION(ANotEqualExpression.class),
+    PLUS_EXPRESSION(APlusExpression.class),
+    MINUS_EXPRESSION(AMinusExpression.class),
+    TIMES_EXPRESSION(ATimesExpression.class),
+    NOT_EXPRESSION(ANotExpression.class),
+    METHOD_INVOCATION_EXPRESSION(AMethodInvocationExpression.class),
+    ARRAY_ACCESS_EXPRESSION(AArrayAccessExpression.class),
+    ARRAY_LENGTH_EXPRESSION(AArrayLengthExpression.class),
+    NEW_INSTANCE_EXPRESSION(ANewInstanceExpression.class),
+    NEW_INT_ARRAY_EXPRESSION(ANewIntArrayExpression.class),
+    INTEGER_EXPRESSION(AIntegerExpression.class),
+    TRUE_EXPRESSION(ATrueExpression.class),
+    FALSE_EXPRESSION(AFalseExpression.class),
+    IDENTIFIER_EXPRESSION(AIdentifierExpression.class),
+    THIS_EXPRESSION(AThisExpression.class),
+
+    // Tokens.
+    IDENTIFIER(TIdentifier.class),
+    INTEGER(TInteger.class),
+    INT_KEYWORD(TIntKeyword.class),
+    BOOLEAN_KEYWORD(TBooleanKeyword.class),
+    IF_KEYWORD(TIfKeyword.class),
+    ELSE_KEYWORD(TElseKeyword.class),
+    WHILE_KEYWORD(TWhileKeyword.class),
+    PRINTLN_KEYWORD(TPrintlnKeyword.class),
+    LENGTH_KEYWORD(TLengthKeyword.class),
+    TRUE_KEYWORD(TTrueKeyword.class),
+    FALSE_KEYWORD(TFalseKeyword.class),
+    THIS_KEYWORD(TThisKeyword.class),
+    NEW_KEYWORD(TNewKeyword.class),
+    ASSIGN(TAssign.class),
+    OR(TOr.class),
+    AND(TAnd.class),
+    EQUAL(TEqual.class),
+    NOT_EQUAL(TNotEqual.class),
+    LESS_THAN(TLessThan.class),
+    GREATER_THAN(TGreaterThan.class),
+    LESS_EQUAL_THAN(TLessEqualThan.class),
+    GREATER_EQUAL_THAN(TGreaterEqualThan.class),
+    PLUS(TPlus.class),
+    MINUS(TMinus.class),
+    STAR(TStar.class),
+    NOT(TNot.class),
+    LBRACK(TLbrack.class),
+    EOF(mjc.node.EOF.class);
+
+    private static final Kind[] values = values();
+    private static final Map<Class<? extends Node>, Kind> kinds = new HashMap<>();
+
+    static {
+        for (Kind kind : values) {
+            kinds.put(kind.type, kind);
+        }
+    }
+
+    private final Class<? extends Node> type;
+    private final boolean token;
+
+    private Kind(Class<? extends Node> type) {
+        this.type = type;
+        this.token = Token.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return The node class of this kind.
+     */
+    public Class<? extends Node> getType() {
+        return type;
+    }
+
+    /**
+     * @return true if nodes of this kind are tokens.
+     */
+    public boolean isToken() {
+        return token;
+    }
+
+    /**
+     * Returns the kind of the given node.
+     *
+     * @param node A node of the AST.
+     * @return The kind of {@code node}.
+     * @throws Error if the node is of a class that is never kept in the AST.
+     */
+    public static Kind of(Node node) {
+        final Kind kind = kinds.get(node.getClass());
+        if (kind == null) {
+            throw new Error("Kind.of: Unexpected node " + node.getClass().getSimpleName());
+        }
+        return kind;
+    }
+
+    /**
+     * Returns the kind with the given ordinal.
+     */
+    static Kind valueOf(int ordinal) {
+        return values[ordinal];
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Compact, array-backed representation of the abstract syntax tree.
+ */
+package mjc.ast.compact;
@@ -0,0 +1,170 @@
+package mjc.bytecode;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of bytes in class file (big-endian) byte order.
+ */
+public class ByteVector {
+    private byte[] data;
+    private int length;
+
+    /**
+     * Constructs a new empty ByteVector.
+     *
+     * @param initialCapacity Initial capacity in bytes.
+     */
+    public ByteVector(int initialCapacity) {
+        data = new byte[initialCapacity];
+    }
+
+    /**
+     * @return Number of bytes in the vector.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Appends a single byte.
+     *
+     * @param b The byte (only the lowest 8 bits are used).
+     * @return this ByteVector.
+     */
+    public ByteVector putByte(int b) {
+        ensure(1);
+        data[length++] = (byte) b;
+        return this;
+    }
+
+    /**
+     * Appends a two-byte value.
+     *
+     * @param s The value (only the lowest 16 bits are used).
+     * @return this ByteVector.
+     */
+    public ByteVector putShort(int s) {
+        ensure(2);
+        data[length++] = (byte) (s >>> 8);
+        data[length++] = (byte) s;
+        return this;
+    }
+
+    /**
+     * Appends a four-byte value.
+     *
+     * @param i The value.
+     * @return this ByteVector.
+     */
+    public ByteVector putInt(int i) {
+        ensure(4);
+        data[length++] = (byte) (i >>> 24);
+        data[length++] = (byte) (i >>> 16);
+        data[length++] = (byte) (i >>> 8);
+        data[length++] = (byte) i;
+        return this;
+    }
+
+    /**
+     * Appends {@code length} bytes of {@code bytes} starting at {@code offset}.
+     *
+     * @param bytes Source array.
+     * @param offset Offset in source array.
+     * @param length Number of bytes to append.
+     * @return this ByteVector.
+     */
+    public ByteVector putBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, data, this.length, length);
+        this.length += length;
+        return this;
+    }
+
+    /**
+     * Appends the contents of another ByteVector.
+     *
+     * @param vector The other vector.
+     * @return this ByteVector.
+     */
+    public ByteVector putVector(ByteVector vector) {
+        return putBytes(vector.data, 0, vector.length);
+    }
+
+    /**
+     * Appends a string as a length-prefixed modified UTF-8 sequence, as used by
+     * CONSTANT_Utf8 entries.
+     *
+     * @param s The string.
+     * @return this ByteVector.
+     */
+    public ByteVector putUtf8(String s) {
+        final int lengthPos = length;
+        putShort(0); // Patched below.
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007f) {
+                putByte(c);
+            } else if (c <= 0x07ff) {
+                putByte(0xc0 | (c >> 6));
+                putByte(0x80 | (c & 0x3f));
+            } else {
+                putByte(0xe0 | (c >> 12));
+                putByte(0x80 | ((c >> 6) & 0x3f));
+                putByte(0x80 | (c & 0x3f));
+            }
+        }
+        final int utfLength = length - lengthPos - 2;
+        if (utfLength > 0xffff) {
+            throw new Error("UTF-8 string too long");
+        }
+        setShort(lengthPos, utfLength);
+        return this;
+    }
+
+    /**
+     * Overwrites the two-byte value at {@code offset}.
+     *
+     * @param offset Offset of the value.
+     * @param s The new value (only the lowest 16 bits are used).
+     */
+    public void setShort(int offset, int s) {
+        data[offset] = (byte) (s >>> 8);
+        data[offset + 1] = (byte) s;
+    }
+
+    /**
+     * Overwrites the four-byte value at {@code offset}.
+     *
+     * @param offset Offset of the value.
+     * @param i The new value.
+     */
+    public void setInt(int offset, int i) {
+        data[offset] = (byte) (i >>> 24);
+        data[offset + 1] = (byte) (i >>> 16);
+        data[offset + 2] = (byte) (i >>> 8);
+        data[offset + 3] = (byte) i;
+    }
+
+    /**
+     * Removes all bytes from the vector, keeping its capacity.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * @return A copy of the bytes in the vector.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * Makes room for {@code n} more bytes.
+     */
+    private void ensure(int n) {
+        if (length + n > data.length) {
+            data = Arrays.copyOf(data, Math.max(2 * data.length, length + n));
+        }
+    }
+}
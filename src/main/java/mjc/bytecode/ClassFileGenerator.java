@@ -0,0 +1,569 @@
+package mjc.bytecode;
+
+import mjc.analysis.AnalysisAdapter;
+import mjc.jasmin.InstructionList;
+import mjc.jasmin.Label;
+import mjc.jasmin.PeepholeOptimizer;
+import mjc.jfr.Events;
+import mjc.node.AAndExpression;
+import mjc.node.AArrayAccessExpression;
+import mjc.node.AArrayAssignStatement;
+import mjc.node.AArrayLengthExpression;
+import mjc.node.AAssignStatement;
+import mjc.node.ABlockStatement;
+import mjc.node.AClassDeclaration;
+import mjc.node.AEqualExpression;
+import mjc.node.AFalseExpression;
+import mjc.node.AFieldDeclaration;
+import mjc.node.AGreaterEqualThanExpression;
+import mjc.node.AGreaterThanExpression;
+import mjc.node.AIdentifierExpression;
+import mjc.node.AIfElseStatement;
+import mjc.node.AIfStatement;
+import mjc.node.AIntegerExpression;
+import mjc.node.ALessEqualThanExpression;
+import mjc.node.ALessThanExpression;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.AMethodDeclaration;
+import mjc.node.AMethodInvocationExpression;
+import mjc.node.AMinusExpression;
+import mjc.node.ANewInstanceExpression;
+import mjc.node.ANewIntArrayExpression;
+import mjc.node.ANotEqualExpression;
+import mjc.node.ANotExpression;
+import mjc.node.AOrExpression;
+import mjc.node.APlusExpression;
+import mjc.node.APrintlnStatement;
+import mjc.node.AProgram;
+import mjc.node.AThisExpression;
+import mjc.node.ATimesExpression;
+import mjc.node.ATrueExpression;
+import mjc.node.AWhileStatement;
+import mjc.node.Node;
+import mjc.node.PExpression;
+import mjc.node.Start;
+import mjc.node.TIdentifier;
+import mjc.symbol.ClassInfo;
+import mjc.symbol.MethodInfo;
+import mjc.symbol.SymbolTable;
+import mjc.symbol.VariableInfo;
+import mjc.types.Type;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * The ClassFileGenerator class generates class files from the AST.
+ *
+ * It generates the same code as {@link mjc.jasmin.JasminGenerator}, but encodes it
+ * directly into class files instead of going through Jasmin assembly code. As in the
+ * JasminGenerator, the instructions of each method are collected in an
+ * {@link InstructionList} and improved by the {@link PeepholeOptimizer} before they are
+ * encoded by a {@link MethodWriter}.
+ *
+ * Construct an instance of the class with a {@link ClassFileHandler} for handling
+ * the output. Then call the {@link #generate(Node, SymbolTable)} method to
+ * start the generation.
+ *
+ * The AST must have been checked by the {@link mjc.analysis.TypeChecker} without
+ * errors, since the generator uses the types and bindings recorded on its nodes.
+ */
+public class ClassFileGenerator extends AnalysisAdapter {
+    private final ClassFileHandler handler;
+    private final InstructionList instructions = new InstructionList();
+    private ClassFileWriter classWriter;
+    private int labelCount;
+
+    private SymbolTable symbolTable;
+
+    private ClassInfo currentClass;
+    private MethodInfo currentMethod;
+
+    public ClassFileGenerator(ClassFileHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Generates class files.
+     *
+     * The handle method of the {@link ClassFileHandler} passed in during construction
+     * will be called for each generated class.
+     *
+     * @param ast Input AST.
+     * @param symbolTable Input symbol table.
+     */
+    public void generate(Node ast, SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+
+        ast.apply(this);
+    }
+
+    // Helper methods.
+
+    /** Begins a new public class named {@code name} with a default constructor. */
+    private void beginClass(String name) {
+        classWriter = new ClassFileWriter(ACC_PUBLIC | ACC_SUPER, name, "java/lang/Object");
+
+        final MethodWriter constructor = classWriter.addMethod(ACC_PUBLIC, "<init>", "()V");
+        constructor.insn(ALOAD_0);
+        constructor.methodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        constructor.insn(RETURN);
+    }
+
+    /**
+     * Optimizes the instructions of the current method and encodes them into
+     * {@code method}, with wide jumps if the method is too large for 16-bit offsets.
+     */
+    private void writeInstructions(MethodWriter method) {
+        PeepholeOptimizer.optimize(instructions);
+        instructions.writeTo(method);
+        if (method.needsWideJumps()) {
+            method.restartWithWideJumps();
+            instructions.writeTo(method);
+        }
+        instructions.clear();
+    }
+
+    /** Returns a new label, unique within the current method. */
+    private Label nextLabel() {
+        return new Label("L", labelCount++);
+    }
+
+    /** Adds a load of {@code variable}, which may be a field, to the code. */
+    private void load(VariableInfo variable) {
+        if (variable.isField()) {
+            final String typeDescriptor = variable.getType().descriptor();
+            instructions.aload(0);
+            instructions.getfield(currentClass.getName(), variable.getName(), typeDescriptor);
+        } else if (variable.getType().isReference()) {
+            instructions.aload(variable.getIndex());
+        } else {
+            instructions.iload(variable.getIndex());
+        }
+    }
+
+    /** Adds a store to {@code variable}, which must not be a field, to the code. */
+    private void store(VariableInfo variable) {
+        if (variable.getType().isReference()) {
+            instructions.astore(variable.getIndex());
+        } else {
+            instructions.istore(variable.getIndex());
+        }
+    }
+
+    /** Adds a jump to {@code trueLabel} or {@code falseLabel} based on {@code expression}. */
+    private void jump(PExpression expression, Label trueLabel, Label falseLabel) {
+        if (expression instanceof AOrExpression) {
+            final AOrExpression or = (AOrExpression) expression;
+            final Label rightLabel = nextLabel();
+            jump(or.getLeft(), trueLabel, rightLabel);
+            instructions.label(rightLabel);
+            jump(or.getRight(), trueLabel, falseLabel);
+        } else if (expression instanceof AAndExpression) {
+            final AAndExpression and = (AAndExpression) expression;
+            final Label rightLabel = nextLabel();
+            jump(and.getLeft(), rightLabel, falseLabel);
+            instructions.label(rightLabel);
+            jump(and.getRight(), trueLabel, falseLabel);
+        } else if (expression instanceof ALessThanExpression) {
+            final ALessThanExpression lt = (ALessThanExpression) expression;
+            lt.getLeft().apply(this);
+            lt.getRight().apply(this);
+            instructions.ifIcmplt(trueLabel);
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof ALessEqualThanExpression) {
+            final ALessEqualThanExpression le = (ALessEqualThanExpression) expression;
+            le.getLeft().apply(this);
+            le.getRight().apply(this);
+            instructions.ifIcmple(trueLabel);
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof AGreaterThanExpression) {
+            final AGreaterThanExpression gt = (AGreaterThanExpression) expression;
+            gt.getLeft().apply(this);
+            gt.getRight().apply(this);
+            instructions.ifIcmpgt(trueLabel);
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof AGreaterEqualThanExpression) {
+            final AGreaterEqualThanExpression ge = (AGreaterEqualThanExpression) expression;
+            ge.getLeft().apply(this);
+            ge.getRight().apply(this);
+            instructions.ifIcmpge(trueLabel);
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof AEqualExpression) {
+            final AEqualExpression eq = (AEqualExpression) expression;
+            eq.getLeft().apply(this);
+            eq.getRight().apply(this);
+            if (eq.getLeft().getTypeAnnotation().isReference()) {
+                instructions.ifAcmpeq(trueLabel);
+            } else {
+                instructions.ifIcmpeq(trueLabel);
+            }
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof ANotEqualExpression) {
+            final ANotEqualExpression ne = (ANotEqualExpression) expression;
+            ne.getLeft().apply(this);
+            ne.getRight().apply(this);
+            if (ne.getLeft().getTypeAnnotation().isReference()) {
+                instructions.ifAcmpne(trueLabel);
+            } else {
+                instructions.ifIcmpne(trueLabel);
+            }
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof ANotExpression) {
+            jump(((ANotExpression) expression).getExpression(), falseLabel, trueLabel);
+        } else if (expression instanceof AIdentifierExpression ||
+                   expression instanceof AMethodInvocationExpression) {
+            expression.apply(this);
+            instructions.pushInt(0);
+            instructions.ifIcmpne(trueLabel);
+            instructions.gotoLabel(falseLabel);
+        } else if (expression instanceof ATrueExpression) {
+            instructions.gotoLabel(trueLabel);
+        } else if (expression instanceof AFalseExpression) {
+            instructions.gotoLabel(falseLabel);
+        } else {
+            throw new Error("jump: Unknown expression");
+        }
+    }
+
+    /** Puts 1 or 0 on the stack based on the boolean value of {@code expression}. */
+    private void booleanValue(PExpression expression) {
+        final Label trueLabel = nextLabel();
+        final Label falseLabel = nextLabel();
+        final Label skipLabel = nextLabel();
+
+        jump(expression, trueLabel, falseLabel);
+
+        instructions.label(trueLabel);
+        instructions.pushInt(1);
+        instructions.gotoLabel(skipLabel);
+        instructions.label(falseLabel);
+        instructions.pushInt(0);
+        instructions.label(skipLabel);
+    }
+
+    // Visitor methods below.
+
+    @Override
+    public void caseStart(final Start start) {
+        start.getPProgram().apply(this);
+    }
+
+    @Override
+    public void caseAProgram(final AProgram program) {
+        program.getMainClassDeclaration().apply(this);
+        for (Node classDeclaration : program.getClasses()) {
+            classDeclaration.apply(this);
+        }
+    }
+
+    @Override
+    public void caseAMainClassDeclaration(final AMainClassDeclaration declaration) {
+        final Events.ClassGeneration event = Events.classGeneration();
+        event.begin();
+
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
+        currentMethod = currentClass.getMethod(declaration.getMethodName().getSymbol());
+
+        beginClass(currentClass.getName());
+
+        // Main method.
+        final Events.MethodGeneration methodEvent = Events.methodGeneration();
+        methodEvent.begin();
+        labelCount = 0;
+        for (Node variableDeclaration : declaration.getLocals()) {
+            variableDeclaration.apply(this);
+        }
+        for (Node statement : declaration.getStatements()) {
+            statement.apply(this);
+        }
+        instructions.returnVoid();
+        final MethodWriter method =
+                classWriter.addMethod(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V");
+        writeInstructions(method);
+        methodEvent.finish(currentClass.getName(), "main", declaration, method.getCodeSize(),
+                method.getMaxStack());
+
+        final byte[] classFile = classWriter.toByteArray();
+        event.finish(currentClass.getName(), declaration, classFile.length);
+        handler.handle(currentClass.getName(), classFile);
+        classWriter = null;
+
+        currentMethod = null;
+        currentClass = null;
+    }
+
+    @Override
+    public void caseAClassDeclaration(final AClassDeclaration declaration) {
+        final Events.ClassGeneration event = Events.classGeneration();
+        event.begin();
+
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
+
+        beginClass(currentClass.getName());
+
+        for (Node fieldDeclaration : declaration.getFields()) {
+            fieldDeclaration.apply(this);
+        }
+        for (Node methodDeclaration : declaration.getMethods()) {
+            methodDeclaration.apply(this);
+        }
+
+        final byte[] classFile = classWriter.toByteArray();
+        event.finish(currentClass.getName(), declaration, classFile.length);
+        handler.handle(currentClass.getName(), classFile);
+        classWriter = null;
+
+        currentClass = null;
+    }
+
+    @Override
+    public void caseAFieldDeclaration(final AFieldDeclaration declaration) {
+        final TIdentifier fieldId = declaration.getName();
+        final String fieldName = fieldId.getText();
+        final Type fieldType = currentClass.getField(fieldId.getSymbol()).getType();
+
+        classWriter.addField(ACC_PROTECTED, fieldName, fieldType.descriptor());
+    }
+
+    @Override
+    public void caseAMethodDeclaration(final AMethodDeclaration declaration) {
+        final Events.MethodGeneration event = Events.methodGeneration();
+        event.begin();
+
+        currentMethod = currentClass.getMethod(declaration.getName().getSymbol());
+
+        labelCount = 0;
+        for (Node formalDeclaration : declaration.getFormals()) {
+            formalDeclaration.apply(this);
+        }
+        for (Node statement : declaration.getStatements()) {
+            statement.apply(this);
+        }
+        declaration.getReturnExpression().apply(this);
+        if (currentMethod.getReturnType().isReference()) {
+            instructions.areturn();
+        } else {
+            instructions.ireturn();
+        }
+        final MethodWriter method = classWriter.addMethod(ACC_PUBLIC, currentMethod.getName(),
+                currentMethod.descriptor());
+        writeInstructions(method);
+        event.finish(currentClass.getName(), currentMethod.getName(), declaration,
+                method.getCodeSize(), method.getMaxStack());
+
+        currentMethod = null;
+    }
+
+    @Override
+    public void caseABlockStatement(final ABlockStatement block) {
+        for (Node statement : block.getStatements()) {
+            statement.apply(this);
+        }
+    }
+
+    @Override
+    public void caseAPrintlnStatement(final APrintlnStatement statement) {
+        final String typeDescriptor = statement.getValue().getTypeAnnotation().descriptor();
+
+        instructions.getstatic("java/lang/System", "out", "Ljava/io/PrintStream;");
+        statement.getValue().apply(this);
+        instructions.invokestatic("java/lang/String", "valueOf",
+                "(" + typeDescriptor + ")Ljava/lang/String;");
+        instructions.invokevirtual("java/io/PrintStream", "println", "(Ljava/lang/String;)V");
+    }
+
+    @Override
+    public void caseAIfStatement(final AIfStatement statement) {
+        final Label trueLabel = nextLabel();
+        final Label falseLabel = nextLabel();
+
+        jump(statement.getCondition(), trueLabel, falseLabel);
+        instructions.label(trueLabel);
+        statement.getStatement().apply(this);
+        instructions.label(falseLabel);
+    }
+
+    @Override
+    public void caseAIfElseStatement(final AIfElseStatement statement) {
+        final Label trueLabel = nextLabel();
+        final Label falseLabel = nextLabel();
+        final Label endLabel = nextLabel();
+
+        jump(statement.getCondition(), trueLabel, falseLabel);
+        instructions.label(trueLabel);
+        statement.getThen().apply(this);
+        instructions.gotoLabel(endLabel);
+        instructions.label(falseLabel);
+        statement.getElse().apply(this);
+        instructions.label(endLabel);
+    }
+
+    @Override
+    public void caseAWhileStatement(final AWhileStatement statement) {
+        final Label loopLabel = nextLabel();
+        final Label trueLabel = nextLabel();
+        final Label endLabel = nextLabel();
+
+        instructions.label(loopLabel);
+        jump(statement.getCondition(), trueLabel, endLabel);
+        instructions.label(trueLabel);
+        statement.getStatement().apply(this);
+        instructions.gotoLabel(loopLabel);
+        instructions.label(endLabel);
+    }
+
+    @Override
+    public void caseAAssignStatement(final AAssignStatement statement) {
+        final VariableInfo variable = statement.getName().getVariable();
+
+        if (variable.isField()) {
+            final String typeDescriptor = variable.getType().descriptor();
+            instructions.aload(0);
+            statement.getValue().apply(this);
+            instructions.putfield(currentClass.getName(), variable.getName(), typeDescriptor);
+        } else {
+            statement.getValue().apply(this);
+            store(variable);
+        }
+    }
+
+    @Override
+    public void caseAArrayAssignStatement(final AArrayAssignStatement statement) {
+        load(statement.getName().getVariable());
+        statement.getIndex().apply(this);
+        statement.getValue().apply(this);
+        instructions.iastore();
+    }
+
+    @Override
+    public void caseAAndExpression(final AAndExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseAOrExpression(final AOrExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseALessThanExpression(final ALessThanExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseALessEqualThanExpression(final ALessEqualThanExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseAGreaterThanExpression(final AGreaterThanExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseAGreaterEqualThanExpression(final AGreaterEqualThanExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseAEqualExpression(final AEqualExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseANotEqualExpression(final ANotEqualExpression expression) {
+        booleanValue(expression);
+    }
+
+    @Override
+    public void caseAPlusExpression(final APlusExpression expression) {
+        expression.getLeft().apply(this);
+        expression.getRight().apply(this);
+        instructions.iadd();
+    }
+
+    @Override
+    public void caseAMinusExpression(final AMinusExpression expression) {
+        expression.getLeft().apply(this);
+        expression.getRight().apply(this);
+        instructions.isub();
+    }
+
+    @Override
+    public void caseATimesExpression(final ATimesExpression expression) {
+        expression.getLeft().apply(this);
+        expression.getRight().apply(this);
+        instructions.imul();
+    }
+
+    @Override
+    public void caseANewInstanceExpression(final ANewInstanceExpression expression) {
+        final String className = expression.getClassName().getText();
+        instructions.newInstance(className);
+        instructions.dup();
+        instructions.invokespecial(className, "<init>", "()V");
+    }
+
+    @Override
+    public void caseANewIntArrayExpression(final ANewIntArrayExpression expression) {
+        expression.getSize().apply(this);
+        instructions.newarrayInt();
+    }
+
+    @Override
+    public void caseAIntegerExpression(final AIntegerExpression expression) {
+        instructions.pushInt(Integer.parseInt(expression.getInteger().getText()));
+    }
+
+    @Override
+    public void caseATrueExpression(final ATrueExpression expression) {
+        instructions.pushInt(1);
+    }
+
+    @Override
+    public void caseAFalseExpression(final AFalseExpression expression) {
+        instructions.pushInt(0);
+    }
+
+    @Override
+    public void caseANotExpression(final ANotExpression expression) {
+        instructions.pushInt(1);
+        expression.getExpression().apply(this);
+        instructions.isub();
+    }
+
+    @Override
+    public void caseAMethodInvocationExpression(final AMethodInvocationExpression expression) {
+        final Type type = expression.getInstance().getTypeAnnotation();
+        final MethodInfo methodInfo = expression.getName().getMethod();
+
+        expression.getInstance().apply(this);
+        for (Node actualParameter : expression.getActuals()) {
+            actualParameter.apply(this);
+        }
+        instructions.invokevirtual(type.getName(), methodInfo.getName(), methodInfo.descriptor());
+    }
+
+    @Override
+    public void caseAArrayAccessExpression(final AArrayAccessExpression expression) {
+        expression.getArray().apply(this);
+        expression.getIndex().apply(this);
+        instructions.iaload();
+    }
+
+    @Override
+    public void caseAArrayLengthExpression(final AArrayLengthExpression expression) {
+        expression.getArray().apply(this);
+        instructions.arraylength();
+    }
+
+    @Override
+    public void caseAIdentifierExpression(final AIdentifierExpression expression) {
+        load(expression.getIdentifier().getVariable());
+    }
+
+    @Override
+    public void caseAThisExpression(final AThisExpression expression) {
+        instructions.aload(0);
+    }
+}
@@ -0,0 +1,14 @@
+package mjc.bytecode;
+
+/**
+ * The ClassFileHandler interface specifies a handler of generated class files.
+ */
+public interface ClassFileHandler {
+    /**
+     * Handle the result of class file generation.
+     *
+     * @param className Name of the class from which the class file was generated.
+     * @param classFile Generated class file.
+     */
+    void handle(String className, byte[] classFile);
+}
@@ -0,0 +1,301 @@
+package mjc.bytecode;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * A ClassFileSummary holds measures of the code in a class file.
+ *
+ * It is read from any valid class file, whether generated by this compiler or not, and
+ * holds the size of the constant pool and, for each method with code, the size of the
+ * code, its max_stack and max_locals, and the number of instructions, branches and
+ * {@code ldc} instructions in it.
+ */
+public final class ClassFileSummary {
+
+    /**
+     * Measures of the code of one method.
+     */
+    public static final class MethodSummary {
+        private final String name;
+        private final String descriptor;
+        private final int codeLength;
+        private final int maxStack;
+        private final int maxLocals;
+        private final int instructionCount;
+        private final int branchCount;
+        private final int ldcCount;
+
+        MethodSummary(String name, String descriptor, int codeLength, int maxStack,
+                int maxLocals, int instructionCount, int branchCount, int ldcCount) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.codeLength = codeLength;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+            this.instructionCount = instructionCount;
+            this.branchCount = branchCount;
+            this.ldcCount = ldcCount;
+        }
+
+        /**
+         * @return The name of the method.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The type descriptor of the method.
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * @return The length of the code of the method, in bytes.
+         */
+        public int getCodeLength() {
+            return codeLength;
+        }
+
+        /**
+         * @return The max_stack item of the Code attribute.
+         */
+        public int getMaxStack() {
+            return maxStack;
+        }
+
+        /**
+         * @return The max_locals item of the Code attribute.
+         */
+        public int getMaxLocals() {
+            return maxLocals;
+        }
+
+        /**
+         * @return The number of instructions in the code.
+         */
+        public int getInstructionCount() {
+            return instructionCount;
+        }
+
+        /**
+         * @return The number of conditional and unconditional jumps and switches.
+         */
+        public int getBranchCount() {
+            return branchCount;
+        }
+
+        /**
+         * @return The number of ldc, ldc_w and ldc2_w instructions.
+         */
+        public int getLdcCount() {
+            return ldcCount;
+        }
+    }
+
+    // Length of each instruction by opcode, or 0 for tableswitch, lookupswitch and wide.
+    private static final int[] LENGTHS = new int[202];
+
+    static {
+        for (int opcode = 0; opcode < LENGTHS.length; opcode++) {
+            LENGTHS[opcode] = 1;
+        }
+        LENGTHS[BIPUSH] = 2;
+        LENGTHS[SIPUSH] = 3;
+        LENGTHS[LDC] = 2;
+        LENGTHS[LDC_W] = 3;
+        LENGTHS[LDC2_W] = 3;
+        for (int opcode = ILOAD; opcode <= ALOAD; opcode++) {
+            LENGTHS[opcode] = 2;
+        }
+        for (int opcode = ISTORE; opcode <= ASTORE; opcode++) {
+            LENGTHS[opcode] = 2;
+        }
+        LENGTHS[IINC] = 3;
+        for (int opcode = IFEQ; opcode <= JSR; opcode++) {
+            LENGTHS[opcode] = 3;
+        }
+        LENGTHS[RET] = 2;
+        LENGTHS[TABLESWITCH] = 0;
+        LENGTHS[LOOKUPSWITCH] = 0;
+        for (int opcode = GETSTATIC; opcode <= INVOKESTATIC; opcode++) {
+            LENGTHS[opcode] = 3;
+        }
+        LENGTHS[INVOKEINTERFACE] = 5;
+        LENGTHS[INVOKEDYNAMIC] = 5;
+        LENGTHS[NEW] = 3;
+        LENGTHS[NEWARRAY] = 2;
+        LENGTHS[ANEWARRAY] = 3;
+        LENGTHS[CHECKCAST] = 3;
+        LENGTHS[INSTANCEOF] = 3;
+        LENGTHS[WIDE] = 0;
+        LENGTHS[MULTIANEWARRAY] = 4;
+        LENGTHS[IFNULL] = 3;
+        LENGTHS[IFNONNULL] = 3;
+        LENGTHS[GOTO_W] = 5;
+        LENGTHS[JSR_W] = 5;
+    }
+
+    private final String className;
+    private final int constantPoolCount;
+    private final List<MethodSummary> methods;
+
+    private ClassFileSummary(String className, int constantPoolCount,
+            List<MethodSummary> methods) {
+        this.className = className;
+        this.constantPoolCount = constantPoolCount;
+        this.methods = methods;
+    }
+
+    /**
+     * @return The name of the class, in internal form.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return The constant_pool_count item of the class file, which is one more than
+     *         the number of constant pool entries.
+     */
+    public int getConstantPoolCount() {
+        return constantPoolCount;
+    }
+
+    /**
+     * @return A read-only list of the methods with code, in the order of the class file.
+     */
+    public List<MethodSummary> getMethods() {
+        return methods;
+    }
+
+    /**
+     * Reads a class file.
+     *
+     * @param classFile The class file.
+     * @return The summary of the class file.
+     * @throws IllegalArgumentException if the class file is not valid.
+     */
+    public static ClassFileSummary read(byte[] classFile) {
+        try {
+            final DataInputStream in =
+                    new DataInputStream(new ByteArrayInputStream(classFile));
+            in.skipBytes(8); // Magic and version.
+
+            // Keep the UTF-8 constants, and the name index of class constants.
+            final int constantPoolCount = in.readUnsignedShort();
+            final String[] utf8 = new String[constantPoolCount];
+            final int[] classNames = new int[constantPoolCount];
+            for (int i = 1; i < constantPoolCount; i++) {
+                final int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1:  utf8[i] = in.readUTF(); break;
+                    case 7:  classNames[i] = in.readUnsignedShort(); break;
+                    case 8:
+                    case 16:
+                    case 19:
+                    case 20: in.skipBytes(2); break;
+                    case 15: in.skipBytes(3); break;
+                    case 5:
+                    case 6:  in.skipBytes(8); i++; break;
+                    default: in.skipBytes(4); break;
+                }
+            }
+
+            in.skipBytes(2); // Access flags.
+            final String className = utf8[classNames[in.readUnsignedShort()]];
+            in.skipBytes(2); // Super class.
+            in.skipBytes(2 * in.readUnsignedShort()); // Interfaces.
+
+            // Skip the fields.
+            for (int fields = in.readUnsignedShort(); fields > 0; fields--) {
+                in.skipBytes(6);
+                for (int attributes = in.readUnsignedShort(); attributes > 0; attributes--) {
+                    in.skipBytes(2);
+                    in.skipBytes(in.readInt());
+                }
+            }
+
+            final List<MethodSummary> methods = new ArrayList<>();
+            for (int count = in.readUnsignedShort(); count > 0; count--) {
+                in.skipBytes(2); // Access flags.
+                final String name = utf8[in.readUnsignedShort()];
+                final String descriptor = utf8[in.readUnsignedShort()];
+                for (int attributes = in.readUnsignedShort(); attributes > 0; attributes--) {
+                    final String attribute = utf8[in.readUnsignedShort()];
+                    final int length = in.readInt();
+                    if (attribute.equals("Code")) {
+                        final int maxStack = in.readUnsignedShort();
+                        final int maxLocals = in.readUnsignedShort();
+                        final byte[] code = new byte[in.readInt()];
+                        in.readFully(code);
+                        methods.add(summarize(name, descriptor, code, maxStack, maxLocals));
+                        in.skipBytes(length - 8 - code.length);
+                    } else {
+                        in.skipBytes(length);
+                    }
+                }
+            }
+            return new ClassFileSummary(className, constantPoolCount,
+                    Collections.unmodifiableList(methods));
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid class file", e);
+        }
+    }
+
+    /**
+     * Counts the instructions of the code of a method.
+     */
+    private static MethodSummary summarize(String name, String descriptor, byte[] code,
+            int maxStack, int maxLocals) {
+        int instructions = 0;
+        int branches = 0;
+        int ldcs = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            final int opcode = code[pc] & 0xff;
+            instructions++;
+            if (opcode >= IFEQ && opcode <= JSR || opcode >= IFNULL && opcode <= JSR_W ||
+                    opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+                branches++;
+            } else if (opcode >= LDC && opcode <= LDC2_W) {
+                ldcs++;
+            }
+
+            if (opcode == TABLESWITCH || opcode == LOOKUPSWITCH) {
+                final int operands = (pc + 4) & ~3; // Aligned to 4 bytes.
+                if (opcode == TABLESWITCH) {
+                    final int low = readInt(code, operands + 4);
+                    final int high = readInt(code, operands + 8);
+                    pc = operands + 12 + 4 * (high - low + 1);
+                } else {
+                    pc = operands + 8 + 8 * readInt(code, operands + 4);
+                }
+            } else if (opcode == WIDE) {
+                pc += (code[pc + 1] & 0xff) == IINC ? 6 : 4;
+            } else if (opcode < LENGTHS.length) {
+                pc += LENGTHS[opcode];
+            } else {
+                throw new IllegalArgumentException("Invalid opcode " + opcode + " in " + name);
+            }
+        }
+        if (pc != code.length) {
+            throw new IllegalArgumentException("Truncated instruction in " + name);
+        }
+        return new MethodSummary(name, descriptor, code.length, maxStack, maxLocals,
+                instructions, branches, ldcs);
+    }
+
+    private static int readInt(byte[] code, int offset) {
+        return (code[offset] & 0xff) << 24 | (code[offset + 1] & 0xff) << 16 |
+                (code[offset + 2] & 0xff) << 8 | code[offset + 3] & 0xff;
+    }
+}
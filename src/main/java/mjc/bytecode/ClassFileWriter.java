@@ -0,0 +1,106 @@
+package mjc.bytecode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writer for a single class file.
+ *
+ * Fields and methods are added using {@link #addField(int, String, String)} and
+ * {@link #addMethod(int, String, String)}, after which the class file can be
+ * retrieved using {@link #toByteArray()}.
+ *
+ * The class file version is 45.3, the same as the one produced by Jasmin, so that no
+ * StackMapTable attributes are required.
+ */
+public class ClassFileWriter {
+    private static final int MAGIC = 0xcafebabe;
+    private static final int MINOR_VERSION = 3;
+    private static final int MAJOR_VERSION = 45;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final int access;
+    private final int thisClass;
+    private final int superClass;
+
+    private final ByteVector fields = new ByteVector(64);
+    private int fieldCount;
+
+    private final List<MethodWriter> methods = new ArrayList<>();
+
+    /**
+     * Constructs a new ClassFileWriter.
+     *
+     * @param access Access flags of the class.
+     * @param name Internal name of the class.
+     * @param superName Internal name of the super class.
+     */
+    public ClassFileWriter(int access, String name, String superName) {
+        this.access = access;
+        this.thisClass = pool.addClass(name);
+        this.superClass = pool.addClass(superName);
+    }
+
+    /**
+     * @return The constant pool of the class.
+     */
+    public ConstantPool getConstantPool() {
+        return pool;
+    }
+
+    /**
+     * Adds a field to the class.
+     *
+     * @param access Access flags of the field.
+     * @param name Name of the field.
+     * @param descriptor Type descriptor of the field.
+     */
+    public void addField(int access, String name, String descriptor) {
+        fields.putShort(access);
+        fields.putShort(pool.addUtf8(name));
+        fields.putShort(pool.addUtf8(descriptor));
+        fields.putShort(0); // attributes_count
+        ++fieldCount;
+    }
+
+    /**
+     * Adds a method to the class.
+     *
+     * @param access Access flags of the method.
+     * @param name Name of the method.
+     * @param descriptor Type descriptor of the method.
+     * @return A MethodWriter for the code of the method.
+     */
+    public MethodWriter addMethod(int access, String name, String descriptor) {
+        final MethodWriter method = new MethodWriter(pool, access, name, descriptor);
+        methods.add(method);
+        return method;
+    }
+
+    /**
+     * @return The class file.
+     */
+    public byte[] toByteArray() {
+        // Let the methods add their constants before the pool is written.
+        final ByteVector methodBytes = new ByteVector(1024);
+        for (MethodWriter method : methods) {
+            method.write(methodBytes);
+        }
+
+        final ByteVector out = new ByteVector(1024 + methodBytes.length());
+        out.putInt(MAGIC);
+        out.putShort(MINOR_VERSION);
+        out.putShort(MAJOR_VERSION);
+        pool.write(out);
+        out.putShort(access);
+        out.putShort(thisClass);
+        out.putShort(superClass);
+        out.putShort(0); // interfaces_count
+        out.putShort(fieldCount);
+        out.putVector(fields);
+        out.putShort(methods.size());
+        out.putVector(methodBytes);
+        out.putShort(0); // attributes_count
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,171 @@
+package mjc.bytecode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The constant pool of a class file under construction.
+ *
+ * Entries are added on demand by the various {@code add*} methods, which return the
+ * index of the entry. Equal entries are only added once.
+ */
+public class ConstantPool {
+    private static final int CONSTANT_Utf8 = 1;
+    private static final int CONSTANT_Integer = 3;
+    private static final int CONSTANT_Class = 7;
+    private static final int CONSTANT_String = 8;
+    private static final int CONSTANT_Fieldref = 9;
+    private static final int CONSTANT_Methodref = 10;
+    private static final int CONSTANT_NameAndType = 12;
+
+    private final ByteVector pool = new ByteVector(512);
+    private final Map<String, Integer> indices = new HashMap<>();
+    private int nextIndex = 1;
+
+    /**
+     * @return Number of entries in the pool, plus one (the constant_pool_count item).
+     */
+    public int count() {
+        return nextIndex;
+    }
+
+    /**
+     * Adds a CONSTANT_Utf8 entry.
+     *
+     * @param value The string value.
+     * @return Index of the entry.
+     */
+    public int addUtf8(String value) {
+        final String key = "U" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            pool.putByte(CONSTANT_Utf8).putUtf8(value);
+            index = put(key);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a CONSTANT_Integer entry.
+     *
+     * @param value The integer value.
+     * @return Index of the entry.
+     */
+    public int addInteger(int value) {
+        final String key = "I" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            pool.putByte(CONSTANT_Integer).putInt(value);
+            index = put(key);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a CONSTANT_String entry.
+     *
+     * @param value The string value.
+     * @return Index of the entry.
+     */
+    public int addString(String value) {
+        final String key = "S" + value;
+        Integer index = indices.get(key);
+        if (index == null) {
+            final int utf8 = addUtf8(value);
+            pool.putByte(CONSTANT_String).putShort(utf8);
+            index = put(key);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a CONSTANT_Class entry.
+     *
+     * @param internalName Internal name of the class (e.g. java/lang/Object).
+     * @return Index of the entry.
+     */
+    public int addClass(String internalName) {
+        final String key = "C" + internalName;
+        Integer index = indices.get(key);
+        if (index == null) {
+            final int name = addUtf8(internalName);
+            pool.putByte(CONSTANT_Class).putShort(name);
+            index = put(key);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a CONSTANT_NameAndType entry.
+     *
+     * @param name Name of the field or method.
+     * @param descriptor Type descriptor of the field or method.
+     * @return Index of the entry.
+     */
+    public int addNameAndType(String name, String descriptor) {
+        final String key = "N" + name + ' ' + descriptor;
+        Integer index = indices.get(key);
+        if (index == null) {
+            final int nameIndex = addUtf8(name);
+            final int descriptorIndex = addUtf8(descriptor);
+            pool.putByte(CONSTANT_NameAndType).putShort(nameIndex).putShort(descriptorIndex);
+            index = put(key);
+        }
+        return index;
+    }
+
+    /**
+     * Adds a CONSTANT_Fieldref entry.
+     *
+     * @param owner Internal name of the class declaring the field.
+     * @param name Name of the field.
+     * @param descriptor Type descriptor of the field.
+     * @return Index of the entry.
+     */
+    public int addFieldref(String owner, String name, String descriptor) {
+        return addMemberref(CONSTANT_Fieldref, "F", owner, name, descriptor);
+    }
+
+    /**
+     * Adds a CONSTANT_Methodref entry.
+     *
+     * @param owner Internal name of the class declaring the method.
+     * @param name Name of the method.
+     * @param descriptor Type descriptor of the method.
+     * @return Index of the entry.
+     */
+    public int addMethodref(String owner, String name, String descriptor) {
+        return addMemberref(CONSTANT_Methodref, "M", owner, name, descriptor);
+    }
+
+    /**
+     * Writes the constant_pool_count item followed by the pool entries to {@code out}.
+     *
+     * @param out Output vector.
+     */
+    public void write(ByteVector out) {
+        out.putShort(count());
+        out.putVector(pool);
+    }
+
+    private int addMemberref(int tag, String prefix, String owner, String name, String descriptor) {
+        final String key = prefix + owner + '.' + name + ' ' + descriptor;
+        Integer index = indices.get(key);
+        if (index == null) {
+            final int classIndex = addClass(owner);
+            final int nameAndType = addNameAndType(name, descriptor);
+            pool.putByte(tag).putShort(classIndex).putShort(nameAndType);
+            index = put(key);
+        }
+        return index;
+    }
+
+    private int put(String key) {
+        if (nextIndex >= 0xffff) {
+            throw new Error("Too many constants");
+        }
+        final int index = nextIndex++;
+        indices.put(key, index);
+        return index;
+    }
+}
@@ -0,0 +1,77 @@
+package mjc.bytecode;
+
+import java.util.Arrays;
+
+/**
+ * A position in the code of a method, used as the target of branch instructions.
+ *
+ * A label may be referenced by branch instructions before it is placed. Such forward
+ * references are recorded and patched when the label is placed with
+ * {@link MethodWriter#mark(Label)}. The branch offset operands are 16 bits, or 32 bits
+ * for the wide jumps of a method that is too large for 16-bit offsets.
+ */
+public class Label {
+    int position = -1;
+    int stackSize = -1;
+
+    // Pairs of (instruction offset, operand offset) of unresolved references.
+    private int[] references;
+    private int numReferences;
+
+    /**
+     * @return true if the label has been placed.
+     */
+    public boolean isResolved() {
+        return position >= 0;
+    }
+
+    /**
+     * Records a forward reference to this label.
+     *
+     * @param instruction Offset of the branch instruction.
+     * @param operand Offset of the branch offset operand.
+     */
+    void addReference(int instruction, int operand) {
+        if (references == null) {
+            references = new int[8];
+        } else if (numReferences + 2 > references.length) {
+            references = Arrays.copyOf(references, 2 * references.length);
+        }
+        references[numReferences++] = instruction;
+        references[numReferences++] = operand;
+    }
+
+    /**
+     * Places the label at {@code position} and patches all forward references.
+     *
+     * @param position Offset of the label in the code.
+     * @param code The code to patch.
+     * @param wide true if the branch offset operands are 32 bits, false if 16 bits.
+     * @return false if a 16-bit branch offset was out of range, in which case it was
+     *         not patched.
+     */
+    boolean resolve(int position, ByteVector code, boolean wide) {
+        this.position = position;
+        boolean inRange = true;
+        for (int i = 0; i < numReferences; i += 2) {
+            final int offset = position - references[i];
+            if (wide) {
+                code.setInt(references[i + 1], offset);
+            } else if (isShort(offset)) {
+                code.setShort(references[i + 1], offset);
+            } else {
+                inRange = false;
+            }
+        }
+        references = null;
+        numReferences = 0;
+        return inRange;
+    }
+
+    /**
+     * Returns true if {@code offset} fits in a 16-bit branch offset operand.
+     */
+    static boolean isShort(int offset) {
+        return offset >= Short.MIN_VALUE && offset <= Short.MAX_VALUE;
+    }
+}
@@ -0,0 +1,384 @@
+package mjc.bytecode;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * Writer for the code of a single method.
+ *
+ * Instructions are appended using the methods below, which encode them directly into
+ * the byte code of the method. The writer keeps track of the operand stack size
+ * between instructions to compute the max_stack item of the Code attribute, and of
+ * the highest local variable slot used to compute the max_locals item.
+ *
+ * Stack size tracking follows the instructions in order. At a placed label that can
+ * only be reached by a jump (i.e. the previous instruction was an unconditional
+ * jump or a return), the stack size is reset to the stack size at the jump.
+ *
+ * Jumps are written with 16-bit offsets. If a jump turns out to be farther than that,
+ * {@link #needsWideJumps()} returns true, and the code must be generated again after
+ * {@link #restartWithWideJumps()}, which writes every jump with a 32-bit offset: a
+ * {@code goto} becomes {@code goto_w}, and a conditional jump becomes the opposite
+ * condition jumping over a {@code goto_w}. This is what javac does for large methods.
+ */
+public class MethodWriter {
+    private final ConstantPool pool;
+    private final int access;
+    private final int name;
+    private final int descriptor;
+
+    private final ByteVector code = new ByteVector(256);
+    private final int argumentSlots;
+
+    private int stackSize;
+    private int maxStack;
+    private int maxLocals;
+    private boolean reachable = true;
+    private boolean wideJumps;
+    private boolean jumpOutOfRange;
+
+    /**
+     * Constructs a new MethodWriter.
+     *
+     * @param pool Constant pool of the enclosing class.
+     * @param access Access flags of the method.
+     * @param name Name of the method.
+     * @param descriptor Type descriptor of the method.
+     */
+    MethodWriter(ConstantPool pool, int access, String name, String descriptor) {
+        this.pool = pool;
+        this.access = access;
+        this.name = pool.addUtf8(name);
+        this.descriptor = pool.addUtf8(descriptor);
+        this.argumentSlots = argumentSlots(descriptor) + ((access & ACC_STATIC) != 0 ? 0 : 1);
+        this.maxLocals = argumentSlots;
+    }
+
+    /**
+     * @return Current size of the code in bytes.
+     */
+    public int getCodeSize() {
+        return code.length();
+    }
+
+    /**
+     * @return The max_stack value computed so far.
+     */
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * @return The max_locals value computed so far.
+     */
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    /**
+     * Returns true if a jump was too far for a 16-bit offset. The code is then invalid,
+     * and the method must be generated again after {@link #restartWithWideJumps()}.
+     *
+     * @return true if the code must be generated again with wide jumps.
+     */
+    public boolean needsWideJumps() {
+        return jumpOutOfRange;
+    }
+
+    /**
+     * Discards the code written so far, so that it can be generated again with all jumps
+     * written with 32-bit offsets.
+     */
+    public void restartWithWideJumps() {
+        code.clear();
+        stackSize = 0;
+        maxStack = 0;
+        maxLocals = argumentSlots;
+        reachable = true;
+        wideJumps = true;
+        jumpOutOfRange = false;
+    }
+
+    /**
+     * Adds an instruction without operands.
+     *
+     * @param opcode Opcode of the instruction, e.g. {@link Opcodes#IADD}.
+     */
+    public void insn(int opcode) {
+        code.putByte(opcode);
+        stack(insnStackChange(opcode));
+        if (opcode == IRETURN || opcode == ARETURN || opcode == RETURN) {
+            reachable = false;
+        }
+    }
+
+    /**
+     * Adds a local variable load or store instruction. The variables 0 to 3 are
+     * accessed with the one-byte forms, e.g. {@code iload_0}.
+     *
+     * @param opcode One of ILOAD, ALOAD, ISTORE or ASTORE.
+     * @param index Index of the local variable.
+     */
+    public void varInsn(int opcode, int index) {
+        if (index <= 3) {
+            // The one-byte forms come in groups of four for each type, in the same
+            // order as ILOAD to ALOAD and ISTORE to ASTORE.
+            final int first = opcode <= ALOAD ? ILOAD_0 + (opcode - ILOAD) * 4
+                                              : ISTORE_0 + (opcode - ISTORE) * 4;
+            code.putByte(first + index);
+        } else if (index > 0xff) {
+            code.putByte(WIDE).putByte(opcode).putShort(index);
+        } else {
+            code.putByte(opcode).putByte(index);
+        }
+        stack(opcode == ILOAD || opcode == ALOAD ? 1 : -1);
+        maxLocals = Math.max(maxLocals, index + 1);
+    }
+
+    /**
+     * Adds the shortest instruction that pushes an int constant: {@code iconst_<n>},
+     * {@code bipush}, {@code sipush}, or {@code ldc} of a constant pool entry.
+     *
+     * @param value The constant.
+     */
+    public void ldc(int value) {
+        if (value >= -1 && value <= 5) {
+            code.putByte(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.putByte(BIPUSH).putByte(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.putByte(SIPUSH).putShort(value);
+        } else {
+            final int index = pool.addInteger(value);
+            if (index > 0xff) {
+                code.putByte(LDC_W).putShort(index);
+            } else {
+                code.putByte(LDC).putByte(index);
+            }
+        }
+        stack(1);
+    }
+
+    /**
+     * Adds an IINC instruction.
+     *
+     * @param index Index of the local variable.
+     * @param increment Value to add to the variable.
+     */
+    public void iinc(int index, int increment) {
+        if (index > 0xff || increment < Byte.MIN_VALUE || increment > Byte.MAX_VALUE) {
+            code.putByte(WIDE).putByte(IINC).putShort(index).putShort(increment);
+        } else {
+            code.putByte(IINC).putByte(index).putByte(increment);
+        }
+        maxLocals = Math.max(maxLocals, index + 1);
+    }
+
+    /**
+     * Adds a field access instruction.
+     *
+     * @param opcode One of GETSTATIC, GETFIELD or PUTFIELD.
+     * @param owner Internal name of the class declaring the field.
+     * @param name Name of the field.
+     * @param descriptor Type descriptor of the field.
+     */
+    public void fieldInsn(int opcode, String owner, String name, String descriptor) {
+        code.putByte(opcode).putShort(pool.addFieldref(owner, name, descriptor));
+        final int size = typeSlots(descriptor, 0);
+        switch (opcode) {
+            case GETSTATIC: stack(size); break;
+            case GETFIELD:  stack(size - 1); break;
+            case PUTFIELD:  stack(-size - 1); break;
+            default: throw new Error("fieldInsn: Unknown opcode " + opcode);
+        }
+    }
+
+    /**
+     * Adds a method invocation instruction.
+     *
+     * @param opcode One of INVOKEVIRTUAL, INVOKESPECIAL or INVOKESTATIC.
+     * @param owner Internal name of the class declaring the method.
+     * @param name Name of the method.
+     * @param descriptor Type descriptor of the method.
+     */
+    public void methodInsn(int opcode, String owner, String name, String descriptor) {
+        code.putByte(opcode).putShort(pool.addMethodref(owner, name, descriptor));
+        final int returnSlots = typeSlots(descriptor, descriptor.indexOf(')') + 1);
+        stack(returnSlots - argumentSlots(descriptor) - (opcode == INVOKESTATIC ? 0 : 1));
+    }
+
+    /**
+     * Adds a NEW instruction.
+     *
+     * @param type Internal name of the class to instantiate.
+     */
+    public void newInstance(String type) {
+        code.putByte(NEW).putShort(pool.addClass(type));
+        stack(1);
+    }
+
+    /**
+     * Adds a NEWARRAY instruction.
+     *
+     * @param type Array type code, e.g. {@link Opcodes#T_INT}.
+     */
+    public void newArray(int type) {
+        code.putByte(NEWARRAY).putByte(type);
+    }
+
+    /**
+     * Adds a conditional or unconditional jump instruction.
+     *
+     * @param opcode One of the IF* or IF_* opcodes, or GOTO.
+     * @param target Label to jump to.
+     */
+    public void jump(int opcode, Label target) {
+        stack(jumpStackChange(opcode));
+        if (target.stackSize < 0) {
+            target.stackSize = stackSize;
+        }
+        if (wideJumps) {
+            if (opcode != GOTO) {
+                // The opcodes of the conditional jumps come in pairs of opposite
+                // conditions, starting with an odd opcode. Jump over the goto_w.
+                code.putByte(opcode % 2 == 1 ? opcode + 1 : opcode - 1).putShort(3 + 5);
+            }
+            final int position = code.length();
+            code.putByte(GOTO_W);
+            if (target.isResolved()) {
+                code.putInt(target.position - position);
+            } else {
+                target.addReference(position, code.length());
+                code.putInt(0);
+            }
+        } else {
+            final int position = code.length();
+            code.putByte(opcode);
+            if (target.isResolved()) {
+                final int offset = target.position - position;
+                jumpOutOfRange |= !Label.isShort(offset);
+                code.putShort(offset);
+            } else {
+                target.addReference(position, code.length());
+                code.putShort(0);
+            }
+        }
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    /**
+     * Places {@code label} at the current position in the code.
+     *
+     * @param label The label.
+     */
+    public void mark(Label label) {
+        jumpOutOfRange |= !label.resolve(code.length(), code, wideJumps);
+        if (!reachable) {
+            stackSize = Math.max(label.stackSize, 0);
+            reachable = true;
+        }
+    }
+
+    /**
+     * Writes the method_info structure for the method to {@code out}.
+     *
+     * @param out Output vector.
+     */
+    void write(ByteVector out) {
+        if (jumpOutOfRange) {
+            throw new Error("MethodWriter.write: Jump out of range, generate with wide jumps");
+        }
+        if (code.length() > 0xffff) {
+            throw new Error("MethodWriter.write: Code of method too large");
+        }
+        out.putShort(access);
+        out.putShort(name);
+        out.putShort(descriptor);
+        out.putShort(1); // attributes_count
+        out.putShort(pool.addUtf8("Code"));
+        out.putInt(12 + code.length());
+        out.putShort(maxStack);
+        out.putShort(maxLocals);
+        out.putInt(code.length());
+        out.putVector(code);
+        out.putShort(0); // exception_table_length
+        out.putShort(0); // attributes_count
+    }
+
+    /** Changes the current stack size by {@code change}. */
+    private void stack(int change) {
+        stackSize += change;
+        maxStack = Math.max(maxStack, stackSize);
+    }
+
+    /**
+     * Returns the number of local variable slots taken by the arguments of a method.
+     *
+     * @param descriptor Type descriptor of the method.
+     * @return Number of slots.
+     */
+    static int argumentSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            slots += typeSlots(descriptor, i);
+            while (descriptor.charAt(i) == '[') {
+                ++i;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            ++i;
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the number of stack slots taken by the type at {@code index} in
+     * {@code descriptor}.
+     */
+    private static int typeSlots(String descriptor, int index) {
+        switch (descriptor.charAt(index)) {
+            case 'V': return 0;
+            case 'J':
+            case 'D': return 2;
+            default: return 1;
+        }
+    }
+
+    private static int insnStackChange(int opcode) {
+        if (opcode >= ICONST_M1 && opcode <= ICONST_5) {
+            return 1;
+        } else if (opcode >= ILOAD_0 && opcode <= ALOAD_0 + 3) {
+            return 1;
+        } else if (opcode >= ISTORE_0 && opcode <= ASTORE_0 + 3) {
+            return -1;
+        }
+        switch (opcode) {
+            case DUP: return 1;
+            case RETURN:
+            case ARRAYLENGTH: return 0;
+            case POP:
+            case IALOAD:
+            case IADD:
+            case ISUB:
+            case IMUL:
+            case IRETURN:
+            case ARETURN: return -1;
+            case IASTORE: return -3;
+            default: throw new Error("insn: Unknown opcode " + opcode);
+        }
+    }
+
+    private static int jumpStackChange(int opcode) {
+        if (opcode == GOTO) {
+            return 0;
+        } else if (opcode >= IFEQ && opcode <= IFLE) {
+            return -1;
+        } else if (opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE) {
+            return -2;
+        }
+        throw new Error("jump: Unknown opcode " + opcode);
+    }
+}
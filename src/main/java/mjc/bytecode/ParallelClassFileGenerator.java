@@ -0,0 +1,106 @@
+package mjc.bytecode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.node.AClassDeclaration;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.Node;
+import mjc.symbol.SymbolTable;
+
+/**
+ * The ParallelClassFileGenerator class generates class files from the AST using a
+ * {@link ForkJoinPool}.
+ *
+ * Each class is generated by a task of its own, with its own
+ * {@link ClassFileGenerator}. The class files are passed to the handler on the thread
+ * that called {@link #generate(Node, SymbolTable)}, in the same order as with a
+ * ClassFileGenerator, so the output does not depend on the number of threads.
+ *
+ * The AST must have been checked by the {@link mjc.analysis.TypeChecker} without
+ * errors, and must not be changed while the class files are generated.
+ */
+public class ParallelClassFileGenerator {
+    private final ClassFileHandler handler;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a ParallelClassFileGenerator.
+     *
+     * @param handler Handler of generated class files.
+     * @param pool Pool in which the class files are generated.
+     */
+    public ParallelClassFileGenerator(ClassFileHandler handler, ForkJoinPool pool) {
+        this.handler = handler;
+        this.pool = pool;
+    }
+
+    /**
+     * Generates class files.
+     *
+     * The handler passed in during construction will be called for each generated
+     * class, on the calling thread, in the order the classes are declared with the main
+     * class first.
+     *
+     * @param ast Input AST.
+     * @param symbolTable Input symbol table.
+     */
+    public void generate(Node ast, final SymbolTable symbolTable) {
+        // Start a task for each class.
+        final List<ForkJoinTask<GeneratedClass>> tasks = new ArrayList<>();
+        ast.apply(new DepthFirstAdapter() {
+            @Override
+            public void caseAMainClassDeclaration(AMainClassDeclaration declaration) {
+                tasks.add(pool.submit(new ClassTask(declaration, symbolTable)));
+            }
+
+            @Override
+            public void caseAClassDeclaration(AClassDeclaration declaration) {
+                tasks.add(pool.submit(new ClassTask(declaration, symbolTable)));
+            }
+        });
+
+        // Pass the class files to the handler in order, as the classes complete.
+        for (ForkJoinTask<GeneratedClass> task : tasks) {
+            final GeneratedClass generated = task.join();
+            handler.handle(generated.name, generated.classFile);
+        }
+    }
+
+    /**
+     * A generated class file.
+     */
+    private static class GeneratedClass {
+        private String name;
+        private byte[] classFile;
+    }
+
+    /**
+     * Task that generates the class file of a class.
+     */
+    private static class ClassTask extends RecursiveTask<GeneratedClass> {
+        private final Node declaration;
+        private final SymbolTable symbolTable;
+
+        public ClassTask(Node declaration, SymbolTable symbolTable) {
+            this.declaration = declaration;
+            this.symbolTable = symbolTable;
+        }
+
+        @Override
+        protected GeneratedClass compute() {
+            final GeneratedClass result = new GeneratedClass();
+            new ClassFileGenerator(new ClassFileHandler() {
+                public void handle(String className, byte[] classFile) {
+                    result.name = className;
+                    result.classFile = classFile;
+                }
+            }).generate(declaration, symbolTable);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * The class file code generator.
+ */
+package mjc.bytecode;
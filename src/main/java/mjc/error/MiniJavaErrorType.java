@@ -5,6 +5,11 @@ package mjc.error;
  */
 public enum MiniJavaErrorType {
 
+    /*
+     * Input / output errors.
+     */
+    IO_ERROR                      (10, "%s"),
+
     /*
      * Lexer / parser errors.
      */
@@ -43,6 +48,11 @@ public enum MiniJavaErrorType {
     LENGTH_ON_NON_ARRAY           (216, "length unsupported on non-array type %s"),
     CALL_ON_NON_CLASS             (217, "method call on expression of non-class type %s"),
 
+    /*
+     * Code generation errors.
+     */
+    ASSEMBLER_ERROR               (300, "assembly of class `%s` failed: %s"),
+
     INTERNAL_ERROR                (1000, "internal error: %s");
 
     private final int code;
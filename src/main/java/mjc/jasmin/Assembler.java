@@ -0,0 +1,74 @@
+package mjc.jasmin;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.io.CharSource;
+
+import jasmin.ClassFile;
+import mjc.error.MiniJavaError;
+import mjc.jfr.Events;
+import static mjc.error.MiniJavaErrorType.ASSEMBLER_ERROR;
+
+/**
+ * The Assembler class assembles Jasmin code into class files in memory.
+ *
+ * The code is read straight from the generated {@link CharSequence} and the class file
+ * is returned as a byte array, so nothing is written to disk. The Jasmin
+ * {@link ClassFile} and the output buffer are reused from one class to the next.
+ *
+ * Since the code comes from the {@link JasminGenerator}, a failed assembly is a bug in
+ * the generator rather than in the input program. Failures are collected as errors that
+ * may be queried for using the {@link #hasErrors()} and {@link #getErrors()} methods.
+ * Jasmin itself prints the details of syntax errors in the code to standard error.
+ *
+ * An Assembler is not thread-safe; use one Assembler per thread.
+ */
+public class Assembler {
+    private final ClassFile classFile = new ClassFile();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final List<MiniJavaError> errors = new ArrayList<>();
+
+    /**
+     * Assembles the Jasmin code of a class.
+     *
+     * @param className Name of the class.
+     * @param code Jasmin code of the class.
+     * @return The class file, or null if assembly failed.
+     */
+    public byte[] assemble(String className, CharSequence code) {
+        final Events.Assembly event = Events.assembly();
+        event.begin();
+        buffer.reset();
+        try {
+            classFile.readJasmin(CharSource.wrap(code).openStream(), className + ".j", false);
+            if (classFile.errorCount() > 0) {
+                errors.add(ASSEMBLER_ERROR.on(0, 0, className,
+                        classFile.errorCount() + " error(s) in Jasmin code"));
+                return null;
+            }
+            classFile.write(buffer);
+        } catch (Exception e) {
+            errors.add(ASSEMBLER_ERROR.on(0, 0, className, e.toString()));
+            return null;
+        } finally {
+            event.finish(className, code.length(), buffer.size());
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return true if assembly of any class failed.
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * @return The list of errors collected during assembly.
+     */
+    public List<MiniJavaError> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,90 @@
+package mjc.jasmin;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * An instruction in an {@link InstructionList}, or the placement of a label.
+ *
+ * The opcode is one of those in {@link mjc.bytecode.Opcodes}, or {@link #LABEL}. An
+ * LDC instruction stands for any push of an int constant, whose encoding is picked by
+ * the {@link JasminWriter}. Instructions are immutable, so the
+ * {@link PeepholeOptimizer} rewrites code by replacing them.
+ */
+final class Instruction {
+    /** Pseudo-opcode of the placement of a label. */
+    static final int LABEL = -1;
+
+    final int opcode;
+    final int index; // Local variable index.
+    final int value; // Int constant, or increment of IINC.
+    final Label label; // Jump target, or placed label.
+    final String owner; // Class of a member, or class to instantiate.
+    final String name;
+    final String descriptor;
+
+    private Instruction(int opcode, int index, int value, Label label, String owner,
+            String name, String descriptor) {
+        this.opcode = opcode;
+        this.index = index;
+        this.value = value;
+        this.label = label;
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    /** Returns an instruction without operands. */
+    static Instruction insn(int opcode) {
+        return new Instruction(opcode, 0, 0, null, null, null, null);
+    }
+
+    /** Returns a local variable load or store instruction. */
+    static Instruction varInsn(int opcode, int index) {
+        return new Instruction(opcode, index, 0, null, null, null, null);
+    }
+
+    /** Returns an instruction that pushes an int constant. */
+    static Instruction push(int value) {
+        return new Instruction(LDC, 0, value, null, null, null, null);
+    }
+
+    /** Returns an IINC instruction. */
+    static Instruction iinc(int index, int increment) {
+        return new Instruction(IINC, index, increment, null, null, null, null);
+    }
+
+    /** Returns a conditional or unconditional jump instruction. */
+    static Instruction jump(int opcode, Label target) {
+        return new Instruction(opcode, 0, 0, target, null, null, null);
+    }
+
+    /** Returns the placement of {@code label}. */
+    static Instruction label(Label label) {
+        return new Instruction(LABEL, 0, 0, label, null, null, null);
+    }
+
+    /** Returns a NEW instruction. */
+    static Instruction newInstance(String className) {
+        return new Instruction(NEW, 0, 0, null, className, null, null);
+    }
+
+    /** Returns a field access or method invocation instruction. */
+    static Instruction member(int opcode, String owner, String name, String descriptor) {
+        return new Instruction(opcode, 0, 0, null, owner, name, descriptor);
+    }
+
+    /** Returns true if this is a conditional jump. */
+    boolean isConditionalJump() {
+        return opcode >= IFEQ && opcode <= IF_ACMPNE;
+    }
+
+    /** Returns true if this is a jump, conditional or not. */
+    boolean isJump() {
+        return isConditionalJump() || opcode == GOTO;
+    }
+
+    /** Returns true if execution never continues with the next instruction. */
+    boolean isUnconditionalTransfer() {
+        return opcode == GOTO || opcode == RETURN || opcode == IRETURN || opcode == ARETURN;
+    }
+}
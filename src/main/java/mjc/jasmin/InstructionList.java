@@ -0,0 +1,307 @@
+package mjc.jasmin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mjc.bytecode.MethodWriter;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * A list of the instructions and labels of a method, as generated.
+ *
+ * InstructionList has the same instruction methods as the {@link JasminWriter}, but
+ * holds on to the instructions, so that the {@link PeepholeOptimizer} can look at the
+ * code of the whole method before it is written using {@link #writeTo(JasminWriter)},
+ * or encoded into a class file using {@link #writeTo(MethodWriter)}. An int constant
+ * is added with {@link #pushInt(int)} whatever its value, and is written with the
+ * shortest encoding.
+ */
+public class InstructionList {
+    private final List<Instruction> instructions = new ArrayList<>();
+
+    /**
+     * @return The instructions, which may be changed in place.
+     */
+    List<Instruction> instructions() {
+        return instructions;
+    }
+
+    /**
+     * @return Number of instructions and labels in the list.
+     */
+    public int size() {
+        return instructions.size();
+    }
+
+    /**
+     * Removes all instructions, so that the list can be used for another method.
+     */
+    public void clear() {
+        instructions.clear();
+    }
+
+    /**
+     * Writes the instructions in order.
+     *
+     * @param out Writer to write to.
+     */
+    public void writeTo(JasminWriter out) {
+        for (Instruction instruction : instructions) {
+            write(instruction, out);
+        }
+    }
+
+    /**
+     * Encodes the instructions in order. The list may be encoded more than once, e.g.
+     * again after {@link MethodWriter#restartWithWideJumps()}.
+     *
+     * @param out Writer of the code of the method.
+     */
+    public void writeTo(MethodWriter out) {
+        final Map<Label, mjc.bytecode.Label> labels = new HashMap<>();
+        for (Instruction instruction : instructions) {
+            write(instruction, out, labels);
+        }
+    }
+
+    /** Adds the placement of {@code label}. */
+    public void label(Label label) {
+        instructions.add(Instruction.label(label));
+    }
+
+    // Instructions.
+
+    public void aload(int index) {
+        instructions.add(Instruction.varInsn(ALOAD, index));
+    }
+
+    public void iload(int index) {
+        instructions.add(Instruction.varInsn(ILOAD, index));
+    }
+
+    public void astore(int index) {
+        instructions.add(Instruction.varInsn(ASTORE, index));
+    }
+
+    public void istore(int index) {
+        instructions.add(Instruction.varInsn(ISTORE, index));
+    }
+
+    public void pushInt(int value) {
+        instructions.add(Instruction.push(value));
+    }
+
+    public void iadd() {
+        instructions.add(Instruction.insn(IADD));
+    }
+
+    public void isub() {
+        instructions.add(Instruction.insn(ISUB));
+    }
+
+    public void imul() {
+        instructions.add(Instruction.insn(IMUL));
+    }
+
+    public void iaload() {
+        instructions.add(Instruction.insn(IALOAD));
+    }
+
+    public void iastore() {
+        instructions.add(Instruction.insn(IASTORE));
+    }
+
+    public void arraylength() {
+        instructions.add(Instruction.insn(ARRAYLENGTH));
+    }
+
+    public void dup() {
+        instructions.add(Instruction.insn(DUP));
+    }
+
+    public void newInstance(String className) {
+        instructions.add(Instruction.newInstance(className));
+    }
+
+    public void newarrayInt() {
+        instructions.add(Instruction.insn(NEWARRAY));
+    }
+
+    public void returnVoid() {
+        instructions.add(Instruction.insn(RETURN));
+    }
+
+    public void ireturn() {
+        instructions.add(Instruction.insn(IRETURN));
+    }
+
+    public void areturn() {
+        instructions.add(Instruction.insn(ARETURN));
+    }
+
+    public void getstatic(String owner, String name, String descriptor) {
+        instructions.add(Instruction.member(GETSTATIC, owner, name, descriptor));
+    }
+
+    public void getfield(String owner, String name, String descriptor) {
+        instructions.add(Instruction.member(GETFIELD, owner, name, descriptor));
+    }
+
+    public void putfield(String owner, String name, String descriptor) {
+        instructions.add(Instruction.member(PUTFIELD, owner, name, descriptor));
+    }
+
+    public void invokevirtual(String owner, String name, String descriptor) {
+        instructions.add(Instruction.member(INVOKEVIRTUAL, owner, name, descriptor));
+    }
+
+    public void invokespecial(String owner, String name, String descriptor) {
+        instructions.add(Instruction.member(INVOKESPECIAL, owner, name, descriptor));
+    }
+
+    public void invokestatic(String owner, String name, String descriptor) {
+        instructions.add(Instruction.member(INVOKESTATIC, owner, name, descriptor));
+    }
+
+    public void ifIcmplt(Label label) {
+        instructions.add(Instruction.jump(IF_ICMPLT, label));
+    }
+
+    public void ifIcmple(Label label) {
+        instructions.add(Instruction.jump(IF_ICMPLE, label));
+    }
+
+    public void ifIcmpgt(Label label) {
+        instructions.add(Instruction.jump(IF_ICMPGT, label));
+    }
+
+    public void ifIcmpge(Label label) {
+        instructions.add(Instruction.jump(IF_ICMPGE, label));
+    }
+
+    public void ifIcmpeq(Label label) {
+        instructions.add(Instruction.jump(IF_ICMPEQ, label));
+    }
+
+    public void ifIcmpne(Label label) {
+        instructions.add(Instruction.jump(IF_ICMPNE, label));
+    }
+
+    public void ifAcmpeq(Label label) {
+        instructions.add(Instruction.jump(IF_ACMPEQ, label));
+    }
+
+    public void ifAcmpne(Label label) {
+        instructions.add(Instruction.jump(IF_ACMPNE, label));
+    }
+
+    public void gotoLabel(Label label) {
+        instructions.add(Instruction.jump(GOTO, label));
+    }
+
+    /** Writes one instruction. */
+    private static void write(Instruction instruction, JasminWriter out) {
+        switch (instruction.opcode) {
+            case Instruction.LABEL: out.label(instruction.label); break;
+            case ALOAD:             out.aload(instruction.index); break;
+            case ILOAD:             out.iload(instruction.index); break;
+            case ASTORE:            out.astore(instruction.index); break;
+            case ISTORE:            out.istore(instruction.index); break;
+            case LDC:               out.pushInt(instruction.value); break;
+            case IINC:              out.iinc(instruction.index, instruction.value); break;
+            case IADD:              out.iadd(); break;
+            case ISUB:              out.isub(); break;
+            case IMUL:              out.imul(); break;
+            case IALOAD:            out.iaload(); break;
+            case IASTORE:           out.iastore(); break;
+            case ARRAYLENGTH:       out.arraylength(); break;
+            case DUP:               out.dup(); break;
+            case NEW:               out.newInstance(instruction.owner); break;
+            case NEWARRAY:          out.newarrayInt(); break;
+            case RETURN:            out.returnVoid(); break;
+            case IRETURN:           out.ireturn(); break;
+            case ARETURN:           out.areturn(); break;
+            case GETSTATIC:
+                out.getstatic(instruction.owner, instruction.name, instruction.descriptor);
+                break;
+            case GETFIELD:
+                out.getfield(instruction.owner, instruction.name, instruction.descriptor);
+                break;
+            case PUTFIELD:
+                out.putfield(instruction.owner, instruction.name, instruction.descriptor);
+                break;
+            case INVOKEVIRTUAL:
+                out.invokevirtual(instruction.owner, instruction.name, instruction.descriptor);
+                break;
+            case INVOKESPECIAL:
+                out.invokespecial(instruction.owner, instruction.name, instruction.descriptor);
+                break;
+            case INVOKESTATIC:
+                out.invokestatic(instruction.owner, instruction.name, instruction.descriptor);
+                break;
+            case IFEQ:              out.ifeq(instruction.label); break;
+            case IFNE:              out.ifne(instruction.label); break;
+            case IFLT:              out.iflt(instruction.label); break;
+            case IFGE:              out.ifge(instruction.label); break;
+            case IFGT:              out.ifgt(instruction.label); break;
+            case IFLE:              out.ifle(instruction.label); break;
+            case IF_ICMPEQ:         out.ifIcmpeq(instruction.label); break;
+            case IF_ICMPNE:         out.ifIcmpne(instruction.label); break;
+            case IF_ICMPLT:         out.ifIcmplt(instruction.label); break;
+            case IF_ICMPGE:         out.ifIcmpge(instruction.label); break;
+            case IF_ICMPGT:         out.ifIcmpgt(instruction.label); break;
+            case IF_ICMPLE:         out.ifIcmple(instruction.label); break;
+            case IF_ACMPEQ:         out.ifAcmpeq(instruction.label); break;
+            case IF_ACMPNE:         out.ifAcmpne(instruction.label); break;
+            case GOTO:              out.gotoLabel(instruction.label); break;
+            default: throw new Error("InstructionList.write: Unknown opcode " + instruction.opcode);
+        }
+    }
+
+    /** Encodes one instruction, using the class file label in {@code labels} for each label. */
+    private static void write(Instruction instruction, MethodWriter out,
+            Map<Label, mjc.bytecode.Label> labels) {
+        switch (instruction.opcode) {
+            case Instruction.LABEL: out.mark(label(instruction.label, labels)); break;
+            case ALOAD:
+            case ILOAD:
+            case ASTORE:
+            case ISTORE:            out.varInsn(instruction.opcode, instruction.index); break;
+            case LDC:               out.ldc(instruction.value); break;
+            case IINC:              out.iinc(instruction.index, instruction.value); break;
+            case NEW:               out.newInstance(instruction.owner); break;
+            case NEWARRAY:          out.newArray(T_INT); break;
+            case GETSTATIC:
+            case GETFIELD:
+            case PUTFIELD:
+                out.fieldInsn(instruction.opcode, instruction.owner, instruction.name,
+                        instruction.descriptor);
+                break;
+            case INVOKEVIRTUAL:
+            case INVOKESPECIAL:
+            case INVOKESTATIC:
+                out.methodInsn(instruction.opcode, instruction.owner, instruction.name,
+                        instruction.descriptor);
+                break;
+            default:
+                if (instruction.isJump()) {
+                    out.jump(instruction.opcode, label(instruction.label, labels));
+                } else {
+                    out.insn(instruction.opcode);
+                }
+        }
+    }
+
+    /** Returns the class file label for {@code label}, creating it on first use. */
+    private static mjc.bytecode.Label label(Label label, Map<Label, mjc.bytecode.Label> labels) {
+        mjc.bytecode.Label result = labels.get(label);
+        if (result == null) {
+            result = new mjc.bytecode.Label();
+            labels.put(label, result);
+        }
+        return result;
+    }
+}
@@ -1,9 +1,12 @@
 package mjc.jasmin;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import mjc.analysis.AnalysisAdapter;
+import mjc.jfr.Events;
 import mjc.node.AAndExpression;
 import mjc.node.AArrayAccessExpression;
 import mjc.node.AArrayAssignStatement;
@@ -41,6 +44,7 @@ import mjc.node.AWhileStatement;
 import mjc.node.Node;
 import mjc.node.PExpression;
 import mjc.node.Start;
+import mjc.node.TIdentifier;
 import mjc.symbol.ClassInfo;
 import mjc.symbol.MethodInfo;
 import mjc.symbol.SymbolTable;
@@ -50,136 +54,274 @@ import mjc.types.Type;
 /**
  * The JasminGenerator class generates Jasmin code from the AST.
  *
- * Construct an instance of the class with a {@link JasminHandler} for handling
- * the output. Then call the {@link #generate(Node, SymbolTable, Map)} method to
- * start the generation.
+ * Construct an instance of the class with a {@link JasminHandler} or a
+ * {@link JasminStreamHandler} for handling the output. Then call the
+ * {@link #generate(Node, SymbolTable)} method to start the generation.
+ *
+ * The AST must have been checked by the {@link mjc.analysis.TypeChecker} without
+ * errors, since the generator uses the types and bindings recorded on its nodes.
+ *
+ * The instructions of each method are collected in an {@link InstructionList} and
+ * improved by the {@link PeepholeOptimizer} before they are written using a
+ * {@link JasminWriter}. With a JasminStreamHandler, the code is streamed to the handler
+ * one method at a time, so the code for a class is never held in memory all at once.
  */
 public class JasminGenerator extends AnalysisAdapter {
-    private final static String INDENT = "    ";
-
-    private final JasminHandler handler;
-    private StringBuilder result;
-    private Map<String, Integer> labelCounters = new HashMap<>();
+    private final JasminStreamHandler handler;
+    private final JasminWriter out = new JasminWriter(null);
+    private final InstructionList instructions = new InstructionList();
+    private final Map<String, int[]> labelCounters = new HashMap<>();
+
+    // Label prefixes for boolean values, see booleanValue().
+    private final static String[] AND_LABELS = booleanLabels("and");
+    private final static String[] OR_LABELS = booleanLabels("or");
+    private final static String[] LT_LABELS = booleanLabels("lt");
+    private final static String[] LE_LABELS = booleanLabels("le");
+    private final static String[] GT_LABELS = booleanLabels("gt");
+    private final static String[] GE_LABELS = booleanLabels("ge");
+    private final static String[] EQ_LABELS = booleanLabels("eq");
+    private final static String[] NE_LABELS = booleanLabels("ne");
 
     private SymbolTable symbolTable;
-    private Map<Node, Type> types;
 
     private ClassInfo currentClass;
     private MethodInfo currentMethod;
 
-    private int stackSize;
-    private int maxStackSize;
+    // Code of the methods of the class being generated, if generated separately.
+    private List<? extends CharSequence> methodCode;
+
+    /**
+     * Constructs a JasminGenerator that passes the code of each class to
+     * {@code handler} when the class is complete.
+     *
+     * @param handler Handler of generated code.
+     */
+    public JasminGenerator(final JasminHandler handler) {
+        this.handler = new JasminStreamHandler() {
+            private StringBuilder code;
+
+            public Appendable begin(String className) {
+                return code = new StringBuilder();
+            }
 
-    public JasminGenerator(JasminHandler handler) {
+            public void end(String className) {
+                handler.handle(className, code);
+                code = null;
+            }
+        };
+    }
+
+    /**
+     * Constructs a JasminGenerator that streams the code to {@code handler}.
+     *
+     * @param handler Handler of generated code.
+     */
+    public JasminGenerator(JasminStreamHandler handler) {
         this.handler = handler;
     }
 
+    /**
+     * Constructs a JasminGenerator without a handler, which may only be used with
+     * {@link #generateMethod(AMethodDeclaration, SymbolTable, Appendable)}.
+     */
+    JasminGenerator() {
+        this.handler = null;
+    }
+
     /**
      * Generates Jasmin code.
      *
-     * The handle method of the {@link JasminHandler} passed in during construction
-     * will be called for each generated class.
+     * The handler passed in during construction will be called for each generated
+     * class.
      *
      * @param ast Input AST.
      * @param symbolTable Input symbol table.
-     * @param types Input AST node to MiniJava type map.
+     * @throws IOException if the handler failed with an I/O error.
      */
-    public void generate(Node ast, SymbolTable symbolTable, Map<Node, Type> types) {
+    public void generate(Node ast, SymbolTable symbolTable)
+            throws IOException {
         this.symbolTable = symbolTable;
-        this.types = types;
 
-        ast.apply(this);
+        try {
+            ast.apply(this);
+        } catch (JasminWriter.UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
-    // Helper methods.
-
-    /** Adds Jasmin {@code directive} formatted with {@code args}. */
-    private void direc(String directive, Object... args) {
-        result.append('.' + String.format(directive, args) + '\n');
+    /**
+     * Generates Jasmin code for a class whose methods have been generated separately,
+     * using {@link #generateMethod(AMethodDeclaration, SymbolTable, Appendable)}.
+     *
+     * @param declaration Input class declaration.
+     * @param symbolTable Input symbol table.
+     * @param methodCode Code of each method of the class, in declaration order.
+     * @throws IOException if the handler failed with an I/O error.
+     */
+    void generate(AClassDeclaration declaration, SymbolTable symbolTable,
+            List<? extends CharSequence> methodCode) throws IOException {
+        this.methodCode = methodCode;
+        try {
+            generate(declaration, symbolTable);
+        } finally {
+            this.methodCode = null;
+        }
     }
 
     /**
-     * Adds a Jasmin {@code instruction} formatted with {@code args} that changes the stack
-     * size by {@code stackChange}.
+     * Generates Jasmin code for one method of a class.
+     *
+     * @param declaration Input method declaration, which must be part of a class
+     *                    declaration.
+     * @param symbolTable Input symbol table.
+     * @param code Appendable to which the code of the method is written.
      */
-    private void instr(int stackChange, String instruction, Object... args) {
-        result.append(INDENT + String.format(instruction, args) + '\n');
-        stackSize += stackChange;
-        maxStackSize = Math.max(maxStackSize, stackSize);
+    void generateMethod(AMethodDeclaration declaration, SymbolTable symbolTable,
+            Appendable code) {
+        final AClassDeclaration classDeclaration = (AClassDeclaration) declaration.parent();
+        this.symbolTable = symbolTable;
+
+        currentClass = symbolTable.getClassInfo(classDeclaration.getName().getSymbol());
+        out.setOut(code);
+        declaration.apply(this);
+        out.flush();
+        out.setOut(null);
+        currentClass = null;
     }
 
-    /** Adds a Jasmin {@code label}. */
-    private void label(String label) {
-        result.append(label + ":\n");
+    // Helper methods.
+
+    /** Starts the code for the class {@code className}, including a default constructor. */
+    private void beginClass(String className) {
+        try {
+            out.setOut(handler.begin(className));
+        } catch (IOException e) {
+            throw new JasminWriter.UncheckedIOException(e);
+        }
+
+        out.classDirective(className);
+        out.superDirective("java/lang/Object");
+    }
+
+    /** Writes a default constructor. */
+    private void defaultConstructor() {
+        out.methodDirective(false, "<init>", "()V");
+        out.aload(0);
+        out.invokespecial("java/lang/Object", "<init>", "()V");
+        out.returnVoid();
+        out.endMethod();
+    }
+
+    /** Ends the code for the class {@code className}. */
+    private void endClass(String className) {
+        out.flush();
+        out.setOut(null);
+        try {
+            handler.end(className);
+        } catch (IOException e) {
+            throw new JasminWriter.UncheckedIOException(e);
+        }
+    }
+
+    /** Optimizes and writes the instructions of the current method. */
+    private void writeInstructions() {
+        PeepholeOptimizer.optimize(instructions);
+        instructions.writeTo(out);
+        instructions.clear();
+    }
+
+    /** Adds a load of {@code variable}, which may be a field of the current class. */
+    private void load(VariableInfo variable) {
+        if (variable.isField()) {
+            final String typeDescriptor = variable.getType().descriptor();
+            instructions.aload(0);
+            instructions.getfield(currentClass.getName(), variable.getName(), typeDescriptor);
+        } else if (variable.getType().isReference()) {
+            instructions.aload(variable.getIndex());
+        } else {
+            instructions.iload(variable.getIndex());
+        }
     }
 
-    /** Adds a newline. */
-    private void nl() {
-        result.append("\n");
+    /** Adds a store to {@code variable}, which must be a parameter or local variable. */
+    private void store(VariableInfo variable) {
+        if (variable.getType().isReference()) {
+            instructions.astore(variable.getIndex());
+        } else {
+            instructions.istore(variable.getIndex());
+        }
     }
 
     /** Adds a jump to {@code trueLabel} or {@code falseLabel} based on {@code expression}. */
-    private void jump(PExpression expression, String trueLabel, String falseLabel) {
+    private void jump(PExpression expression, Label trueLabel, Label falseLabel) {
         if (expression instanceof AOrExpression) {
             final AOrExpression or = (AOrExpression) expression;
-            final String rightLabel = nextLabel("or_right");
+            final Label rightLabel = nextLabel("or_right");
             jump(or.getLeft(), trueLabel, rightLabel);
-            label(rightLabel);
+            instructions.label(rightLabel);
             jump(or.getRight(), trueLabel, falseLabel);
         } else if (expression instanceof AAndExpression) {
             final AAndExpression and = (AAndExpression) expression;
-            final String rightLabel = nextLabel("and_right");
+            final Label rightLabel = nextLabel("and_right");
             jump(and.getLeft(), rightLabel, falseLabel);
-            label(rightLabel);
+            instructions.label(rightLabel);
             jump(and.getRight(), trueLabel, falseLabel);
         } else if (expression instanceof ALessThanExpression) {
             final ALessThanExpression lt = (ALessThanExpression) expression;
             lt.getLeft().apply(this);
             lt.getRight().apply(this);
-            instr(-2, "if_icmplt %s", trueLabel);
-            instr(0, "goto %s", falseLabel);
+            instructions.ifIcmplt(trueLabel);
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof ALessEqualThanExpression) {
             final ALessEqualThanExpression le = (ALessEqualThanExpression) expression;
             le.getLeft().apply(this);
             le.getRight().apply(this);
-            instr(-2, "if_icmple %s", trueLabel);
-            instr(0, "goto %s", falseLabel);
+            instructions.ifIcmple(trueLabel);
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof AGreaterThanExpression) {
             final AGreaterThanExpression gt = (AGreaterThanExpression) expression;
             gt.getLeft().apply(this);
             gt.getRight().apply(this);
-            instr(-2, "if_icmpgt %s", trueLabel);
-            instr(0, "goto %s", falseLabel);
+            instructions.ifIcmpgt(trueLabel);
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof AGreaterEqualThanExpression) {
             final AGreaterEqualThanExpression ge = (AGreaterEqualThanExpression) expression;
             ge.getLeft().apply(this);
             ge.getRight().apply(this);
-            instr(-2, "if_icmpge %s", trueLabel);
-            instr(0, "goto %s", falseLabel);
+            instructions.ifIcmpge(trueLabel);
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof AEqualExpression) {
             final AEqualExpression eq = (AEqualExpression) expression;
             eq.getLeft().apply(this);
             eq.getRight().apply(this);
-            instr(-2, "if_%scmpeq %s", types.get(eq.getLeft()).isReference() ? 'a' : 'i', trueLabel);
-            instr(0, "goto %s", falseLabel);
+            if (eq.getLeft().getTypeAnnotation().isReference()) {
+                instructions.ifAcmpeq(trueLabel);
+            } else {
+                instructions.ifIcmpeq(trueLabel);
+            }
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof ANotEqualExpression) {
             final ANotEqualExpression ne = (ANotEqualExpression) expression;
             ne.getLeft().apply(this);
             ne.getRight().apply(this);
-            instr(-2, "if_%scmpne %s", types.get(ne.getLeft()).isReference() ? 'a' : 'i', trueLabel);
-            instr(0, "goto %s", falseLabel);
+            if (ne.getLeft().getTypeAnnotation().isReference()) {
+                instructions.ifAcmpne(trueLabel);
+            } else {
+                instructions.ifIcmpne(trueLabel);
+            }
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof ANotExpression) {
             jump(((ANotExpression) expression).getExpression(), falseLabel, trueLabel);
         } else if (expression instanceof AIdentifierExpression ||
                    expression instanceof AMethodInvocationExpression) {
             expression.apply(this);
-            instr(1, "iconst_0");
-            instr(-2, "if_icmpne %s", trueLabel);
-            instr(0, "goto %s", falseLabel);
+            instructions.pushInt(0);
+            instructions.ifIcmpne(trueLabel);
+            instructions.gotoLabel(falseLabel);
         } else if (expression instanceof ATrueExpression) {
-            instr(0, "goto %s", trueLabel);
+            instructions.gotoLabel(trueLabel);
         } else if (expression instanceof AFalseExpression) {
-            instr(0, "goto %s", falseLabel);
+            instructions.gotoLabel(falseLabel);
         } else {
             throw new Error("jump: Unknown expression");
         }
@@ -187,31 +329,36 @@ public class JasminGenerator extends AnalysisAdapter {
 
     /**
      * Puts 1 or 0 on the stack based on the boolean value of {@code expression}, using
-     * {@code labelPrefix} as prefix for introduced labels.
+     * {@code labelPrefixes} as prefixes for the true, false and skip labels.
      */
-    private void booleanValue(PExpression expression, String labelPrefix) {
-        final String trueLabel = nextLabel(labelPrefix);
-        final String falseLabel = nextLabel("not_" + labelPrefix);
-        final String skipLabel = nextLabel("skip_" + labelPrefix);
+    private void booleanValue(PExpression expression, String[] labelPrefixes) {
+        final Label trueLabel = nextLabel(labelPrefixes[0]);
+        final Label falseLabel = nextLabel(labelPrefixes[1]);
+        final Label skipLabel = nextLabel(labelPrefixes[2]);
 
         jump(expression, trueLabel, falseLabel);
 
-        label(trueLabel);
-        instr(1, "iconst_1");
-        instr(0, "goto %s", skipLabel);
-        label(falseLabel);
-        instr(1, "iconst_0");
-        label(skipLabel);
+        instructions.label(trueLabel);
+        instructions.pushInt(1);
+        instructions.gotoLabel(skipLabel);
+        instructions.label(falseLabel);
+        instructions.pushInt(0);
+        instructions.label(skipLabel);
+    }
+
+    /** Returns the label prefixes for a boolean value with the given {@code prefix}. */
+    private static String[] booleanLabels(String prefix) {
+        return new String[] { prefix, "not_" + prefix, "skip_" + prefix };
     }
 
     /** Returns a new unique label with the given {@code prefix}. */
-    private String nextLabel(String prefix) {
-        Integer number = labelCounters.get(prefix);
-        if (number == null) {
-            number = 0;
+    private Label nextLabel(String prefix) {
+        int[] counter = labelCounters.get(prefix);
+        if (counter == null) {
+            counter = new int[1];
+            labelCounters.put(prefix, counter);
         }
-        labelCounters.put(prefix, number + 1);
-        return prefix + '_' + number;
+        return new Label(prefix, counter[0]++);
     }
 
     // Visitor methods below.
@@ -231,96 +378,100 @@ public class JasminGenerator extends AnalysisAdapter {
 
     @Override
     public void caseAMainClassDeclaration(final AMainClassDeclaration declaration) {
-        currentClass = symbolTable.getClassInfo(declaration.getName().getText());
-        currentMethod = currentClass.getMethod(declaration.getMethodName().getText());
-        currentMethod.enterBlock();
-        labelCounters.clear();
+        final Events.ClassGeneration event = Events.classGeneration();
+        event.begin();
+        final long start = out.getPosition();
 
-        result = new StringBuilder();
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
+        currentMethod = currentClass.getMethod(declaration.getMethodName().getSymbol());
+        labelCounters.clear();
 
-        direc("class public '%s'", currentClass.getName());
-        direc("super java/lang/Object");
-        nl();
+        beginClass(currentClass.getName());
+        out.nl();
 
-        // Default constructor.
-        maxStackSize = 0;
-        direc("method public <init>()V");
-        instr(1, "aload_0");
-        instr(-1, "invokenonvirtual java/lang/Object/<init>()V");
-        instr(-stackSize, "return");
-        direc("end method");
-        nl();
+        defaultConstructor();
+        out.nl();
 
         // Main method.
-        maxStackSize = 0;
-        direc("method public static main([Ljava/lang/String;)V");
-        direc("limit locals %d", 1 + currentMethod.getNumVariables());
+        final Events.MethodGeneration methodEvent = Events.methodGeneration();
+        methodEvent.begin();
+        final long methodStart = out.getPosition();
+        out.methodDirective(true, "main", "([Ljava/lang/String;)V");
+        out.limitLocals(1 + currentMethod.getNumVariables());
         for (Node variableDeclaration : declaration.getLocals()) {
             variableDeclaration.apply(this);
         }
         for (Node statement : declaration.getStatements()) {
             statement.apply(this);
         }
-        instr(-stackSize, "return");
-        direc("limit stack %d", maxStackSize);
-        direc("end method");
+        instructions.returnVoid();
+        writeInstructions();
+        out.limitStack(out.getMaxStackSize());
+        out.endMethod();
+        methodEvent.finish(currentClass.getName(), "main", declaration,
+                out.getPosition() - methodStart, out.getMaxStackSize());
 
-        handler.handle(currentClass.getName(), result);
+        endClass(currentClass.getName());
+        event.finish(currentClass.getName(), declaration, out.getPosition() - start);
 
-        currentMethod.leaveBlock();
         currentMethod = null;
         currentClass = null;
     }
 
     @Override
     public void caseAClassDeclaration(final AClassDeclaration declaration) {
-        currentClass = symbolTable.getClassInfo(declaration.getName().getText());
+        final Events.ClassGeneration event = Events.classGeneration();
+        event.begin();
+        final long start = out.getPosition();
 
-        result = new StringBuilder();
+        currentClass = symbolTable.getClassInfo(declaration.getName().getSymbol());
 
-        direc("class public '%s'", currentClass.getName());
-        direc("super java/lang/Object");
+        beginClass(currentClass.getName());
         for (Node fieldDeclaration : declaration.getFields()) {
             fieldDeclaration.apply(this);
         }
 
-        // Default constructor.
-        nl();
-        maxStackSize = 0;
-        direc("method public <init>()V");
-        instr(1, "aload_0");
-        instr(-1, "invokenonvirtual java/lang/Object/<init>()V");
-        instr(-stackSize, "return");
-        direc("end method");
-        nl();
-
-        for (Node methodDeclaration : declaration.getMethods()) {
-            methodDeclaration.apply(this);
+        out.nl();
+        defaultConstructor();
+        out.nl();
+
+        if (methodCode != null) {
+            for (CharSequence code : methodCode) {
+                out.code(code);
+            }
+        } else {
+            for (Node methodDeclaration : declaration.getMethods()) {
+                methodDeclaration.apply(this);
+            }
         }
 
-        handler.handle(currentClass.getName(), result);
+        endClass(currentClass.getName());
+        event.finish(currentClass.getName(), declaration, out.getPosition() - start);
 
         currentClass = null;
     }
 
     @Override
     public void caseAFieldDeclaration(final AFieldDeclaration declaration) {
-        final String fieldName = declaration.getName().getText();
-        final Type fieldType = currentClass.getField(fieldName).getType();
+        final TIdentifier fieldId = declaration.getName();
+        final String fieldName = fieldId.getText();
+        final Type fieldType = currentClass.getField(fieldId.getSymbol()).getType();
 
-        direc("field protected '%s' %s", fieldName, fieldType.descriptor());
+        out.fieldDirective(fieldName, fieldType.descriptor());
     }
 
     @Override
     public void caseAMethodDeclaration(final AMethodDeclaration declaration) {
-        currentMethod = currentClass.getMethod(declaration.getName().getText());
-        currentMethod.enterBlock();
+        final Events.MethodGeneration event = Events.methodGeneration();
+        event.begin();
+        final long start = out.getPosition();
+
+        currentMethod = currentClass.getMethod(declaration.getName().getSymbol());
         labelCounters.clear();
-        maxStackSize = 0;
 
-        nl();
-        direc("method public %s%s", currentMethod.getName(), currentMethod.descriptor());
-        direc("limit locals %d", 1 + currentMethod.getNumVariables());
+        out.nl();
+        out.methodDirective(false, currentMethod.getName(), currentMethod.descriptor());
+        out.limitLocals(1 + currentMethod.getNumVariables());
         for (Node formalDeclaration : declaration.getFormals()) {
             formalDeclaration.apply(this);
         }
@@ -328,257 +479,231 @@ public class JasminGenerator extends AnalysisAdapter {
             statement.apply(this);
         }
         declaration.getReturnExpression().apply(this);
-        instr(-stackSize, currentMethod.getReturnType().isReference() ? "areturn" : "ireturn");
-        direc("limit stack %d", maxStackSize);
-        direc("end method");
+        if (currentMethod.getReturnType().isReference()) {
+            instructions.areturn();
+        } else {
+            instructions.ireturn();
+        }
+        writeInstructions();
+        out.limitStack(out.getMaxStackSize());
+        out.endMethod();
+        event.finish(currentClass.getName(), currentMethod.getName(), declaration,
+                out.getPosition() - start, out.getMaxStackSize());
 
-        currentMethod.leaveBlock();
         currentMethod = null;
     }
 
     @Override
     public void caseABlockStatement(final ABlockStatement block) {
-        currentMethod.enterBlock();
         for (Node statement : block.getStatements()) {
             statement.apply(this);
         }
-        currentMethod.leaveBlock();
     }
 
     @Override
     public void caseAPrintlnStatement(final APrintlnStatement statement) {
-        String typeDescriptor = types.get(statement.getValue()).descriptor();
+        final String valueOfDescriptor = statement.getValue().getTypeAnnotation().isBoolean()
+                ? "(Z)Ljava/lang/String;"
+                : "(I)Ljava/lang/String;";
 
-        instr(1, "getstatic java/lang/System/out Ljava/io/PrintStream;");
+        instructions.getstatic("java/lang/System", "out", "Ljava/io/PrintStream;");
         statement.getValue().apply(this);
-        instr(0, "invokestatic java/lang/String/valueOf(%s)Ljava/lang/String;", typeDescriptor);
-        instr(-2, "invokevirtual java/io/PrintStream/println(Ljava/lang/String;)V");
+        instructions.invokestatic("java/lang/String", "valueOf", valueOfDescriptor);
+        instructions.invokevirtual("java/io/PrintStream", "println", "(Ljava/lang/String;)V");
     }
 
     @Override
     public void caseAIfStatement(final AIfStatement statement) {
-        final String trueLabel = nextLabel("if_true");
-        final String falseLabel = nextLabel("if_false");
+        final Label trueLabel = nextLabel("if_true");
+        final Label falseLabel = nextLabel("if_false");
 
         jump(statement.getCondition(), trueLabel, falseLabel);
-        label(trueLabel);
+        instructions.label(trueLabel);
         statement.getStatement().apply(this);
-        label(falseLabel);
+        instructions.label(falseLabel);
     }
 
     @Override
     public void caseAIfElseStatement(final AIfElseStatement statement) {
-        final String trueLabel = nextLabel("if_else_true");
-        final String falseLabel = nextLabel("if_else_false");
-        final String endLabel = nextLabel("if_else_end");
+        final Label trueLabel = nextLabel("if_else_true");
+        final Label falseLabel = nextLabel("if_else_false");
+        final Label endLabel = nextLabel("if_else_end");
 
         jump(statement.getCondition(), trueLabel, falseLabel);
-        label(trueLabel);
+        instructions.label(trueLabel);
         statement.getThen().apply(this);
-        instr(0, "goto %s", endLabel);
-        label(falseLabel);
+        instructions.gotoLabel(endLabel);
+        instructions.label(falseLabel);
         statement.getElse().apply(this);
-        label(endLabel);
+        instructions.label(endLabel);
     }
 
     @Override
     public void caseAWhileStatement(final AWhileStatement statement) {
-        final String loopLabel = nextLabel("while");
-        final String trueLabel = nextLabel("while_true");
-        final String endLabel = nextLabel("while_end");
+        final Label loopLabel = nextLabel("while");
+        final Label trueLabel = nextLabel("while_true");
+        final Label endLabel = nextLabel("while_end");
 
-        label(loopLabel);
+        instructions.label(loopLabel);
         jump(statement.getCondition(), trueLabel, endLabel);
-        label(trueLabel);
+        instructions.label(trueLabel);
         statement.getStatement().apply(this);
-        instr(0, "goto %s", loopLabel);
-        label(endLabel);
+        instructions.gotoLabel(loopLabel);
+        instructions.label(endLabel);
     }
 
     @Override
     public void caseAAssignStatement(final AAssignStatement statement) {
-        final String id = statement.getName().getText();
-        final VariableInfo localInfo, paramInfo, fieldInfo;
+        final VariableInfo variable = statement.getName().getVariable();
 
-        if ((localInfo = currentMethod.getLocal(id)) != null) {
-            final Type type = localInfo.getType();
-            statement.getValue().apply(this);
-            instr(-1, "%s %d", type.isReference() ? "astore" : "istore", localInfo.getIndex());
-        } else if ((paramInfo = currentMethod.getParameter(id)) != null) {
-            final Type type = paramInfo.getType();
+        if (variable.isField()) {
+            final String typeDescriptor = variable.getType().descriptor();
+            instructions.aload(0);
             statement.getValue().apply(this);
-            instr(-1, "%s %d", type.isReference() ? "astore" : "istore", paramInfo.getIndex());
-        } else if ((fieldInfo = currentClass.getField(id)) != null) {
-            final String typeDescriptor = fieldInfo.getType().descriptor();
-            instr(1, "aload_0");
+            instructions.putfield(currentClass.getName(), variable.getName(), typeDescriptor);
+        } else {
             statement.getValue().apply(this);
-            instr(-2, "putfield %s/%s %s", currentClass.getName(), id, typeDescriptor);
+            store(variable);
         }
     }
 
     @Override
     public void caseAArrayAssignStatement(final AArrayAssignStatement statement) {
-        final String id = statement.getName().getText();
-        final VariableInfo localInfo, paramInfo, fieldInfo;
-
-        if ((localInfo = currentMethod.getLocal(id)) != null) {
-            instr(1, "aload %d", localInfo.getIndex());
-        } else if ((paramInfo = currentMethod.getParameter(id)) != null) {
-            instr(1, "aload %d", paramInfo.getIndex());
-        } else if ((fieldInfo = currentClass.getField(id)) != null) {
-            final String typeDescriptor = fieldInfo.getType().descriptor();
-            instr(1, "aload_0");
-            instr(0, "getfield %s/%s %s", currentClass.getName(), id, typeDescriptor);
-        }
+        load(statement.getName().getVariable());
         statement.getIndex().apply(this);
         statement.getValue().apply(this);
-        instr(-3, "iastore");
+        instructions.iastore();
     }
 
     @Override
     public void caseAAndExpression(final AAndExpression expression) {
-        booleanValue(expression, "and");
+        booleanValue(expression, AND_LABELS);
     }
 
     @Override
     public void caseAOrExpression(final AOrExpression expression) {
-        booleanValue(expression, "or");
+        booleanValue(expression, OR_LABELS);
     }
 
     @Override
     public void caseALessThanExpression(final ALessThanExpression expression) {
-        booleanValue(expression, "lt");
+        booleanValue(expression, LT_LABELS);
     }
 
     @Override
     public void caseALessEqualThanExpression(final ALessEqualThanExpression expression) {
-        booleanValue(expression, "le");
+        booleanValue(expression, LE_LABELS);
     }
 
     @Override
     public void caseAGreaterThanExpression(final AGreaterThanExpression expression) {
-        booleanValue(expression, "gt");
+        booleanValue(expression, GT_LABELS);
     }
 
     @Override
     public void caseAGreaterEqualThanExpression(final AGreaterEqualThanExpression expression) {
-        booleanValue(expression, "ge");
+        booleanValue(expression, GE_LABELS);
     }
 
     @Override
     public void caseAEqualExpression(final AEqualExpression expression) {
-        booleanValue(expression, "eq");
+        booleanValue(expression, EQ_LABELS);
     }
 
     @Override
     public void caseANotEqualExpression(final ANotEqualExpression expression) {
-        booleanValue(expression, "ne");
+        booleanValue(expression, NE_LABELS);
     }
 
     @Override
     public void caseAPlusExpression(final APlusExpression expression) {
         expression.getLeft().apply(this);
         expression.getRight().apply(this);
-        instr(-1, "iadd");
+        instructions.iadd();
     }
 
     @Override
     public void caseAMinusExpression(final AMinusExpression expression) {
         expression.getLeft().apply(this);
         expression.getRight().apply(this);
-        instr(-1, "isub");
+        instructions.isub();
     }
 
     @Override
     public void caseATimesExpression(final ATimesExpression expression) {
         expression.getLeft().apply(this);
         expression.getRight().apply(this);
-        instr(-1, "imul");
+        instructions.imul();
     }
 
     @Override
     public void caseANewInstanceExpression(final ANewInstanceExpression expression) {
         final String className = expression.getClassName().getText();
-        instr(1, "new '%s'", className);
-        instr(1, "dup");
-        instr(-1, "invokespecial %s/<init>()V", className);
+        instructions.newInstance(className);
+        instructions.dup();
+        instructions.invokespecial(className, "<init>", "()V");
     }
 
     @Override
     public void caseANewIntArrayExpression(final ANewIntArrayExpression expression) {
         expression.getSize().apply(this);
-        instr(0, "newarray int");
+        instructions.newarrayInt();
     }
 
     @Override
     public void caseAIntegerExpression(final AIntegerExpression expression) {
-        instr(1, "ldc %d", Integer.valueOf(expression.getInteger().getText()));
+        instructions.pushInt(Integer.parseInt(expression.getInteger().getText()));
     }
 
     @Override
     public void caseATrueExpression(final ATrueExpression expression) {
-        instr(1, "iconst_1");
+        instructions.pushInt(1);
     }
 
     @Override
     public void caseAFalseExpression(final AFalseExpression expression) {
-        instr(1, "iconst_0");
+        instructions.pushInt(0);
     }
 
     @Override
     public void caseANotExpression(final ANotExpression expression) {
-        instr(1, "iconst_1");
+        instructions.pushInt(1);
         expression.getExpression().apply(this);
-        instr(-1, "isub");
+        instructions.isub();
     }
 
     @Override
     public void caseAMethodInvocationExpression(final AMethodInvocationExpression expression) {
-        final Type type = types.get(expression.getInstance());
-        final ClassInfo classInfo = symbolTable.getClassInfo(type.getName());
-        final MethodInfo methodInfo = classInfo.getMethod(expression.getName().getText());
+        final Type type = expression.getInstance().getTypeAnnotation();
+        final MethodInfo methodInfo = expression.getName().getMethod();
 
         expression.getInstance().apply(this);
         for (Node actualParameter : expression.getActuals()) {
             actualParameter.apply(this);
         }
-        instr(-expression.getActuals().size(), "invokevirtual %s/%s%s",
-                classInfo.getName(), methodInfo.getName(), methodInfo.descriptor());
+        instructions.invokevirtual(type.getName(), methodInfo.getName(), methodInfo.descriptor());
     }
 
     @Override
     public void caseAArrayAccessExpression(final AArrayAccessExpression expression) {
         expression.getArray().apply(this);
         expression.getIndex().apply(this);
-        instr(-1, "iaload");
+        instructions.iaload();
     }
 
     @Override
     public void caseAArrayLengthExpression(final AArrayLengthExpression expression) {
         expression.getArray().apply(this);
-        instr(0, "arraylength");
+        instructions.arraylength();
     }
 
     @Override
     public void caseAIdentifierExpression(final AIdentifierExpression expression) {
-        final String id = expression.getIdentifier().getText();
-        final VariableInfo localInfo, paramInfo, fieldInfo;
-
-        if ((localInfo = currentMethod.getLocal(id)) != null) {
-            final Type type = localInfo.getType();
-            instr(1, "%s %d", type.isReference() ? "aload" : "iload", localInfo.getIndex());
-        } else if ((paramInfo = currentMethod.getParameter(id)) != null) {
-            final Type type = paramInfo.getType();
-            instr(1, "%s %d", type.isReference() ? "aload" : "iload", paramInfo.getIndex());
-        } else if ((fieldInfo = currentClass.getField(id)) != null) {
-            final String typeDescriptor = fieldInfo.getType().descriptor();
-            instr(1, "aload_0");
-            instr(0, "getfield %s/%s %s", currentClass.getName(), id, typeDescriptor);
-        }
+        load(expression.getIdentifier().getVariable());
     }
 
     @Override
     public void caseAThisExpression(final AThisExpression expression) {
-        instr(1, "aload_0");
+        instructions.aload(0);
     }
 }
@@ -0,0 +1,26 @@
+package mjc.jasmin;
+
+import java.io.IOException;
+
+/**
+ * The JasminStreamHandler interface specifies a handler of Jasmin code that receives
+ * the code of each class as it is generated, instead of all at once.
+ */
+public interface JasminStreamHandler {
+    /**
+     * Called before code for a class is generated.
+     *
+     * @param className Name of the class for which code will be generated.
+     * @return Appendable to which the code for the class should be written.
+     * @throws IOException if an I/O error occurred.
+     */
+    Appendable begin(String className) throws IOException;
+
+    /**
+     * Called after all code for a class has been written.
+     *
+     * @param className Name of the class for which code was generated.
+     * @throws IOException if an I/O error occurred.
+     */
+    void end(String className) throws IOException;
+}
@@ -0,0 +1,464 @@
+package mjc.jasmin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * A streaming writer of Jasmin assembly code.
+ *
+ * JasminWriter has one method for each directive and instruction used by the code
+ * generator. The text is written into an internal character buffer without any
+ * intermediate strings or formatting, and the buffer is passed on to the underlying
+ * {@link Appendable} whenever it fills up and when {@link #flush()} is called. If the
+ * Appendable is a {@link Writer}, the buffer is written using
+ * {@link Writer#write(char[], int, int)}.
+ *
+ * The writer also keeps track of the operand stack size within the current method,
+ * which is available through {@link #getMaxStackSize()}.
+ *
+ * An IOException from the underlying Appendable is thrown as an
+ * {@link UncheckedIOException}, since the writer is called from visitor methods that
+ * may not throw checked exceptions.
+ */
+public class JasminWriter {
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] INDENT = { ' ', ' ', ' ', ' ' };
+    private static final String[] ICONST = { "iconst_m1", "iconst_0", "iconst_1",
+            "iconst_2", "iconst_3", "iconst_4", "iconst_5" };
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+    private long flushed; // Number of characters passed on so far.
+
+    private Appendable out;
+
+    private int stackSize;
+    private int maxStackSize;
+
+    /**
+     * Constructs a new JasminWriter.
+     *
+     * @param out Appendable to write to, or null if it will be set later using
+     *            {@link #setOut(Appendable)}.
+     */
+    public JasminWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Sets the Appendable to write to.
+     *
+     * Any buffered output should be flushed using {@link #flush()} before calling this
+     * method.
+     *
+     * @param out Appendable to write to.
+     */
+    public void setOut(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Passes all buffered output on to the underlying Appendable.
+     */
+    public void flush() {
+        if (length == 0) {
+            return;
+        }
+        try {
+            if (out instanceof Writer) {
+                ((Writer) out).write(buffer, 0, length);
+            } else {
+                out.append(CharBuffer.wrap(buffer, 0, length));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushed += length;
+        length = 0;
+    }
+
+    /**
+     * @return Number of characters written so far, to any Appendable.
+     */
+    public long getPosition() {
+        return flushed + length;
+    }
+
+    /**
+     * @return Max stack size of the current method so far.
+     */
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    // Directives.
+
+    /** Writes a {@code .class public} directive. */
+    public void classDirective(String name) {
+        put(".class public '").put(name).put('\'').nl();
+    }
+
+    /** Writes a {@code .super} directive. */
+    public void superDirective(String name) {
+        put(".super ").put(name).nl();
+    }
+
+    /** Writes a {@code .field protected} directive. */
+    public void fieldDirective(String name, String descriptor) {
+        put(".field protected '").put(name).put("' ").put(descriptor).nl();
+    }
+
+    /**
+     * Writes a {@code .method public} directive and resets the stack size tracking.
+     *
+     * @param isStatic true if the method is static.
+     * @param name Name of the method.
+     * @param descriptor Type descriptor of the method.
+     */
+    public void methodDirective(boolean isStatic, String name, String descriptor) {
+        put(isStatic ? ".method public static " : ".method public ").put(name).put(descriptor).nl();
+        stackSize = 0;
+        maxStackSize = 0;
+    }
+
+    /** Writes a {@code .limit locals} directive. */
+    public void limitLocals(int locals) {
+        put(".limit locals ").put(locals).nl();
+    }
+
+    /** Writes a {@code .limit stack} directive. */
+    public void limitStack(int stack) {
+        put(".limit stack ").put(stack).nl();
+    }
+
+    /** Writes an {@code .end method} directive. */
+    public void endMethod() {
+        put(".end method").nl();
+    }
+
+    /** Writes a label. */
+    public void label(Label label) {
+        put(label).put(':').nl();
+    }
+
+    /** Writes an empty line. */
+    public void nl() {
+        put('\n');
+    }
+
+    /**
+     * Writes code that was generated separately, e.g. by another JasminWriter.
+     *
+     * @param code Jasmin code to write.
+     */
+    public void code(CharSequence code) {
+        flush();
+        try {
+            out.append(code);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Instructions. Loads, stores and int constants use the shortest encoding.
+
+    public void aload(int index) {
+        varInsn(1, "aload", index);
+    }
+
+    public void iload(int index) {
+        varInsn(1, "iload", index);
+    }
+
+    public void astore(int index) {
+        varInsn(-1, "astore", index);
+    }
+
+    public void istore(int index) {
+        varInsn(-1, "istore", index);
+    }
+
+    /**
+     * Writes the shortest instruction that pushes {@code value}: {@code iconst_<n>},
+     * {@code bipush}, {@code sipush} or {@code ldc}.
+     */
+    public void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            insn(1, ICONST[value + 1]);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            insn(1, "bipush ", value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            insn(1, "sipush ", value);
+        } else {
+            insn(1, "ldc ", value);
+        }
+    }
+
+    public void iinc(int index, int increment) {
+        indent().put("iinc ").put(index).put(' ').put(increment).nl();
+    }
+
+    public void iadd() {
+        insn(-1, "iadd");
+    }
+
+    public void isub() {
+        insn(-1, "isub");
+    }
+
+    public void imul() {
+        insn(-1, "imul");
+    }
+
+    public void iaload() {
+        insn(-1, "iaload");
+    }
+
+    public void iastore() {
+        insn(-3, "iastore");
+    }
+
+    public void arraylength() {
+        insn(0, "arraylength");
+    }
+
+    public void dup() {
+        insn(1, "dup");
+    }
+
+    public void newInstance(String className) {
+        indent().put("new '").put(className).put('\'').nl();
+        stack(1);
+    }
+
+    public void newarrayInt() {
+        insn(0, "newarray int");
+    }
+
+    public void returnVoid() {
+        insn(-stackSize, "return");
+    }
+
+    public void ireturn() {
+        insn(-stackSize, "ireturn");
+    }
+
+    public void areturn() {
+        insn(-stackSize, "areturn");
+    }
+
+    public void getstatic(String owner, String name, String descriptor) {
+        member(1, "getstatic ", owner, name).put(' ').put(descriptor).nl();
+    }
+
+    public void getfield(String owner, String name, String descriptor) {
+        member(0, "getfield ", owner, name).put(' ').put(descriptor).nl();
+    }
+
+    public void putfield(String owner, String name, String descriptor) {
+        member(-2, "putfield ", owner, name).put(' ').put(descriptor).nl();
+    }
+
+    public void invokevirtual(String owner, String name, String descriptor) {
+        member(invokeStackChange(descriptor) - 1, "invokevirtual ", owner, name).put(descriptor).nl();
+    }
+
+    public void invokespecial(String owner, String name, String descriptor) {
+        member(invokeStackChange(descriptor) - 1, "invokespecial ", owner, name).put(descriptor).nl();
+    }
+
+    public void invokestatic(String owner, String name, String descriptor) {
+        member(invokeStackChange(descriptor), "invokestatic ", owner, name).put(descriptor).nl();
+    }
+
+    public void ifeq(Label label) {
+        jump(-1, "ifeq ", label);
+    }
+
+    public void ifne(Label label) {
+        jump(-1, "ifne ", label);
+    }
+
+    public void iflt(Label label) {
+        jump(-1, "iflt ", label);
+    }
+
+    public void ifge(Label label) {
+        jump(-1, "ifge ", label);
+    }
+
+    public void ifgt(Label label) {
+        jump(-1, "ifgt ", label);
+    }
+
+    public void ifle(Label label) {
+        jump(-1, "ifle ", label);
+    }
+
+    public void ifIcmplt(Label label) {
+        jump(-2, "if_icmplt ", label);
+    }
+
+    public void ifIcmple(Label label) {
+        jump(-2, "if_icmple ", label);
+    }
+
+    public void ifIcmpgt(Label label) {
+        jump(-2, "if_icmpgt ", label);
+    }
+
+    public void ifIcmpge(Label label) {
+        jump(-2, "if_icmpge ", label);
+    }
+
+    public void ifIcmpeq(Label label) {
+        jump(-2, "if_icmpeq ", label);
+    }
+
+    public void ifIcmpne(Label label) {
+        jump(-2, "if_icmpne ", label);
+    }
+
+    public void ifAcmpeq(Label label) {
+        jump(-2, "if_acmpeq ", label);
+    }
+
+    public void ifAcmpne(Label label) {
+        jump(-2, "if_acmpne ", label);
+    }
+
+    public void gotoLabel(Label label) {
+        jump(0, "goto ", label);
+    }
+
+    // Helper methods.
+
+    private void insn(int stackChange, String mnemonic) {
+        indent().put(mnemonic).nl();
+        stack(stackChange);
+    }
+
+    private void insn(int stackChange, String mnemonic, int operand) {
+        indent().put(mnemonic).put(operand).nl();
+        stack(stackChange);
+    }
+
+    /** Writes a local variable instruction, using {@code <mnemonic>_<n>} if possible. */
+    private void varInsn(int stackChange, String mnemonic, int index) {
+        indent().put(mnemonic);
+        if (index <= 3) {
+            put('_').put(index).nl();
+        } else {
+            put(' ').put(index).nl();
+        }
+        stack(stackChange);
+    }
+
+    private void jump(int stackChange, String mnemonic, Label label) {
+        indent().put(mnemonic).put(label).nl();
+        stack(stackChange);
+    }
+
+    private JasminWriter member(int stackChange, String mnemonic, String owner, String name) {
+        stack(stackChange);
+        return indent().put(mnemonic).put(owner).put('/').put(name);
+    }
+
+    /**
+     * Returns the stack size change of invoking a static method with the type
+     * descriptor {@code descriptor}. All MiniJava types take a single stack slot.
+     */
+    private static int invokeStackChange(String descriptor) {
+        int change = descriptor.charAt(descriptor.length() - 1) == 'V' ? 0 : 1;
+        for (int i = 1; descriptor.charAt(i) != ')'; ++i) {
+            while (descriptor.charAt(i) == '[') {
+                ++i;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            --change;
+        }
+        return change;
+    }
+
+    private void stack(int change) {
+        stackSize += change;
+        maxStackSize = Math.max(maxStackSize, stackSize);
+    }
+
+    private JasminWriter indent() {
+        reserve(INDENT.length);
+        System.arraycopy(INDENT, 0, buffer, length, INDENT.length);
+        length += INDENT.length;
+        return this;
+    }
+
+    private JasminWriter put(char c) {
+        reserve(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    private JasminWriter put(String s) {
+        final int n = s.length();
+        if (n > BUFFER_SIZE) {
+            flush();
+            try {
+                out.append(s);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        reserve(n);
+        s.getChars(0, n, buffer, length);
+        length += n;
+        return this;
+    }
+
+    private JasminWriter put(int i) {
+        reserve(11);
+        if (i < 0) {
+            buffer[length++] = '-';
+        } else {
+            i = -i; // Work with negative numbers to handle Integer.MIN_VALUE.
+        }
+        int digits = 1;
+        for (int j = i; j <= -10; j /= 10) {
+            ++digits;
+        }
+        for (int pos = length + digits - 1; pos >= length; --pos) {
+            buffer[pos] = (char) ('0' - i % 10);
+            i /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    private JasminWriter put(Label label) {
+        return put(label.getPrefix()).put('_').put(label.getNumber());
+    }
+
+    private void reserve(int n) {
+        if (length + n > BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Thrown when the underlying Appendable throws an IOException.
+     */
+    @SuppressWarnings("serial")
+    public static class UncheckedIOException extends RuntimeException {
+        UncheckedIOException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package mjc.jasmin;
+
+/**
+ * A Jasmin label, written as {@code <prefix>_<number>}.
+ */
+public class Label {
+    private final String prefix;
+    private final int number;
+
+    /**
+     * Constructs a new label.
+     *
+     * @param prefix Prefix of the label name.
+     * @param number Number of the label, unique for the prefix within a method.
+     */
+    public Label(String prefix, int number) {
+        this.prefix = prefix;
+        this.number = number;
+    }
+
+    /**
+     * @return Prefix of the label name.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return Number of the label.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return prefix + '_' + number;
+    }
+}
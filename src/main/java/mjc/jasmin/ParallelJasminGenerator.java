@@ -0,0 +1,187 @@
+package mjc.jasmin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.node.AClassDeclaration;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.AMethodDeclaration;
+import mjc.node.Node;
+import mjc.node.PMethodDeclaration;
+import mjc.symbol.SymbolTable;
+
+/**
+ * The ParallelJasminGenerator class generates Jasmin code from the AST using a
+ * {@link ForkJoinPool}.
+ *
+ * Each class is generated by a task of its own, with its own {@link JasminGenerator}.
+ * Classes with at least {@link #SPLIT_METHODS} methods are split further, so that each
+ * method is generated by a task of its own.
+ *
+ * The code of each class is held in memory until it is complete, and is then passed to
+ * the handler on the thread that called {@link #generate(Node, SymbolTable)}. The
+ * classes are passed to the handler in the same order as with a JasminGenerator, so
+ * the output does not depend on the number of threads.
+ *
+ * The AST must have been checked by the {@link mjc.analysis.TypeChecker} without
+ * errors, and must not be changed while the code is generated.
+ */
+public class ParallelJasminGenerator {
+
+    /** The number of methods from which the methods of a class are generated in parallel. */
+    public static final int SPLIT_METHODS = 8;
+
+    private final JasminStreamHandler handler;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a ParallelJasminGenerator that passes the code of each class to
+     * {@code handler}.
+     *
+     * @param handler Handler of generated code.
+     * @param pool Pool in which the code is generated.
+     */
+    public ParallelJasminGenerator(final JasminHandler handler, ForkJoinPool pool) {
+        this.handler = new JasminStreamHandler() {
+            private StringBuilder code;
+
+            public Appendable begin(String className) {
+                return code = new StringBuilder();
+            }
+
+            public void end(String className) {
+                handler.handle(className, code);
+                code = null;
+            }
+        };
+        this.pool = pool;
+    }
+
+    /**
+     * Constructs a ParallelJasminGenerator that writes the code of each class to
+     * {@code handler}.
+     *
+     * @param handler Handler of generated code.
+     * @param pool Pool in which the code is generated.
+     */
+    public ParallelJasminGenerator(JasminStreamHandler handler, ForkJoinPool pool) {
+        this.handler = handler;
+        this.pool = pool;
+    }
+
+    /**
+     * Generates Jasmin code.
+     *
+     * The handler passed in during construction will be called for each generated
+     * class, on the calling thread, in the order the classes are declared with the main
+     * class first.
+     *
+     * @param ast Input AST.
+     * @param symbolTable Input symbol table.
+     * @throws IOException if the handler failed with an I/O error.
+     */
+    public void generate(Node ast, final SymbolTable symbolTable) throws IOException {
+        // Start a task for each class.
+        final List<ForkJoinTask<ClassCode>> tasks = new ArrayList<>();
+        ast.apply(new DepthFirstAdapter() {
+            @Override
+            public void caseAMainClassDeclaration(AMainClassDeclaration declaration) {
+                tasks.add(pool.submit(new ClassTask(declaration, symbolTable)));
+            }
+
+            @Override
+            public void caseAClassDeclaration(AClassDeclaration declaration) {
+                tasks.add(pool.submit(new ClassTask(declaration, symbolTable)));
+            }
+        });
+
+        // Pass the code to the handler in order, as the classes complete.
+        for (ForkJoinTask<ClassCode> task : tasks) {
+            final ClassCode classCode = task.join();
+            handler.begin(classCode.name).append(classCode.code);
+            handler.end(classCode.name);
+        }
+    }
+
+    /**
+     * The generated code of a class.
+     */
+    private static class ClassCode {
+        private String name;
+        private StringBuilder code;
+    }
+
+    /**
+     * Task that generates the code of a class.
+     */
+    private static class ClassTask extends RecursiveTask<ClassCode> {
+        private final Node declaration;
+        private final SymbolTable symbolTable;
+
+        public ClassTask(Node declaration, SymbolTable symbolTable) {
+            this.declaration = declaration;
+            this.symbolTable = symbolTable;
+        }
+
+        @Override
+        protected ClassCode compute() {
+            final ClassCode result = new ClassCode();
+            final JasminGenerator generator = new JasminGenerator(new JasminHandler() {
+                public void handle(String className, StringBuilder code) {
+                    result.name = className;
+                    result.code = code;
+                }
+            });
+
+            try {
+                if (declaration instanceof AClassDeclaration &&
+                        ((AClassDeclaration) declaration).getMethods().size() >= SPLIT_METHODS) {
+                    final AClassDeclaration classDeclaration = (AClassDeclaration) declaration;
+                    final List<MethodTask> methodTasks = new ArrayList<>();
+                    for (PMethodDeclaration method : classDeclaration.getMethods()) {
+                        methodTasks.add(new MethodTask((AMethodDeclaration) method, symbolTable));
+                    }
+                    invokeAll(methodTasks);
+
+                    final List<StringBuilder> methodCode = new ArrayList<>();
+                    for (MethodTask task : methodTasks) {
+                        methodCode.add(task.join());
+                    }
+                    generator.generate(classDeclaration, symbolTable, methodCode);
+                } else {
+                    generator.generate(declaration, symbolTable);
+                }
+            } catch (IOException e) {
+                // The generator only writes to memory.
+                throw new Error("ClassTask.compute: Unexpected I/O error", e);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Task that generates the code of a method.
+     */
+    private static class MethodTask extends RecursiveTask<StringBuilder> {
+        private final AMethodDeclaration declaration;
+        private final SymbolTable symbolTable;
+
+        public MethodTask(AMethodDeclaration declaration, SymbolTable symbolTable) {
+            this.declaration = declaration;
+            this.symbolTable = symbolTable;
+        }
+
+        @Override
+        protected StringBuilder compute() {
+            final StringBuilder code = new StringBuilder();
+            new JasminGenerator().generateMethod(declaration, symbolTable, code);
+            return code;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package mjc.jasmin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * The PeepholeOptimizer class improves the code of a method by rewriting short
+ * sequences of instructions in an {@link InstructionList}.
+ *
+ * The code generator emits instructions one at a time, without looking back, so that
+ * e.g. a condition on a boolean variable becomes
+ * {@code iload; iconst_0; if_icmpne T; goto F; T:}. The optimizer applies the rules
+ * below until none of them applies, which turns that into {@code iload; ifeq F}:
+ *
+ * <ul>
+ * <li>A comparison with a pushed zero, {@code iconst_0; if_icmp<cond>}, becomes
+ *     {@code if<cond>}.</li>
+ * <li>A conditional jump over a {@code goto}, {@code if<cond> T; goto F; T:}, becomes
+ *     {@code if<!cond> F; T:}.</li>
+ * <li>A {@code goto} to a label placed right after it is removed.</li>
+ * <li>A jump to a {@code goto} jumps to the target of the {@code goto} instead.</li>
+ * <li>Code that can not be reached, after a {@code goto} or return and before the next
+ *     label that is jumped to, is removed, along with labels that are not jumped to.</li>
+ * <li>A store of a variable to itself, {@code iload n; istore n}, is removed, and an
+ *     update by a constant, {@code iload n; ldc k; iadd; istore n}, becomes
+ *     {@code iinc n k}.</li>
+ * <li>Arithmetic on two constants is replaced by its result.</li>
+ * </ul>
+ *
+ * Each round of the optimizer is a single pass over the code, so the time taken is
+ * proportional to the size of the method times the number of rounds, which is small.
+ * Int constants are written with the shortest encoding by the {@link JasminWriter} and
+ * the {@link mjc.bytecode.MethodWriter}.
+ */
+public final class PeepholeOptimizer {
+
+    private PeepholeOptimizer() {
+    }
+
+    /**
+     * Optimizes the code of a method.
+     *
+     * @param list Instructions and labels of the method, which are replaced by the
+     *             optimized code.
+     */
+    public static void optimize(InstructionList list) {
+        final List<Instruction> code = list.instructions();
+        boolean changed;
+        do {
+            final Set<Label> targets = threadJumps(code);
+            final List<Instruction> optimized = new ArrayList<>(code.size());
+            changed = rewrite(code, targets, optimized);
+            code.clear();
+            code.addAll(optimized);
+        } while (changed);
+    }
+
+    /**
+     * Makes each jump to a {@code goto} jump to its final target, and returns the
+     * labels that are jumped to.
+     */
+    private static Set<Label> threadJumps(List<Instruction> code) {
+        // The first instruction after each label.
+        final Map<Label, Instruction> next = new HashMap<>();
+        final List<Label> pending = new ArrayList<>();
+        for (Instruction instruction : code) {
+            if (instruction.opcode == Instruction.LABEL) {
+                pending.add(instruction.label);
+            } else {
+                for (Label label : pending) {
+                    next.put(label, instruction);
+                }
+                pending.clear();
+            }
+        }
+
+        final Set<Label> targets = new HashSet<>();
+        for (int i = 0; i < code.size(); i++) {
+            final Instruction instruction = code.get(i);
+            if (instruction.isJump()) {
+                final Label target = finalTarget(instruction.label, next);
+                if (target != instruction.label) {
+                    code.set(i, Instruction.jump(instruction.opcode, target));
+                }
+                targets.add(target);
+            }
+        }
+        return targets;
+    }
+
+    /** Follows a chain of {@code goto} instructions from {@code label}, stopping at a loop. */
+    private static Label finalTarget(Label label, Map<Label, Instruction> next) {
+        final Set<Label> visited = new HashSet<>();
+        visited.add(label);
+        Instruction instruction = next.get(label);
+        while (instruction != null && instruction.opcode == GOTO &&
+                visited.add(instruction.label)) {
+            label = instruction.label;
+            instruction = next.get(label);
+        }
+        return label;
+    }
+
+    /**
+     * Applies the rules to {@code code} in a single pass, adding the result to
+     * {@code optimized}.
+     *
+     * @return true if any rule applied.
+     */
+    private static boolean rewrite(List<Instruction> code, Set<Label> targets,
+            List<Instruction> optimized) {
+        boolean changed = false;
+        boolean reachable = true;
+        int i = 0;
+        while (i < code.size()) {
+            final Instruction instruction = code.get(i);
+            if (instruction.opcode == Instruction.LABEL) {
+                if (targets.contains(instruction.label)) {
+                    optimized.add(instruction);
+                    reachable = true;
+                } else {
+                    changed = true;
+                }
+                ++i;
+                continue;
+            } else if (!reachable) {
+                changed = true;
+                ++i;
+                continue;
+            }
+
+            int consumed = compareWithZero(code, i, optimized);
+            if (consumed == 0) {
+                consumed = invertJump(code, i, optimized);
+            }
+            if (consumed == 0) {
+                consumed = removeJumpToNext(code, i);
+            }
+            if (consumed == 0) {
+                consumed = foldLoadStore(code, i, optimized);
+            }
+            if (consumed == 0) {
+                consumed = foldConstants(code, i, optimized);
+            }
+            if (consumed == 0) {
+                optimized.add(instruction);
+                consumed = 1;
+            } else {
+                changed = true;
+            }
+            i += consumed;
+
+            if (!optimized.isEmpty() &&
+                    optimized.get(optimized.size() - 1).isUnconditionalTransfer()) {
+                reachable = false;
+            }
+        }
+        return changed;
+    }
+
+    // Rules. Each returns the number of instructions it replaced, or 0 if it does not
+    // apply at position i.
+
+    /** {@code iconst_0; if_icmp<cond> L} becomes {@code if<cond> L}. */
+    private static int compareWithZero(List<Instruction> code, int i,
+            List<Instruction> optimized) {
+        final Instruction jump = get(code, i + 1);
+        if (isPush(code.get(i), 0) && jump != null &&
+                jump.opcode >= IF_ICMPEQ && jump.opcode <= IF_ICMPLE) {
+            optimized.add(Instruction.jump(jump.opcode - (IF_ICMPEQ - IFEQ), jump.label));
+            return 2;
+        }
+        return 0;
+    }
+
+    /** {@code if<cond> T; goto F; T:} becomes {@code if<!cond> F; T:}. */
+    private static int invertJump(List<Instruction> code, int i, List<Instruction> optimized) {
+        final Instruction jump = code.get(i);
+        final Instruction gotoF = get(code, i + 1);
+        if (jump.isConditionalJump() && gotoF != null && gotoF.opcode == GOTO &&
+                isPlacedAt(code, i + 2, jump.label)) {
+            // The opcodes of the conditional jumps come in pairs of opposite
+            // conditions, starting with an odd opcode.
+            final int inverted = jump.opcode % 2 == 1 ? jump.opcode + 1 : jump.opcode - 1;
+            optimized.add(Instruction.jump(inverted, gotoF.label));
+            return 2;
+        }
+        return 0;
+    }
+
+    /** {@code goto L; L:} becomes {@code L:}. */
+    private static int removeJumpToNext(List<Instruction> code, int i) {
+        final Instruction jump = code.get(i);
+        return jump.opcode == GOTO && isPlacedAt(code, i + 1, jump.label) ? 1 : 0;
+    }
+
+    /**
+     * {@code iload n; istore n} is removed, and {@code iload n; ldc k; iadd; istore n}
+     * becomes {@code iinc n k}.
+     */
+    private static int foldLoadStore(List<Instruction> code, int i,
+            List<Instruction> optimized) {
+        final Instruction load = code.get(i);
+        final Instruction second = get(code, i + 1);
+        if (second == null || load.opcode != ILOAD && load.opcode != ALOAD) {
+            return 0;
+        }
+        if (second.opcode == load.opcode + (ISTORE - ILOAD) && second.index == load.index) {
+            return 2;
+        }
+
+        final Instruction operation = get(code, i + 2);
+        final Instruction store = get(code, i + 3);
+        if (load.opcode == ILOAD && second.opcode == LDC && operation != null &&
+                (operation.opcode == IADD || operation.opcode == ISUB) && store != null &&
+                store.opcode == ISTORE && store.index == load.index && load.index <= 0xff) {
+            final long increment = operation.opcode == IADD
+                    ? (long) second.value
+                    : -(long) second.value;
+            if (increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE) {
+                optimized.add(Instruction.iinc(load.index, (int) increment));
+                return 4;
+            }
+        }
+        return 0;
+    }
+
+    /** {@code ldc a; ldc b; iadd} becomes {@code ldc a+b}, and likewise for isub and imul. */
+    private static int foldConstants(List<Instruction> code, int i,
+            List<Instruction> optimized) {
+        final Instruction left = code.get(i);
+        final Instruction right = get(code, i + 1);
+        final Instruction operation = get(code, i + 2);
+        if (left.opcode != LDC || right == null || right.opcode != LDC || operation == null) {
+            return 0;
+        }
+        switch (operation.opcode) {
+            case IADD: optimized.add(Instruction.push(left.value + right.value)); return 3;
+            case ISUB: optimized.add(Instruction.push(left.value - right.value)); return 3;
+            case IMUL: optimized.add(Instruction.push(left.value * right.value)); return 3;
+            default: return 0;
+        }
+    }
+
+    // Helper methods.
+
+    /** Returns the instruction at position i, or null if there is none. */
+    private static Instruction get(List<Instruction> code, int i) {
+        return i < code.size() ? code.get(i) : null;
+    }
+
+    /** Returns true if {@code instruction} pushes the int constant {@code value}. */
+    private static boolean isPush(Instruction instruction, int value) {
+        return instruction.opcode == LDC && instruction.value == value;
+    }
+
+    /** Returns true if {@code label} is among the labels placed from position i on. */
+    private static boolean isPlacedAt(List<Instruction> code, int i, Label label) {
+        for (; i < code.size() && code.get(i).opcode == Instruction.LABEL; ++i) {
+            if (code.get(i).label == label) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
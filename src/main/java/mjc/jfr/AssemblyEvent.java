@@ -0,0 +1,47 @@
+package mjc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for the assembly of the Jasmin code of a class into a class file.
+ */
+@Name("mjc.Assembly")
+@Label("Assembly")
+@Category("MiniJava Compiler")
+@Description("Assembly of the Jasmin code of a class")
+public final class AssemblyEvent extends Event implements Events.Assembly {
+    @Label("Class")
+    String className;
+
+    @Label("Code Length")
+    @Description("Length of the Jasmin code in characters")
+    @DataAmount(DataAmount.BYTES)
+    long codeLength;
+
+    @Label("Class File Size")
+    @Description("Size of the class file, or 0 if assembly failed")
+    @DataAmount(DataAmount.BYTES)
+    long classFileSize;
+
+    /**
+     * Ends the event, and commits it if it is enabled and over its threshold.
+     *
+     * @param className Name of the class.
+     * @param codeLength Length of the Jasmin code.
+     * @param classFileSize Size of the class file, or 0 if assembly failed.
+     */
+    public void finish(String className, long codeLength, long classFileSize) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.codeLength = codeLength;
+            this.classFileSize = classFileSize;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package mjc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import mjc.node.Node;
+
+/**
+ * Event for the generation of the code of a class.
+ */
+@Name("mjc.ClassGeneration")
+@Label("Class Generation")
+@Category("MiniJava Compiler")
+@Description("Generation of a class file or of the Jasmin code of a class")
+public final class ClassGenerationEvent extends Event implements Events.ClassGeneration {
+    @Label("Class")
+    String className;
+
+    @Label("Nodes")
+    @Description("Number of nodes of the class declaration, including tokens")
+    int nodeCount;
+
+    @Label("Emitted")
+    @Description("Size of the class file in bytes, or of the Jasmin code in characters")
+    @DataAmount(DataAmount.BYTES)
+    long emittedBytes;
+
+    /**
+     * Ends the event, and commits it if it is enabled and over its threshold.
+     *
+     * @param className Name of the class.
+     * @param declaration Declaration of the class, whose nodes are only counted if the
+     *                    event is committed.
+     * @param emittedBytes Size of the generated code.
+     */
+    public void finish(String className, Node declaration, long emittedBytes) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.nodeCount = NodeCounter.count(declaration);
+            this.emittedBytes = emittedBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package mjc.jfr;
+
+import mjc.node.Node;
+
+/**
+ * The Events class creates the Flight Recorder events of the compiler.
+ *
+ * The compiler runs on Java 7, but Flight Recorder events require the jdk.jfr API of
+ * later versions. The compiler therefore only uses the interfaces below, which do not
+ * depend on jdk.jfr. If the jdk.jfr API is available, the methods of this class return
+ * the event classes of this package, which implement the interfaces. Otherwise they
+ * return an event that does nothing, and the event classes are never loaded.
+ *
+ * Each event is used once: call {@code begin()} before the work it records, and
+ * {@code finish(...)} after it.
+ */
+public final class Events {
+
+    /** Event for a phase of the compilation, see {@link PhaseEvent}. */
+    public interface Phase {
+        void begin();
+        void finish(String phase, String program, int errorCount);
+    }
+
+    /** Event for the generation of a class, see {@link ClassGenerationEvent}. */
+    public interface ClassGeneration {
+        void begin();
+        void finish(String className, Node declaration, long emittedBytes);
+    }
+
+    /** Event for the generation of a method, see {@link MethodGenerationEvent}. */
+    public interface MethodGeneration {
+        void begin();
+        void finish(String className, String methodName, Node declaration,
+                long emittedBytes, int maxStack);
+    }
+
+    /** Event for the assembly of a class, see {@link AssemblyEvent}. */
+    public interface Assembly {
+        void begin();
+        void finish(String className, long codeLength, long classFileSize);
+    }
+
+    /** Event for writing a class to an output, see {@link OutputEvent}. */
+    public interface Output {
+        void begin();
+        void finish(String className, Object output, long size);
+    }
+
+    /**
+     * Creates events. Implemented by {@link JfrEvents}, which is only loaded if the
+     * jdk.jfr API is available.
+     */
+    interface Factory {
+        Phase phase();
+        ClassGeneration classGeneration();
+        MethodGeneration methodGeneration();
+        Assembly assembly();
+        Output output();
+    }
+
+    private static final Factory factory = createFactory();
+
+    private Events() {
+    }
+
+    /**
+     * @return true if events are recorded, i.e. if the jdk.jfr API is available.
+     */
+    public static boolean isEnabled() {
+        return !(factory instanceof Disabled);
+    }
+
+    /** @return A new event for a phase of the compilation. */
+    public static Phase phase() {
+        return factory.phase();
+    }
+
+    /** @return A new event for the generation of a class. */
+    public static ClassGeneration classGeneration() {
+        return factory.classGeneration();
+    }
+
+    /** @return A new event for the generation of a method. */
+    public static MethodGeneration methodGeneration() {
+        return factory.methodGeneration();
+    }
+
+    /** @return A new event for the assembly of a class. */
+    public static Assembly assembly() {
+        return factory.assembly();
+    }
+
+    /** @return A new event for writing a class to an output. */
+    public static Output output() {
+        return factory.output();
+    }
+
+    /**
+     * Returns a JfrEvents if the jdk.jfr API and the event classes are available, and
+     * a Disabled factory otherwise.
+     */
+    private static Factory createFactory() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Factory) Class.forName("mjc.jfr.JfrEvents")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Disabled();
+        }
+    }
+
+    /**
+     * Factory of a single event that does nothing, used when the jdk.jfr API is not
+     * available.
+     */
+    private static final class Disabled
+            implements Factory, Phase, ClassGeneration, MethodGeneration, Assembly, Output {
+
+        public Phase phase() {
+            return this;
+        }
+
+        public ClassGeneration classGeneration() {
+            return this;
+        }
+
+        public MethodGeneration methodGeneration() {
+            return this;
+        }
+
+        public Assembly assembly() {
+            return this;
+        }
+
+        public Output output() {
+            return this;
+        }
+
+        public void begin() {
+        }
+
+        public void finish(String phase, String program, int errorCount) {
+        }
+
+        public void finish(String className, Node declaration, long emittedBytes) {
+        }
+
+        public void finish(String className, String methodName, Node declaration,
+                long emittedBytes, int maxStack) {
+        }
+
+        public void finish(String className, long codeLength, long classFileSize) {
+        }
+
+        public void finish(String className, Object output, long size) {
+        }
+    }
+}
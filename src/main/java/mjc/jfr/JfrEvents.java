@@ -0,0 +1,28 @@
+package mjc.jfr;
+
+/**
+ * Factory of the Flight Recorder event classes, loaded by {@link Events} only if the
+ * jdk.jfr API is available.
+ */
+final class JfrEvents implements Events.Factory {
+
+    public Events.Phase phase() {
+        return new PhaseEvent();
+    }
+
+    public Events.ClassGeneration classGeneration() {
+        return new ClassGenerationEvent();
+    }
+
+    public Events.MethodGeneration methodGeneration() {
+        return new MethodGenerationEvent();
+    }
+
+    public Events.Assembly assembly() {
+        return new AssemblyEvent();
+    }
+
+    public Events.Output output() {
+        return new OutputEvent();
+    }
+}
@@ -0,0 +1,60 @@
+package mjc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import mjc.node.Node;
+
+/**
+ * Event for the generation of the code of a method.
+ */
+@Name("mjc.MethodGeneration")
+@Label("Method Generation")
+@Category("MiniJava Compiler")
+@Description("Generation of the bytecode or the Jasmin code of a method")
+public final class MethodGenerationEvent extends Event implements Events.MethodGeneration {
+    @Label("Class")
+    String className;
+
+    @Label("Method")
+    String methodName;
+
+    @Label("Nodes")
+    @Description("Number of nodes of the method declaration, including tokens")
+    int nodeCount;
+
+    @Label("Emitted")
+    @Description("Size of the bytecode in bytes, or of the Jasmin code in characters")
+    @DataAmount(DataAmount.BYTES)
+    long emittedBytes;
+
+    @Label("Max Stack")
+    int maxStack;
+
+    /**
+     * Ends the event, and commits it if it is enabled and over its threshold.
+     *
+     * @param className Name of the class.
+     * @param methodName Name of the method.
+     * @param declaration Declaration of the method, or of the main class for the main
+     *                    method, whose nodes are only counted if the event is committed.
+     * @param emittedBytes Size of the generated code.
+     * @param maxStack Maximum depth of the operand stack.
+     */
+    public void finish(String className, String methodName, Node declaration,
+            long emittedBytes, int maxStack) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.methodName = methodName;
+            this.nodeCount = NodeCounter.count(declaration);
+            this.emittedBytes = emittedBytes;
+            this.maxStack = maxStack;
+            commit();
+        }
+    }
+}
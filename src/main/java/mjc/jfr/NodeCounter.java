@@ -0,0 +1,34 @@
+package mjc.jfr;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.node.Node;
+
+/**
+ * Counts the nodes of an AST, for the events that report them.
+ */
+final class NodeCounter extends DepthFirstAdapter {
+    private int count;
+
+    private NodeCounter() {
+    }
+
+    /**
+     * @param node Root of an AST.
+     * @return The number of nodes of the AST, including tokens.
+     */
+    static int count(Node node) {
+        final NodeCounter counter = new NodeCounter();
+        node.apply(counter);
+        return counter.count;
+    }
+
+    @Override
+    public void defaultIn(Node node) {
+        count++;
+    }
+
+    @Override
+    public void defaultCase(Node node) {
+        count++; // A token.
+    }
+}
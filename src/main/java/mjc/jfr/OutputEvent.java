@@ -0,0 +1,46 @@
+package mjc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for writing the code of a class to an output.
+ */
+@Name("mjc.Output")
+@Label("Output")
+@Category("MiniJava Compiler")
+@Description("Writing of a class file or of Jasmin code to the output")
+public final class OutputEvent extends Event implements Events.Output {
+    @Label("Class")
+    String className;
+
+    @Label("Output")
+    @Description("Class of the output written to")
+    String output;
+
+    @Label("Size")
+    @Description("Size of the class file in bytes, or of the Jasmin code in characters")
+    @DataAmount(DataAmount.BYTES)
+    long size;
+
+    /**
+     * Ends the event, and commits it if it is enabled and over its threshold.
+     *
+     * @param className Name of the class.
+     * @param output The output written to.
+     * @param size Size of the code written.
+     */
+    public void finish(String className, Object output, long size) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.output = output.getClass().getSimpleName();
+            this.size = size;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package mjc.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event for a phase of the compilation of a program: parsing, semantic analysis or code
+ * generation.
+ */
+@Name("mjc.Phase")
+@Label("Compiler Phase")
+@Category("MiniJava Compiler")
+@Description("A phase of the compilation of a MiniJava program")
+public final class PhaseEvent extends Event implements Events.Phase {
+    @Label("Phase")
+    String phase;
+
+    @Label("Program")
+    @Description("Name of the main class of the program, if it has been parsed")
+    String program;
+
+    @Label("Errors")
+    @Description("Number of errors found in the program so far")
+    int errorCount;
+
+    /**
+     * Ends the event, and commits it if it is enabled and over its threshold.
+     *
+     * @param phase Name of the phase.
+     * @param program Name of the main class of the program, or null if it is not known.
+     * @param errorCount Number of errors found so far.
+     */
+    public void finish(String phase, String program, int errorCount) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase;
+            this.program = program;
+            this.errorCount = errorCount;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Java Flight Recorder events of the compiler.
+ */
+package mjc.jfr;
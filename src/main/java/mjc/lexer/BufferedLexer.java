@@ -0,0 +1,72 @@
+package mjc.lexer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import mjc.node.EOF;
+import mjc.node.Token;
+
+/**
+ * A lexer that reads all tokens from another lexer up front, and then returns them one
+ * at a time.
+ *
+ * This separates lexing from parsing, so that each can be measured on its own. If the
+ * other lexer fails, the tokens before the failure are returned as usual, and the
+ * {@link LexerException} is thrown when the next token is asked for, so a parser reports
+ * the same error as it would with the other lexer.
+ */
+public class BufferedLexer extends Lexer {
+    private final List<Token> tokens = new ArrayList<>();
+    private final LexerException exception;
+    private int index;
+
+    /**
+     * Constructs a new BufferedLexer, reading all tokens from {@code lexer}.
+     *
+     * @param lexer Lexer to read tokens from.
+     * @throws IOException if an I/O error occurred.
+     */
+    public BufferedLexer(Lexer lexer) throws IOException {
+        super((IPushbackReader) null);
+        LexerException exception = null;
+        try {
+            Token token;
+            do {
+                token = lexer.next();
+                tokens.add(token);
+            } while (!(token instanceof EOF));
+        } catch (LexerException e) {
+            exception = e;
+        }
+        this.exception = exception;
+    }
+
+    /**
+     * @return The number of tokens read, including the end of file.
+     */
+    public int getTokenCount() {
+        return tokens.size();
+    }
+
+    @Override
+    protected Token getToken() throws LexerException {
+        if (index < tokens.size()) {
+            return tokens.get(index++);
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return tokens.get(index - 1); // The end of file, again.
+    }
+
+    /**
+     * Not supported, since the BufferedLexer does not read from a pushback reader.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    protected void unread(Token token) {
+        throw new UnsupportedOperationException("BufferedLexer does not support unread");
+    }
+}
@@ -0,0 +1,357 @@
+package mjc.lexer;
+
+import mjc.node.*;
+import mjc.symbol.Symbol;
+
+/**
+ * Hand-written lexer for MiniJava, as an alternative to the SableCC generated one.
+ *
+ * The FastLexer works directly on a character array and does not use the lexer
+ * tables. It produces the same tokens with the same line and position as the
+ * generated {@link Lexer}, except that whitespace and comments (the ignored tokens
+ * of the grammar) are skipped without creating tokens for them.
+ *
+ * Keywords are recognized using a perfect hash on the first and last character and
+ * the length of an identifier, so at most one keyword needs to be compared.
+ *
+ * Identifiers are interned as {@link Symbol}s while they are read. The lexer keeps
+ * its own table of the Symbols it has seen, looked up directly on the source
+ * characters, so a String is only created the first time an identifier is seen.
+ */
+public class FastLexer extends Lexer {
+    // Keywords, placed at their hash in the table below.
+    private static final String[] KEYWORDS = {
+        "class", "public", "static", "void", "String", "return", "int", "boolean",
+        "if", "else", "while", "length", "true", "false", "this", "new"
+    };
+    private static final int KEYWORD_TABLE_SIZE = 32;
+    private static final int MIN_KEYWORD_LENGTH = 2;
+    private static final int MAX_KEYWORD_LENGTH = 7;
+
+    private static final char[][] keywordTable = new char[KEYWORD_TABLE_SIZE][];
+    private static final int[] keywordIndex = new int[KEYWORD_TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            final char[] keyword = KEYWORDS[i].toCharArray();
+            final int hash = keywordHash(keyword, 0, keyword.length);
+            if (keywordTable[hash] != null) {
+                throw new Error("Keyword hash is not perfect");
+            }
+            keywordTable[hash] = keyword;
+            keywordIndex[hash] = i;
+        }
+    }
+
+    private static final char[] PRINTLN_SUFFIX = ".out.println".toCharArray();
+
+    private final char[] chars;
+    private final int length;
+
+    private int index;     // Index of next character.
+    private int line = 1;  // Current line.
+    private int lineStart; // Index of first character on current line.
+
+    // Symbols of the identifiers seen so far, in an open addressing hash table.
+    private Symbol[] symbols = new Symbol[64];
+    private int symbolCount;
+
+    /**
+     * Constructs a new FastLexer over the characters in {@code chars}.
+     *
+     * @param chars Source characters.
+     */
+    public FastLexer(char[] chars) {
+        this(chars, chars.length);
+    }
+
+    /**
+     * Constructs a new FastLexer over the first {@code length} characters of
+     * {@code chars}.
+     *
+     * @param chars Source characters.
+     * @param length Number of characters in {@code chars} to read.
+     */
+    public FastLexer(char[] chars, int length) {
+        super((IPushbackReader) null);
+        if (length < 0 || length > chars.length) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        this.chars = chars;
+        this.length = length;
+    }
+
+    @Override
+    protected Token getToken() throws LexerException {
+        skipIgnored();
+
+        final int start = index;
+        final int line = this.line;
+        final int pos = start - lineStart + 1;
+
+        if (start == length) {
+            return new EOF(line, pos);
+        }
+
+        final char c = chars[index++];
+        switch (c) {
+            case '=':
+                if (accept('=')) return new TEqual(line, pos);
+                return new TAssign(line, pos);
+            case '!':
+                if (accept('=')) return new TNotEqual(line, pos);
+                return new TNot(line, pos);
+            case '<':
+                if (accept('=')) return new TLessEqualThan(line, pos);
+                return new TLessThan(line, pos);
+            case '>':
+                if (accept('=')) return new TGreaterEqualThan(line, pos);
+                return new TGreaterThan(line, pos);
+            case '|':
+                if (accept('|')) return new TOr(line, pos);
+                throw invalidToken(start, Math.min(start + 2, length), line, pos);
+            case '&':
+                if (accept('&')) return new TAnd(line, pos);
+                throw invalidToken(start, Math.min(start + 2, length), line, pos);
+            case '+': return new TPlus(line, pos);
+            case '-': return new TMinus(line, pos);
+            case '*': return new TStar(line, pos);
+            case ',': return new TComma(line, pos);
+            case '.': return new TPeriod(line, pos);
+            case ';': return new TSemicolon(line, pos);
+            case '(': return new TLparen(line, pos);
+            case ')': return new TRparen(line, pos);
+            case '[': return new TLbrack(line, pos);
+            case ']': return new TRbrack(line, pos);
+            case '{': return new TLbrace(line, pos);
+            case '}': return new TRbrace(line, pos);
+            case '/':
+                // Comments were skipped, so this can't start a valid token.
+                if (index < length && chars[index] == '*') {
+                    throw invalidToken(start, length, line, pos); // Unterminated comment.
+                }
+                throw invalidToken(start, Math.min(start + 2, length), line, pos);
+            case '0':
+                return new TInteger("0", line, pos);
+            default:
+                if (c >= '1' && c <= '9') {
+                    while (index < length && isDigit(chars[index])) {
+                        index++;
+                    }
+                    return new TInteger(new String(chars, start, index - start), line, pos);
+                } else if (isIdentifierStart(c)) {
+                    while (index < length && isIdentifierPart(chars[index])) {
+                        index++;
+                    }
+                    return identifierOrKeyword(start, line, pos);
+                }
+                throw invalidToken(start, start + 1, line, pos);
+        }
+    }
+
+    /** Skips whitespace and comments, keeping track of the line. */
+    private void skipIgnored() {
+        while (index < length) {
+            final char c = chars[index];
+            if (c == ' ' || c == '\t' || c == '\f') {
+                index++;
+            } else if (c == '\n' || c == '\r') {
+                newline();
+            } else if (c == '/' && index + 1 < length && chars[index + 1] == '/') {
+                // Line comment, up to and including the end of line.
+                index += 2;
+                while (index < length && chars[index] != '\n' && chars[index] != '\r') {
+                    index++;
+                }
+                if (index < length) {
+                    newline();
+                }
+            } else if (c == '/' && index + 1 < length && chars[index + 1] == '*') {
+                // Block comment, up to the first */.
+                final int end = blockCommentEnd(index + 2);
+                if (end == -1) {
+                    return; // Unterminated, reported by getToken().
+                }
+                index += 2;
+                while (index < end) {
+                    if (chars[index] == '\n' || chars[index] == '\r') {
+                        newline();
+                    } else {
+                        index++;
+                    }
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the index after the first "*&#47;" at or after {@code from}, or -1 if
+     * there is none.
+     */
+    private int blockCommentEnd(int from) {
+        for (int i = from; i + 1 < length; i++) {
+            if (chars[i] == '*' && chars[i + 1] == '/') {
+                return i + 2;
+            }
+        }
+        return -1;
+    }
+
+    /** Skips the end of line at the current index (CR, LF or CR LF). */
+    private void newline() {
+        if (chars[index++] == '\r' && index < length && chars[index] == '\n') {
+            index++;
+        }
+        line++;
+        lineStart = index;
+    }
+
+    /** Skips the next character if it is {@code c}, returning true if it was. */
+    private boolean accept(char c) {
+        if (index < length && chars[index] == c) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a keyword or identifier token for the identifier characters from
+     * {@code start} up to the current index.
+     */
+    private Token identifierOrKeyword(int start, int line, int pos) {
+        final int length = index - start;
+
+        if (length >= MIN_KEYWORD_LENGTH && length <= MAX_KEYWORD_LENGTH) {
+            final int hash = keywordHash(chars, start, length);
+            final char[] keyword = keywordTable[hash];
+            if (keyword != null && keyword.length == length && regionMatches(start, keyword)) {
+                switch (keywordIndex[hash]) {
+                    case 0: return new TClassKeyword(line, pos);
+                    case 1: return new TPublicKeyword(line, pos);
+                    case 2: return new TStaticKeyword(line, pos);
+                    case 3: return new TVoidKeyword(line, pos);
+                    case 4: return new TStringKeyword(line, pos);
+                    case 5: return new TReturnKeyword(line, pos);
+                    case 6: return new TIntKeyword(line, pos);
+                    case 7: return new TBooleanKeyword(line, pos);
+                    case 8: return new TIfKeyword(line, pos);
+                    case 9: return new TElseKeyword(line, pos);
+                    case 10: return new TWhileKeyword(line, pos);
+                    case 11: return new TLengthKeyword(line, pos);
+                    case 12: return new TTrueKeyword(line, pos);
+                    case 13: return new TFalseKeyword(line, pos);
+                    case 14: return new TThisKeyword(line, pos);
+                    case 15: return new TNewKeyword(line, pos);
+                    default: throw new Error("identifierOrKeyword: Unknown keyword");
+                }
+            }
+        }
+
+        // System.out.println is a single token.
+        if (length == 6 && regionMatches(start, "System") &&
+                regionMatches(index, PRINTLN_SUFFIX)) {
+            index += PRINTLN_SUFFIX.length;
+            return new TPrintlnKeyword(line, pos);
+        }
+
+        return new TIdentifier(symbol(start, length), line, pos);
+    }
+
+    /** Returns the Symbol for the {@code length} characters at {@code start}. */
+    private Symbol symbol(int start, int length) {
+        int hash = 0; // Same as String.hashCode().
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        final int mask = symbols.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Symbol symbol = symbols[i];
+            if (symbol == null) {
+                symbol = Symbol.of(new String(chars, start, length));
+                symbols[i] = symbol;
+                if (++symbolCount * 2 > symbols.length) {
+                    growSymbols();
+                }
+                return symbol;
+            }
+            if (symbol.hashCode() == hash && symbol.nameEquals(chars, start, length)) {
+                return symbol;
+            }
+        }
+    }
+
+    /** Doubles the size of the symbol table. */
+    private void growSymbols() {
+        final Symbol[] oldSymbols = symbols;
+        symbols = new Symbol[oldSymbols.length * 2];
+        final int mask = symbols.length - 1;
+        for (Symbol symbol : oldSymbols) {
+            if (symbol != null) {
+                int i = symbol.hashCode() & mask;
+                while (symbols[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                symbols[i] = symbol;
+            }
+        }
+    }
+
+    /** Returns true if the characters at {@code start} begin with {@code text}. */
+    private boolean regionMatches(int start, char[] text) {
+        if (start + text.length > length) {
+            return false;
+        }
+        for (int i = 0; i < text.length; i++) {
+            if (chars[start + i] != text[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true if the characters at {@code start} begin with {@code text}. */
+    private boolean regionMatches(int start, String text) {
+        if (start + text.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (chars[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an exception for an invalid token made up of the characters from
+     * {@code start} to {@code end}, with the same message as the generated lexer.
+     */
+    private LexerException invalidToken(int start, int end, int line, int pos) {
+        final InvalidToken token = new InvalidToken(String.valueOf(chars[start]), line, pos);
+        final String text = new String(chars, start, end - start);
+        return new LexerException(token, "[" + line + "," + pos + "] Unknown token: " + text);
+    }
+
+    /** Returns the keyword table index for the given identifier characters. */
+    private static int keywordHash(char[] chars, int start, int length) {
+        final char first = chars[start];
+        final char last = chars[start + length - 1];
+        return (first * 9 + last * 26 + length) & (KEYWORD_TABLE_SIZE - 1);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+}
@@ -0,0 +1,36 @@
+package mjc.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The ClassOutput interface specifies a destination for the generated code.
+ *
+ * The generated code of each class is written either as a class file or as Jasmin
+ * assembly code. The code generators produce the main class first, so the first class
+ * written is the main class of the program.
+ *
+ * Implementations need not be thread-safe; all writes to an output should be made from
+ * one thread at a time, such as the thread of a {@link WriteBehindQueue}. The output
+ * must be closed after the last write, to make sure everything is written.
+ */
+public interface ClassOutput extends Closeable {
+
+    /**
+     * Writes the class file of a class.
+     *
+     * @param className Name of the class.
+     * @param classFile Contents of the class file.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeClass(String className, byte[] classFile) throws IOException;
+
+    /**
+     * Writes the Jasmin assembly code of a class.
+     *
+     * @param className Name of the class.
+     * @param code Jasmin code of the class.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeAssembly(String className, CharSequence code) throws IOException;
+}
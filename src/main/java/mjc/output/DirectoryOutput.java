@@ -0,0 +1,44 @@
+package mjc.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The DirectoryOutput class writes each class to a file of its own in a directory.
+ *
+ * Class files are written to {@code <ClassName>.class} and Jasmin code is written to
+ * {@code <ClassName>.j}.
+ */
+public class DirectoryOutput implements ClassOutput {
+    private final Path directory;
+
+    /**
+     * Constructs a new DirectoryOutput.
+     *
+     * @param directory Directory to write to. It is created if it does not exist.
+     * @throws IOException if the directory could not be created.
+     */
+    public DirectoryOutput(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public void writeClass(String className, byte[] classFile) throws IOException {
+        Files.write(directory.resolve(className + ".class"), classFile);
+    }
+
+    @Override
+    public void writeAssembly(String className, CharSequence code) throws IOException {
+        final Path path = directory.resolve(className + ".j");
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.append(code);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
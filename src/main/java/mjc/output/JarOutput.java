@@ -0,0 +1,80 @@
+package mjc.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * The JarOutput class writes all classes to a single jar file.
+ *
+ * The jar file is streamed as the classes are written. Its manifest names the first
+ * class written as the {@code Main-Class}, so the compiled program can be started with
+ * {@code java -jar}. Class files are stored as {@code <ClassName>.class} entries and
+ * Jasmin code as {@code <ClassName>.j} entries.
+ *
+ * Since the manifest must come first in the jar, the file is created when the first
+ * class is written. If no class is written, as when compilation fails, no file is
+ * created.
+ */
+public class JarOutput implements ClassOutput {
+    private final Path path;
+    private JarOutputStream jar;
+
+    /**
+     * Constructs a new JarOutput.
+     *
+     * @param path Path of the jar file.
+     */
+    public JarOutput(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void writeClass(String className, byte[] classFile) throws IOException {
+        open(className).putNextEntry(new JarEntry(className + ".class"));
+        jar.write(classFile);
+        jar.closeEntry();
+    }
+
+    @Override
+    public void writeAssembly(String className, CharSequence code) throws IOException {
+        open(className).putNextEntry(new JarEntry(className + ".j"));
+        final Writer writer = new OutputStreamWriter(jar, StandardCharsets.UTF_8);
+        writer.append(code);
+        writer.flush(); // Not closed, since that would close the jar.
+        jar.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (jar != null) {
+            jar.close();
+        }
+    }
+
+    /**
+     * Creates the jar file, unless it has already been created.
+     *
+     * @param mainClass Name of the main class.
+     * @return The jar output stream.
+     * @throws IOException if the jar file could not be created.
+     */
+    private JarOutputStream open(String mainClass) throws IOException {
+        if (jar == null) {
+            final Manifest manifest = new Manifest();
+            final Attributes attributes = manifest.getMainAttributes();
+            attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            attributes.put(Attributes.Name.MAIN_CLASS, mainClass);
+            jar = new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(path)), manifest);
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,35 @@
+package mjc.output;
+
+import java.util.Map;
+
+/**
+ * The MemoryClassLoader class defines classes from class files held in memory, such as
+ * those written to a {@link MemoryOutput}.
+ *
+ * Classes not among the class files are loaded by the parent class loader. With the
+ * bootstrap class loader as parent (null), the classes of the compiled program can not
+ * clash with the classes of the compiler.
+ */
+public class MemoryClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classFiles;
+
+    /**
+     * Constructs a new MemoryClassLoader.
+     *
+     * @param classFiles Map from class names to class files.
+     * @param parent Parent class loader, or null for the bootstrap class loader.
+     */
+    public MemoryClassLoader(Map<String, byte[]> classFiles, ClassLoader parent) {
+        super(parent);
+        this.classFiles = classFiles;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        final byte[] classFile = classFiles.get(name);
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, classFile, 0, classFile.length);
+    }
+}
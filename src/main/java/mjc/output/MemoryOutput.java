@@ -0,0 +1,44 @@
+package mjc.output;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The MemoryOutput class keeps the generated code in memory.
+ *
+ * The maps returned by {@link #getClassFiles()} and {@link #getAssembly()} iterate in
+ * the order the classes were written, with the main class first.
+ */
+public class MemoryOutput implements ClassOutput {
+    private final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+    private final Map<String, String> assembly = new LinkedHashMap<>();
+
+    @Override
+    public void writeClass(String className, byte[] classFile) {
+        classFiles.put(className, classFile);
+    }
+
+    @Override
+    public void writeAssembly(String className, CharSequence code) {
+        assembly.put(className, code.toString());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return A read-only map from class names to the class files written.
+     */
+    public Map<String, byte[]> getClassFiles() {
+        return Collections.unmodifiableMap(classFiles);
+    }
+
+    /**
+     * @return A read-only map from class names to the Jasmin code written.
+     */
+    public Map<String, String> getAssembly() {
+        return Collections.unmodifiableMap(assembly);
+    }
+}
@@ -0,0 +1,21 @@
+package mjc.output;
+
+/**
+ * The NullOutput class discards the generated code.
+ *
+ * It is meant for measuring the compiler without the cost of writing its output.
+ */
+public class NullOutput implements ClassOutput {
+
+    @Override
+    public void writeClass(String className, byte[] classFile) {
+    }
+
+    @Override
+    public void writeAssembly(String className, CharSequence code) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
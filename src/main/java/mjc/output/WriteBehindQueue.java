@@ -0,0 +1,157 @@
+package mjc.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * A write-behind queue for the output of the compiler.
+ *
+ * Writes submitted to the queue are performed in order by a background thread, so that
+ * the compiler can go on generating code while earlier output is being written. At most
+ * {@code capacity} writes may be pending at once; {@link #submit(Write)} blocks while the
+ * queue is full, so that generated code does not pile up in memory when the output is
+ * slower than the code generation.
+ *
+ * If a write fails, the remaining writes are skipped. The error is thrown from
+ * {@link #close()}, which waits until all submitted writes are done and must be called
+ * before the compiler reports its result. Neither {@link #submit(Write)} nor
+ * {@link #close()} waits for a background thread that has stopped.
+ */
+public class WriteBehindQueue implements Closeable {
+
+    /**
+     * A write to perform in the background.
+     */
+    public interface Write {
+        /**
+         * Performs the write.
+         *
+         * @throws IOException if an I/O error occurred.
+         */
+        void write() throws IOException;
+    }
+
+    // Marks the end of the queue.
+    private static final Write END = new Write() {
+        public void write() {
+        }
+    };
+
+    // Interval at which a full queue checks that the background thread is running.
+    private static final long CHECK_MILLIS = 100;
+
+    private final BlockingQueue<Write> queue;
+    private final Thread worker;
+
+    private volatile Throwable error;
+    private boolean closed;
+
+    /**
+     * Constructs a new WriteBehindQueue and starts its background thread.
+     *
+     * @param capacity Maximum number of pending writes.
+     */
+    public WriteBehindQueue(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        worker = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Write write;
+                    while ((write = Uninterruptibles.takeUninterruptibly(queue)) != END) {
+                        if (error == null) {
+                            try {
+                                write.write();
+                            } catch (Throwable e) {
+                                error = e;
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+        }, "mjc-output");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Submits a write, waiting for room in the queue if it is full.
+     *
+     * If the background thread has stopped, the write is skipped, like the writes after
+     * a failed write.
+     *
+     * @param write The write to perform.
+     * @throws IllegalStateException if the queue has been closed.
+     */
+    public void submit(Write write) {
+        if (closed) {
+            throw new IllegalStateException("WriteBehindQueue.submit: Queue is closed");
+        }
+        put(write);
+    }
+
+    /**
+     * @return true if a write has failed, in which case later writes are skipped.
+     */
+    public boolean hasFailed() {
+        return error != null;
+    }
+
+    /**
+     * Waits until all submitted writes are done and stops the background thread.
+     *
+     * @throws IOException if a write failed. This is the error of the first write that
+     *                     failed, or an IOException with the RuntimeException it threw
+     *                     as its cause.
+     * @throws Error if a write, or the background thread, failed with an Error.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            put(END);
+            Uninterruptibles.joinUninterruptibly(worker);
+        }
+        final Throwable error = this.error;
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        } else if (error != null) {
+            throw new IOException(error);
+        }
+    }
+
+    /**
+     * Puts a write in the queue, waiting for room if it is full, unless the background
+     * thread has stopped. Like {@code Uninterruptibles.putUninterruptibly}, it restores
+     * the interrupt status if the thread was interrupted while waiting.
+     */
+    private void put(Write write) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (queue.offer(write, CHECK_MILLIS, TimeUnit.MILLISECONDS) ||
+                            !worker.isAlive()) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
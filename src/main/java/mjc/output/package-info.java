@@ -0,0 +1,4 @@
+/**
+ * Writing of the compiler output.
+ */
+package mjc.output;
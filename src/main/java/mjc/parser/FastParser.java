@@ -0,0 +1,600 @@
+package mjc.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import mjc.lexer.Lexer;
+import mjc.lexer.LexerException;
+import mjc.node.*;
+
+/**
+ * Hand-written recursive descent parser for MiniJava, as an alternative to the
+ * SableCC generated one.
+ *
+ * The FastParser builds the same AST as the generated {@link Parser}, directly and
+ * without any parse tables. Binary expressions are parsed using precedence climbing.
+ *
+ * Syntax errors are reported by throwing a {@link ParserException} with the same
+ * position and message as the generated parser would.
+ */
+public class FastParser {
+    // Token kinds, in the same order as the tokens in the grammar (see TokenIndex).
+    private static final int CLASS_KEYWORD = 0;
+    private static final int PUBLIC_KEYWORD = 1;
+    private static final int STATIC_KEYWORD = 2;
+    private static final int VOID_KEYWORD = 3;
+    private static final int STRING_KEYWORD = 4;
+    private static final int RETURN_KEYWORD = 5;
+    private static final int INT_KEYWORD = 6;
+    private static final int BOOLEAN_KEYWORD = 7;
+    private static final int IF_KEYWORD = 8;
+    private static final int ELSE_KEYWORD = 9;
+    private static final int WHILE_KEYWORD = 10;
+    private static final int PRINTLN_KEYWORD = 11;
+    private static final int LENGTH_KEYWORD = 12;
+    private static final int TRUE_KEYWORD = 13;
+    private static final int FALSE_KEYWORD = 14;
+    private static final int THIS_KEYWORD = 15;
+    private static final int NEW_KEYWORD = 16;
+    private static final int ASSIGN = 17;
+    private static final int OR = 18;
+    private static final int AND = 19;
+    private static final int EQUAL = 20;
+    private static final int NOT_EQUAL = 21;
+    private static final int LESS_THAN = 22;
+    private static final int GREATER_THAN = 23;
+    private static final int LESS_EQUAL_THAN = 24;
+    private static final int GREATER_EQUAL_THAN = 25;
+    private static final int PLUS = 26;
+    private static final int MINUS = 27;
+    private static final int STAR = 28;
+    private static final int NOT = 29;
+    private static final int COMMA = 30;
+    private static final int PERIOD = 31;
+    private static final int SEMICOLON = 32;
+    private static final int LPAREN = 33;
+    private static final int RPAREN = 34;
+    private static final int LBRACK = 35;
+    private static final int RBRACK = 36;
+    private static final int LBRACE = 37;
+    private static final int RBRACE = 38;
+    private static final int IDENTIFIER = 39;
+    private static final int INTEGER = 40;
+    private static final int END = 41;
+
+    // Names of the token kinds, as used in error messages.
+    private static final String[] tokenNames = {
+        "'class'", "'public'", "'static'", "'void'", "'String'", "'return'", "'int'",
+        "'boolean'", "'if'", "'else'", "'while'", "'System.out.println'", "'length'",
+        "'true'", "'false'", "'this'", "'new'", "'='", "'||'", "'&&'", "'=='", "'!='",
+        "'<'", "'>'", "'<='", "'>='", "'+'", "'-'", "'*'", "'!'", "','", "'.'", "';'",
+        "'('", "')'", "'['", "']'", "'{'", "'}'", "identifier", "integer", "EOF"
+    };
+
+    // Precedence of binary operators, or 0 for other tokens.
+    private static final int[] precedence = new int[END + 1];
+
+    static {
+        precedence[OR] = 1;
+        precedence[AND] = 2;
+        precedence[EQUAL] = precedence[NOT_EQUAL] = 3;
+        precedence[LESS_THAN] = precedence[GREATER_THAN] = 4;
+        precedence[LESS_EQUAL_THAN] = precedence[GREATER_EQUAL_THAN] = 4;
+        precedence[PLUS] = precedence[MINUS] = 5;
+        precedence[STAR] = 6;
+    }
+
+    // Sets of token kinds, for error messages.
+    private static final long EXPRESSION_START = set(TRUE_KEYWORD, FALSE_KEYWORD,
+            THIS_KEYWORD, NEW_KEYWORD, NOT, LPAREN, IDENTIFIER, INTEGER);
+    private static final long STATEMENT_START = set(IF_KEYWORD, WHILE_KEYWORD,
+            PRINTLN_KEYWORD, LBRACE, IDENTIFIER);
+    private static final long TYPE_START = set(INT_KEYWORD, BOOLEAN_KEYWORD, IDENTIFIER);
+
+    private final Lexer lexer;
+    private final TokenIndex tokenIndex = new TokenIndex();
+
+    private Token token;     // Current token.
+    private int kind;        // Kind of current token.
+    private Token next;      // Token after the current token, or null if not read yet.
+    private int nextKind;    // Kind of token after the current token.
+
+    /**
+     * Constructs a new FastParser reading tokens from {@code lexer}.
+     *
+     * @param lexer Lexer to read tokens from.
+     */
+    public FastParser(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * Parses the input.
+     *
+     * @return Root of the AST.
+     * @throws ParserException if the input is syntactically invalid.
+     * @throws LexerException if the input is lexically invalid.
+     * @throws IOException if an I/O error occurred.
+     */
+    public Start parse() throws ParserException, LexerException, IOException {
+        token = read();
+        kind = tokenIndex.index;
+
+        final PProgram program = parseProgram();
+        final EOF eof = (EOF) token;
+        return new Start(program, eof);
+    }
+
+    // Declarations.
+
+    private PProgram parseProgram() throws ParserException, LexerException, IOException {
+        final PMainClassDeclaration mainClass = parseMainClassDeclaration();
+        final List<PClassDeclaration> classes = new ArrayList<>();
+        while (kind == CLASS_KEYWORD) {
+            classes.add(parseClassDeclaration());
+        }
+        check(bit(END), END);
+        return new AProgram(mainClass, classes);
+    }
+
+    private PMainClassDeclaration parseMainClassDeclaration()
+            throws ParserException, LexerException, IOException {
+        expect(CLASS_KEYWORD);
+        final TIdentifier name = (TIdentifier) expect(IDENTIFIER);
+        expect(LBRACE);
+        expect(PUBLIC_KEYWORD);
+        expect(STATIC_KEYWORD);
+        expect(VOID_KEYWORD);
+        final TIdentifier methodName = (TIdentifier) expect(IDENTIFIER);
+        expect(LPAREN);
+        expect(STRING_KEYWORD);
+        expect(LBRACK);
+        expect(RBRACK);
+        final TIdentifier methodParameter = (TIdentifier) expect(IDENTIFIER);
+        expect(RPAREN);
+        expect(LBRACE);
+        final List<PVariableDeclaration> locals = parseVariableDeclarations();
+        final List<PStatement> statements = parseStatements();
+        check(statements.isEmpty()
+                ? TYPE_START | STATEMENT_START | bit(RBRACE)
+                : STATEMENT_START | bit(RBRACE), RBRACE);
+        consume();
+        expect(RBRACE);
+        return new AMainClassDeclaration(name, methodName, methodParameter, locals, statements);
+    }
+
+    private PClassDeclaration parseClassDeclaration()
+            throws ParserException, LexerException, IOException {
+        expect(CLASS_KEYWORD);
+        final TIdentifier name = (TIdentifier) expect(IDENTIFIER);
+        expect(LBRACE);
+        final List<PFieldDeclaration> fields = new ArrayList<>();
+        while (kind == INT_KEYWORD || kind == BOOLEAN_KEYWORD || kind == IDENTIFIER) {
+            final PType type = parseType();
+            final TIdentifier fieldName = (TIdentifier) expect(IDENTIFIER);
+            expect(SEMICOLON);
+            fields.add(new AFieldDeclaration(type, fieldName));
+        }
+        final List<PMethodDeclaration> methods = new ArrayList<>();
+        while (kind == PUBLIC_KEYWORD) {
+            methods.add(parseMethodDeclaration());
+        }
+        check(methods.isEmpty() ? TYPE_START | bit(PUBLIC_KEYWORD) | bit(RBRACE)
+                                : bit(PUBLIC_KEYWORD) | bit(RBRACE), RBRACE);
+        consume();
+        return new AClassDeclaration(name, fields, methods);
+    }
+
+    private PMethodDeclaration parseMethodDeclaration()
+            throws ParserException, LexerException, IOException {
+        expect(PUBLIC_KEYWORD);
+        final PType returnType = parseType();
+        final TIdentifier name = (TIdentifier) expect(IDENTIFIER);
+        expect(LPAREN);
+        final List<PFormalParameter> formals = new ArrayList<>();
+        if (kind != RPAREN) {
+            while (true) {
+                check(TYPE_START | (formals.isEmpty() ? bit(RPAREN) : 0), -1);
+                final PType type = parseType();
+                final TIdentifier formalName = (TIdentifier) expect(IDENTIFIER);
+                formals.add(new AFormalParameter(type, formalName));
+                if (kind != COMMA) {
+                    break;
+                }
+                consume();
+            }
+            check(bit(COMMA) | bit(RPAREN), RPAREN);
+        }
+        consume();
+        expect(LBRACE);
+        final List<PVariableDeclaration> locals = parseVariableDeclarations();
+        final List<PStatement> statements = parseStatements();
+        check(statements.isEmpty()
+                ? TYPE_START | STATEMENT_START | bit(RETURN_KEYWORD)
+                : STATEMENT_START | bit(RETURN_KEYWORD), RETURN_KEYWORD);
+        consume();
+        final PExpression returnExpression = parseExpression();
+        expect(SEMICOLON);
+        expect(RBRACE);
+        return new AMethodDeclaration(returnType, name, formals, locals, statements,
+                returnExpression);
+    }
+
+    /**
+     * Parses variable declarations for as long as the input looks like one.
+     *
+     * A declaration with a class type starts with two identifiers, while an
+     * assignment starts with an identifier followed by '=' or '['.
+     */
+    private List<PVariableDeclaration> parseVariableDeclarations()
+            throws ParserException, LexerException, IOException {
+        final List<PVariableDeclaration> locals = new ArrayList<>();
+        while (kind == INT_KEYWORD || kind == BOOLEAN_KEYWORD ||
+                (kind == IDENTIFIER && peekKind() == IDENTIFIER)) {
+            final PType type = parseType();
+            final TIdentifier name = (TIdentifier) expect(IDENTIFIER);
+            expect(SEMICOLON);
+            locals.add(new AVariableDeclaration(type, name));
+        }
+        return locals;
+    }
+
+    private PType parseType() throws ParserException, LexerException, IOException {
+        switch (kind) {
+            case INT_KEYWORD:
+                final TIntKeyword intKeyword = (TIntKeyword) consume();
+                if (kind == LBRACK) {
+                    consume();
+                    expect(RBRACK);
+                    return new AIntArrayType(intKeyword);
+                }
+                return new AIntType(intKeyword);
+            case BOOLEAN_KEYWORD:
+                return new ABooleanType((TBooleanKeyword) consume());
+            case IDENTIFIER:
+                return new AClassType((TIdentifier) consume());
+            default:
+                throw error(TYPE_START);
+        }
+    }
+
+    // Statements.
+
+    /**
+     * Parses statements for as long as the input looks like one.
+     *
+     * This is always called after parsing any variable declarations, so before the
+     * first statement, the input could also have been a declaration.
+     */
+    private List<PStatement> parseStatements()
+            throws ParserException, LexerException, IOException {
+        final List<PStatement> statements = new ArrayList<>();
+        while ((STATEMENT_START & bit(kind)) != 0) {
+            statements.add(parseStatement(statements.isEmpty()));
+        }
+        return statements;
+    }
+
+    /**
+     * Parses a statement. If {@code declarationAllowed} is true, the input could
+     * also have been a variable declaration, which affects error reporting.
+     */
+    private PStatement parseStatement(boolean declarationAllowed)
+            throws ParserException, LexerException, IOException {
+        switch (kind) {
+            case LBRACE: {
+                consume();
+                final List<PVariableDeclaration> locals = parseVariableDeclarations();
+                final List<PStatement> statements = parseStatements();
+                check(statements.isEmpty()
+                        ? TYPE_START | STATEMENT_START | bit(RBRACE)
+                        : STATEMENT_START | bit(RBRACE), RBRACE);
+                consume();
+                return new ABlockStatement(locals, statements);
+            }
+            case IF_KEYWORD: {
+                final TIfKeyword ifKeyword = (TIfKeyword) consume();
+                final PExpression condition = parseCondition();
+                final PStatement statement = parseStatement(false);
+                if (kind == ELSE_KEYWORD) {
+                    final TElseKeyword elseKeyword = (TElseKeyword) consume();
+                    final PStatement elseStatement = parseStatement(false);
+                    return new AIfElseStatement(ifKeyword, condition, statement, elseKeyword,
+                            elseStatement);
+                }
+                return new AIfStatement(ifKeyword, condition, statement);
+            }
+            case WHILE_KEYWORD: {
+                final TWhileKeyword whileKeyword = (TWhileKeyword) consume();
+                final PExpression condition = parseCondition();
+                return new AWhileStatement(whileKeyword, condition, parseStatement(false));
+            }
+            case PRINTLN_KEYWORD: {
+                final TPrintlnKeyword printlnKeyword = (TPrintlnKeyword) consume();
+                expect(LPAREN);
+                final PExpression value = parseExpression();
+                expect(RPAREN);
+                expect(SEMICOLON);
+                return new APrintlnStatement(printlnKeyword, value);
+            }
+            case IDENTIFIER: {
+                final TIdentifier name = (TIdentifier) consume();
+                if (kind == LBRACK) {
+                    consume();
+                    final PExpression index = parseExpression();
+                    expect(RBRACK);
+                    final TAssign assign = (TAssign) expect(ASSIGN);
+                    final PExpression value = parseExpression();
+                    expect(SEMICOLON);
+                    return new AArrayAssignStatement(name, index, assign, value);
+                }
+                // The generated parser takes a single identifier at the start of a
+                // statement list to be the type of a declaration.
+                final TAssign assign = (TAssign) expect(declarationAllowed
+                        ? bit(IDENTIFIER)
+                        : bit(ASSIGN) | bit(LBRACK), ASSIGN);
+                final PExpression value = parseExpression();
+                expect(SEMICOLON);
+                return new AAssignStatement(name, assign, value);
+            }
+            default:
+                throw error(STATEMENT_START);
+        }
+    }
+
+    /** Parses a parenthesized condition of an if or while statement. */
+    private PExpression parseCondition() throws ParserException, LexerException, IOException {
+        expect(LPAREN);
+        final PExpression condition = parseExpression();
+        expect(RPAREN);
+        return condition;
+    }
+
+    // Expressions.
+
+    private PExpression parseExpression() throws ParserException, LexerException, IOException {
+        return parseBinaryExpression(1);
+    }
+
+    /**
+     * Parses a binary expression with operators of at least {@code minPrecedence}.
+     *
+     * All binary operators are left associative.
+     */
+    private PExpression parseBinaryExpression(int minPrecedence)
+            throws ParserException, LexerException, IOException {
+        PExpression left = parseUnaryExpression();
+        while (precedence[kind] >= minPrecedence && precedence[kind] > 0) {
+            final int operatorKind = kind;
+            final Token operator = consume();
+            final PExpression right = parseBinaryExpression(precedence[operatorKind] + 1);
+            left = binaryExpression(left, operatorKind, operator, right);
+        }
+        return left;
+    }
+
+    private PExpression parseUnaryExpression()
+            throws ParserException, LexerException, IOException {
+        if (kind == NOT) {
+            final TNot not = (TNot) consume();
+            return new ANotExpression(not, parseUnaryExpression());
+        }
+        return parsePrimaryExpression();
+    }
+
+    private PExpression parsePrimaryExpression()
+            throws ParserException, LexerException, IOException {
+        PExpression expression;
+        boolean newArray = false; // If true, array access is not allowed.
+
+        switch (kind) {
+            case INTEGER:
+                expression = new AIntegerExpression((TInteger) consume());
+                break;
+            case TRUE_KEYWORD:
+                expression = new ATrueExpression((TTrueKeyword) consume());
+                break;
+            case FALSE_KEYWORD:
+                expression = new AFalseExpression((TFalseKeyword) consume());
+                break;
+            case IDENTIFIER:
+                expression = new AIdentifierExpression((TIdentifier) consume());
+                break;
+            case THIS_KEYWORD:
+                expression = new AThisExpression((TThisKeyword) consume());
+                break;
+            case NEW_KEYWORD: {
+                final TNewKeyword newKeyword = (TNewKeyword) consume();
+                if (kind == INT_KEYWORD) {
+                    consume();
+                    expect(LBRACK);
+                    final PExpression size = parseExpression();
+                    expect(RBRACK);
+                    expression = new ANewIntArrayExpression(newKeyword, size);
+                    newArray = true;
+                } else {
+                    final TIdentifier className = (TIdentifier) expect(
+                            bit(INT_KEYWORD) | bit(IDENTIFIER), IDENTIFIER);
+                    expect(LPAREN);
+                    expect(RPAREN);
+                    expression = new ANewInstanceExpression(className);
+                }
+                break;
+            }
+            case LPAREN:
+                consume();
+                expression = parseExpression();
+                expect(RPAREN);
+                break;
+            default:
+                throw error(EXPRESSION_START);
+        }
+
+        // Postfix array access, array length and method invocation.
+        while (true) {
+            if (kind == LBRACK && !newArray) {
+                final TLbrack lbrack = (TLbrack) consume();
+                final PExpression index = parseExpression();
+                expect(RBRACK);
+                expression = new AArrayAccessExpression(expression, lbrack, index);
+            } else if (kind == PERIOD) {
+                consume();
+                if (kind == LENGTH_KEYWORD) {
+                    expression = new AArrayLengthExpression(expression,
+                            (TLengthKeyword) consume());
+                } else {
+                    final TIdentifier name = (TIdentifier) expect(
+                            bit(LENGTH_KEYWORD) | bit(IDENTIFIER), IDENTIFIER);
+                    expect(LPAREN);
+                    final List<PExpression> actuals = new ArrayList<>();
+                    if (kind != RPAREN) {
+                        check(EXPRESSION_START | bit(RPAREN), -1);
+                        actuals.add(parseExpression());
+                        while (kind == COMMA) {
+                            consume();
+                            actuals.add(parseExpression());
+                        }
+                        check(bit(COMMA) | bit(RPAREN), RPAREN);
+                    }
+                    consume();
+                    expression = new AMethodInvocationExpression(expression, name, actuals);
+                }
+            } else {
+                break;
+            }
+            newArray = false;
+        }
+        return expression;
+    }
+
+    /** Returns a binary expression node for {@code operator} of kind {@code kind}. */
+    private PExpression binaryExpression(PExpression left, int kind, Token operator,
+            PExpression right) {
+        switch (kind) {
+            case OR:
+                return new AOrExpression(left, (TOr) operator, right);
+            case AND:
+                return new AAndExpression(left, (TAnd) operator, right);
+            case EQUAL:
+                return new AEqualExpression(left, (TEqual) operator, right);
+            case NOT_EQUAL:
+                return new ANotEqualExpression(left, (TNotEqual) operator, right);
+            case LESS_THAN:
+                return new ALessThanExpression(left, (TLessThan) operator, right);
+            case GREATER_THAN:
+                return new AGreaterThanExpression(left, (TGreaterThan) operator, right);
+            case LESS_EQUAL_THAN:
+                return new ALessEqualThanExpression(left, (TLessEqualThan) operator, right);
+            case GREATER_EQUAL_THAN:
+                return new AGreaterEqualThanExpression(left, (TGreaterEqualThan) operator,
+                        right);
+            case PLUS:
+                return new APlusExpression(left, (TPlus) operator, right);
+            case MINUS:
+                return new AMinusExpression(left, (TMinus) operator, right);
+            case STAR:
+                return new ATimesExpression(left, (TStar) operator, right);
+            default:
+                throw new Error("binaryExpression: Unknown operator");
+        }
+    }
+
+    // Token handling.
+
+    /** Reads the next token from the lexer, skipping ignored tokens. */
+    private Token read() throws LexerException, IOException {
+        while (true) {
+            final Token token = lexer.next();
+            tokenIndex.index = -1;
+            token.apply(tokenIndex);
+            if (tokenIndex.index != -1) {
+                return token;
+            }
+        }
+    }
+
+    /** Returns the kind of the token after the current token. */
+    private int peekKind() throws LexerException, IOException {
+        if (next == null) {
+            next = read();
+            nextKind = tokenIndex.index;
+        }
+        return nextKind;
+    }
+
+    /** Consumes the current token and returns it. */
+    private Token consume() throws LexerException, IOException {
+        final Token consumed = token;
+        if (next != null) {
+            token = next;
+            kind = nextKind;
+            next = null;
+        } else {
+            token = read();
+            kind = tokenIndex.index;
+        }
+        return consumed;
+    }
+
+    /** Consumes the current token if it is of kind {@code expected}, or fails. */
+    private Token expect(int expected) throws ParserException, LexerException, IOException {
+        return expect(bit(expected), expected);
+    }
+
+    /**
+     * Consumes the current token if it is of kind {@code expected}, or fails listing
+     * the token kinds in {@code expectedSet}.
+     */
+    private Token expect(long expectedSet, int expected)
+            throws ParserException, LexerException, IOException {
+        check(expectedSet, expected);
+        return consume();
+    }
+
+    /**
+     * Fails listing the token kinds in {@code expectedSet} unless the current token is
+     * in that set, or of kind {@code expected} if that is not -1.
+     */
+    private void check(long expectedSet, int expected) throws ParserException {
+        if (expected != -1 ? kind != expected : (expectedSet & bit(kind)) == 0) {
+            throw error(expectedSet);
+        }
+    }
+
+    /**
+     * Returns an exception for a syntax error at the current token, listing the token
+     * kinds in {@code expectedSet}.
+     */
+    private ParserException error(long expectedSet) {
+        final StringBuilder error = new StringBuilder("expecting: ");
+        boolean first = true;
+        for (int i = 0; i < tokenNames.length; i++) {
+            if ((expectedSet & bit(i)) != 0) {
+                if (!first) {
+                    error.append(", ");
+                }
+                error.append(tokenNames[i]);
+                first = false;
+            }
+        }
+        final int line = token.getLine();
+        final int pos = token.getPos();
+        return new ParserException(token, "[" + line + "," + pos + "] " + error, error.toString(),
+                line, pos);
+    }
+
+    /** Returns the set containing only the token kind {@code kind}. */
+    private static long bit(int kind) {
+        return 1L << kind;
+    }
+
+    /** Returns the set of the given token kinds. */
+    private static long set(int... kinds) {
+        long set = 0;
+        for (int kind : kinds) {
+            set |= 1L << kind;
+        }
+        return set;
+    }
+}
@@ -0,0 +1,196 @@
+package mjc.report;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mjc.CompilationStats;
+import mjc.bytecode.ClassFileSummary;
+import mjc.bytecode.ClassFileSummary.MethodSummary;
+
+/**
+ * The BytecodeReport class reports on the quality of the code in generated class files.
+ *
+ * For each method, it lists the number of instructions, the length of the code in
+ * bytes, max_stack, max_locals, and the number of branches and {@code ldc}
+ * instructions, and for each class the number of constants. If class files compiled by
+ * javac from the same program are given, the same measures of each of their methods are
+ * listed under those of the generated method, along with totals and ratios for the
+ * whole program.
+ *
+ * Methods whose code is longer than the limits of HotSpot are flagged: above
+ * MaxInlineSize a method is only inlined if it is called often, above FreqInlineSize it
+ * is not inlined at all, and above HugeMethodLimit it is not JIT-compiled.
+ */
+public final class BytecodeReport {
+    /** Default MaxInlineSize of HotSpot, in bytes. */
+    public static final int MAX_INLINE_SIZE = 35;
+
+    /** Default FreqInlineSize of HotSpot on x86_64, in bytes. */
+    public static final int FREQ_INLINE_SIZE = 325;
+
+    private final List<ClassFileSummary> classes = new ArrayList<>();
+    private final Map<String, ClassFileSummary> javacClasses;
+
+    /**
+     * Constructs a BytecodeReport.
+     *
+     * @param classFiles Map from class names to generated class files.
+     * @param javacClassFiles Map from class names to class files compiled by javac from
+     *                        the same program, or null to report on the generated class
+     *                        files alone.
+     * @throws IllegalArgumentException if a class file is not valid.
+     */
+    public BytecodeReport(Map<String, byte[]> classFiles, Map<String, byte[]> javacClassFiles) {
+        for (byte[] classFile : classFiles.values()) {
+            classes.add(ClassFileSummary.read(classFile));
+        }
+        if (javacClassFiles != null) {
+            javacClasses = new HashMap<>();
+            for (byte[] classFile : javacClassFiles.values()) {
+                final ClassFileSummary summary = ClassFileSummary.read(classFile);
+                javacClasses.put(summary.getClassName(), summary);
+            }
+        } else {
+            javacClasses = null;
+        }
+    }
+
+    /**
+     * Returns the HotSpot limit that a method of the given length exceeds, if any.
+     *
+     * @param codeLength Length of the code of the method, in bytes.
+     * @return The name of the highest limit exceeded, or null if none is.
+     */
+    public static String exceededLimit(int codeLength) {
+        if (codeLength > CompilationStats.HUGE_METHOD_SIZE) {
+            return "HugeMethodLimit";
+        } else if (codeLength > FREQ_INLINE_SIZE) {
+            return "FreqInlineSize";
+        } else if (codeLength > MAX_INLINE_SIZE) {
+            return "MaxInlineSize";
+        }
+        return null;
+    }
+
+    /**
+     * @return The report as a table.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        final Totals totals = new Totals();
+        final Totals javacTotals = new Totals();
+        for (ClassFileSummary summary : classes) {
+            final ClassFileSummary javacSummary =
+                    javacClasses != null ? javacClasses.get(summary.getClassName()) : null;
+            builder.append(String.format("class %s: %d constants", summary.getClassName(),
+                    summary.getConstantPoolCount() - 1));
+            if (javacSummary != null) {
+                builder.append(String.format(" (javac: %d)",
+                        javacSummary.getConstantPoolCount() - 1));
+            }
+            builder.append(String.format("%n  %-36s %-6s %7s %7s %6s %7s %9s %5s%n",
+                    "method", "", "instrs", "bytes", "stack", "locals", "branches", "ldc"));
+            for (MethodSummary method : summary.getMethods()) {
+                row(builder, method.getName() + method.getDescriptor(), "mjc", method);
+                totals.add(method);
+                final MethodSummary javacMethod = find(javacSummary, method);
+                if (javacMethod != null) {
+                    row(builder, "", "javac", javacMethod);
+                }
+            }
+            if (javacSummary != null) {
+                for (MethodSummary javacMethod : javacSummary.getMethods()) {
+                    javacTotals.add(javacMethod);
+                }
+            }
+            builder.append(String.format("%n"));
+        }
+
+        builder.append(String.format("mjc: %d instructions, %d bytes, %d branches, " +
+                "%d ldc, %d constants; %d methods over MaxInlineSize, %d over " +
+                "FreqInlineSize, %d over HugeMethodLimit%n", totals.instructions,
+                totals.bytes, totals.branches, totals.ldcs, constants(classes),
+                totals.overMaxInline, totals.overFreqInline, totals.huge));
+        if (javacClasses != null) {
+            builder.append(String.format("javac: %d instructions, %d bytes, %d branches, " +
+                    "%d ldc, %d constants; %d methods over MaxInlineSize, %d over " +
+                    "FreqInlineSize, %d over HugeMethodLimit%n", javacTotals.instructions,
+                    javacTotals.bytes, javacTotals.branches, javacTotals.ldcs,
+                    constants(javacClasses.values()), javacTotals.overMaxInline,
+                    javacTotals.overFreqInline, javacTotals.huge));
+            builder.append(String.format("mjc/javac: %.2fx instructions, %.2fx bytes%n",
+                    (double) totals.instructions / javacTotals.instructions,
+                    (double) totals.bytes / javacTotals.bytes));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends a row for a method.
+     */
+    private static void row(StringBuilder builder, String method, String compiler,
+            MethodSummary summary) {
+        final String limit = exceededLimit(summary.getCodeLength());
+        builder.append(String.format("  %-36s %-6s %7d %7d %6d %7d %9d %5d%s%n", method,
+                compiler, summary.getInstructionCount(), summary.getCodeLength(),
+                summary.getMaxStack(), summary.getMaxLocals(), summary.getBranchCount(),
+                summary.getLdcCount(), limit != null ? "  over " + limit : ""));
+    }
+
+    /**
+     * Finds the method of a class with the same name and descriptor as another method.
+     */
+    private static MethodSummary find(ClassFileSummary summary, MethodSummary method) {
+        if (summary != null) {
+            for (MethodSummary candidate : summary.getMethods()) {
+                if (candidate.getName().equals(method.getName()) &&
+                        candidate.getDescriptor().equals(method.getDescriptor())) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of constants in classes.
+     */
+    private static int constants(Iterable<ClassFileSummary> classes) {
+        int constants = 0;
+        for (ClassFileSummary summary : classes) {
+            constants += summary.getConstantPoolCount() - 1;
+        }
+        return constants;
+    }
+
+    /**
+     * Totals over the methods of a program.
+     */
+    private static final class Totals {
+        int instructions;
+        int bytes;
+        int branches;
+        int ldcs;
+        int overMaxInline;
+        int overFreqInline;
+        int huge;
+
+        void add(MethodSummary method) {
+            instructions += method.getInstructionCount();
+            bytes += method.getCodeLength();
+            branches += method.getBranchCount();
+            ldcs += method.getLdcCount();
+            final String limit = exceededLimit(method.getCodeLength());
+            if ("MaxInlineSize".equals(limit)) {
+                overMaxInline++;
+            } else if ("FreqInlineSize".equals(limit)) {
+                overFreqInline++;
+            } else if ("HugeMethodLimit".equals(limit)) {
+                huge++;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package mjc.report;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * The Javac class compiles programs with the Java compiler of the JDK, in memory.
+ *
+ * MiniJava programs are valid Java, so this gives a reference for the code generated
+ * by this compiler.
+ */
+public final class Javac {
+
+    private Javac() {
+    }
+
+    /**
+     * @return true if the Java compiler is available, i.e. if running on a JDK.
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * Compiles a program without debugging information.
+     *
+     * @param source Source code of the program.
+     * @param fileName Name of the source file, as in error messages.
+     * @return Map from class names to class files, in the order javac wrote them.
+     * @throws IllegalStateException if the Java compiler is not available.
+     * @throws IllegalArgumentException if the program could not be compiled.
+     */
+    public static Map<String, byte[]> compile(final CharSequence source, String fileName) {
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new IllegalStateException("The Java compiler requires a JDK");
+        }
+
+        final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        final JavaFileObject file = new SimpleJavaFileObject(
+                URI.create("string:///" + fileName), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        final StandardJavaFileManager standardManager =
+                javac.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        final JavaFileManager manager =
+                new ForwardingJavaFileManager<StandardJavaFileManager>(standardManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location,
+                    final String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(
+                        URI.create("bytes:///" + className + ".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return new ByteArrayOutputStream() {
+                            @Override
+                            public void close() {
+                                classFiles.put(className, toByteArray());
+                            }
+                        };
+                    }
+                };
+            }
+        };
+
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final boolean compiled = javac.getTask(null, manager, diagnostics,
+                Arrays.asList("-g:none", "-nowarn"), null,
+                Collections.singletonList(file)).call();
+        if (!compiled) {
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    throw new IllegalArgumentException(diagnostic.toString());
+                }
+            }
+            throw new IllegalArgumentException("javac failed");
+        }
+        return classFiles;
+    }
+}
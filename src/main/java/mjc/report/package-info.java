@@ -0,0 +1,4 @@
+/**
+ * Reports on the code generated by the compiler.
+ */
+package mjc.report;
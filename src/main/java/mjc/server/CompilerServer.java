@@ -0,0 +1,376 @@
+package mjc.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import mjc.JVMMain;
+
+/**
+ * The CompilerServer class runs compilations requested over local TCP connections.
+ *
+ * Keeping the compiler in a long-running JVM avoids the start-up cost of a new JVM for
+ * each compilation: the classes of the compiler and its libraries are loaded once, and
+ * the compiler is compiled by the JIT as it is used.
+ *
+ * The server only listens on the loopback interface, and only runs requests from
+ * clients that can read its token file. When it starts, the server writes a random
+ * token to the file {@code server-<port>} in the token directory, readable only by the
+ * owner of the server process. Each connection carries one request, as lines of UTF-8
+ * text:
+ *
+ * <pre>
+ * &lt;token&gt;
+ * &lt;working directory&gt;
+ * &lt;number of arguments&gt;
+ * &lt;argument&gt;...
+ * </pre>
+ *
+ * The arguments are those of the {@code mjc} command, and relative paths are resolved
+ * against the working directory. A request with more than {@value #MAX_ARGUMENTS}
+ * arguments, or with fewer argument lines than its count, is closed without running
+ * it. The response is a line for each line the compiler
+ * writes, {@code out <line>} for standard output and {@code err <line>} for standard
+ * error, followed by {@code exit <status>}. A request with the wrong token is closed
+ * without a response. The options {@code -server} and {@code -run} are not run in the
+ * server, since they would keep a thread busy for an unlimited time, and are answered
+ * with the single line {@code refused}, so that the client can run them on its own.
+ *
+ * Requests run on a fixed number of threads. At most {@code queueCapacity} requests
+ * wait for a thread; further requests are answered with the single line {@code busy},
+ * so that the client can compile on its own instead. A request is cancelled when it has
+ * run for longer than the timeout, or when its response can no longer be written. The
+ * compiler checks for cancellation between stages.
+ */
+public class CompilerServer implements Closeable {
+    // Maximum number of arguments of a request, far more than the options of mjc take.
+    private static final int MAX_ARGUMENTS = 256;
+
+    private final ServerSocket serverSocket;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+    private final byte[] token;
+    private final Path tokenFile;
+
+    /**
+     * Constructs a new CompilerServer listening on a local port.
+     *
+     * @param port Port to listen on, or 0 for any free port.
+     * @param threads Number of requests to run at once.
+     * @param queueCapacity Maximum number of requests waiting to run.
+     * @param timeoutMillis Time after which a running request is cancelled.
+     * @param tokenDirectory Directory to write the token file to. It is created,
+     *                       readable only by the owner, if it does not exist.
+     * @throws IOException if the port could not be opened, or the token file could not
+     *                     be written.
+     */
+    public CompilerServer(int port, int threads, int queueCapacity, long timeoutMillis,
+            Path tokenDirectory) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.token = newToken().getBytes(StandardCharsets.UTF_8);
+        try {
+            this.tokenFile = writeToken(tokenDirectory.resolve("server-" + getPort()), token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("mjc-server-%d").setDaemon(true).build());
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("mjc-server-timer").setDaemon(true).build());
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The file that holds the token clients must send.
+     */
+    public Path getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * Accepts and runs requests until the server is closed.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                continue; // Closed, or a failed connection.
+            }
+            try {
+                executor.execute(new Request(socket));
+            } catch (RejectedExecutionException e) {
+                try (Socket busy = socket) {
+                    busy.getOutputStream().write("busy\n".getBytes(StandardCharsets.UTF_8));
+                } catch (IOException ignored) {
+                    // The client has gone away.
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops listening and cancels running and waiting requests.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+        timer.shutdownNow();
+        Files.deleteIfExists(tokenFile);
+    }
+
+    /**
+     * Returns a random token of 128 bits, as hexadecimal digits.
+     */
+    private static String newToken() {
+        final byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the token to a new file that only the owner can read, replacing an old
+     * file left by a server that was killed.
+     *
+     * @return The file.
+     */
+    private static Path writeToken(Path file, byte[] token) throws IOException {
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        final Path directory = file.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        Files.deleteIfExists(file);
+        if (posix) {
+            // Created with the permissions, so that the token is never readable by others.
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, token);
+        return file;
+    }
+
+    /**
+     * A request on a connection.
+     */
+    private class Request implements Runnable {
+        private final Socket socket;
+        private Thread thread;
+        private boolean done;
+
+        public Request(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            final ScheduledFuture<?> deadline = timer.schedule(new Runnable() {
+                public void run() {
+                    cancel();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+            try (Socket socket = this.socket) {
+                socket.setSoTimeout((int) timeoutMillis); // Do not wait forever for the request.
+                final BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                final Response response = new Response(socket.getOutputStream());
+
+                final String clientToken = reader.readLine();
+                if (clientToken == null ||
+                        !MessageDigest.isEqual(token, clientToken.getBytes(StandardCharsets.UTF_8))) {
+                    return; // Not from a client that may use the server.
+                }
+                final String directory = reader.readLine();
+                final String count = reader.readLine();
+                if (directory == null || count == null) {
+                    return; // Not a request.
+                }
+                final int argCount = Integer.parseInt(count);
+                if (argCount < 0 || argCount > MAX_ARGUMENTS) {
+                    return; // Not a request.
+                }
+                final String[] args = new String[argCount];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = reader.readLine();
+                    if (args[i] == null) {
+                        return; // The request ended early.
+                    }
+                }
+                if (JVMMain.isLocalOnly(args)) {
+                    response.refuse();
+                    return;
+                }
+
+                final PrintStream out = response.stream("out");
+                final PrintStream err = response.stream("err");
+                final int status = new JVMMain(out, err, Paths.get(directory)).compile(args);
+                out.close();
+                err.close();
+                response.exit(status);
+            } catch (IOException | RuntimeException e) {
+                // The request was malformed, or the client has gone away.
+            } finally {
+                deadline.cancel(false);
+                synchronized (this) {
+                    done = true;
+                }
+                Thread.interrupted(); // Clear a cancellation that came too late.
+            }
+        }
+
+        /**
+         * Cancels the request, unless it is done.
+         */
+        public synchronized void cancel() {
+            if (!done) {
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * The response to the request.
+         */
+        private class Response {
+            private final Writer writer;
+
+            public Response(OutputStream output) {
+                this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            }
+
+            /**
+             * Returns a stream whose lines are written as response lines.
+             *
+             * @param prefix Prefix of the response lines.
+             * @return The stream. It must be closed to write the last line if that is not
+             *         terminated.
+             */
+            public PrintStream stream(String prefix) {
+                try {
+                    return new PrintStream(new LineStream(this, prefix), true, "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new Error("Response.stream: UTF-8 not supported", e);
+                }
+            }
+
+            /**
+             * Writes a response line, cancelling the request if it can not be written.
+             */
+            public synchronized void line(String prefix, String text) {
+                try {
+                    writer.write(prefix + " " + text + "\n");
+                    writer.flush();
+                } catch (IOException e) {
+                    cancel();
+                }
+            }
+
+            /**
+             * Answers that the request must be run by the client.
+             */
+            public synchronized void refuse() throws IOException {
+                writer.write("refused\n");
+                writer.flush();
+            }
+
+            /**
+             * Ends the response with the exit status.
+             */
+            public synchronized void exit(int status) throws IOException {
+                writer.write("exit " + status + "\n");
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * An output stream that writes each line to a response.
+     */
+    private static class LineStream extends OutputStream {
+        private final Request.Response response;
+        private final String prefix;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        public LineStream(Request.Response response, String prefix) {
+            this.response = response;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                writeLine();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (line.size() > 0) {
+                writeLine();
+            }
+        }
+
+        private void writeLine() {
+            response.line(prefix, new String(line.toByteArray(), StandardCharsets.UTF_8));
+            line.reset();
+        }
+    }
+}
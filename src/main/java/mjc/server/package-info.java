@@ -0,0 +1,4 @@
+/**
+ * The compiler server.
+ */
+package mjc.server;
@@ -0,0 +1,93 @@
+package mjc.source;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads source files for the lexer.
+ *
+ * A file is read in one pass, or memory-mapped if it is larger than
+ * {@link #MAP_THRESHOLD} bytes, and decoded as UTF-8 into a character array.
+ * Malformed input is reported as an error instead of being silently replaced.
+ */
+public final class SourceFile {
+    /** Size in bytes above which files are memory-mapped instead of read. */
+    public static final long MAP_THRESHOLD = 1 << 20;
+
+    private SourceFile() {
+    }
+
+    /**
+     * Opens the source file at {@code path} for reading by the lexer.
+     *
+     * @param path Path to the source file.
+     * @return A reader over the decoded contents of the file.
+     * @throws IOException if the file could not be read or is not valid UTF-8.
+     */
+    public static SourceReader open(Path path) throws IOException {
+        return new SourceReader(read(path));
+    }
+
+    /**
+     * Reads and decodes the source file at {@code path}.
+     *
+     * @param path Path to the source file.
+     * @return The decoded contents of the file.
+     * @throws IOException if the file could not be read or is not valid UTF-8.
+     */
+    public static char[] read(Path path) throws IOException {
+        return read(path, MAP_THRESHOLD);
+    }
+
+    /**
+     * Reads and decodes the source file at {@code path}, memory-mapping it if it is
+     * larger than {@code mapThreshold} bytes.
+     */
+    static char[] read(Path path, long mapThreshold) throws IOException {
+        final ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": file too large");
+            }
+            if (size > mapThreshold) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // Keep reading until the buffer is full.
+                }
+                bytes.flip();
+            }
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(path + " (No such file or directory)");
+        }
+        final CharBuffer chars = decode(path, bytes);
+        if (chars.limit() == chars.array().length) {
+            return chars.array();
+        }
+        return Arrays.copyOf(chars.array(), chars.limit());
+    }
+
+    /** Decodes {@code bytes} as UTF-8, reporting malformed input as an error. */
+    private static CharBuffer decode(Path path, ByteBuffer bytes) throws IOException {
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            return decoder.decode(bytes);
+        } catch (IOException e) {
+            throw new IOException(path + ": invalid UTF-8 input", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package mjc.source;
+
+import java.io.IOException;
+
+import mjc.lexer.IPushbackReader;
+
+/**
+ * Pushback reader over a character array, for use by the lexer.
+ *
+ * Unlike {@link java.io.PushbackReader}, reads are not synchronized and go straight to
+ * the array. Unread characters are written back into the array before the current
+ * position, so any number of characters that were read can be pushed back.
+ */
+public class SourceReader implements IPushbackReader {
+    private final char[] chars;
+    private final int length;
+    private int position;
+
+    /**
+     * Constructs a new SourceReader over the first {@code length} characters of
+     * {@code chars}.
+     *
+     * The array is not copied, and unread characters are written back into it.
+     *
+     * @param chars Source characters.
+     * @param length Number of characters in {@code chars} to read.
+     */
+    public SourceReader(char[] chars, int length) {
+        if (length < 0 || length > chars.length) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        this.chars = chars;
+        this.length = length;
+    }
+
+    /**
+     * Constructs a new SourceReader over the characters in {@code chars}.
+     *
+     * @param chars Source characters.
+     */
+    public SourceReader(char[] chars) {
+        this(chars, chars.length);
+    }
+
+    /**
+     * Constructs a new SourceReader over the characters of {@code source}.
+     *
+     * @param source Source text.
+     */
+    public SourceReader(String source) {
+        this(source.toCharArray(), source.length());
+    }
+
+    @Override
+    public int read() {
+        return position < length ? chars[position++] : -1;
+    }
+
+    @Override
+    public void unread(int c) throws IOException {
+        if (position == 0) {
+            throw new IOException("Pushback buffer overflow");
+        }
+        chars[--position] = (char) c;
+    }
+
+    /**
+     * Returns the number of characters read so far, minus those pushed back.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the total number of characters in the source.
+     */
+    public int getLength() {
+        return length;
+    }
+}
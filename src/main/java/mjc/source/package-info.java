@@ -0,0 +1,4 @@
+/**
+ * Loading of source files for the lexer.
+ */
+package mjc.source;
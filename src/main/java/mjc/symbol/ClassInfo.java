@@ -13,8 +13,8 @@ public class ClassInfo {
 
     private final String name;
     private final ClassType type;
-    private final Map<String, VariableInfo> fields;
-    private final Map<String, MethodInfo> methods;
+    private final Map<Symbol, VariableInfo> fields;
+    private final Map<Symbol, MethodInfo> methods;
 
     private final int line;
     private final int column;
@@ -74,10 +74,23 @@ public class ClassInfo {
      * @param name Name of the field.
      * @return Information about the field, or null if the class has no such field.
      */
-    public VariableInfo getField(final String name) {
+    public VariableInfo getField(final Symbol name) {
         return fields.get(name);
     }
 
+    /**
+     * Returns information about a field of the class.
+     *
+     * Interns {@code name} on each call, so it is only meant for tests. Other code looks
+     * names up by the Symbol of their identifier.
+     *
+     * @param name Name of the field.
+     * @return Information about the field, or null if the class has no such field.
+     */
+    VariableInfo getField(final String name) {
+        return getField(Symbol.of(name));
+    }
+
     /**
      * Adds information about a field of the class.
      *
@@ -91,8 +104,8 @@ public class ClassInfo {
      * @return the VariableInfo that was added for the field.
      */
     public VariableInfo addField(String name, Type type, int line, int column) {
-        VariableInfo field = new VariableInfo(name, type, line, column, nextIndex++, 0);
-        fields.put(name, field);
+        VariableInfo field = new VariableInfo(name, type, line, column, nextIndex++, 0, true);
+        fields.put(field.getSymbol(), field);
         return field;
     }
 
@@ -102,10 +115,20 @@ public class ClassInfo {
      * @param name Name of the method.
      * @return Information about the method, or null if the class has no such method.
      */
-    public MethodInfo getMethod(final String name) {
+    public MethodInfo getMethod(final Symbol name) {
         return methods.get(name);
     }
 
+    /**
+     * Returns information about a method of the class.
+     *
+     * @param name Name of the method.
+     * @return Information about the method, or null if the class has no such method.
+     */
+    public MethodInfo getMethod(final String name) {
+        return getMethod(Symbol.of(name));
+    }
+
     /**
      * Adds information about a method of the class.
      *
@@ -117,7 +140,7 @@ public class ClassInfo {
      * @return The added MethodInfo.
      */
     public MethodInfo addMethod(final String name, final MethodInfo method) {
-        methods.put(name, method);
+        methods.put(Symbol.of(name), method);
         return method;
     }
 }
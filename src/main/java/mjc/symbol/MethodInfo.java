@@ -1,44 +1,30 @@
 package mjc.symbol;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
 import mjc.types.Type;
 
-import com.google.common.collect.ArrayListMultimap;
-
 /**
  * MethodInfo represents information about a declared method.
  *
- * It holds the function name, return type and list of parameters. Local variables are
- * kept in a multimap, since there may be several local variables with the same name but
- * declared in blocks that can't see each other.
- *
- * The scope of added local variables is controlled by calling {@link #enterBlock()} and
- * {@link #leaveBlock()}. The mechanism behind these methods is quite simple, but here's
- * an explanation:
- *
- * Each block within a method is given a number from 0, 1, ..., N as it is encountered.
- *
- * MethodInfo internally maintains a stack of block numbers; each time a block is entered
- * using enterBlock(), a new block number is created from a counter (nextBlock) and pushed
- * on the stack. When leaving a block using leaveBlock(), the stack is popped. When leaving
- * the last block (the stack becomes empty), the nextBlock counter is reset to 0, to prepare
- * it for the next user of the API. Note that this requires users of this API to always make
- * a matching number of calls to enterBlock()/leaveBlock(), to not leave the MethodInfo in
- * an unknown state for the next user.
+ * It holds the function name, return type, list of parameters and the local variables
+ * of the method, organized as a tree of {@link Scope}s, one for each block.
  *
- * When a local variable is added using {@link #addLocal(String, Type, int, int)} it gets
- * its block set to the current block (top of the stack) before being added to the multimap.
+ * The scope tree is built by the {@link mjc.analysis.SymbolTableBuilder} by calling
+ * {@link #enterBlock()} and {@link #leaveBlock()} around each block of the method, and
+ * {@link #addLocal(String, Type, int, int)} for each local variable declared in the
+ * current block. Each block is given a number from 0, 1, ..., N as it is entered, so
+ * block 0 is the method body.
  *
- * When a local variable is looked up using {@link #getLocal(String)}, the multimap is first
- * queried for the variable with the given name. If the variable is found, we check if its
- * block number is currently on the stack. If it is, the variable is in scope and we return
- * it, otherwise we return null (the variable is not in scope).
- *
- * Local variable lookup is thus O(N * M), where N is the number of local variables with the
- * same name and M is the current block nesting depth. This should be reasonably fast.
+ * While the tree is being built, {@link #getLocal(Symbol)} looks up a local variable
+ * visible in the current block. When the outermost block is left, the blocks are turned
+ * into Scopes and the method is complete: no more blocks may be entered. Later passes
+ * find the Scope of a block with {@link #getScope(int)} and look up local variables in
+ * it with {@link Scope#getLocal(Symbol)}. Since a complete MethodInfo is never changed,
+ * it may be read by several passes, or several threads, at the same time.
  */
 public class MethodInfo {
 
@@ -46,15 +32,20 @@ public class MethodInfo {
     private final Type returnType;
 
     private final List<VariableInfo> parameters;
-    private final ArrayListMultimap<String, VariableInfo> locals;
-
-    private final Stack<Integer> blocks;
+    private final Map<Symbol, VariableInfo> parametersByName;
 
     private final int line;
     private final int column;
 
     private int nextIndex;
-    private int nextBlock;
+    private int numLocals;
+
+    // Blocks under construction, indexed by block number, and the current block.
+    private List<Block> blocks;
+    private int currentBlock;
+
+    // Scopes of the complete method, indexed by block number.
+    private Scope[] scopes;
 
     /**
      * Construct a new MethodInfo.
@@ -67,17 +58,17 @@ public class MethodInfo {
     public MethodInfo(final String name, final Type returnType, int line, int column) {
         this.name = name;
         this.parameters = new ArrayList<>();
-
-        this.locals = ArrayListMultimap.create();
+        this.parametersByName = new HashMap<>();
         this.returnType = returnType;
 
-        this.blocks = new Stack<>();
-
         this.line = line;
         this.column = column;
 
         this.nextIndex = 1;
-        this.nextBlock = 0;
+        this.numLocals = 0;
+
+        this.blocks = new ArrayList<>();
+        this.currentBlock = -1;
     }
 
     /**
@@ -97,19 +88,26 @@ public class MethodInfo {
     /**
      * Returns information about a parameter of the method.
      *
-     * Since parameters are always visible within a method, the return value of this method
-     * is unaffected by calls to {@link #enterBlock()} and {@link #leaveBlock()}.
+     * Parameters are always visible within a method, so they are not kept in any Scope.
      *
      * @param name Parameter name.
      * @return Parameter information, or null if method has no such parameter.
      */
-    public VariableInfo getParameter(final String name) {
-        for (VariableInfo info : parameters) {
-            if (info.getName().equals(name)) {
-                return info;
-            }
-        }
-        return null;
+    public VariableInfo getParameter(final Symbol name) {
+        return parametersByName.get(name);
+    }
+
+    /**
+     * Returns information about a parameter of the method.
+     *
+     * Interns {@code name} on each call, so it is only meant for tests. Other code looks
+     * names up by the Symbol of their identifier.
+     *
+     * @param name Parameter name.
+     * @return Parameter information, or null if method has no such parameter.
+     */
+    VariableInfo getParameter(final String name) {
+        return getParameter(Symbol.of(name));
     }
 
     /**
@@ -124,8 +122,11 @@ public class MethodInfo {
      * @return the VariableInfo that was added for the parameter.
      */
     public VariableInfo addParameter(String name, Type type, int line, int column) {
-        VariableInfo param = new VariableInfo(name, type, line, column, nextIndex++, 0);
+        VariableInfo param = new VariableInfo(name, type, line, column, nextIndex++, 0, false);
         parameters.add(param);
+        if (!parametersByName.containsKey(param.getSymbol())) {
+            parametersByName.put(param.getSymbol(), param);
+        }
         return param;
     }
 
@@ -137,30 +138,49 @@ public class MethodInfo {
     }
 
     /**
-     * Returns information about a currently visible local variable.
+     * Returns information about a local variable visible in the current block, while
+     * the scope tree is being built.
      *
      * The return value of this method depends on previous calls to {@link #enterBlock()}
-     * and {@link #leaveBlock()}.
+     * and {@link #leaveBlock()}. Once the method is complete, there is no current block
+     * and this method returns null; use {@link Scope#getLocal(Symbol)} instead.
      *
      * @param name Variable name.
      * @return Variable information, or null if method has no such local variable or the
      *         local variable is out of scope.
      */
-    public VariableInfo getLocal(final String name) {
-        for (VariableInfo local : locals.get(name)) {
-            if (isVisible(local)) {
+    public VariableInfo getLocal(final Symbol name) {
+        for (int i = currentBlock; i != -1; i = blocks.get(i).parent) {
+            final VariableInfo local = blocks.get(i).localsByName.get(name);
+            if (local != null) {
                 return local;
             }
         }
         return null;
     }
 
+    /**
+     * Returns information about a currently visible local variable.
+     *
+     * Interns {@code name} on each call, so it is only meant for tests. Other code looks
+     * names up by the Symbol of their identifier.
+     *
+     * @param name Variable name.
+     * @return Variable information, or null if method has no such local variable or the
+     *         local variable is out of scope.
+     */
+    VariableInfo getLocal(final String name) {
+        return getLocal(Symbol.of(name));
+    }
+
     /**
      * Adds information about a local variable declared in the current block.
      *
      * Initially there is no block, so {@link #enterBlock()} must have been called more
      * times than {@link #leaveBlock()} before calling this method.
      *
+     * @throws Error if there is no current block.
+     *
      * @param name Name of the local variable.
      * @param type Type of the local variable.
      * @param line Line of declaration.
@@ -168,8 +188,17 @@ public class MethodInfo {
      * @return the VariableInfo that was added for the variable.
      */
     public VariableInfo addLocal(String name, Type type, int line, int column) {
-        VariableInfo local = new VariableInfo(name, type, line, column, nextIndex++, blocks.peek());
-        locals.put(name, local);
+        if (currentBlock == -1) {
+            throw new Error("MethodInfo.addLocal: No current block in method " + this.name);
+        }
+        VariableInfo local = new VariableInfo(
+                name, type, line, column, nextIndex++, currentBlock, false);
+        final Block block = blocks.get(currentBlock);
+        block.locals.add(local);
+        if (!block.localsByName.containsKey(local.getSymbol())) {
+            block.localsByName.put(local.getSymbol(), local);
+        }
+        ++numLocals;
         return local;
     }
 
@@ -191,41 +220,105 @@ public class MethodInfo {
      * @return Number of variables (parameters and locals) in the method.
      */
     public int getNumVariables() {
-        return parameters.size() + locals.size();
+        return parameters.size() + numLocals;
     }
 
     /**
      * Enter a new block.
      *
      * This affects subsequent calls to {@link #addLocal(String, Type, int, int)} and
-     * {@link #getLocal(String)}. Previously declared variables will remain in scope
+     * {@link #getLocal(Symbol)}. Previously declared variables will remain in scope
      * after this method is called.
+     *
+     * @throws Error if the method is already complete.
      */
     public void enterBlock() {
-        blocks.push(nextBlock++);
+        if (scopes != null) {
+            throw new Error("MethodInfo.enterBlock: Method " + name + " is already complete");
+        }
+        blocks.add(new Block(currentBlock, nextIndex));
+        currentBlock = blocks.size() - 1;
     }
 
     /**
      * Leave the current block.
      *
      * This affects subsequent calls to {@link #addLocal(String, Type, int, int)} and
-     * {@link #getLocal(String)}. Variables declared in the current block will go out
-     * of scope after this method is called.
+     * {@link #getLocal(Symbol)}. Variables declared in the current block will go out
+     * of scope after this method is called. When the outermost block is left, the
+     * method is complete and its Scopes are created.
      */
     public void leaveBlock() {
-        blocks.pop();
-        if (blocks.isEmpty())
-            nextBlock = 0;
+        final Block block = blocks.get(currentBlock);
+        block.endSlot = nextIndex;
+        currentBlock = block.parent;
+        if (currentBlock == -1) {
+            complete();
+        }
+    }
+
+    /**
+     * Returns true if the method is complete, i.e. if its outermost block has been left.
+     *
+     * @return true if the Scopes of the method have been created.
+     */
+    public boolean isComplete() {
+        return scopes != null;
     }
 
     /**
-     * Returns true if the local variable {@code local} is currently visible.
+     * Returns the Scope of a block of the complete method.
      *
-     * @param local A local variable of this method.
-     * @return true if {@code local} is visible, otherwise false.
+     * @param block Number of the block, in the order the blocks were entered.
+     * @return The Scope of the block.
+     * @throws Error if the method is not complete.
      */
-    private boolean isVisible(final VariableInfo local) {
-        return blocks.search(local.getBlock()) != -1;
+    public Scope getScope(int block) {
+        if (scopes == null) {
+            throw new Error("MethodInfo.getScope: Method " + name + " is not complete");
+        }
+        return scopes[block];
+    }
+
+    /**
+     * @return The number of blocks, and thus Scopes, in the method.
+     */
+    public int getNumScopes() {
+        return scopes != null ? scopes.length : blocks.size();
+    }
+
+    /**
+     * Creates the Scopes from the blocks. A block is always entered after its parent,
+     * so the parent Scope has been created when its children are.
+     */
+    private void complete() {
+        scopes = new Scope[blocks.size()];
+        for (int i = 0; i < scopes.length; ++i) {
+            final Block block = blocks.get(i);
+            scopes[i] = new Scope(
+                    block.parent == -1 ? null : scopes[block.parent],
+                    i,
+                    block.locals.toArray(new VariableInfo[block.locals.size()]),
+                    block.firstSlot,
+                    block.endSlot);
+        }
+        blocks = null;
+    }
+
+    /**
+     * A block under construction.
+     */
+    private static class Block {
+        final int parent;
+        final int firstSlot;
+        final List<VariableInfo> locals = new ArrayList<>();
+        final Map<Symbol, VariableInfo> localsByName = new HashMap<>();
+        int endSlot;
+
+        Block(int parent, int firstSlot) {
+            this.parent = parent;
+            this.firstSlot = firstSlot;
+        }
     }
 
     /**
@@ -0,0 +1,143 @@
+package mjc.symbol;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Scope represents a block within a method, and the local variables declared in it.
+ *
+ * The scopes of a method form a tree with the method body at the root. Each scope has
+ * a parent (null for the method body), the local variables declared directly in the
+ * block and the range of variable slots that were allocated while the block was open,
+ * which includes the slots of nested blocks.
+ *
+ * Scopes are created by {@link MethodInfo} when the outermost block of the method is
+ * left, and never change after that. Since lookups only read final fields, they need
+ * no locking and may be done from several threads at once.
+ *
+ * The locals of a small block are searched one by one, and those of a larger block are
+ * looked up in a map, so that the time to resolve all names in a method grows with the
+ * number of names, not with their square.
+ */
+public final class Scope {
+    // Blocks with more locals than this get a map from names to locals.
+    private static final int MAX_SEARCHED_LOCALS = 8;
+
+    private final Scope parent;
+    private final int block;
+    private final VariableInfo[] locals;
+    private final Map<Symbol, VariableInfo> localsByName;
+    private final int firstSlot;
+    private final int endSlot;
+
+    /**
+     * Constructs a new Scope.
+     *
+     * @param parent Enclosing scope, or null for the method body.
+     * @param block Number of the block, in the order the blocks were entered.
+     * @param locals Local variables declared directly in the block.
+     * @param firstSlot First variable slot allocated in the block.
+     * @param endSlot One past the last variable slot allocated in the block.
+     */
+    Scope(Scope parent, int block, VariableInfo[] locals, int firstSlot, int endSlot) {
+        this.parent = parent;
+        this.block = block;
+        this.locals = locals;
+        if (locals.length > MAX_SEARCHED_LOCALS) {
+            this.localsByName = new HashMap<>();
+            for (VariableInfo local : locals) {
+                if (!localsByName.containsKey(local.getSymbol())) {
+                    localsByName.put(local.getSymbol(), local);
+                }
+            }
+        } else {
+            this.localsByName = null;
+        }
+        this.firstSlot = firstSlot;
+        this.endSlot = endSlot;
+    }
+
+    /**
+     * @return The enclosing scope, or null if this is the scope of the method body.
+     */
+    public Scope getParent() {
+        return parent;
+    }
+
+    /**
+     * @return The number of the block, which is the block of the local variables
+     *         declared in it (see {@link VariableInfo#getBlock()}).
+     */
+    public int getBlock() {
+        return block;
+    }
+
+    /**
+     * @return The number of local variables declared directly in the block.
+     */
+    public int getNumLocals() {
+        return locals.length;
+    }
+
+    /**
+     * @param i Index of the local variable, in declaration order.
+     * @return The i:th local variable declared directly in the block.
+     */
+    public VariableInfo getLocalAt(int i) {
+        return locals[i];
+    }
+
+    /**
+     * @return The first variable slot allocated in the block.
+     */
+    public int getFirstSlot() {
+        return firstSlot;
+    }
+
+    /**
+     * @return One past the last variable slot allocated in the block or the blocks
+     *         nested in it.
+     */
+    public int getEndSlot() {
+        return endSlot;
+    }
+
+    /**
+     * Returns information about a local variable visible in the block.
+     *
+     * The block itself is searched first, then the enclosing blocks outwards.
+     *
+     * @param name Variable name.
+     * @return Variable information, or null if no such local variable is visible.
+     */
+    public VariableInfo getLocal(final Symbol name) {
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            if (scope.localsByName != null) {
+                final VariableInfo local = scope.localsByName.get(name);
+                if (local != null) {
+                    return local;
+                }
+            } else {
+                for (VariableInfo local : scope.locals) {
+                    if (local.getSymbol() == name) {
+                        return local;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns information about a local variable visible in the block.
+     *
+     * Interns {@code name} on each call, so it is only meant for tests. Other code looks
+     * names up by the Symbol of their identifier.
+     *
+     * @param name Variable name.
+     * @return Variable information, or null if no such local variable is visible.
+     */
+    VariableInfo getLocal(final String name) {
+        return getLocal(Symbol.of(name));
+    }
+}
@@ -0,0 +1,90 @@
+package mjc.symbol;
+
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * A Symbol is an interned identifier.
+ *
+ * There is exactly one Symbol for each distinct name, so Symbols are compared by
+ * identity. Each Symbol has a precomputed hash code, so that tables keyed by Symbol
+ * are hash maps with cheap lookups.
+ *
+ * Identifier tokens carry their Symbol (see {@code TIdentifier.getSymbol()}), and
+ * the FastLexer interns identifiers as it reads them, so that the symbol table can
+ * be looked up without hashing or comparing strings.
+ *
+ * The pool of Symbols is shared by all compilations in the JVM, and is safe to use
+ * from several threads. It only holds its Symbols weakly: a Symbol that is no longer
+ * used by any compilation is removed from the pool, so that the pool does not grow
+ * without bound in a compiler server or in batch mode. A name that is used again
+ * gets a new Symbol, which can not be confused with the old one, since nothing refers
+ * to that any more.
+ */
+public final class Symbol {
+    private static final ConcurrentMap<String, Symbol> symbols =
+            new MapMaker().weakValues().makeMap();
+
+    private final String name;
+    private final int hash;
+
+    private Symbol(String name) {
+        this.name = name;
+        this.hash = name.hashCode();
+    }
+
+    /**
+     * Returns the Symbol for {@code name}, creating it if needed.
+     *
+     * @param name Identifier name.
+     * @return The Symbol for {@code name}.
+     */
+    public static Symbol of(String name) {
+        final Symbol symbol = symbols.get(name);
+        if (symbol != null) {
+            return symbol;
+        }
+        final Symbol created = new Symbol(name);
+        final Symbol existing = symbols.putIfAbsent(name, created);
+        return existing != null ? existing : created;
+    }
+
+    /**
+     * @return The name of the Symbol.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns true if the name of the Symbol is the {@code length} characters of
+     * {@code chars} starting at {@code start}.
+     *
+     * @param chars Characters to compare to.
+     * @param start Index of first character.
+     * @param length Number of characters.
+     * @return true if the name equals the given characters.
+     */
+    public boolean nameEquals(char[] chars, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
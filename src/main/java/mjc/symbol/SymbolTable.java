@@ -6,10 +6,11 @@ import java.util.Map;
 /**
  * The SymbolTable holds information about declared symbols in the program.
  *
- * At the top level, it's a map of declared classes.
+ * At the top level, it's a map of declared classes, keyed by the {@link Symbol} of
+ * the class name.
  */
 public class SymbolTable {
-    private final Map<String, ClassInfo> classes;
+    private final Map<Symbol, ClassInfo> classes;
 
     /**
      * Constructs a new empty symbol table.
@@ -24,10 +25,20 @@ public class SymbolTable {
      * @param name Name of the class.
      * @return Information about the class, or null if there's no such class.
      */
-    public ClassInfo getClassInfo(String name) {
+    public ClassInfo getClassInfo(Symbol name) {
         return classes.get(name);
     }
 
+    /**
+     * Returns information about a declared class.
+     *
+     * @param name Name of the class.
+     * @return Information about the class, or null if there's no such class.
+     */
+    public ClassInfo getClassInfo(String name) {
+        return getClassInfo(Symbol.of(name));
+    }
+
     /**
      * Adds information about a declared class.
      *
@@ -37,7 +48,20 @@ public class SymbolTable {
      * @param name Name of the class.
      * @param info Information about the class.
      */
-    public void addClassInfo(String name, ClassInfo info) {
+    public void addClassInfo(Symbol name, ClassInfo info) {
         classes.put(name, info);
     }
+
+    /**
+     * Adds information about a declared class.
+     *
+     * If information about a class with the same name already exists, it will
+     * be replaced.
+     *
+     * @param name Name of the class.
+     * @param info Information about the class.
+     */
+    public void addClassInfo(String name, ClassInfo info) {
+        addClassInfo(Symbol.of(name), info);
+    }
 }
@@ -7,6 +7,7 @@ import mjc.types.Type;
  */
 public class VariableInfo {
     private final String name;
+    private final Symbol symbol;
     private final Type type;
 
     private final int line;
@@ -14,6 +15,7 @@ public class VariableInfo {
 
     private final int index;
     private final int block;
+    private final boolean field;
 
     /**
      * Constructs a new VariableInfo.
@@ -24,14 +26,19 @@ public class VariableInfo {
      * @param column Column of declaration.
      * @param index Index within the class for fields, or index within method for
      *              parameters and local variables.
+     * @param block Block in which the variable was declared.
+     * @param field true if the variable is a field.
      */
-    VariableInfo(String name, Type type, int line, int column, int index, int block) {
+    VariableInfo(String name, Type type, int line, int column, int index, int block,
+            boolean field) {
         this.name = name;
+        this.symbol = Symbol.of(name);
         this.type = type;
         this.line = line;
         this.column = column;
         this.index = index;
         this.block = block;
+        this.field = field;
     }
 
     /**
@@ -41,6 +48,13 @@ public class VariableInfo {
         return name;
     }
 
+    /**
+     * @return Name of the variable, as a Symbol.
+     */
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
     /**
      * @return Type of the variable.
      */
@@ -73,6 +87,14 @@ public class VariableInfo {
         return block;
     }
 
+    /**
+     * @return true if the variable is a field, false if it is a parameter or a local
+     *         variable.
+     */
+    public boolean isField() {
+        return field;
+    }
+
     /**
      * Returns the index of the variable within the class or method.
      *
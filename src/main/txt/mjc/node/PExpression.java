@@ -0,0 +1,20 @@
+/* This file replaces the PExpression.java generated by SableCC (http://www.sablecc.org/). */
+
+package mjc.node;
+
+import mjc.types.Type;
+
+public abstract class PExpression extends Node
+{
+    private Type typeAnnotation;
+
+    public Type getTypeAnnotation()
+    {
+        return this.typeAnnotation;
+    }
+
+    public void setTypeAnnotation(Type typeAnnotation)
+    {
+        this.typeAnnotation = typeAnnotation;
+    }
+}
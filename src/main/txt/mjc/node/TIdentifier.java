@@ -0,0 +1,85 @@
+/* This file replaces the TIdentifier.java generated by SableCC (http://www.sablecc.org/). */
+
+package mjc.node;
+
+import mjc.analysis.*;
+import mjc.symbol.MethodInfo;
+import mjc.symbol.Symbol;
+import mjc.symbol.VariableInfo;
+
+@SuppressWarnings("nls")
+public final class TIdentifier extends Token
+{
+    private Symbol symbol;
+    private VariableInfo variable;
+    private MethodInfo method;
+
+    public TIdentifier(String text)
+    {
+        setText(text);
+    }
+
+    public TIdentifier(String text, int line, int pos)
+    {
+        setText(text);
+        setLine(line);
+        setPos(pos);
+    }
+
+    public TIdentifier(Symbol symbol, int line, int pos)
+    {
+        super.setText(symbol.getName());
+        this.symbol = symbol;
+        setLine(line);
+        setPos(pos);
+    }
+
+    public Symbol getSymbol()
+    {
+        if(this.symbol == null)
+        {
+            this.symbol = Symbol.of(getText());
+        }
+
+        return this.symbol;
+    }
+
+    public VariableInfo getVariable()
+    {
+        return this.variable;
+    }
+
+    public void setVariable(VariableInfo variable)
+    {
+        this.variable = variable;
+    }
+
+    public MethodInfo getMethod()
+    {
+        return this.method;
+    }
+
+    public void setMethod(MethodInfo method)
+    {
+        this.method = method;
+    }
+
+    @Override
+    public void setText(@SuppressWarnings("hiding") String text)
+    {
+        super.setText(text);
+        this.symbol = null;
+    }
+
+    @Override
+    public Object clone()
+    {
+      return new TIdentifier(getText(), getLine(), getPos());
+    }
+
+    @Override
+    public void apply(Switch sw)
+    {
+        ((Analysis) sw).caseTIdentifier(this);
+    }
+}
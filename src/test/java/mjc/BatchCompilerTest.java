@@ -0,0 +1,170 @@
+package mjc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mjc.output.ClassOutput;
+import mjc.output.MemoryOutput;
+import mjc.source.SourceFile;
+import static mjc.error.MiniJavaErrorType.IO_ERROR;
+import static mjc.error.MiniJavaErrorType.UNDECLARED_IDENTIFIER;
+
+public class BatchCompilerTest {
+    private static final String dataDir = "src/test/resources/execute";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that each program is compiled as by a Compiler, and the results are
+     * returned in order.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testCompile() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (Path path : Files.newDirectoryStream(Paths.get(dataDir), "*.java")) {
+            files.add(path);
+        }
+        final Map<Path, MemoryOutput> outputs = new ConcurrentHashMap<>();
+        final List<CompilationResult> results = compile(files, outputs, 3);
+
+        assertEquals(files.size(), results.size());
+        for (int i = 0; i < files.size(); i++) {
+            final CompilationResult expected = new Compiler().compile(SourceFile.read(files.get(i)));
+            assertEquals(expected.getErrors(), results.get(i).getErrors());
+            if (!expected.isSuccessful()) {
+                continue;
+            }
+            final Map<String, byte[]> classFiles = outputs.get(files.get(i)).getClassFiles();
+            assertEquals(expected.getClassFiles().keySet(), classFiles.keySet());
+            for (Map.Entry<String, byte[]> entry : expected.getClassFiles().entrySet()) {
+                assertArrayEquals(entry.getValue(), classFiles.get(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Tests that a program that fails does not affect the others.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testFailures() throws IOException {
+        final Path good = write("Good.java", "1");
+        final Path bad = write("Bad.java", "x");
+        final Path missing = folder.getRoot().toPath().resolve("Missing.java");
+        final List<Path> files = new ArrayList<>();
+        for (Path file : new Path[] { missing, good, bad, good }) {
+            files.add(file);
+        }
+        final List<CompilationResult> results =
+                compile(files, new ConcurrentHashMap<Path, MemoryOutput>(), 2);
+
+        assertEquals(4, results.size());
+        assertEquals(IO_ERROR, results.get(0).getErrors().get(0).getType());
+        assertTrue(results.get(1).isSuccessful());
+        assertEquals(UNDECLARED_IDENTIFIER, results.get(2).getErrors().get(0).getType());
+        assertTrue(results.get(3).isSuccessful());
+    }
+
+    /**
+     * Tests that a failure to write the output of a program is reported for it.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testOutputError() throws IOException {
+        final Path good = write("Good.java", "1");
+        final Path other = write("Other.java", "2");
+        final List<Path> files = new ArrayList<>();
+        files.add(good);
+        files.add(other);
+        final List<CompilationResult> results = new BatchCompiler(new Compiler(), 1).compile(
+                files, new BatchCompiler.Outputs() {
+            public ClassOutput open(final Path file) {
+                return new ClassOutput() {
+                    public void writeClass(String className, byte[] classFile)
+                            throws IOException {
+                        if (file.endsWith("Good.java")) {
+                            throw new IOException("disk full");
+                        }
+                    }
+
+                    public void writeAssembly(String className, CharSequence code) {
+                    }
+
+                    public void close() {
+                    }
+                };
+            }
+        });
+
+        assertEquals(1, results.get(0).getErrors().size());
+        assertEquals("disk full", results.get(0).getErrors().get(0).getMessage());
+        assertTrue(results.get(1).isSuccessful());
+    }
+
+    /**
+     * Tests that no programs are compiled if the calling thread is interrupted.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testCancel() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        files.add(write("Good.java", "1"));
+        Thread.currentThread().interrupt();
+        final List<CompilationResult> results;
+        try {
+            results = compile(files, new ConcurrentHashMap<Path, MemoryOutput>(), 1);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(results.isEmpty());
+    }
+
+    /** Compiles files into memory, with an output for each file. */
+    private static List<CompilationResult> compile(List<Path> files,
+            final Map<Path, MemoryOutput> outputs, int threads) {
+        return new BatchCompiler(new Compiler(), threads).compile(files,
+                new BatchCompiler.Outputs() {
+            public ClassOutput open(Path file) {
+                final MemoryOutput output = new MemoryOutput();
+                outputs.put(file, output);
+                return output;
+            }
+        });
+    }
+
+    /** Writes a program that prints an expression to a file in the temporary folder. */
+    private Path write(String name, String expression) throws IOException {
+        final String program =
+                "class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(" + expression + ");\n" +
+                "    }\n" +
+                "}\n";
+        final Path file = folder.getRoot().toPath().resolve(name);
+        if (!Files.exists(file)) {
+            Files.write(file, program.getBytes("UTF-8"));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,265 @@
+package mjc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import mjc.CompilationStats.Step;
+import mjc.Compiler.Phase;
+import mjc.node.AClassDeclaration;
+import mjc.node.AMainClassDeclaration;
+import mjc.node.Node;
+import mjc.output.MemoryOutput;
+import mjc.output.WriteBehindQueue;
+import mjc.source.SourceFile;
+import static mjc.error.MiniJavaErrorType.INVALID_RETURN_TYPE;
+import static mjc.error.MiniJavaErrorType.PARSER_ERROR;
+import static mjc.error.MiniJavaErrorType.UNDECLARED_IDENTIFIER;
+
+public class CompilerTest {
+    private static final String dataDir = "src/test/resources/execute";
+
+    private static final String program =
+            "class Main {\n" +
+            "    public static void main(String[] args) {\n" +
+            "        System.out.println(new A().f());\n" +
+            "    }\n" +
+            "}\n" +
+            "class A {\n" +
+            "    public int f() {\n" +
+            "        return 1;\n" +
+            "    }\n" +
+            "}\n";
+
+    /**
+     * Tests that a program is compiled to class files in memory, with the main class
+     * first.
+     */
+    @Test
+    public void testCompile() {
+        final CompilationResult result = new Compiler().compile(program.toCharArray());
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(Arrays.asList("Main", "A"), new ArrayList<>(result.getClassFiles().keySet()));
+        assertTrue(result.getAssembly().isEmpty());
+        assertEquals(Arrays.asList(Phase.PARSING, Phase.ANALYSIS, Phase.GENERATION),
+                new ArrayList<>(result.getTimes().keySet()));
+    }
+
+    /**
+     * Tests that Jasmin code is kept in memory with the Jasmin backend.
+     */
+    @Test
+    public void testCompileJasmin() {
+        final Compiler compiler = new Compiler(Compiler.Frontend.SABLECC,
+                Compiler.Frontend.SABLECC, true, Compiler.Backend.JASMIN, null, false);
+        final CompilationResult result = compiler.compile(program.toCharArray());
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getClassFiles().isEmpty());
+        assertTrue(result.getAssembly().get("A").startsWith(".class"));
+    }
+
+    /**
+     * Tests that with compact, each class is inflated and type-checked once, during code
+     * generation, and that no code is written if a class has errors.
+     *
+     * @throws IOException if the queue failed to write to the output.
+     */
+    @Test
+    public void testCompactChecksEachClassOnce() throws IOException {
+        final Compiler compiler = new Compiler(Compiler.Frontend.FAST, Compiler.Frontend.FAST,
+                true, Compiler.Backend.CLASS_FILES, null, false);
+        final String source = program + "class B {\n    public int g() {\n" +
+                "        return true;\n    }\n}\n";
+
+        final Compiler.Compilation compilation = compiler.newCompilation(source.toCharArray());
+        assertTrue(compiler.parse(compilation));
+        assertTrue(compiler.analyze(compilation)); // Not checked yet.
+
+        final List<String> inflated = new ArrayList<>();
+        final Iterable<Node> units = compilation.units;
+        compilation.units = new Iterable<Node>() {
+            public Iterator<Node> iterator() {
+                final Iterator<Node> iterator = units.iterator();
+                return new Iterator<Node>() {
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    public Node next() {
+                        final Node unit = iterator.next();
+                        inflated.add(unit instanceof AMainClassDeclaration
+                                ? ((AMainClassDeclaration) unit).getName().getText()
+                                : ((AClassDeclaration) unit).getName().getText());
+                        return unit;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+        final MemoryOutput output = new MemoryOutput();
+        final WriteBehindQueue queue = new WriteBehindQueue(16);
+        try {
+            compiler.generate(compilation, output, queue);
+        } finally {
+            queue.close();
+        }
+
+        assertEquals(Arrays.asList("Main", "A", "B"), inflated);
+        final CompilationResult result = compilation.result();
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).equals(INVALID_RETURN_TYPE));
+        assertTrue(output.getClassFiles().isEmpty());
+
+        assertTrue(compiler.compile(program.toCharArray()).getClassFiles().containsKey("A"));
+    }
+
+    /**
+     * Tests that errors in the program are returned, and that no code is generated.
+     */
+    @Test
+    public void testErrors() {
+        final Compiler compiler = new Compiler();
+
+        CompilationResult result = compiler.compile(program.replace("1;", "x;").toCharArray());
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).equals(UNDECLARED_IDENTIFIER));
+        assertTrue(result.getClassFiles().isEmpty());
+        assertFalse(result.getTimes().containsKey(Phase.GENERATION));
+
+        result = compiler.compile(program.replace("return", "").toCharArray());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).equals(PARSER_ERROR));
+        assertEquals(Arrays.asList(Phase.PARSING), new ArrayList<>(result.getTimes().keySet()));
+    }
+
+    /**
+     * Tests that statistics are collected when asked for, and that the program is
+     * compiled the same.
+     */
+    @Test
+    public void testStats() {
+        final Compiler compiler = new Compiler(Compiler.Frontend.FAST,
+                Compiler.Frontend.FAST, false, Compiler.Backend.CLASS_FILES, null, true);
+        final CompilationResult result = compiler.compile(program.toCharArray());
+        assertSameCode(new Compiler().compile(program.toCharArray()), result);
+        assertNull(new Compiler().compile(program.toCharArray()).getStats());
+
+        final CompilationStats stats = result.getStats();
+        assertEquals(Arrays.asList(Step.LEXING, Step.PARSING, Step.SYMBOL_TABLE,
+                Step.TYPE_CHECKING, Step.GENERATION), new ArrayList<>(stats.getTimes().keySet()));
+        assertEquals(2, stats.getClassCount());
+        assertEquals(2, stats.getMethodCount());
+        assertEquals(0, stats.getLocalCount());
+
+        // Each class has a constructor as well.
+        assertEquals(4, stats.getMethods().size());
+        final CompilationStats.MethodStats f = stats.getMethods().get(3);
+        assertEquals("A.f()I", f.getClassName() + "." + f.getName() + f.getDescriptor());
+        assertTrue(f.getCodeSize() > 0);
+        assertEquals(1, f.getMaxStack());
+        assertEquals(1, f.getMaxLocals());
+        assertTrue(stats.toJson().contains("\"name\": \"f\", \"descriptor\": \"()I\""));
+    }
+
+    /**
+     * Tests that lexing the source before parsing it with statistics gives the same
+     * errors.
+     */
+    @Test
+    public void testStatsErrors() {
+        final Compiler compiler = new Compiler(Compiler.Frontend.FAST,
+                Compiler.Frontend.FAST, false, Compiler.Backend.CLASS_FILES, null, true);
+        final char[] source = (program.replace("return", "") + "#").toCharArray();
+        assertEquals(new Compiler().compile(source).getErrors(),
+                compiler.compile(source).getErrors());
+        assertTrue(compiler.compile(source).getErrors().get(0).equals(PARSER_ERROR));
+    }
+
+    /**
+     * Tests that compilation stops if the compiling thread is interrupted.
+     */
+    @Test
+    public void testCancel() {
+        Thread.currentThread().interrupt();
+        final CompilationResult result;
+        try {
+            result = new Compiler().compile(program.toCharArray());
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(result.isCancelled());
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getClassFiles().isEmpty());
+    }
+
+    /**
+     * Tests that one compiler gives the same results when shared by several threads.
+     *
+     * @throws Exception if compilation failed.
+     */
+    @Test
+    public void testConcurrentCompile() throws Exception {
+        final Compiler compiler = new Compiler();
+        final List<char[]> sources = new ArrayList<>();
+        for (Path path : Files.newDirectoryStream(Paths.get(dataDir), "*.java")) {
+            sources.add(SourceFile.read(path));
+        }
+
+        final List<CompilationResult> expected = new ArrayList<>();
+        for (char[] source : sources) {
+            expected.add(compiler.compile(source));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<CompilationResult>> actual = new ArrayList<>();
+            for (int round = 0; round < 4; round++) {
+                for (final char[] source : sources) {
+                    actual.add(executor.submit(new Callable<CompilationResult>() {
+                        public CompilationResult call() {
+                            return compiler.compile(source);
+                        }
+                    }));
+                }
+            }
+            for (int i = 0; i < actual.size(); i++) {
+                assertSameCode(expected.get(i % sources.size()), actual.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertSameCode(CompilationResult expected, CompilationResult actual) {
+        assertEquals(expected.getErrors().size(), actual.getErrors().size());
+        assertEquals(expected.getClassFiles().keySet(), actual.getClassFiles().keySet());
+        for (Map.Entry<String, byte[]> entry : expected.getClassFiles().entrySet()) {
+            assertArrayEquals(entry.getValue(), actual.getClassFiles().get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package mjc.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mjc.lexer.FastLexer;
+import mjc.node.AArrayAssignStatement;
+import mjc.node.AAssignStatement;
+import mjc.node.AIdentifierExpression;
+import mjc.node.AMethodInvocationExpression;
+import mjc.node.Start;
+import mjc.node.TIdentifier;
+import mjc.parser.FastParser;
+import mjc.symbol.ClassInfo;
+import mjc.symbol.MethodInfo;
+import mjc.symbol.Symbol;
+import mjc.symbol.SymbolTable;
+import mjc.symbol.VariableInfo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class NameResolverTest {
+
+    private static final String source =
+            "class Main {\n" +
+            "    public static void main(String[] args) {\n" +
+            "        System.out.println(new B().f(1));\n" +
+            "    }\n" +
+            "}\n" +
+            "class B {\n" +
+            "    int x;\n" +
+            "    int y;\n" +
+            "    int[] z;\n" +
+            "    public int f(int y) {\n" +
+            "        int x;\n" +
+            "        x = y;\n" +
+            "        z = new int[x];\n" +
+            "        z[0] = u;\n" +
+            "        return this.g();\n" +
+            "    }\n" +
+            "    public int g() {\n" +
+            "        return x;\n" +
+            "    }\n" +
+            "}\n";
+
+    /**
+     * Tests that each use of a name is bound to the innermost variable of that name.
+     */
+    @Test
+    public void testResolve() throws Exception {
+        final Start ast = new FastParser(new FastLexer(source.toCharArray())).parse();
+        final SymbolTable symbolTable = new SymbolTableBuilder().build(ast);
+        new NameResolver().resolve(ast, symbolTable);
+
+        final ClassInfo b = symbolTable.getClassInfo("B");
+        final MethodInfo f = b.getMethod("f");
+        final MethodInfo g = b.getMethod("g");
+
+        final VariableInfo x = f.getScope(0).getLocal(Symbol.of("x"));
+        assertThat(x, is(notNullValue()));
+
+        final List<TIdentifier> uses = uses(ast);
+        assertThat(uses.size(), is(7));
+
+        // x = y; in f: local x, parameter y.
+        assertThat(uses.get(0).getVariable(), sameInstance(x));
+        assertThat(uses.get(1).getVariable(), sameInstance(f.getParameter(Symbol.of("y"))));
+
+        // z = new int[x]; in f: field z, local x.
+        assertThat(uses.get(2).getVariable(), sameInstance(b.getField(Symbol.of("z"))));
+        assertThat(uses.get(3).getVariable(), sameInstance(x));
+
+        // z[0] = u; in f: field z, undeclared u.
+        assertThat(uses.get(4).getVariable(), sameInstance(b.getField(Symbol.of("z"))));
+        assertThat(uses.get(5).getVariable(), is(nullValue()));
+        assertThat(uses.get(4).getVariable().isField(), is(true));
+        assertThat(uses.get(0).getVariable().isField(), is(false));
+
+        // return x; in g: field x.
+        assertThat(uses.get(6).getVariable(), sameInstance(b.getField(Symbol.of("x"))));
+
+        // The undeclared u is left to the type checker, which also binds the
+        // invocation of g in f.
+        final TypeChecker typeChecker = new TypeChecker();
+        typeChecker.check(ast, symbolTable);
+        assertThat(typeChecker.getErrors().size(), is(1));
+        assertThat(invocations(ast).get(1).getMethod(), sameInstance(g));
+    }
+
+    /** Returns the names of the variable uses in {@code ast}, in order. */
+    private static List<TIdentifier> uses(Start ast) {
+        final List<TIdentifier> uses = new ArrayList<>();
+        ast.apply(new DepthFirstAdapter() {
+            @Override
+            public void inAAssignStatement(AAssignStatement statement) {
+                uses.add(statement.getName());
+            }
+
+            @Override
+            public void inAArrayAssignStatement(AArrayAssignStatement statement) {
+                uses.add(statement.getName());
+            }
+
+            @Override
+            public void inAIdentifierExpression(AIdentifierExpression expression) {
+                uses.add(expression.getIdentifier());
+            }
+        });
+        return uses;
+    }
+
+    /** Returns the names of the invoked methods in {@code ast}, in order. */
+    private static List<TIdentifier> invocations(Start ast) {
+        final List<TIdentifier> invocations = new ArrayList<>();
+        ast.apply(new DepthFirstAdapter() {
+            @Override
+            public void inAMethodInvocationExpression(AMethodInvocationExpression expression) {
+                invocations.add(expression.getName());
+            }
+        });
+        return invocations;
+    }
+}
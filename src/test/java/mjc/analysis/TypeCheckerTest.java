@@ -8,15 +8,19 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import mjc.analysis.TypeChecker;
 import mjc.lexer.Lexer;
 import mjc.lexer.LexerException;
+import mjc.node.Node;
+import mjc.node.PExpression;
 import mjc.node.Start;
 import mjc.parser.Parser;
 import mjc.parser.ParserException;
 import mjc.symbol.SymbolTable;
+import mjc.types.Type;
 import mjc.error.MiniJavaErrorType;
 
 import org.junit.Test;
@@ -26,6 +30,8 @@ import org.junit.runners.Parameterized.Parameters;
 
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.hamcrest.Matchers.containsInAnyOrder;;
 
@@ -115,6 +121,50 @@ public class TypeCheckerTest {
         }
     }
 
+    /**
+     * Tests that the type checker annotates each expression of a valid program with
+     * its type, and that getTypes() is a view of those annotations.
+     *
+     * @throws IOException if an I/O error occurred.
+     * @throws ParserException if parsing failed.
+     * @throws LexerException if lexical analysis failed.
+     */
+    @Test
+    public void testTypes() throws IOException, ParserException, LexerException {
+        FileReader reader = new FileReader(path);
+        Parser parser = new Parser(new Lexer(new PushbackReader(reader)));
+        Start tree = parser.parse();
+        reader.close();
+
+        SymbolTable symbolTable = new SymbolTableBuilder().build(tree);
+        final TypeChecker typeChecker = new TypeChecker();
+        final boolean valid = typeChecker.check(tree, symbolTable);
+
+        final Map<Node, Type> types = typeChecker.getTypes();
+        final List<PExpression> expressions = new ArrayList<>();
+        tree.apply(new DepthFirstAdapter() {
+            @Override
+            public void defaultOut(Node node) {
+                if (node instanceof PExpression) {
+                    expressions.add((PExpression) node);
+                }
+            }
+        });
+
+        int annotated = 0;
+        for (PExpression expression : expressions) {
+            final Type type = expression.getTypeAnnotation();
+            if (valid) {
+                assertThat(expression.toString(), type, is(notNullValue()));
+            }
+            if (type != null) {
+                assertThat(types.get(expression), is(sameInstance(type)));
+                annotated++;
+            }
+        }
+        assertThat(types.size(), is(annotated));
+    }
+
     /**
      * Provides the absolute path of each *.java file in dataDir as input to
      * testCheck().
@@ -0,0 +1,184 @@
+package mjc.ast.compact;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNoException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.analysis.SymbolTableBuilder;
+import mjc.analysis.TypeChecker;
+import mjc.error.MiniJavaError;
+import mjc.lexer.FastLexer;
+import mjc.lexer.LexerException;
+import mjc.node.Node;
+import mjc.node.Start;
+import mjc.node.Token;
+import mjc.parser.FastParser;
+import mjc.parser.ParserException;
+import mjc.source.SourceFile;
+import mjc.symbol.SymbolTable;
+
+/**
+ * Tests the CompactTree on the programs under dataDir.
+ *
+ * The test case will run once on each *.java file under dataDir that parses.
+ */
+@RunWith(Parameterized.class)
+public class CompactTreeTest {
+    private static String dataDir = "src/test/resources";
+
+    private String path;
+    private Start ast;
+
+    /**
+     * Create a new test case for the file at the given path.
+     *
+     * @param path Path of file to test on.
+     */
+    public CompactTreeTest(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Parses the input, skipping the test if it does not parse.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        try {
+            ast = new FastParser(new FastLexer(SourceFile.read(Paths.get(path)))).parse();
+        } catch (LexerException | ParserException e) {
+            assumeNoException(e);
+        }
+    }
+
+    /**
+     * Tests that inflating the tree gives back the same AST.
+     */
+    @Test
+    public void testInflate() {
+        final CompactTree tree = CompactTree.of(ast);
+        assertEquals(dump(ast), dump(tree.inflate(tree.root())));
+    }
+
+    /**
+     * Tests that the classes of the tree are the class declarations of the AST.
+     */
+    @Test
+    public void testClasses() {
+        final CompactTree tree = CompactTree.of(ast);
+        final StringBuilder expected = new StringBuilder();
+        expected.append(dump(ast.getPProgram()));
+        final StringBuilder actual = new StringBuilder("(AProgram");
+        for (Node declaration : tree.classes()) {
+            actual.append(dump(declaration));
+        }
+        actual.append(')');
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * Tests that a program built one class at a time while building the symbol table
+     * holds the same tree, and that the classes may be detached from the AST as they
+     * are added.
+     */
+    @Test
+    public void testProgramBuilder() {
+        final String expected = dump(ast.getPProgram());
+        final CompactTree.ProgramBuilder builder = new CompactTree.ProgramBuilder();
+        new SymbolTableBuilder().build(ast, new SymbolTableBuilder.DeclarationHandler() {
+            @Override
+            public void handle(Node declaration) {
+                builder.add(declaration);
+                declaration.replaceBy(null);
+            }
+        });
+
+        // Redeclared classes and methods have been renamed with a random suffix.
+        final CompactTree tree = builder.build();
+        final String actual = dump(tree.inflate(tree.root()));
+        assertEquals(expected, actual.replaceAll("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}", ""));
+        assertEquals("(AProgram)", dump(ast.getPProgram()));
+    }
+
+    /**
+     * Tests that type-checking the classes one at a time finds the same errors as
+     * type-checking the whole AST.
+     */
+    @Test
+    public void testTypeCheckClasses() {
+        final SymbolTable symbolTable = new SymbolTableBuilder().build(ast);
+
+        final TypeChecker typeChecker = new TypeChecker();
+        typeChecker.check(ast, symbolTable);
+        final List<String> expected = new ArrayList<>();
+        for (MiniJavaError error : typeChecker.getErrors()) {
+            expected.add(error.toString());
+        }
+
+        final List<String> actual = new ArrayList<>();
+        for (Node declaration : CompactTree.of(ast).classes()) {
+            typeChecker.check(declaration, symbolTable);
+            for (MiniJavaError error : typeChecker.getErrors()) {
+                actual.add(error.toString());
+            }
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    /** Returns a description of the AST at {@code node}, including token positions. */
+    private static String dump(Node node) {
+        final StringBuilder result = new StringBuilder();
+        node.apply(new DepthFirstAdapter() {
+            @Override
+            public void defaultIn(Node node) {
+                result.append('(').append(node.getClass().getSimpleName());
+            }
+
+            @Override
+            public void defaultOut(Node node) {
+                result.append(')');
+            }
+
+            @Override
+            public void defaultCase(Node node) {
+                final Token token = (Token) node;
+                result.append(' ').append(token.getClass().getSimpleName())
+                      .append(" '").append(token.getText()).append("' [")
+                      .append(token.getLine()).append(',').append(token.getPos()).append(']');
+            }
+        });
+        return result.toString();
+    }
+
+    /**
+     * Provides the path of each *.java file under dataDir as input to the tests.
+     *
+     * @return an iterable over paths.
+     * @throws IOException if an I/O error occurred.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> testData() throws IOException {
+        final List<Object[]> data = new ArrayList<>();
+        for (String directory : new String[] {
+                "compile", "execute", "noncompile/symbol", "noncompile/type", "nonexecute" }) {
+            for (Path path : Files.newDirectoryStream(Paths.get(dataDir, directory), "*.java")) {
+                data.add(new Object[] { path.toString() });
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,254 @@
+package mjc.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PushbackReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import mjc.analysis.SymbolTableBuilder;
+import mjc.analysis.TypeChecker;
+import mjc.bytecode.ClassFileSummary.MethodSummary;
+import mjc.jasmin.Assembler;
+import mjc.jasmin.JasminGenerator;
+import mjc.jasmin.JasminHandler;
+import mjc.lexer.Lexer;
+import mjc.node.Start;
+import mjc.output.MemoryClassLoader;
+import mjc.parser.Parser;
+import mjc.parser.ParserException;
+import mjc.symbol.SymbolTable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the class file generator by running the generated code, and by comparing it
+ * with the code assembled from the output of the JasminGenerator.
+ *
+ * The test case will run once on each Foo.java file in dataDir. The program is compiled
+ * to class files in memory, which are then loaded and run. The output of the program is
+ * compared with the expected output in Foo.out.
+ */
+@RunWith(Parameterized.class)
+public class ClassFileGeneratorTest {
+    private static String dataDir = "src/test/resources/execute";
+
+    private String path; // Set once for each file in dataDir.
+
+    /**
+     * Create a new test case for the file at the given path.
+     *
+     * @param path Path of file to test on.
+     */
+    public ClassFileGeneratorTest(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Tests that the generated program produces the expected output.
+     *
+     * @throws Exception if compilation or execution failed.
+     */
+    @Test
+    public void testGenerate() throws Exception {
+        // Parse input. Some programs use extensions we don't support, skip those.
+        FileReader reader = new FileReader(path);
+        Parser parser = new Parser(new Lexer(new PushbackReader(reader)));
+        Start tree = null;
+        try {
+            tree = parser.parse();
+        } catch (ParserException e) {
+            assumeNoException(e);
+        } finally {
+            reader.close();
+        }
+
+        // Run semantic analysis.
+        SymbolTableBuilder builder = new SymbolTableBuilder();
+        SymbolTable symbolTable = builder.build(tree);
+        TypeChecker typeChecker = new TypeChecker();
+        assertTrue(!builder.hasErrors() && typeChecker.check(tree, symbolTable));
+
+        // Generate class files. The main class is always generated first.
+        final Map<String, byte[]> classFiles = new HashMap<>();
+        final String[] mainClass = new String[1];
+        ClassFileGenerator generator = new ClassFileGenerator(new ClassFileHandler() {
+            public void handle(String className, byte[] classFile) {
+                if (mainClass[0] == null) {
+                    mainClass[0] = className;
+                }
+                classFiles.put(className, classFile);
+            }
+        });
+        generator.generate(tree, symbolTable);
+
+        // Load and run the program.
+        ClassLoader loader = new MemoryClassLoader(classFiles, getClass().getClassLoader());
+        Method main = loader.loadClass(mainClass[0]).getMethod("main", String[].class);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } finally {
+            System.setOut(out);
+        }
+
+        assertThat(output.toString("UTF-8"), is(readExpected(path)));
+    }
+
+    /**
+     * Tests that the ParallelClassFileGenerator generates the same class files, in the
+     * same order, as the ClassFileGenerator.
+     *
+     * @throws Exception if compilation failed.
+     */
+    @Test
+    public void testParallelGenerate() throws Exception {
+        FileReader reader = new FileReader(path);
+        Parser parser = new Parser(new Lexer(new PushbackReader(reader)));
+        Start tree = null;
+        try {
+            tree = parser.parse();
+        } catch (ParserException e) {
+            assumeNoException(e);
+        } finally {
+            reader.close();
+        }
+
+        SymbolTable symbolTable = new SymbolTableBuilder().build(tree);
+        assertTrue(new TypeChecker().check(tree, symbolTable));
+
+        final List<String> expected = new ArrayList<>();
+        new ClassFileGenerator(handler(expected)).generate(tree, symbolTable);
+
+        final List<String> actual = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new ParallelClassFileGenerator(handler(actual), pool).generate(tree, symbolTable);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(actual, is(expected));
+    }
+
+    /**
+     * Tests that the code of each method is the same as the code of the class files
+     * assembled from the output of the JasminGenerator.
+     *
+     * @throws Exception if compilation failed.
+     */
+    @Test
+    public void testSameCodeAsJasmin() throws Exception {
+        FileReader reader = new FileReader(path);
+        Parser parser = new Parser(new Lexer(new PushbackReader(reader)));
+        Start tree = null;
+        try {
+            tree = parser.parse();
+        } catch (ParserException e) {
+            assumeNoException(e);
+        } finally {
+            reader.close();
+        }
+
+        SymbolTable symbolTable = new SymbolTableBuilder().build(tree);
+        assertTrue(new TypeChecker().check(tree, symbolTable));
+
+        final List<String> expected = new ArrayList<>();
+        final Assembler assembler = new Assembler();
+        new JasminGenerator(new JasminHandler() {
+            public void handle(String className, StringBuilder code) {
+                expected.addAll(codeOf(assembler.assemble(className, code)));
+            }
+        }).generate(tree, symbolTable);
+        assertTrue(assembler.getErrors().toString(), !assembler.hasErrors());
+
+        final List<String> actual = new ArrayList<>();
+        new ClassFileGenerator(new ClassFileHandler() {
+            public void handle(String className, byte[] classFile) {
+                actual.addAll(codeOf(classFile));
+            }
+        }).generate(tree, symbolTable);
+
+        assertThat(actual, is(expected));
+    }
+
+    /**
+     * Returns the name and measures of the code of each method in {@code classFile}.
+     * The length of the code is left out, since Jasmin always encodes {@code iinc} in
+     * its wide form.
+     */
+    private static List<String> codeOf(byte[] classFile) {
+        final List<String> methods = new ArrayList<>();
+        for (MethodSummary method : ClassFileSummary.read(classFile).getMethods()) {
+            methods.add(method.getName() + method.getDescriptor() +
+                    " max_stack " + method.getMaxStack() +
+                    " instructions " + method.getInstructionCount() +
+                    " branches " + method.getBranchCount() +
+                    " ldc " + method.getLdcCount());
+        }
+        return methods;
+    }
+
+    /** Returns a handler that adds the name and contents of each class file to {@code classes}. */
+    private static ClassFileHandler handler(final List<String> classes) {
+        return new ClassFileHandler() {
+            public void handle(String className, byte[] classFile) {
+                classes.add(className);
+                classes.add(Arrays.toString(classFile));
+            }
+        };
+    }
+
+    /**
+     * Provides the absolute path of each *.java file in dataDir as input to
+     * testGenerate(), testParallelGenerate() and testSameCodeAsJasmin().
+     *
+     * @return an iterable over paths.
+     * @throws IOException if an I/O error occurred.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> testValidData() throws IOException {
+        ArrayList<Object[]> data = new ArrayList<>();
+        for (Path path : Files.newDirectoryStream(Paths.get(dataDir), "*.java")) {
+            data.add(new Object[] { path.toAbsolutePath().toString() });
+        }
+        return data;
+    }
+
+    /**
+     * Helper method.
+     *
+     * Given the path of a .java file, reads the expected output from the corresponding
+     * .out file.
+     *
+     * @param javaPath Path to the .java file (e.g. "src/resources/execute/Foo.java")
+     * @return Expected output found in e.g. "src/resources/execute/Foo.out".
+     * @throws IOException If an I/O error occurred.
+     */
+    private String readExpected(String javaPath) throws IOException {
+        Path outPath = Paths.get(javaPath.substring(0, javaPath.length() - 5) + ".out");
+        return new String(Files.readAllBytes(outPath), StandardCharsets.UTF_8);
+    }
+}
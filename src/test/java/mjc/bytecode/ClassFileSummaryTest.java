@@ -0,0 +1,84 @@
+package mjc.bytecode;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import mjc.Compiler;
+import mjc.bytecode.ClassFileSummary.MethodSummary;
+import mjc.report.Javac;
+
+/**
+ * Tests for reading class files into summaries.
+ */
+public class ClassFileSummaryTest {
+
+    /**
+     * Tests the summary of a generated class file.
+     */
+    @Test
+    public void testGenerated() {
+        final String program =
+                "class Main {\n" +
+                "    public static void main(String[] args) {\n" +
+                "        System.out.println(new A().f(2));\n" +
+                "    }\n" +
+                "}\n" +
+                "class A {\n" +
+                "    public int f(int x) {\n" +
+                "        if (x < 1) { x = 1; } else { x = 2; }\n" +
+                "        return x;\n" +
+                "    }\n" +
+                "}\n";
+        final byte[] classFile = new Compiler().compile(program.toCharArray())
+                .getClassFiles().get("A");
+        final ClassFileSummary summary = ClassFileSummary.read(classFile);
+
+        assertEquals("A", summary.getClassName());
+        final MethodSummary f = method(summary, "f");
+        assertEquals("(I)I", f.getDescriptor());
+        assertEquals(2, f.getMaxLocals());
+        assertEquals(2, f.getBranchCount()); // if_icmpge to the else branch, and a goto over it.
+        assertEquals(0, f.getLdcCount());    // The constants are pushed with iconst_<n>.
+    }
+
+    /**
+     * Tests instructions that the compiler does not generate, compiled by javac.
+     */
+    @Test
+    public void testJavac() {
+        final String program =
+                "class S {\n" +
+                "    int table(int x) {\n" +
+                "        switch (x) { case 1: return 2; case 2: return 3; case 3: return 5; }\n" +
+                "        return 0;\n" +
+                "    }\n" +
+                "    int lookup(int x) {\n" +
+                "        switch (x) { case 1: return 2; case 1000: return 3; }\n" +
+                "        return 0;\n" +
+                "    }\n" +
+                "    long constant() {\n" +
+                "        return 1234567890123L;\n" +
+                "    }\n" +
+                "}\n";
+        final ClassFileSummary summary =
+                ClassFileSummary.read(Javac.compile(program, "S.java").get("S"));
+
+        assertEquals(1, method(summary, "table").getBranchCount());
+        assertEquals(1, method(summary, "lookup").getBranchCount());
+        assertEquals(10, method(summary, "table").getInstructionCount());
+        assertEquals(1, method(summary, "constant").getLdcCount());
+        assertEquals(2, method(summary, "constant").getInstructionCount());
+    }
+
+    private static MethodSummary method(ClassFileSummary summary, String name) {
+        final Map<String, MethodSummary> methods = new HashMap<>();
+        for (MethodSummary method : summary.getMethods()) {
+            methods.put(method.getName(), method);
+        }
+        return methods.get(name);
+    }
+}
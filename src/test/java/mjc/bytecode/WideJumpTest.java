@@ -0,0 +1,121 @@
+package mjc.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+import mjc.CompilationResult;
+import mjc.Compiler;
+import mjc.output.MemoryClassLoader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.hamcrest.Matchers.is;
+
+import static mjc.bytecode.Opcodes.*;
+
+/**
+ * Tests that methods with jumps farther than a 16-bit offset are generated with wide
+ * jumps.
+ */
+public class WideJumpTest {
+
+    /**
+     * Tests a forward conditional jump over more than 32 KB of code.
+     *
+     * @throws Exception if the generated class could not be loaded or run.
+     */
+    @Test
+    public void testMethodWriter() throws Exception {
+        final ClassFileWriter classWriter =
+                new ClassFileWriter(ACC_PUBLIC | ACC_SUPER, "Wide", "java/lang/Object");
+        final MethodWriter method = classWriter.addMethod(ACC_PUBLIC | ACC_STATIC, "f", "(I)I");
+        skipIfZero(method);
+        assertTrue(method.needsWideJumps());
+
+        method.restartWithWideJumps();
+        skipIfZero(method);
+        assertThat(method.needsWideJumps(), is(false));
+        // iload_0, ifne +8, goto_w, the skipped code and two returns.
+        assertThat(method.getCodeSize(), is(1 + 3 + 5 + 40000 + 2 + 2));
+        assertThat(method.getMaxStack(), is(1));
+
+        final Map<String, byte[]> classFiles =
+                Collections.singletonMap("Wide", classWriter.toByteArray());
+        final Method f = new MemoryClassLoader(classFiles, getClass().getClassLoader())
+                .loadClass("Wide").getMethod("f", int.class);
+        assertThat(f.invoke(null, 0), is((Object) 5));
+        assertThat(f.invoke(null, 1), is((Object) 1));
+    }
+
+    /**
+     * Tests a program with a loop and a condition around more than 32 KB of code.
+     *
+     * @throws Exception if the program could not be loaded or run.
+     */
+    @Test
+    public void testProgram() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        source.append("class Main {\n");
+        source.append("    public static void main(String[] args) {\n");
+        source.append("        System.out.println(new Big().run(3));\n");
+        source.append("    }\n");
+        source.append("}\n");
+        source.append("class Big {\n");
+        source.append("    public int run(int n) {\n");
+        source.append("        int x;\n");
+        source.append("        int i;\n");
+        source.append("        x = 0;\n");
+        source.append("        i = 0;\n");
+        source.append("        while (i < n) {\n");
+        source.append("            if (x < 1000000) {\n");
+        // Each statement is iload_2, iload_3, iadd, istore_2.
+        for (int j = 0; j < 10000; j++) {
+            source.append("                x = x + i;\n");
+        }
+        source.append("            } else {\n");
+        source.append("                x = 0 - 1;\n");
+        source.append("            }\n");
+        source.append("            i = i + 1;\n");
+        source.append("        }\n");
+        source.append("        return x;\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        final CompilationResult result = new Compiler().compile(source.toString().toCharArray());
+        assertTrue(result.getErrors().toString(), result.isSuccessful());
+
+        final ClassLoader loader =
+                new MemoryClassLoader(result.getClassFiles(), getClass().getClassLoader());
+        final Method main = loader.loadClass("Main").getMethod("main", String[].class);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final PrintStream out = System.out;
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } finally {
+            System.setOut(out);
+        }
+        assertThat(output.toString("UTF-8"), is("30000\n"));
+    }
+
+    /** Adds code that returns 5 if the argument is 0, and 1 after 40000 bytes otherwise. */
+    private static void skipIfZero(MethodWriter method) {
+        final Label zero = new Label();
+        method.varInsn(ILOAD, 0);
+        method.jump(IFEQ, zero);
+        for (int i = 0; i < 20000; i++) {
+            method.insn(ICONST_0);
+            method.insn(POP);
+        }
+        method.insn(ICONST_1);
+        method.insn(IRETURN);
+        method.mark(zero);
+        method.insn(ICONST_5);
+        method.insn(IRETURN);
+    }
+}
@@ -0,0 +1,143 @@
+package mjc.jasmin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import mjc.analysis.SymbolTableBuilder;
+import mjc.analysis.TypeChecker;
+import mjc.lexer.FastLexer;
+import mjc.lexer.LexerException;
+import mjc.node.Start;
+import mjc.output.MemoryClassLoader;
+import mjc.parser.FastParser;
+import mjc.parser.ParserException;
+import mjc.source.SourceFile;
+import mjc.symbol.SymbolTable;
+import static mjc.error.MiniJavaErrorType.ASSEMBLER_ERROR;
+
+/**
+ * Tests the assembler by running the assembled code.
+ *
+ * The test case will run once on each Foo.java file in dataDir. The program is compiled
+ * to Jasmin code and assembled in memory, and the classes are then loaded and run. The
+ * output of the program is compared with the expected output in Foo.out.
+ */
+@RunWith(Parameterized.class)
+public class AssemblerTest {
+    private static String dataDir = "src/test/resources/execute";
+
+    private String path;
+
+    /**
+     * Create a new test case for the file at the given path.
+     *
+     * @param path Path of file to test on.
+     */
+    public AssemblerTest(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Tests that the assembled program produces the expected output, and that a reused
+     * assembler produces the same class files as a new one.
+     *
+     * @throws Exception if compilation or execution failed.
+     */
+    @Test
+    public void testAssemble() throws Exception {
+        Start tree = null;
+        try {
+            tree = new FastParser(new FastLexer(SourceFile.read(Paths.get(path)))).parse();
+        } catch (LexerException | ParserException e) {
+            assumeNoException(e);
+        }
+        final SymbolTableBuilder builder = new SymbolTableBuilder();
+        final SymbolTable symbolTable = builder.build(tree);
+        assertTrue(!builder.hasErrors() && new TypeChecker().check(tree, symbolTable));
+
+        // Assemble all classes with one assembler. The main class is always first.
+        final Assembler assembler = new Assembler();
+        final Map<String, byte[]> classFiles = new HashMap<>();
+        final List<String> classNames = new ArrayList<>();
+        new JasminGenerator(new JasminHandler() {
+            public void handle(String className, StringBuilder code) {
+                final byte[] classFile = assembler.assemble(className, code);
+                assertNotNull(classFile);
+                assertArrayEquals(new Assembler().assemble(className, code), classFile);
+                classNames.add(className);
+                classFiles.put(className, classFile);
+            }
+        }).generate(tree, symbolTable);
+        assertTrue(!assembler.hasErrors());
+
+        // Load and run the program.
+        final ClassLoader loader = new MemoryClassLoader(classFiles, getClass().getClassLoader());
+        final Method main = loader.loadClass(classNames.get(0)).getMethod("main", String[].class);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final PrintStream out = System.out;
+        System.setOut(new PrintStream(output, true, "UTF-8"));
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } finally {
+            System.setOut(out);
+        }
+
+        final Path outPath = Paths.get(path.substring(0, path.length() - 5) + ".out");
+        assertEquals(new String(Files.readAllBytes(outPath), StandardCharsets.UTF_8),
+                output.toString("UTF-8"));
+    }
+
+    /**
+     * Tests that a failed assembly is reported as an error.
+     */
+    @Test
+    public void testError() {
+        final Assembler assembler = new Assembler();
+        final PrintStream err = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            assertNull(assembler.assemble("Broken", ".class public Broken\n.super\n"));
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals(1, assembler.getErrors().size());
+        assertTrue(assembler.getErrors().get(0).equals(ASSEMBLER_ERROR));
+    }
+
+    /**
+     * Provides the path of each *.java file in dataDir as input to the tests.
+     *
+     * @return an iterable over paths.
+     * @throws IOException if an I/O error occurred.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> testData() throws IOException {
+        final List<Object[]> data = new ArrayList<>();
+        for (Path path : Files.newDirectoryStream(Paths.get(dataDir), "*.java")) {
+            data.add(new Object[] { path.toString() });
+        }
+        return data;
+    }
+}
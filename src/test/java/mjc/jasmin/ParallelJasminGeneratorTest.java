@@ -0,0 +1,119 @@
+package mjc.jasmin;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import mjc.analysis.SymbolTableBuilder;
+import mjc.analysis.TypeChecker;
+import mjc.lexer.FastLexer;
+import mjc.lexer.LexerException;
+import mjc.node.Start;
+import mjc.parser.FastParser;
+import mjc.parser.ParserException;
+import mjc.source.SourceFile;
+import mjc.symbol.SymbolTable;
+
+/**
+ * Tests that the ParallelJasminGenerator generates the same code, in the same order,
+ * as the JasminGenerator.
+ *
+ * The test case will run once on each *.java file under dataDir that parses.
+ */
+@RunWith(Parameterized.class)
+public class ParallelJasminGeneratorTest {
+    private static String dataDir = "src/test/resources";
+    private static ForkJoinPool pool = new ForkJoinPool(4);
+
+    private String path;
+    private Start ast;
+    private SymbolTable symbolTable;
+
+    /**
+     * Create a new test case for the file at the given path.
+     *
+     * @param path Path of file to test on.
+     */
+    public ParallelJasminGeneratorTest(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Parses and checks the input, skipping the test if it does not parse.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        try {
+            ast = new FastParser(new FastLexer(SourceFile.read(Paths.get(path)))).parse();
+        } catch (LexerException | ParserException e) {
+            assumeNoException(e);
+        }
+        final SymbolTableBuilder builder = new SymbolTableBuilder();
+        symbolTable = builder.build(ast);
+        assertTrue(!builder.hasErrors() && new TypeChecker().check(ast, symbolTable));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Tests that the generated classes are the same.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        final List<String> expected = new ArrayList<>();
+        new JasminGenerator(handler(expected)).generate(ast, symbolTable);
+
+        final List<String> actual = new ArrayList<>();
+        new ParallelJasminGenerator(handler(actual), pool).generate(ast, symbolTable);
+
+        assertEquals(expected, actual);
+    }
+
+    /** Returns a handler that adds the name and code of each class to {@code classes}. */
+    private static JasminHandler handler(final List<String> classes) {
+        return new JasminHandler() {
+            public void handle(String className, StringBuilder code) {
+                classes.add(className);
+                classes.add(code.toString());
+            }
+        };
+    }
+
+    /**
+     * Provides the path of each *.java file under dataDir as input to the tests.
+     *
+     * @return an iterable over paths.
+     * @throws IOException if an I/O error occurred.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> testData() throws IOException {
+        final List<Object[]> data = new ArrayList<>();
+        for (String directory : new String[] { "compile", "execute" }) {
+            for (Path path : Files.newDirectoryStream(Paths.get(dataDir, directory), "*.java")) {
+                data.add(new Object[] { path.toString() });
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,190 @@
+package mjc.jasmin;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the rules of the peephole optimizer, and for the encodings chosen by the
+ * JasminWriter.
+ */
+public class PeepholeOptimizerTest {
+    private InstructionList code;
+    private Label trueLabel;
+    private Label falseLabel;
+
+    @Before
+    public void setUp() {
+        code = new InstructionList();
+        trueLabel = new Label("true", 0);
+        falseLabel = new Label("false", 0);
+    }
+
+    /**
+     * Tests a condition on a boolean variable, as in {@code if (b) x = 1;}.
+     */
+    @Test
+    public void testCompareWithZero() {
+        code.iload(1);
+        code.pushInt(0);
+        code.ifIcmpne(trueLabel);
+        code.gotoLabel(falseLabel);
+        code.label(trueLabel);
+        code.pushInt(1);
+        code.istore(2);
+        code.label(falseLabel);
+        code.returnVoid();
+
+        assertEquals(
+                "    iload_1\n" +
+                "    ifeq false_0\n" +
+                "    iconst_1\n" +
+                "    istore_2\n" +
+                "false_0:\n" +
+                "    return\n", optimize());
+    }
+
+    /**
+     * Tests that a goto to the next label is removed, and that the code between a goto
+     * and a label that is jumped to is removed, as in {@code if (true) ... else ...}.
+     */
+    @Test
+    public void testRemoveGoto() {
+        final Label endLabel = new Label("end", 0);
+        code.gotoLabel(trueLabel);
+        code.label(trueLabel);
+        code.pushInt(1);
+        code.istore(1);
+        code.gotoLabel(endLabel);
+        code.label(falseLabel);
+        code.pushInt(2);
+        code.istore(1);
+        code.label(endLabel);
+        code.returnVoid();
+
+        assertEquals(
+                "    iconst_1\n" +
+                "    istore_1\n" +
+                "    return\n", optimize());
+    }
+
+    /**
+     * Tests that a jump to a goto is made to its target.
+     */
+    @Test
+    public void testThreadJumps() {
+        final Label endLabel = new Label("end", 0);
+        code.iload(1);
+        code.pushInt(0);
+        code.ifIcmpeq(trueLabel);
+        code.pushInt(1);
+        code.istore(2);
+        code.label(trueLabel);
+        code.gotoLabel(endLabel);
+        code.label(falseLabel);
+        code.pushInt(2);
+        code.istore(2);
+        code.label(endLabel);
+        code.returnVoid();
+
+        assertEquals(
+                "    iload_1\n" +
+                "    ifeq end_0\n" +
+                "    iconst_1\n" +
+                "    istore_2\n" +
+                "end_0:\n" +
+                "    return\n", optimize());
+    }
+
+    /**
+     * Tests folding loads and stores of the same variable.
+     */
+    @Test
+    public void testFoldLoadStore() {
+        code.iload(4);
+        code.istore(4);
+        code.aload(1);
+        code.astore(1);
+        code.iload(4);
+        code.pushInt(1);
+        code.iadd();
+        code.istore(4);
+        code.iload(5);
+        code.pushInt(128);
+        code.isub();
+        code.istore(5);
+        code.iload(5);
+        code.pushInt(200);
+        code.iadd();
+        code.istore(5);
+        code.returnVoid();
+
+        assertEquals(
+                "    iinc 4 1\n" +
+                "    iinc 5 -128\n" +
+                "    iload 5\n" +
+                "    sipush 200\n" +
+                "    iadd\n" +
+                "    istore 5\n" +
+                "    return\n", optimize());
+    }
+
+    /**
+     * Tests folding constants, as in {@code !true}.
+     */
+    @Test
+    public void testFoldConstants() {
+        code.pushInt(1);
+        code.pushInt(1);
+        code.isub();
+        code.pushInt(100000);
+        code.pushInt(100000);
+        code.imul();
+        code.ireturn();
+
+        assertEquals(
+                "    iconst_0\n" +
+                "    ldc 1410065408\n" +
+                "    ireturn\n", optimize());
+    }
+
+    /**
+     * Tests the encodings of int constants and local variables.
+     */
+    @Test
+    public void testShortestEncodings() {
+        for (int value : new int[] { -1, 5, 6, -128, 127, 128, -32768, 32767, 32768 }) {
+            code.pushInt(value);
+        }
+        code.aload(3);
+        code.aload(4);
+        code.istore(0);
+        code.istore(300);
+
+        assertEquals(
+                "    iconst_m1\n" +
+                "    iconst_5\n" +
+                "    bipush 6\n" +
+                "    bipush -128\n" +
+                "    bipush 127\n" +
+                "    sipush 128\n" +
+                "    sipush -32768\n" +
+                "    sipush 32767\n" +
+                "    ldc 32768\n" +
+                "    aload_3\n" +
+                "    aload 4\n" +
+                "    istore_0\n" +
+                "    istore 300\n", optimize());
+    }
+
+    /** Optimizes the code and returns it as Jasmin code. */
+    private String optimize() {
+        PeepholeOptimizer.optimize(code);
+        final StringBuilder builder = new StringBuilder();
+        final JasminWriter out = new JasminWriter(builder);
+        code.writeTo(out);
+        out.flush();
+        return builder.toString();
+    }
+}
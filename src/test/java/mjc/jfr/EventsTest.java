@@ -0,0 +1,132 @@
+package mjc.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import mjc.Compiler;
+import mjc.source.SourceFile;
+
+/**
+ * Tests that the compiler emits its Flight Recorder events.
+ */
+public class EventsTest {
+    private static final Path program = Paths.get("src/test/resources/execute/Factorial.java");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the event classes are used, since the jdk.jfr API is available.
+     */
+    @Test
+    public void testEnabled() {
+        assertTrue(Events.isEnabled());
+        assertTrue(Events.phase() instanceof PhaseEvent);
+    }
+
+    /**
+     * Tests the events of compiling to class files.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testClassFileEvents() throws IOException {
+        final List<RecordedEvent> events = record(Compiler.Backend.CLASS_FILES);
+
+        assertEquals(Arrays.asList("parsing", "analysis", "generation"),
+                strings(events, "mjc.Phase", "phase"));
+        assertEquals(Arrays.asList("Factorial", "Factorial", "Factorial"),
+                strings(events, "mjc.Phase", "program"));
+        assertEquals(Arrays.asList("Factorial", "Fac"),
+                strings(events, "mjc.ClassGeneration", "className"));
+        assertEquals(Arrays.asList("main", "ComputeFac"),
+                strings(events, "mjc.MethodGeneration", "methodName"));
+        assertEquals(Arrays.asList("Factorial", "Fac"),
+                strings(events, "mjc.Output", "className"));
+        assertTrue(strings(events, "mjc.Assembly", "className").isEmpty());
+
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("mjc.ClassGeneration")) {
+                assertTrue(event.getInt("nodeCount") > 0);
+                assertTrue(event.getLong("emittedBytes") > 0);
+            }
+        }
+    }
+
+    /**
+     * Tests the events of compiling by assembling Jasmin code.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testAssemblyEvents() throws IOException {
+        final List<RecordedEvent> events = record(Compiler.Backend.ASSEMBLED_JASMIN);
+
+        assertEquals(Arrays.asList("Factorial", "Fac"),
+                strings(events, "mjc.ClassGeneration", "className"));
+        assertEquals(Arrays.asList("Factorial", "Fac"),
+                strings(events, "mjc.Assembly", "className"));
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("mjc.Assembly")) {
+                assertTrue(event.getLong("classFileSize") > 0);
+            }
+        }
+    }
+
+    /** Compiles the program while recording the events of the compiler. */
+    private List<RecordedEvent> record(Compiler.Backend backend) throws IOException {
+        final Compiler compiler = new Compiler(Compiler.Frontend.FAST, Compiler.Frontend.FAST,
+                false, backend, null, false);
+        final char[] source = SourceFile.read(program);
+        final Path file = folder.getRoot().toPath().resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] { "mjc.Phase", "mjc.ClassGeneration",
+                    "mjc.MethodGeneration", "mjc.Assembly", "mjc.Output" }) {
+                recording.enable(name).withoutThreshold();
+            }
+            recording.start();
+            assertTrue(compiler.compile(source).isSuccessful());
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    /** Returns a field of the events of a type, in the order they started. */
+    private static List<String> strings(List<RecordedEvent> events, String type, String field) {
+        final List<RecordedEvent> ofType = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(type)) {
+                ofType.add(event);
+            }
+        }
+        // Nested events are committed before the events that contain them.
+        Collections.sort(ofType, new Comparator<RecordedEvent>() {
+            public int compare(RecordedEvent a, RecordedEvent b) {
+                return a.getStartTime().compareTo(b.getStartTime());
+            }
+        });
+        final List<String> values = new ArrayList<>();
+        for (RecordedEvent event : ofType) {
+            values.add(event.getString(field));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,154 @@
+package mjc.lexer;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import mjc.node.*;
+
+/**
+ * Tests that the FastLexer produces the same tokens as the generated Lexer.
+ *
+ * The test case will run once on each *.java file under dataDir, and once on
+ * each of the inputs in extraInputs.
+ */
+@RunWith(Parameterized.class)
+public class FastLexerTest {
+    private static String dataDir = "src/test/resources";
+
+    private static String[] extraInputs = {
+        "",
+        "   ",
+        "class classes Class _class class_ String Strings Systemout",
+        "intro integer classy publicity statics voided Stringy returns booleans iff " +
+                "elsewhere whiles lengths truest falsehood thistle newer",
+        "in i cla publi stati voi Strin retur boolea e els whil lengt tru fals thi ne",
+        "System.out.println System.out.printlnfoo System.out.print System.out System.",
+        "0 00 0123 1234567890 9a",
+        "= == === ! != < <= > >= && || + - * , . ; ( ) [ ] { }",
+        "a\rb\nc\r\nd\n\re\r\r\nf",
+        "a /* one\r\n two\r three\n */ b // four\r\n c // five\r d // six",
+        "/**/x/***/y/* ** / */z/*/ */w",
+        "//",
+        "foo // no newline at end",
+        "\tx\f\ty",
+        "a # b",
+        "a & b",
+        "a | b",
+        "a &",
+        "a / b",
+        "a /",
+        "a /* unterminated",
+        "a /* unterminated */ */",
+        "a\n  ö",
+    };
+
+    private String input;
+
+    /**
+     * Create a new test case for the given input.
+     *
+     * @param name Name of the input, for reporting.
+     * @param input Input to test on.
+     */
+    public FastLexerTest(String name, String input) {
+        this.input = input;
+    }
+
+    /**
+     * Tests that the two lexers produce the same tokens, positions and errors.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testSameTokens() throws IOException {
+        final List<String> expected = new ArrayList<>();
+        final String expectedError = tokenize(
+                new Lexer(new PushbackReader(new StringReader(input), input.length() + 1)),
+                expected);
+
+        final List<String> actual = new ArrayList<>();
+        final String actualError = tokenize(new FastLexer(input.toCharArray()), actual);
+
+        assertEquals(expected, actual);
+        assertEquals(expectedError, actualError);
+    }
+
+    /**
+     * Tests that ignored tokens are never produced.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testNoIgnoredTokens() throws IOException {
+        final FastLexer lexer = new FastLexer(input.toCharArray());
+        try {
+            Token token;
+            while (!((token = lexer.next()) instanceof EOF)) {
+                assertFalse(token instanceof TWhitespace || token instanceof TComment);
+            }
+        } catch (LexerException e) {
+            // Tested by testSameTokens().
+        }
+    }
+
+    /**
+     * Adds a description of each non-ignored token produced by {@code lexer} to
+     * {@code tokens}, and returns a description of the lexer error, or null.
+     */
+    private static String tokenize(Lexer lexer, List<String> tokens) throws IOException {
+        try {
+            Token token;
+            do {
+                token = lexer.next();
+                if (!(token instanceof TWhitespace) && !(token instanceof TComment)) {
+                    tokens.add(token.getClass().getSimpleName() + " '" + token.getText() +
+                            "' [" + token.getLine() + "," + token.getPos() + "]");
+                }
+            } while (!(token instanceof EOF));
+            return null;
+        } catch (LexerException e) {
+            final InvalidToken token = e.getToken();
+            return e.getMessage() + " '" + token.getText() +
+                    "' [" + token.getLine() + "," + token.getPos() + "]";
+        }
+    }
+
+    /**
+     * Provides the contents of each *.java file under dataDir, and each of the
+     * extra inputs, as input to the tests.
+     *
+     * @return an iterable over names and inputs.
+     * @throws IOException if an I/O error occurred.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> testData() throws IOException {
+        final List<Object[]> data = new ArrayList<>();
+        for (String directory : new String[] {
+                "compile", "execute", "noncompile/symbol", "noncompile/syntax",
+                "noncompile/type", "nonexecute" }) {
+            final Path dir = Paths.get(dataDir, directory);
+            for (Path path : Files.newDirectoryStream(dir, "*.java")) {
+                final String input = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                data.add(new Object[] { directory + "/" + path.getFileName(), input });
+            }
+        }
+        for (int i = 0; i < extraInputs.length; i++) {
+            data.add(new Object[] { "extra" + i, extraInputs[i] });
+        }
+        return data;
+    }
+}
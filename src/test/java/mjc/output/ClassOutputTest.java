@@ -0,0 +1,108 @@
+package mjc.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.google.common.io.ByteStreams;
+
+public class ClassOutputTest {
+
+    private static final byte[] mainClass = { 1, 2, 3 };
+    private static final byte[] otherClass = { 4, 5 };
+    private static final String code = ".class public Other\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the directory output writes one file per class.
+     */
+    @Test
+    public void testDirectoryOutput() throws IOException {
+        final Path directory = folder.getRoot().toPath().resolve("out");
+        write(new DirectoryOutput(directory));
+
+        assertArrayEquals(mainClass, Files.readAllBytes(directory.resolve("Main.class")));
+        assertArrayEquals(otherClass, Files.readAllBytes(directory.resolve("Other.class")));
+        assertEquals(code, new String(Files.readAllBytes(directory.resolve("Other.j")),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that the jar output writes all classes to a jar with the first class as the
+     * main class.
+     */
+    @Test
+    public void testJarOutput() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("out.jar");
+        write(new JarOutput(path));
+
+        try (JarFile jar = new JarFile(path.toFile())) {
+            assertEquals("Main", jar.getManifest().getMainAttributes().get(Attributes.Name.MAIN_CLASS));
+
+            final List<String> names = new ArrayList<>();
+            for (JarEntry entry : Collections.list(jar.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals(Arrays.asList("META-INF/MANIFEST.MF", "Main.class", "Other.class", "Other.j"), names);
+
+            assertArrayEquals(otherClass,
+                    ByteStreams.toByteArray(jar.getInputStream(jar.getEntry("Other.class"))));
+            assertEquals(code, new String(
+                    ByteStreams.toByteArray(jar.getInputStream(jar.getEntry("Other.j"))),
+                    StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Tests that an empty jar output creates no file.
+     */
+    @Test
+    public void testEmptyJarOutput() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("empty.jar");
+        new JarOutput(path).close();
+
+        assertFalse(Files.exists(path));
+    }
+
+    /**
+     * Tests that the memory output keeps the classes in the order they were written.
+     */
+    @Test
+    public void testMemoryOutput() throws IOException {
+        final MemoryOutput output = new MemoryOutput();
+        write(output);
+
+        assertEquals(Arrays.asList("Main", "Other"), new ArrayList<>(output.getClassFiles().keySet()));
+        assertArrayEquals(mainClass, output.getClassFiles().get("Main"));
+        assertEquals(Collections.singletonMap("Other", code), output.getAssembly());
+    }
+
+    /** Writes the test classes to {@code output} and closes it. */
+    private static void write(ClassOutput output) throws IOException {
+        try {
+            output.writeClass("Main", mainClass);
+            output.writeClass("Other", otherClass);
+            output.writeAssembly("Other", new StringBuilder(code));
+        } finally {
+            output.close();
+        }
+    }
+}
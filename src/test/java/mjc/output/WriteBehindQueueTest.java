@@ -0,0 +1,155 @@
+package mjc.output;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WriteBehindQueueTest {
+
+    /**
+     * Tests that writes are performed in the order they were submitted.
+     */
+    @Test
+    public void testOrder() throws IOException {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> expected = new ArrayList<>();
+        final WriteBehindQueue queue = new WriteBehindQueue(2);
+        for (int i = 0; i < 100; i++) {
+            queue.submit(add(written, i));
+            expected.add(i);
+        }
+        queue.close();
+        assertEquals(expected, written);
+    }
+
+    /**
+     * Tests that the first failed write is thrown from close, and that the writes after
+     * it are skipped.
+     */
+    @Test
+    public void testError() {
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        final IOException error = new IOException("first");
+        final WriteBehindQueue queue = new WriteBehindQueue(4);
+        queue.submit(add(written, 0));
+        queue.submit(failing(error));
+        queue.submit(failing(new IOException("second")));
+        queue.submit(add(written, 1));
+        try {
+            queue.close();
+            fail("close did not throw");
+        } catch (IOException e) {
+            assertSame(error, e);
+        }
+        assertTrue(queue.hasFailed());
+        assertEquals(Collections.singletonList(0), written);
+    }
+
+    /**
+     * Tests that a write that fails with an Error or a RuntimeException does not stop
+     * the queue, and that the failure is thrown from close.
+     */
+    @Test(timeout = 10000)
+    public void testUncheckedError() throws IOException {
+        final Error error = new OutOfMemoryError("write");
+        final WriteBehindQueue queue = new WriteBehindQueue(1);
+        queue.submit(failing(error));
+        for (int i = 0; i < 100; i++) {
+            queue.submit(failing(new IllegalStateException("skipped")));
+        }
+        try {
+            queue.close();
+            fail("close did not throw");
+        } catch (Error e) {
+            assertSame(error, e);
+        }
+
+        final RuntimeException exception = new IllegalStateException("write");
+        final WriteBehindQueue other = new WriteBehindQueue(1);
+        other.submit(failing(exception));
+        try {
+            other.close();
+            fail("close did not throw");
+        } catch (IOException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+
+    /**
+     * Tests that submit blocks while the queue is full.
+     */
+    @Test(timeout = 10000)
+    public void testBackpressure() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final WriteBehindQueue queue = new WriteBehindQueue(1);
+
+        // The first write blocks the worker, the second fills the queue.
+        queue.submit(new WriteBehindQueue.Write() {
+            public void write() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        queue.submit(add(written, 0));
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        final Thread producer = new Thread(new Runnable() {
+            public void run() {
+                queue.submit(add(written, 1));
+                submitted.countDown();
+            }
+        });
+        producer.start();
+
+        producer.join(200);
+        assertEquals(1, submitted.getCount());
+
+        release.countDown();
+        submitted.await();
+        queue.close();
+        assertEquals(2, written.size());
+    }
+
+    /** Returns a write that adds {@code i} to {@code written}. */
+    private static WriteBehindQueue.Write add(final List<Integer> written, final int i) {
+        return new WriteBehindQueue.Write() {
+            public void write() {
+                written.add(i);
+            }
+        };
+    }
+
+    /** Returns a write that fails with {@code error}. */
+    private static WriteBehindQueue.Write failing(final IOException error) {
+        return new WriteBehindQueue.Write() {
+            public void write() throws IOException {
+                throw error;
+            }
+        };
+    }
+
+    /** Returns a write that fails with an unchecked {@code error}. */
+    private static WriteBehindQueue.Write failing(final Throwable error) {
+        return new WriteBehindQueue.Write() {
+            public void write() {
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                throw (RuntimeException) error;
+            }
+        };
+    }
+}
@@ -0,0 +1,178 @@
+package mjc.parser;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import mjc.analysis.DepthFirstAdapter;
+import mjc.lexer.FastLexer;
+import mjc.lexer.Lexer;
+import mjc.lexer.LexerException;
+import mjc.node.Node;
+import mjc.node.Token;
+
+/**
+ * Tests that the FastParser with the FastLexer produces the same AST and errors as the
+ * generated Parser with the generated Lexer.
+ *
+ * The test case will run once on each *.java file under dataDir, and once on
+ * each of the inputs in extraInputs.
+ */
+@RunWith(Parameterized.class)
+public class FastParserTest {
+    private static String dataDir = "src/test/resources";
+
+    private static String mainClass = "class Main { public static void main(String[] a) { ";
+
+    private static String[] extraInputs = {
+        "",
+        "class",
+        mainClass,
+        mainClass + "} }",
+        mainClass + "} } class",
+        mainClass + "} } class A { int x; boolean y; B z; int[] w; }",
+        mainClass + "} } class A { public int f(int a, B b, int[] c) { return a; } }",
+        mainClass + "} } class A { public int f(int a,) { return a; } }",
+        mainClass + "} } class A { public int f() { int x; x = 1; } }",
+        mainClass + "} } class A { int x; public int f() { return 1; } int y; }",
+        mainClass + "} } class A { public int[] f() { return new int[1]; } }",
+        mainClass + "A a; int[] b; a = new A(); b[0] = 1; } }",
+        mainClass + "a = 1; int b; } }",
+        mainClass + "a b; } }",
+        mainClass + "a; } }",
+        mainClass + "x = a || b && c == d != e < f > g <= h >= i + j - k * l; } }",
+        mainClass + "x = a * b + c * d - e - f; } }",
+        mainClass + "x = a < b < c == d == e; } }",
+        mainClass + "x = !a && !!b || !(c || d); } }",
+        mainClass + "x = (a + b) * (c - d); } }",
+        mainClass + "x = a[0][1].length; } }",
+        mainClass + "x = new int[5].length; } }",
+        mainClass + "x = new int[5][0]; } }",
+        mainClass + "x = (new int[5])[0]; } }",
+        mainClass + "x = new int[5].foo(1, 2)[3]; } }",
+        mainClass + "x = this.f().g(a, b + c, new A()).h(); } }",
+        mainClass + "x = a.f(; } }",
+        mainClass + "x = a.f(b c); } }",
+        mainClass + "x = a.; } }",
+        mainClass + "x = new; } }",
+        mainClass + "x = a + ; } }",
+        mainClass + "x = a b; } }",
+        mainClass + "x = 1 } }",
+        mainClass + "if (a) if (b) x = 1; else x = 2; } }",
+        mainClass + "if (a) while (b) if (c) x = 1; else x = 2; else x = 3; } }",
+        mainClass + "while (a) { int x; { x = 1; } } } }",
+        mainClass + "{ x = 1; int y; } } }",
+        mainClass + "System.out.println(a + b); } }",
+        mainClass + "System.out.println(a) } }",
+        mainClass + "else x = 1; } }",
+        mainClass + "x[1] 2; } }",
+        mainClass + "} } class A { int intro; boolean iff; A classy; int[] newer; " +
+                "public int returns(int integer) { thistle = truest; return lengths; } }",
+        mainClass + "intro = 1; whiles = elsewhere.falsehood(voided, statics); } }",
+    };
+
+    private String input;
+
+    /**
+     * Create a new test case for the given input.
+     *
+     * @param name Name of the input, for reporting.
+     * @param input Input to test on.
+     */
+    public FastParserTest(String name, String input) {
+        this.input = input;
+    }
+
+    /**
+     * Tests that the two lexer and parser pairs produce the same AST, or the same error.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testSameResult() throws IOException {
+        String expected;
+        try {
+            expected = dump(new Parser(new Lexer(
+                    new PushbackReader(new StringReader(input), input.length() + 1))).parse());
+        } catch (ParserException e) {
+            expected = e.getMessage();
+        } catch (LexerException e) {
+            expected = "lexer error";
+        }
+
+        String actual;
+        try {
+            actual = dump(new FastParser(new FastLexer(input.toCharArray())).parse());
+        } catch (ParserException e) {
+            assertEquals("[" + e.getLine() + "," + e.getPos() + "] " + e.getError(),
+                    e.getMessage());
+            actual = e.getMessage();
+        } catch (LexerException e) {
+            actual = "lexer error";
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    /** Returns a description of the AST at {@code node}, including token positions. */
+    private static String dump(Node node) {
+        final StringBuilder result = new StringBuilder();
+        node.apply(new DepthFirstAdapter() {
+            @Override
+            public void defaultIn(Node node) {
+                result.append('(').append(node.getClass().getSimpleName());
+            }
+
+            @Override
+            public void defaultOut(Node node) {
+                result.append(')');
+            }
+
+            @Override
+            public void defaultCase(Node node) {
+                final Token token = (Token) node;
+                result.append(' ').append(token.getClass().getSimpleName())
+                      .append(" '").append(token.getText()).append("' [")
+                      .append(token.getLine()).append(',').append(token.getPos()).append(']');
+            }
+        });
+        return result.toString();
+    }
+
+    /**
+     * Provides the contents of each *.java file under dataDir, and each of the
+     * extra inputs, as input to the tests.
+     *
+     * @return an iterable over names and inputs.
+     * @throws IOException if an I/O error occurred.
+     */
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> testData() throws IOException {
+        final List<Object[]> data = new ArrayList<>();
+        for (String directory : new String[] {
+                "compile", "execute", "noncompile/symbol", "noncompile/syntax",
+                "noncompile/type", "nonexecute" }) {
+            final Path dir = Paths.get(dataDir, directory);
+            for (Path path : Files.newDirectoryStream(dir, "*.java")) {
+                final String input = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                data.add(new Object[] { directory + "/" + path.getFileName(), input });
+            }
+        }
+        for (int i = 0; i < extraInputs.length; i++) {
+            data.add(new Object[] { "extra" + i, extraInputs[i] });
+        }
+        return data;
+    }
+}
@@ -17,23 +17,27 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
 /**
- * Tests the parser on invalid input.
+ * Tests the parsers on invalid input.
  *
- * The test case will run once on each *.java file in dataDir.
+ * The test case will run once on each *.java file in dataDir, for both the
+ * generated Parser and the FastParser.
  */
 @RunWith(Parameterized.class)
 public class ParserTest {
     private static String dataDir = "src/test/resources/noncompile/syntax";
 
-    private String path; // Set once for each file in dataDir.
+    private String path;   // Set once for each file in dataDir.
+    private String parser; // "sablecc" or "fast".
 
     /**
      * Create a new test case for the file at the given path.
      *
      * @param path Path of file to test on.
+     * @param parser Parser to test, "sablecc" or "fast".
      */
-    public ParserTest(String path) {
+    public ParserTest(String path, String parser) {
         this.path = path;
+        this.parser = parser;
     }
 
     /**
@@ -46,23 +50,28 @@ public class ParserTest {
     @Test(expected = ParserException.class)
     public void testParse() throws IOException, ParserException, LexerException {
         FileReader reader = new FileReader(path);
-        Parser parser = new Parser(new Lexer(new PushbackReader(reader)));
-        parser.parse();
+        Lexer lexer = new Lexer(new PushbackReader(reader));
+        if (parser.equals("fast")) {
+            new FastParser(lexer).parse();
+        } else {
+            new Parser(lexer).parse();
+        }
         reader.close();
     }
 
     /**
-     * Provides the absolute path of each *.java file in dataDir as input to
-     * testParse().
+     * Provides the absolute path of each *.java file in dataDir, along with each
+     * parser, as input to testParse().
      *
-     * @return an iterable over paths.
+     * @return an iterable over paths and parsers.
      * @throws IOException if an I/O error occurred.
      */
-    @Parameters(name = "{0}")
+    @Parameters(name = "{0} ({1})")
     public static Iterable<Object[]> testValidData() throws IOException {
         ArrayList<Object[]> data = new ArrayList<>();
         for (Path path : Files.newDirectoryStream(Paths.get(dataDir), "*.java")) {
-            data.add(new Object[] { path.toAbsolutePath().toString() });
+            data.add(new Object[] { path.toAbsolutePath().toString(), "sablecc" });
+            data.add(new Object[] { path.toAbsolutePath().toString(), "fast" });
         }
         return data;
     }
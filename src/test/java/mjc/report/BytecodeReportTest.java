@@ -0,0 +1,57 @@
+package mjc.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.junit.Test;
+
+import mjc.Compiler;
+import mjc.source.SourceFile;
+import mjc.synthetic.ProgramGenerator;
+
+/**
+ * Tests for reporting on generated bytecode.
+ */
+public class BytecodeReportTest {
+
+    /**
+     * Tests that a report compares each method with javac.
+     *
+     * @throws IOException if an I/O error occurred.
+     */
+    @Test
+    public void testCompareWithJavac() throws IOException {
+        final char[] source = SourceFile.read(Paths.get("src/test/resources/execute/Factorial.java"));
+        final Map<String, byte[]> classFiles = new Compiler().compile(source).getClassFiles();
+        final String report = new BytecodeReport(classFiles,
+                Javac.compile(new String(source), "Factorial.java")).toString();
+
+        assertTrue(report, report.contains("class Fac: "));
+        assertTrue(report, report.contains("ComputeFac(I)I"));
+        assertTrue(report, report.contains("mjc/javac: "));
+        assertEquals(4, report.split("\n *javac ").length - 1); // A row for each method.
+    }
+
+    /**
+     * Tests that methods above the limits of HotSpot are flagged.
+     */
+    @Test
+    public void testLimits() {
+        assertNull(BytecodeReport.exceededLimit(35));
+        assertEquals("MaxInlineSize", BytecodeReport.exceededLimit(36));
+        assertEquals("FreqInlineSize", BytecodeReport.exceededLimit(326));
+        assertEquals("HugeMethodLimit", BytecodeReport.exceededLimit(8001));
+
+        final String program = new ProgramGenerator().statements(100).generate();
+        final String report = new BytecodeReport(
+                new Compiler().compile(program.toCharArray()).getClassFiles(), null).toString();
+        assertTrue(report, report.contains("over FreqInlineSize"));
+        assertFalse(report, report.contains("javac"));
+    }
+}
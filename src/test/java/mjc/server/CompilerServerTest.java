@@ -0,0 +1,217 @@
+package mjc.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import mjc.JVMMain;
+
+public class CompilerServerTest {
+    private static final Path program =
+            Paths.get("src/test/resources/execute/Factorial.java").toAbsolutePath();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CompilerServer server;
+    private String token;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new CompilerServer(0, 1, 1, 2000, folder.newFolder("tokens").toPath());
+        token = new String(Files.readAllBytes(server.getTokenFile()), StandardCharsets.UTF_8);
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                server.serve();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        assertFalse(Files.exists(server.getTokenFile()));
+    }
+
+    /**
+     * Tests that the token file is only readable by its owner.
+     */
+    @Test
+    public void testTokenFile() throws IOException {
+        assertEquals(32, token.length());
+        if (Files.getFileStore(server.getTokenFile()).supportsFileAttributeView("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(
+                    Files.getPosixFilePermissions(server.getTokenFile())));
+        }
+    }
+
+    /**
+     * Tests that a request compiles into its working directory.
+     */
+    @Test
+    public void testCompile() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        assertEquals(Arrays.asList("exit 0"),
+                request(connect(), token, directory.toString(), program.toString()));
+        assertTrue(Files.exists(directory.resolve("Factorial.class")));
+    }
+
+    /**
+     * Tests that a request with the wrong token is closed without running it.
+     */
+    @Test
+    public void testWrongToken() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final String wrong = token.substring(1) + (token.charAt(0) == '0' ? '1' : '0');
+        assertEquals(Arrays.<String>asList(),
+                request(connect(), wrong, directory.toString(), program.toString()));
+        assertEquals(Arrays.<String>asList(),
+                request(connect(), "", directory.toString(), program.toString()));
+        assertFalse(Files.exists(directory.resolve("Factorial.class")));
+    }
+
+    /**
+     * Tests that requests with too many arguments, or fewer arguments than their count,
+     * are closed without running them.
+     */
+    @Test(timeout = 10000)
+    public void testMalformed() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        assertEquals(Arrays.<String>asList(), send(connect(),
+                token + "\n" + directory + "\n" + Integer.MAX_VALUE + "\n" + program + "\n"));
+        assertEquals(Arrays.<String>asList(), send(connect(),
+                token + "\n" + directory + "\n-1\n"));
+        assertEquals(Arrays.<String>asList(), send(connect(),
+                token + "\n" + directory + "\n2\n" + program + "\n"));
+        assertFalse(Files.exists(directory.resolve("Factorial.class")));
+
+        // The server is still free for other requests.
+        assertEquals(Arrays.asList("exit 0"),
+                request(connect(), token, directory.toString(), program.toString()));
+    }
+
+    /**
+     * Tests that -server and -run are left to the client.
+     */
+    @Test(timeout = 10000)
+    public void testRefused() throws IOException {
+        assertEquals(Arrays.asList("refused"),
+                request(connect(), token, "", "-server", "0"));
+        assertEquals(Arrays.asList("refused"),
+                request(connect(), token, "", "-run", program.toString()));
+
+        // The server is still free for other requests.
+        assertEquals(Arrays.asList("exit 0"), request(connect(), token,
+                folder.getRoot().toString(), program.toString()));
+    }
+
+    /**
+     * Tests that the output and the errors of a request are forwarded.
+     */
+    @Test
+    public void testOutput() throws IOException {
+        // The output of the same compilation outside the server.
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(expected, true, "UTF-8");
+        new JVMMain(out, System.err, folder.newFolder("local").toPath())
+                .compile(new String[] { "-p", program.toString() });
+        final List<String> lines = new ArrayList<>();
+        for (String line : new String(expected.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            lines.add("out " + line);
+        }
+        lines.add("exit 0");
+        assertEquals(lines, request(connect(), token, folder.getRoot().toString(),
+                "-p", program.toString()));
+
+        final List<String> response =
+                request(connect(), token, folder.getRoot().toString(), "Missing.java");
+        assertEquals(2, response.size());
+        assertTrue(response.get(0).startsWith("err "));
+        assertEquals("exit 1", response.get(1));
+    }
+
+    /**
+     * Tests that requests are turned away when the server is full.
+     */
+    @Test(timeout = 10000)
+    public void testBusy() throws Exception {
+        // The first request waits for its arguments on the only thread, and the second
+        // waits in the queue.
+        try (Socket first = connect(); Socket second = connect()) {
+            Thread.sleep(200);
+            assertEquals(Arrays.asList("busy"),
+                    request(connect(), token, "", program.toString()));
+        }
+    }
+
+    /**
+     * Tests that a request is given up when it does not arrive in time.
+     */
+    @Test(timeout = 10000)
+    public void testTimeout() throws IOException {
+        try (Socket socket = connect()) {
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    /** Opens a connection to the server. */
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    /** Sends a request and returns the lines of the response. */
+    private static List<String> request(Socket socket, String token, String directory,
+            String... args) throws IOException {
+        final StringBuilder request = new StringBuilder();
+        request.append(token + "\n" + directory + "\n" + args.length + "\n");
+        for (String arg : args) {
+            request.append(arg + "\n");
+        }
+        return send(socket, request.toString());
+    }
+
+    /** Sends {@code request}, ends the output and returns the lines of the response. */
+    private static List<String> send(Socket socket, String request) throws IOException {
+        try (Socket s = socket) {
+            final Writer writer = new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8);
+            writer.write(request);
+            writer.flush();
+            s.shutdownOutput();
+
+            final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            final List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package mjc.source;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for loading source files.
+ */
+public class SourceFileTest {
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("mjc", ".java");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    /**
+     * Test that UTF-8 input is decoded, both when read and when memory-mapped.
+     */
+    @Test
+    public void testDecoding() throws Exception {
+        final String source = "class Foo { /* öäå € */ }";
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(source, readAll(SourceFile.open(file)));
+        assertEquals(source, readAll(new SourceReader(SourceFile.read(file, 0))));
+    }
+
+    /**
+     * Test reading an empty file.
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        assertEquals("", readAll(SourceFile.open(file)));
+        assertEquals("", readAll(new SourceReader(SourceFile.read(file, 0))));
+    }
+
+    /**
+     * Test that malformed UTF-8 input is reported.
+     */
+    @Test(expected = IOException.class)
+    public void testMalformedInput() throws Exception {
+        Files.write(file, new byte[] { 'a', (byte) 0xc3, 'b' });
+        SourceFile.open(file);
+    }
+
+    /**
+     * Test pushing back characters.
+     */
+    @Test
+    public void testUnread() throws Exception {
+        final SourceReader reader = new SourceReader("abc");
+        assertEquals('a', reader.read());
+        assertEquals('b', reader.read());
+        reader.unread('b');
+        reader.unread('a');
+        assertEquals(0, reader.getPosition());
+        assertEquals("abc", readAll(reader));
+        assertEquals(-1, reader.read());
+    }
+
+    /**
+     * Test pushing back more characters than were read.
+     */
+    @Test(expected = IOException.class)
+    public void testUnreadOverflow() throws Exception {
+        new SourceReader("abc").unread('x');
+    }
+
+    /** Returns the remaining characters of {@code reader}. */
+    private static String readAll(SourceReader reader) {
+        final StringBuilder result = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            result.append((char) c);
+        }
+        return result.toString();
+    }
+}
@@ -33,85 +33,179 @@ public class MethodInfoTest {
          * And check at each block enter/leave that the correct variables are in scope.
          */
         MethodInfo f;
-        VariableInfo p1 = null, l1 = null, l2 = null, l3 = null, l4 = null;
+        VariableInfo p1, l1, l2, l3, l4;
 
         f = new MethodInfo("f", BuiltInType.Int, 1, 1);
 
-        for (int run = 0; run < 2; ++run) {
-            f.enterBlock(); // Enter block 0.
+        f.enterBlock(); // Enter block 0.
 
-            if (run == 0) { // In the first iteration we add variables.
-                p1 = f.addParameter("p1", BuiltInType.Boolean, 1, 15);
-                l1  =f.addLocal("l1", BuiltInType.Int, 2, 4);
-            } // Else: In the second iteration we just check.
+        p1 = f.addParameter("p1", BuiltInType.Boolean, 1, 15);
+        l1 = f.addLocal("l1", BuiltInType.Int, 2, 4);
 
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Just became visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Just became visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Just became visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Just became visible.
 
-            f.enterBlock(); // Enter block 1.
+        f.enterBlock(); // Enter block 1.
 
-            if (run == 0) { // In the first iteration we add variables.
-                l2 = f.addLocal("l2", BuiltInType.Int, 4, 8);
-            } // Else: In the second iteration we just check.
+        l2 = f.addLocal("l2", BuiltInType.Int, 4, 8);
 
-            assertThat(f.getLocal("l2"), sameInstance(l2));     // Just became visible.
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
+        assertThat(f.getLocal("l2"), sameInstance(l2));     // Just became visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
 
-            f.enterBlock(); // Enter block 2.
+        f.enterBlock(); // Enter block 2.
 
-            if (run == 0) { // In the first iteration we add variables.
-                l3 = f.addLocal("l3", BuiltInType.IntArray, 6, 12);
-            } // Else: In the second iteration we just check.
+        l3 = f.addLocal("l3", BuiltInType.IntArray, 6, 12);
 
-            assertThat(f.getLocal("l3"), sameInstance(l3));     // Just became visible.
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
-            assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
+        assertThat(f.getLocal("l3"), sameInstance(l3));     // Just became visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
+        assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
 
-            f.leaveBlock(); // Leave block 2.
+        f.leaveBlock(); // Leave block 2.
 
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
-            assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
-            assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
+        assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
+        assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
 
-            f.enterBlock(); // Enter block 3.
+        f.enterBlock(); // Enter block 3.
 
-            if (run == 0) { // In the first iteration we add variables.
-                l4 = f.addLocal("l4", BuiltInType.Int, 9, 12);
-            } // Else: In the second iteration we just check.
+        l4 = f.addLocal("l4", BuiltInType.Int, 9, 12);
 
-            assertThat(f.getLocal("l4"), sameInstance(l4));     // Just became visible.
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
-            assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
-            assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l4"), sameInstance(l4));     // Just became visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
+        assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
+        assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
 
-            f.leaveBlock(); // Leave block 3.
+        f.leaveBlock(); // Leave block 3.
 
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
-            assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
-            assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
-            assertThat(f.getLocal("l4"), nullValue());          // No longer visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
+        assertThat(f.getLocal("l2"), sameInstance(l2));     // Still visible.
+        assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l4"), nullValue());          // No longer visible.
 
-            f.leaveBlock(); // Leave block 1.
+        f.leaveBlock(); // Leave block 1.
 
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
-            assertThat(f.getLocal("l2"), nullValue());          // No longer visible.
-            assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
-            assertThat(f.getLocal("l4"), nullValue());          // No longer visible.
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), sameInstance(l1));     // Still visible.
+        assertThat(f.getLocal("l2"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l4"), nullValue());          // No longer visible.
 
-            f.leaveBlock(); // Leave block 0.
+        assertThat(f.isComplete(), is(false));
 
-            assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
-            assertThat(f.getLocal("l1"), nullValue());          // No longer visible.
-            assertThat(f.getLocal("l2"), nullValue());          // No longer visible.
-            assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
-            assertThat(f.getLocal("l4"), nullValue());          // No longer visible.
+        f.leaveBlock(); // Leave block 0.
+
+        assertThat(f.isComplete(), is(true));
+        assertThat(f.getParameter("p1"), sameInstance(p1)); // Still visible.
+        assertThat(f.getLocal("l1"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l2"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l3"), nullValue());          // No longer visible.
+        assertThat(f.getLocal("l4"), nullValue());          // No longer visible.
+    }
+
+    @Test
+    public void testScopes() {
+        /*
+         * We build the same method as in testEnterLeaveBlock() and check that each
+         * Scope sees the variables of its block and the enclosing blocks.
+         */
+        MethodInfo f = new MethodInfo("f", BuiltInType.Int, 1, 1);
+        f.enterBlock();
+        VariableInfo p1 = f.addParameter("p1", BuiltInType.Boolean, 1, 15);
+        VariableInfo l1 = f.addLocal("l1", BuiltInType.Int, 2, 4);
+        f.enterBlock();
+        VariableInfo l2 = f.addLocal("l2", BuiltInType.Int, 4, 8);
+        f.enterBlock();
+        VariableInfo l3 = f.addLocal("l3", BuiltInType.IntArray, 6, 12);
+        f.leaveBlock();
+        f.enterBlock();
+        VariableInfo l4 = f.addLocal("l4", BuiltInType.Int, 9, 12);
+        f.leaveBlock();
+        f.leaveBlock();
+        f.leaveBlock();
+
+        assertThat(f.getNumScopes(), is(4));
+        Scope s0 = f.getScope(0), s1 = f.getScope(1), s2 = f.getScope(2), s3 = f.getScope(3);
+
+        assertThat(s0.getParent(), nullValue());
+        assertThat(s1.getParent(), sameInstance(s0));
+        assertThat(s2.getParent(), sameInstance(s1));
+        assertThat(s3.getParent(), sameInstance(s1));
+
+        assertThat(s0.getLocal("l1"), sameInstance(l1));
+        assertThat(s0.getLocal("l2"), nullValue());
+        assertThat(s0.getLocal("p1"), nullValue()); // Parameters are not in any scope.
+
+        assertThat(s1.getLocal("l1"), sameInstance(l1));
+        assertThat(s1.getLocal("l2"), sameInstance(l2));
+        assertThat(s1.getLocal("l3"), nullValue());
+
+        assertThat(s2.getLocal("l1"), sameInstance(l1));
+        assertThat(s2.getLocal("l2"), sameInstance(l2));
+        assertThat(s2.getLocal("l3"), sameInstance(l3));
+        assertThat(s2.getLocal("l4"), nullValue());
+
+        assertThat(s3.getLocal("l2"), sameInstance(l2));
+        assertThat(s3.getLocal("l3"), nullValue());
+        assertThat(s3.getLocal("l4"), sameInstance(l4));
+
+        assertThat(s2.getNumLocals(), is(1));
+        assertThat(s2.getLocalAt(0), sameInstance(l3));
+        assertThat(l3.getBlock(), is(s2.getBlock()));
+
+        // Slots: p1 = 1, l1 = 2, l2 = 3, l3 = 4, l4 = 5.
+        assertThat(p1.getIndex(), is(1));
+        assertThat(s0.getFirstSlot(), is(1));
+        assertThat(s0.getEndSlot(), is(6));
+        assertThat(s1.getFirstSlot(), is(3));
+        assertThat(s1.getEndSlot(), is(6));
+        assertThat(s2.getFirstSlot(), is(4));
+        assertThat(s2.getEndSlot(), is(5));
+        assertThat(s3.getFirstSlot(), is(5));
+        assertThat(s3.getEndSlot(), is(6));
+    }
+
+    @Test
+    public void testManyLocals() {
+        // Enough locals in a block that its Scope looks them up in a map.
+        MethodInfo f = new MethodInfo("f", BuiltInType.Int, 1, 1);
+        VariableInfo[] outer = new VariableInfo[20];
+        VariableInfo[] inner = new VariableInfo[20];
+
+        f.enterBlock();
+        for (int i = 0; i < outer.length; i++) {
+            outer[i] = f.addLocal("v" + i, BuiltInType.Int, 2 + i, 4);
+        }
+        f.enterBlock();
+        for (int i = 0; i < inner.length; i += 2) {
+            inner[i] = f.addLocal("v" + i, BuiltInType.Boolean, 30 + i, 8);
+        }
+        for (int i = 0; i < outer.length; i++) {
+            assertThat(f.getLocal("v" + i), sameInstance(i % 2 == 0 ? inner[i] : outer[i]));
+        }
+        f.leaveBlock();
+        f.leaveBlock();
+
+        Scope s0 = f.getScope(0);
+        Scope s1 = f.getScope(1);
+        for (int i = 0; i < outer.length; i++) {
+            assertThat(s0.getLocal("v" + i), sameInstance(outer[i]));
+            assertThat(s1.getLocal("v" + i), sameInstance(i % 2 == 0 ? inner[i] : outer[i]));
         }
+        assertThat(s0.getLocal("v20"), nullValue());
+        assertThat(s1.getLocal("v20"), nullValue());
+    }
+
+    @Test(expected = Error.class)
+    public void testEnterBlockWhenComplete() {
+        MethodInfo f = new MethodInfo("f", BuiltInType.Int, 1, 1);
+        f.enterBlock();
+        f.leaveBlock();
+        f.enterBlock();
     }
 
     @Test
@@ -0,0 +1,85 @@
+package mjc.symbol;
+
+import java.lang.ref.WeakReference;
+
+import mjc.lexer.FastLexer;
+import mjc.node.EOF;
+import mjc.node.TIdentifier;
+import mjc.node.Token;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class SymbolTest {
+
+    @Test
+    public void testOf() {
+        final Symbol foo = Symbol.of("foo");
+        final Symbol bar = Symbol.of("bar");
+
+        assertThat(Symbol.of(new String("foo")), sameInstance(foo));
+        assertThat(Symbol.of(new String("bar")), sameInstance(bar));
+        assertThat(foo, not(sameInstance(bar)));
+
+        assertThat(foo.getName(), is("foo"));
+        assertThat(foo.toString(), is("foo"));
+        assertThat(foo.hashCode(), is("foo".hashCode()));
+    }
+
+    /**
+     * Tests that the pool does not keep Symbols that are no longer used.
+     */
+    @Test(timeout = 10000)
+    public void testUnusedSymbolsCollected() throws InterruptedException {
+        final WeakReference<Symbol> unused =
+                new WeakReference<>(Symbol.of("unused" + System.nanoTime()));
+        while (unused.get() != null) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(unused.get(), nullValue());
+    }
+
+    @Test
+    public void testNameEquals() {
+        final char[] chars = "xfoox".toCharArray();
+        assertThat(Symbol.of("foo").nameEquals(chars, 1, 3), is(true));
+        assertThat(Symbol.of("foo").nameEquals(chars, 0, 3), is(false));
+        assertThat(Symbol.of("foo").nameEquals(chars, 1, 4), is(false));
+    }
+
+    @Test
+    public void testTokenSymbol() {
+        final TIdentifier token = new TIdentifier("foo", 1, 1);
+        assertThat(token.getSymbol(), sameInstance(Symbol.of("foo")));
+
+        token.setText("bar");
+        assertThat(token.getSymbol(), sameInstance(Symbol.of("bar")));
+
+        final TIdentifier interned = new TIdentifier(Symbol.of("baz"), 1, 1);
+        assertThat(interned.getText(), is("baz"));
+        assertThat(interned.getSymbol(), sameInstance(Symbol.of("baz")));
+    }
+
+    @Test
+    public void testFastLexerInterns() throws Exception {
+        // Enough distinct identifiers to make the lexer grow its symbol table.
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            source.append(" a").append(i).append(" a").append(i % 7);
+        }
+
+        final FastLexer lexer = new FastLexer(source.toString().toCharArray());
+        Token token;
+        while (!((token = lexer.next()) instanceof EOF)) {
+            final Symbol symbol = ((TIdentifier) token).getSymbol();
+            assertThat(symbol, sameInstance(Symbol.of(token.getText())));
+            assertThat(token.getText(), sameInstance(symbol.getName()));
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package mjc.synthetic;
+
+/**
+ * The ProgramGenerator class generates synthetic MiniJava programs of a given size.
+ *
+ * The programs are valid, so that every phase of the compiler can be run on them, and
+ * terminate when run. Each program consists of a main class and a number of classes
+ * with a number of methods each. Each method declares a few locals and has a body of
+ * assignments, conditionals, loops, array accesses and field updates, and calls the
+ * method generated before it, so that running the program calls every method once.
+ *
+ * The size is set with the setter methods, which may be chained, e.g.
+ * {@code new ProgramGenerator().classes(10).methods(5).generate()}. Besides the number
+ * of classes, methods and statements, the number of extra locals in each method, the
+ * depth of nested blocks in each method and the depth of arithmetic expressions can be
+ * set, so that each can be scaled on its own.
+ */
+public class ProgramGenerator {
+    private int classes = 1;
+    private int methods = 1;
+    private int statements = 10;
+    private int locals = 0;
+    private int depth = 0;
+    private int expressionDepth = 2;
+
+    /**
+     * @param classes Number of classes besides the main class, at least 1.
+     * @return This generator.
+     */
+    public ProgramGenerator classes(int classes) {
+        this.classes = atLeast(1, classes);
+        return this;
+    }
+
+    /**
+     * @param methods Number of methods in each class, at least 1.
+     * @return This generator.
+     */
+    public ProgramGenerator methods(int methods) {
+        this.methods = atLeast(1, methods);
+        return this;
+    }
+
+    /**
+     * @param statements Number of statements in the body of each method.
+     * @return This generator.
+     */
+    public ProgramGenerator statements(int statements) {
+        this.statements = atLeast(0, statements);
+        return this;
+    }
+
+    /**
+     * @param locals Number of extra int locals in each method, each of which is assigned
+     *               and used.
+     * @return This generator.
+     */
+    public ProgramGenerator locals(int locals) {
+        this.locals = atLeast(0, locals);
+        return this;
+    }
+
+    /**
+     * @param depth Depth of the nested blocks in each method. Each block declares a
+     *              local and uses the locals of the blocks around it.
+     * @return This generator.
+     */
+    public ProgramGenerator depth(int depth) {
+        this.depth = atLeast(0, depth);
+        return this;
+    }
+
+    /**
+     * @param expressionDepth Depth of the arithmetic expressions in assignments, at
+     *                        least 1.
+     * @return This generator.
+     */
+    public ProgramGenerator expressionDepth(int expressionDepth) {
+        this.expressionDepth = atLeast(1, expressionDepth);
+        return this;
+    }
+
+    /**
+     * Generates a program. The main class is named Main.
+     *
+     * @return The source code of the program.
+     */
+    public String generate() {
+        final StringBuilder out = new StringBuilder();
+        out.append("class Main {\n");
+        out.append("    public static void main(String[] args) {\n");
+        out.append("        System.out.println(new C").append(classes - 1)
+           .append("().m").append(methods - 1).append("(1));\n");
+        out.append("    }\n");
+        out.append("}\n");
+        for (int c = 0; c < classes; c++) {
+            out.append("\nclass C").append(c).append(" {\n");
+            out.append("    int f;\n");
+            for (int m = 0; m < methods; m++) {
+                method(out, c, m);
+            }
+            out.append("}\n");
+        }
+        return out.toString();
+    }
+
+    /** Generates method {@code m} of class {@code c}. */
+    private void method(StringBuilder out, int c, int m) {
+        out.append("\n    public int m").append(m).append("(int p) {\n");
+        out.append("        int x;\n");
+        out.append("        int y;\n");
+        out.append("        boolean b;\n");
+        out.append("        int[] a;\n");
+        for (int v = 0; v < locals; v++) {
+            out.append("        int v").append(v).append(";\n");
+        }
+        out.append("        x = p;\n");
+        out.append("        y = 0;\n");
+        out.append("        a = new int[4];\n");
+        for (int v = 0; v < locals; v++) {
+            out.append("        v").append(v).append(" = ").append(v > 0 ? "v" + (v - 1) : "x")
+               .append(" + 1;\n");
+        }
+        if (locals > 0) {
+            out.append("        x = v").append(locals - 1).append(";\n");
+        }
+
+        // Call the previous method, if any.
+        if (m > 0) {
+            out.append("        x = x + this.m").append(m - 1).append("(y);\n");
+        } else if (c > 0) {
+            out.append("        x = x + new C").append(c - 1).append("().m")
+               .append(methods - 1).append("(y);\n");
+        }
+
+        for (int s = 0; s < statements; s++) {
+            switch (s % 5) {
+            case 0:
+                out.append("        x = ");
+                expression(out, s, expressionDepth);
+                out.append(";\n");
+                break;
+            case 1:
+                out.append("        if (x < y) {\n");
+                out.append("            y = y + 1;\n");
+                out.append("        } else {\n");
+                out.append("            x = x - 1;\n");
+                out.append("        }\n");
+                break;
+            case 2:
+                out.append("        while (y < 3) {\n");
+                out.append("            y = y + 1;\n");
+                out.append("        }\n");
+                break;
+            case 3:
+                out.append("        a[y - y] = a[0] + x;\n");
+                out.append("        b = x < a.length && !(y < 0);\n");
+                break;
+            default:
+                out.append("        f = f + x;\n");
+                break;
+            }
+        }
+        nested(out, 0);
+        out.append("        return x + f;\n");
+        out.append("    }\n");
+    }
+
+    /**
+     * Generates an expression of the given depth, picking operands and operators by
+     * {@code seed}.
+     */
+    private void expression(StringBuilder out, int seed, int depth) {
+        if (depth == 1) {
+            operand(out, seed);
+            return;
+        }
+        out.append("(");
+        operand(out, seed);
+        switch (seed % 3) {
+        case 0:
+            out.append(" + ");
+            break;
+        case 1:
+            out.append(" - ");
+            break;
+        default:
+            out.append(" * ");
+            break;
+        }
+        expression(out, seed + 1, depth - 1);
+        out.append(")");
+    }
+
+    /** Generates a variable or a literal, picked by {@code seed}. */
+    private void operand(StringBuilder out, int seed) {
+        final int choice = seed % (3 + locals);
+        if (choice == 0) {
+            out.append("x");
+        } else if (choice == 1) {
+            out.append("y");
+        } else if (choice == 2) {
+            out.append(seed);
+        } else {
+            out.append("v").append(choice - 3);
+        }
+    }
+
+    /** Generates the blocks nested at {@code level} and deeper. */
+    private void nested(StringBuilder out, int level) {
+        if (level == depth) {
+            if (depth > 0) {
+                indent(out, level).append("x = x + w").append(depth - 1).append(";\n");
+            }
+            return;
+        }
+        indent(out, level).append("if (y < ").append(level + 100).append(") {\n");
+        indent(out, level + 1).append("int w").append(level).append(";\n");
+        indent(out, level + 1).append("w").append(level).append(" = ")
+                .append(level > 0 ? "w" + (level - 1) : "x").append(" + 1;\n");
+        nested(out, level + 1);
+        indent(out, level).append("} else {\n");
+        indent(out, level + 1).append("y = y - 1;\n");
+        indent(out, level).append("}\n");
+    }
+
+    /** Indents a line, by no more than a few levels so that deep nesting stays small. */
+    private static StringBuilder indent(StringBuilder out, int level) {
+        out.append("        ");
+        for (int i = 0; i < Math.min(level, 4); i++) {
+            out.append("    ");
+        }
+        return out;
+    }
+
+    private static int atLeast(int min, int value) {
+        if (value < min) {
+            throw new IllegalArgumentException("Expected at least " + min + ", got " + value);
+        }
+        return value;
+    }
+}
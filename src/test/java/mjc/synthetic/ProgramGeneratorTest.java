@@ -0,0 +1,42 @@
+package mjc.synthetic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import mjc.CompilationResult;
+import mjc.Compiler;
+
+/**
+ * Tests for generating synthetic programs.
+ */
+public class ProgramGeneratorTest {
+
+    /**
+     * Tests that generated programs compile without errors.
+     */
+    @Test
+    public void testCompiles() {
+        final int[][] sizes = { { 1, 1, 0 }, { 1, 1, 10 }, { 3, 4, 7 } };
+        for (int[] size : sizes) {
+            final String program = new ProgramGenerator()
+                    .classes(size[0]).methods(size[1]).statements(size[2]).generate();
+            final CompilationResult result = new Compiler().compile(program.toCharArray());
+            assertTrue(result.getErrors().toString(), result.isSuccessful());
+            assertEquals(size[0] + 1, result.getClassFiles().size());
+        }
+    }
+
+    /**
+     * Tests that programs with many locals, deeply nested blocks and deep expressions
+     * compile without errors.
+     */
+    @Test
+    public void testCompilesDeep() {
+        final String program = new ProgramGenerator()
+                .locals(20).depth(10).expressionDepth(30).generate();
+        final CompilationResult result = new Compiler().compile(program.toCharArray());
+        assertTrue(result.getErrors().toString(), result.isSuccessful());
+    }
+}
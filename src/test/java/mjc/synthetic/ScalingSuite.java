@@ -0,0 +1,225 @@
+package mjc.synthetic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import mjc.CompilationResult;
+import mjc.Compiler;
+
+/**
+ * Tests that compile time and memory grow no faster than the size of the program.
+ *
+ * Each test generates programs with the {@link ProgramGenerator} that grow by a factor
+ * of 10 at a time along one dimension, such as the number of classes or the depth of
+ * nested blocks, and compiles each of them. A test fails if, from one program to the
+ * next, a measurement grows faster than the size of the source code to the power of
+ * an exponent. The number of bytes allocated by a compilation does not depend on the
+ * JIT or the garbage collector, so it is held to {@link #MAX_ALLOCATION_EXPONENT},
+ * close to linear growth. The compile time and the peak heap usage vary from run to
+ * run, so they are held to {@link #MAX_EXPONENT}, which leaves room for noise, but not
+ * for quadratic growth.
+ *
+ * Each measurement is the median of {@link #REPETITIONS} samples. A sample of the time
+ * and the allocation repeats the compilation until it has taken at least
+ * {@link #MIN_SAMPLE_NANOS}, so that the times of small programs are not lost in the
+ * resolution of the clock, and takes the average.
+ *
+ * Since the results depend on the JIT and the garbage collector, this suite is not run
+ * by {@code ant test}, but by {@code ant scaling}, in a JVM of its own.
+ */
+public class ScalingSuite {
+    // Highest growth exponents allowed between two programs.
+    private static final double MAX_EXPONENT = 1.4;
+    private static final double MAX_ALLOCATION_EXPONENT = 1.2;
+
+    // Samples of each program, of which the median is measured.
+    private static final int REPETITIONS = 11;
+
+    // Shortest time of a sample of the compile time.
+    private static final long MIN_SAMPLE_NANOS = 20000000;
+
+    // Differences in time and memory below these are too small to tell noise from growth.
+    private static final long MIN_NANOS = 5000000;
+    private static final long MIN_BYTES = 1 << 20;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeClass
+    public static void warmUp() {
+        final char[] source = new ProgramGenerator().classes(10).methods(10).statements(20)
+                .locals(5).depth(5).expressionDepth(5).generate().toCharArray();
+        for (int i = 0; i < 50; i++) {
+            new Compiler().compile(source);
+        }
+    }
+
+    /**
+     * Tests scaling in the number of classes.
+     */
+    @Test
+    public void testClasses() {
+        check("classes",
+                new ProgramGenerator().classes(2).methods(10).statements(20),
+                new ProgramGenerator().classes(20).methods(10).statements(20),
+                new ProgramGenerator().classes(200).methods(10).statements(20));
+    }
+
+    /**
+     * Tests scaling in the number of statements in a method.
+     */
+    @Test
+    public void testStatements() {
+        check("statements",
+                new ProgramGenerator().methods(10).statements(20),
+                new ProgramGenerator().methods(10).statements(200),
+                new ProgramGenerator().methods(10).statements(2000));
+    }
+
+    /**
+     * Tests scaling in the number of locals in a method.
+     */
+    @Test
+    public void testLocals() {
+        check("locals",
+                new ProgramGenerator().methods(10).locals(20),
+                new ProgramGenerator().methods(10).locals(200),
+                new ProgramGenerator().methods(10).locals(2000));
+    }
+
+    /**
+     * Tests scaling in the depth of nested blocks.
+     */
+    @Test
+    public void testDepth() {
+        check("depth",
+                new ProgramGenerator().methods(10).statements(0).depth(5),
+                new ProgramGenerator().methods(10).statements(0).depth(50),
+                new ProgramGenerator().methods(10).statements(0).depth(500));
+    }
+
+    /**
+     * Tests scaling in the depth of expressions.
+     */
+    @Test
+    public void testExpressionDepth() {
+        check("expression depth",
+                new ProgramGenerator().methods(10).statements(50).expressionDepth(10),
+                new ProgramGenerator().methods(10).statements(50).expressionDepth(100),
+                new ProgramGenerator().methods(10).statements(50).expressionDepth(1000));
+    }
+
+    /**
+     * Compiles the programs of the generators, in order of size, and checks that no
+     * measurement grows faster than the size of the source code allows.
+     */
+    private static void check(String dimension, ProgramGenerator... generators) {
+        Measurement previous = null;
+        for (ProgramGenerator generator : generators) {
+            final Measurement current = measure(generator.generate().toCharArray());
+            System.out.printf("%-18s %9d chars %9.1f ms %11d bytes %11d peak%n", dimension,
+                    current.size, current.nanos / 1e6, current.allocated, current.peak);
+            if (previous != null) {
+                checkGrowth(dimension, "time", previous.size, current.size,
+                        previous.nanos, current.nanos, MIN_NANOS, MAX_EXPONENT);
+                checkGrowth(dimension, "allocation", previous.size, current.size,
+                        previous.allocated, current.allocated, MIN_BYTES,
+                        MAX_ALLOCATION_EXPONENT);
+                checkGrowth(dimension, "peak heap", previous.size, current.size,
+                        previous.peak, current.peak, MIN_BYTES, MAX_EXPONENT);
+            }
+            previous = current;
+        }
+    }
+
+    private static void checkGrowth(String dimension, String what, long fromSize,
+            long toSize, long from, long to, long min, double maxExponent) {
+        if (to < min) {
+            return;
+        }
+        final double exponent = Math.log((double) to / Math.max(from, min))
+                / Math.log((double) toSize / fromSize);
+        if (exponent > maxExponent) {
+            fail(String.format("%s grows with %s as size^%.2f, from %d to %d for %d to %d chars",
+                    what, dimension, exponent, from, to, fromSize, toSize));
+        }
+    }
+
+    /**
+     * Compiles a program repeatedly, measuring the median of several samples.
+     */
+    private static Measurement measure(char[] source) {
+        final long[] nanos = new long[REPETITIONS];
+        final long[] allocated = new long[REPETITIONS];
+        final long[] peak = new long[REPETITIONS];
+        final long thread = Thread.currentThread().getId();
+        for (int i = 0; i < REPETITIONS; i++) {
+            // The peak heap usage of a single compilation.
+            System.gc();
+            long baseline = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                    baseline += pool.getUsage().getUsed();
+                }
+            }
+            compile(source);
+            long peakNow = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakNow += pool.getPeakUsage().getUsed();
+                }
+            }
+            peak[i] = Math.max(0, peakNow - baseline);
+
+            // The average time and allocation of compilations that fill a sample.
+            final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            final long start = System.nanoTime();
+            long elapsed;
+            int count = 0;
+            do {
+                compile(source);
+                ++count;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < MIN_SAMPLE_NANOS);
+            nanos[i] = elapsed / count;
+            allocated[i] = (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / count;
+        }
+
+        final Measurement measurement = new Measurement();
+        measurement.size = source.length;
+        measurement.nanos = median(nanos);
+        measurement.allocated = median(allocated);
+        measurement.peak = median(peak);
+        return measurement;
+    }
+
+    private static void compile(char[] source) {
+        final CompilationResult result = new Compiler().compile(source);
+        assertTrue(result.getErrors().toString(), result.isSuccessful());
+    }
+
+    private static long median(long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Measurements of the compilation of a program.
+     */
+    private static final class Measurement {
+        long size;
+        long nanos;
+        long allocated;
+        long peak;
+    }
+}